@@ -0,0 +1,105 @@
+package com.example.kafka;
+
+import com.example.dto.UserEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.message.BinaryMessageDecoder;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.springframework.kafka.support.JacksonUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Читает события пользователя, записанные {@link UserEventSerializer} любой известной версией схемы,
+ * а также JSON, оставшийся в топике от прежнего формата.
+ * Записи, тип которых по заголовку не входит в acceptedTypes, не декодируются: вместо события
+ * возвращается null, и контейнер отбрасывает запись фильтром. Так же отбрасываются события
+ * неизвестного типа, добавленного более новой версией схемы.
+ */
+public class UserEventDeserializer implements Deserializer<UserEvent> {
+
+    private static final BinaryMessageDecoder<GenericRecord> DECODER = UserEventSchemas.decoder();
+    private static final String UNKNOWN_TYPE = "UNKNOWN";
+
+    private final Set<UserEvent.EventTypeEnum> acceptedTypes;
+    private final byte[][] acceptedHeaders;
+    private final ObjectMapper legacyMapper = JacksonUtils.enhancedObjectMapper();
+
+    public UserEventDeserializer() {
+        this(EnumSet.allOf(UserEvent.EventTypeEnum.class));
+    }
+
+    public UserEventDeserializer(Set<UserEvent.EventTypeEnum> acceptedTypes) {
+        this.acceptedTypes = EnumSet.copyOf(acceptedTypes);
+        this.acceptedHeaders = this.acceptedTypes.stream()
+                .map(type -> type.getValue().getBytes(StandardCharsets.US_ASCII))
+                .toArray(byte[][]::new);
+    }
+
+    @Override
+    public UserEvent deserialize(String topic, Headers headers, byte[] data) {
+        Header eventType = headers.lastHeader(UserEventSchemas.EVENT_TYPE_HEADER);
+        if (eventType != null && !isAcceptedHeader(eventType.value())) {
+            return null;
+        }
+        return deserialize(topic, data);
+    }
+
+    @Override
+    public UserEvent deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        UserEvent event = UserEventSchemas.isBinary(data) ? decode(data) : readLegacyJson(data);
+        return event != null && acceptedTypes.contains(event.getEventType()) ? event : null;
+    }
+
+    private boolean isAcceptedHeader(byte[] value) {
+        for (byte[] accepted : acceptedHeaders) {
+            if (Arrays.equals(accepted, value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static UserEvent decode(byte[] data) {
+        GenericRecord record;
+        try {
+            record = DECODER.decode(data);
+        } catch (IOException | RuntimeException e) {
+            throw new SerializationException("Не удалось декодировать событие пользователя", e);
+        }
+        String type = record.get("eventType").toString();
+        if (UNKNOWN_TYPE.equals(type)) {
+            return null;
+        }
+        Object name = record.get("name");
+        Long createdAt = (Long) record.get("createdAt");
+        return new UserEvent(record.get("email").toString(), UserEvent.EventTypeEnum.fromValue(type))
+                .id((Long) record.get("id"))
+                .name(name == null ? null : name.toString())
+                .age((Integer) record.get("age"))
+                .version((Long) record.get("version"))
+                .createdAt(createdAt == null ? null
+                        : LocalDateTime.ofInstant(Instant.ofEpochMilli(createdAt), ZoneOffset.UTC));
+    }
+
+    private UserEvent readLegacyJson(byte[] data) {
+        try {
+            return legacyMapper.readValue(data, UserEvent.class);
+        } catch (IOException e) {
+            throw new SerializationException("Не удалось прочитать событие пользователя в формате JSON", e);
+        }
+    }
+}
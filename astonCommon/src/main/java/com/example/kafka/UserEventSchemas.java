@@ -0,0 +1,85 @@
+package com.example.kafka;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.message.BinaryMessageDecoder;
+import org.apache.avro.message.BinaryMessageEncoder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Локальные схемы Avro для событий пользователя, без реестра схем.
+ * Событие кодируется в single-object encoding: маркер C3 01, отпечаток схемы писателя и тело.
+ * Читатель находит схему писателя по отпечатку среди всех известных версий и приводит к текущей,
+ * поэтому новая версия добавляется отдельным файлом в resources/avro и строкой в VERSIONS;
+ * опубликованные файлы не меняются.
+ */
+public final class UserEventSchemas {
+
+    /**
+     * Заголовок Kafka с типом события: слушатели отбрасывают ненужные записи, не разбирая тело.
+     */
+    public static final String EVENT_TYPE_HEADER = "event-type";
+
+    /**
+     * Версии схемы от старой к новой; события пишутся последней.
+     */
+    private static final List<String> VERSIONS = List.of(
+            "avro/user-event-v1.avsc",
+            // v2: createdAt
+            "avro/user-event-v2.avsc");
+
+    private static final List<Schema> ALL = new ArrayList<>();
+
+    public static final Schema CURRENT;
+
+    static {
+        for (String resource : VERSIONS) {
+            ALL.add(load(resource));
+        }
+        CURRENT = ALL.get(ALL.size() - 1);
+    }
+
+    private UserEventSchemas() {
+    }
+
+    /**
+     * Потокобезопасный кодировщик текущей схемой.
+     */
+    public static BinaryMessageEncoder<GenericRecord> encoder() {
+        return new BinaryMessageEncoder<>(GenericData.get(), CURRENT);
+    }
+
+    /**
+     * Потокобезопасный декодер, читающий любую известную версию в текущую схему.
+     */
+    public static BinaryMessageDecoder<GenericRecord> decoder() {
+        BinaryMessageDecoder<GenericRecord> decoder = new BinaryMessageDecoder<>(GenericData.get(), CURRENT);
+        ALL.forEach(decoder::addSchema);
+        return decoder;
+    }
+
+    /**
+     * true — данные закодированы Avro; иначе это JSON, записанный до перехода на Avro.
+     */
+    public static boolean isBinary(byte[] data) {
+        return data.length >= 2 && data[0] == (byte) 0xC3 && data[1] == 0x01;
+    }
+
+    private static Schema load(String resource) {
+        try (InputStream in = UserEventSchemas.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalStateException("Не найдена схема " + resource);
+            }
+            // У каждой версии своё пространство имён парсера: имена типов в версиях совпадают
+            return new Schema.Parser().parse(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать схему " + resource, e);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.kafka;
+
+import com.example.dto.UserEvent;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.message.BinaryMessageEncoder;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Кодирует событие пользователя в Avro по {@link UserEventSchemas#CURRENT} и кладёт его тип
+ * в заголовок {@link UserEventSchemas#EVENT_TYPE_HEADER}. Ссылки HATEOAS в топик не попадают.
+ */
+public class UserEventSerializer implements Serializer<UserEvent> {
+
+    private static final BinaryMessageEncoder<GenericRecord> ENCODER = UserEventSchemas.encoder();
+    private static final Schema SCHEMA = UserEventSchemas.CURRENT;
+    private static final int ID = SCHEMA.getField("id").pos();
+    private static final int EMAIL = SCHEMA.getField("email").pos();
+    private static final int EVENT_TYPE = SCHEMA.getField("eventType").pos();
+    private static final int NAME = SCHEMA.getField("name").pos();
+    private static final int AGE = SCHEMA.getField("age").pos();
+    private static final int VERSION = SCHEMA.getField("version").pos();
+    private static final int CREATED_AT = SCHEMA.getField("createdAt").pos();
+
+    private static final Map<UserEvent.EventTypeEnum, GenericData.EnumSymbol> SYMBOLS =
+            new EnumMap<>(UserEvent.EventTypeEnum.class);
+    private static final Map<UserEvent.EventTypeEnum, byte[]> HEADER_VALUES =
+            new EnumMap<>(UserEvent.EventTypeEnum.class);
+
+    static {
+        Schema eventTypeSchema = SCHEMA.getField("eventType").schema();
+        for (UserEvent.EventTypeEnum type : UserEvent.EventTypeEnum.values()) {
+            SYMBOLS.put(type, new GenericData.EnumSymbol(eventTypeSchema, type.getValue()));
+            HEADER_VALUES.put(type, type.getValue().getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+
+    @Override
+    public byte[] serialize(String topic, UserEvent event) {
+        if (event == null) {
+            return null;
+        }
+        GenericData.Record record = new GenericData.Record(SCHEMA);
+        record.put(ID, event.getId());
+        record.put(EMAIL, event.getEmail());
+        record.put(EVENT_TYPE, SYMBOLS.get(event.getEventType()));
+        record.put(NAME, event.getName());
+        record.put(AGE, event.getAge());
+        record.put(VERSION, event.getVersion());
+        if (event.getCreatedAt() != null) {
+            record.put(CREATED_AT, event.getCreatedAt().toInstant(ZoneOffset.UTC).toEpochMilli());
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+        try {
+            ENCODER.encode(record, out);
+        } catch (IOException | RuntimeException e) {
+            throw new SerializationException("Не удалось закодировать событие пользователя " + event.getId(), e);
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public byte[] serialize(String topic, Headers headers, UserEvent event) {
+        if (event != null) {
+            headers.add(UserEventSchemas.EVENT_TYPE_HEADER, HEADER_VALUES.get(event.getEventType()));
+        }
+        return serialize(topic, event);
+    }
+}
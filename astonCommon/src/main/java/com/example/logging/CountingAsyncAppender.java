@@ -0,0 +1,44 @@
+package com.example.logging;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Асинхронный appender logback, который никогда не блокирует поток запроса и считает отброшенные события.
+ * Событие отбрасывается, когда очередь заполнена, а события уровня INFO и ниже — уже когда
+ * свободного места меньше discardingThreshold. Счётчики доступны по имени appender и
+ * публикуются в метриках через {@link LoggingMetrics}.
+ */
+public class CountingAsyncAppender extends AsyncAppender {
+
+    private static final Map<String, LongAdder> DROPPED = new ConcurrentHashMap<>();
+
+    private LongAdder dropped;
+
+    public static Map<String, LongAdder> droppedCounters() {
+        return Collections.unmodifiableMap(DROPPED);
+    }
+
+    @Override
+    public void start() {
+        // При повторной инициализации logging счётчик appender с тем же именем продолжается
+        dropped = DROPPED.computeIfAbsent(getName(), name -> new LongAdder());
+        setNeverBlock(true);
+        super.start();
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        int remaining = getRemainingCapacity();
+        if (remaining == 0 || (remaining < getDiscardingThreshold() && isDiscardable(event))) {
+            dropped.increment();
+            return;
+        }
+        super.append(event);
+    }
+}
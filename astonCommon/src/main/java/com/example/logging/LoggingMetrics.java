@@ -0,0 +1,24 @@
+package com.example.logging;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Публикует число отброшенных асинхронными appender событий как logging.events.dropped{appender}.
+ */
+@Component
+public class LoggingMetrics implements MeterBinder {
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CountingAsyncAppender.droppedCounters().forEach((appender, dropped) ->
+                FunctionCounter.builder("logging.events.dropped", dropped, LongAdder::sum)
+                        .tag("appender", appender)
+                        .description("События лога, отброшенные из-за переполнения очереди")
+                        .register(registry));
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.kafka;
+
+import com.example.dto.UserEvent;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.message.BinaryMessageEncoder;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserEventSerdeTest {
+
+    private final UserEventSerializer serializer = new UserEventSerializer();
+    private final UserEventDeserializer deserializer = new UserEventDeserializer();
+
+    private static UserEvent snapshot() {
+        return new UserEvent("user1@example.com", UserEvent.EventTypeEnum.UPDATED)
+                .id(42L).name("Иван").age(30).version(3L)
+                .createdAt(LocalDateTime.of(2025, 1, 1, 12, 0, 5, 123_000_000));
+    }
+
+    private static RecordHeaders typeHeader(String eventType) {
+        RecordHeaders headers = new RecordHeaders();
+        headers.add(UserEventSchemas.EVENT_TYPE_HEADER, eventType.getBytes(StandardCharsets.US_ASCII));
+        return headers;
+    }
+
+    @Test
+    void roundTrip_shouldKeepSnapshotAndSetTypeHeader() {
+        RecordHeaders headers = new RecordHeaders();
+
+        byte[] data = serializer.serialize("user-events", headers, snapshot());
+        UserEvent decoded = deserializer.deserialize("user-events", headers, data);
+
+        assertThat(UserEventSchemas.isBinary(data)).isTrue();
+        assertThat(new String(headers.lastHeader(UserEventSchemas.EVENT_TYPE_HEADER).value(), StandardCharsets.US_ASCII))
+                .isEqualTo("UPDATED");
+        assertThat(decoded).isEqualTo(snapshot());
+    }
+
+    @Test
+    void roundTrip_shouldCoverEveryFieldOfCurrentSchema() {
+        UserEvent decoded = deserializer.deserialize("user-events", serializer.serialize("user-events", snapshot()));
+
+        assertThat(decoded.getId()).isEqualTo(42L);
+        assertThat(decoded.getEmail()).isEqualTo("user1@example.com");
+        assertThat(decoded.getEventType()).isEqualTo(UserEvent.EventTypeEnum.UPDATED);
+        assertThat(decoded.getName()).isEqualTo("Иван");
+        assertThat(decoded.getAge()).isEqualTo(30);
+        assertThat(decoded.getVersion()).isEqualTo(3L);
+        assertThat(decoded.getCreatedAt()).isEqualTo(LocalDateTime.of(2025, 1, 1, 12, 0, 5, 123_000_000));
+        // Новое поле схемы должно попасть и в эту проверку, и в сериализатор с десериализатором
+        Set<String> fields = UserEventSchemas.CURRENT.getFields().stream()
+                .map(Schema.Field::name)
+                .collect(Collectors.toSet());
+        assertThat(fields).containsExactlyInAnyOrder("id", "email", "eventType", "name", "age", "version", "createdAt");
+    }
+
+    @ParameterizedTest
+    @EnumSource(UserEvent.EventTypeEnum.class)
+    void roundTrip_shouldKeepEachTypeAndMissingOptionalFields(UserEvent.EventTypeEnum type) {
+        UserEvent sparse = new UserEvent("user2@example.com", type);
+
+        assertThat(deserializer.deserialize("user-events", serializer.serialize("user-events", sparse)))
+                .isEqualTo(sparse);
+    }
+
+    @Test
+    void deserialize_shouldReadPreviousSchemaVersion() throws Exception {
+        Schema v1 = new Schema.Parser().parse(UserEventSchemas.class.getClassLoader()
+                .getResourceAsStream("avro/user-event-v1.avsc"));
+        GenericRecord record = new GenericData.Record(v1);
+        record.put("id", 5L);
+        record.put("email", "a@example.com");
+        record.put("eventType", new GenericData.EnumSymbol(v1.getField("eventType").schema(), "CREATED"));
+        record.put("name", "Anna");
+        record.put("age", 20);
+        record.put("version", 1L);
+        byte[] data = new BinaryMessageEncoder<GenericRecord>(GenericData.get(), v1)
+                .encode(record).array();
+
+        assertThat(deserializer.deserialize("user-events", typeHeader("CREATED"), data))
+                .isEqualTo(new UserEvent("a@example.com", UserEvent.EventTypeEnum.CREATED)
+                        .id(5L).name("Anna").age(20).version(1L));
+    }
+
+    @Test
+    void deserialize_shouldSkipNotAcceptedTypeWithoutDecodingBody() {
+        UserEventDeserializer deletedOnly = new UserEventDeserializer(EnumSet.of(UserEvent.EventTypeEnum.DELETED));
+
+        // Тело не разбирается: повреждённые данные не приводят к ошибке
+        assertThat(deletedOnly.deserialize("user-events", typeHeader("CREATED"), new byte[]{1, 2, 3})).isNull();
+    }
+
+    @Test
+    void deserialize_shouldSkipTypesUnknownToThisVersion() throws Exception {
+        GenericRecord record = new GenericData.Record(UserEventSchemas.CURRENT);
+        record.put("email", "a@example.com");
+        record.put("eventType", new GenericData.EnumSymbol(
+                UserEventSchemas.CURRENT.getField("eventType").schema(), "UNKNOWN"));
+
+        assertThat(deserializer.deserialize("user-events", typeHeader("PASSWORD_CHANGED"), new byte[]{1})).isNull();
+        assertThat(deserializer.deserialize("user-events", new RecordHeaders(),
+                UserEventSchemas.encoder().encode(record).array())).isNull();
+    }
+
+    @Test
+    void deserialize_shouldReadLegacyJsonMessages() {
+        UserEvent legacy = new UserEvent("user1@example.com", UserEvent.EventTypeEnum.DELETED).id(7L);
+        byte[] json;
+        try (JsonSerializer<UserEvent> jsonSerializer = new JsonSerializer<>()) {
+            json = jsonSerializer.serialize("user-events", legacy);
+        }
+
+        assertThat(deserializer.deserialize("user-events", new RecordHeaders(), json)).isEqualTo(legacy);
+    }
+
+    @Test
+    void serialize_shouldBeSeveralTimesSmallerThanJson() {
+        byte[] json;
+        try (JsonSerializer<UserEvent> jsonSerializer = new JsonSerializer<>()) {
+            json = jsonSerializer.serialize("user-events", snapshot());
+        }
+
+        assertThat(serializer.serialize("user-events", snapshot()).length).isLessThan(json.length / 2);
+    }
+}
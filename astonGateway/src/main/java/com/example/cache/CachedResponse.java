@@ -0,0 +1,18 @@
+package com.example.cache;
+
+import org.springframework.http.HttpHeaders;
+
+import java.net.URI;
+
+/**
+ * Сохранённый ответ сервиса. Заголовки хранятся без hop-by-hop и Content-Length.
+ * generation — поколение кэша на момент запроса к сервису (см. {@link ResponseCache#generation()}).
+ * upstream — адрес сервиса, разрешённый маршрутом, для фонового обновления; null — обновлять не по чему.
+ */
+public record CachedResponse(int status, HttpHeaders headers, byte[] body, long storedAtNanos, long generation,
+                             URI upstream) {
+
+    public long ageNanos(long nowNanos) {
+        return nowNanos - storedAtNanos;
+    }
+}
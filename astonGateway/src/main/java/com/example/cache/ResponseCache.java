@@ -0,0 +1,163 @@
+package com.example.cache;
+
+import com.example.config.ResponseCacheProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.PathMatcher;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Кэш ответов шлюза на чтение пользователей, ограниченный по числу записей и времени хранения.
+ * Запись проходит три состояния: свежая (до ttl), устаревшая, но пригодная для отдачи с фоновым
+ * обновлением (ещё staleWhileRevalidate), и запасная, отдаваемая только вместо ошибки (до staleIfError).
+ * <p>
+ * Сброс не перебирает ключи: каждое изменение увеличивает поколение кэша, а ответ помнит поколение,
+ * при котором его запросили у сервиса. Ответ старше последнего сброса своего пути (для списков — любого
+ * сброса) считается отсутствующим и удаляется при чтении.
+ */
+@Component
+public class ResponseCache {
+
+    public enum Freshness {
+        FRESH, REVALIDATE, STALE
+    }
+
+    private final Cache<String, CachedResponse> cache;
+    private final List<String> paths;
+    private final PathMatcher pathMatcher = new AntPathMatcher();
+    private final long ttlNanos;
+    private final long revalidateNanos;
+    private final Set<String> revalidating = ConcurrentHashMap.newKeySet();
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong listsInvalidatedAt = new AtomicLong();
+    /**
+     * Поколение последнего сброса ответа об одном пользователе. Хранится не дольше самих ответов.
+     */
+    private final Cache<String, Long> resourcesInvalidatedAt;
+
+    public ResponseCache(ResponseCacheProperties properties) {
+        this.paths = properties.getPaths();
+        this.ttlNanos = properties.getTtl().toNanos();
+        this.revalidateNanos = ttlNanos + properties.getStaleWhileRevalidate().toNanos();
+        Duration lifetime = properties.getTtl()
+                .plus(properties.getStaleWhileRevalidate().compareTo(properties.getStaleIfError()) > 0
+                        ? properties.getStaleWhileRevalidate()
+                        : properties.getStaleIfError());
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(lifetime)
+                .build();
+        this.resourcesInvalidatedAt = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(lifetime)
+                .build();
+    }
+
+    public boolean isCacheable(String path) {
+        return paths.stream().anyMatch(pattern -> pathMatcher.match(pattern, path));
+    }
+
+    /**
+     * Ключ учитывает путь, параметры и Accept: один и тот же путь отдаёт JSON и NDJSON.
+     */
+    public static String key(ServerHttpRequest request) {
+        String accept = request.getHeaders().getFirst(HttpHeaders.ACCEPT);
+        return request.getURI().getRawPath()
+                + (request.getURI().getRawQuery() == null ? "" : "?" + request.getURI().getRawQuery())
+                + '|' + (accept == null ? "" : accept);
+    }
+
+    public Optional<CachedResponse> get(String key) {
+        CachedResponse response = cache.getIfPresent(key);
+        if (response != null && invalidated(pathOf(key), response.generation())) {
+            cache.asMap().remove(key, response);
+            return Optional.empty();
+        }
+        return Optional.ofNullable(response);
+    }
+
+    /**
+     * Текущее поколение; запоминается до запроса к сервису, чтобы ответ, полученный до сброса,
+     * но сохранённый после него, не считался свежим.
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    public Freshness freshness(CachedResponse response, long nowNanos) {
+        long age = response.ageNanos(nowNanos);
+        if (age <= ttlNanos) {
+            return Freshness.FRESH;
+        }
+        return age <= revalidateNanos ? Freshness.REVALIDATE : Freshness.STALE;
+    }
+
+    public void put(String key, CachedResponse response) {
+        cache.put(key, response);
+    }
+
+    /**
+     * Отмечает начало фонового обновления ключа; false — обновление уже идёт.
+     */
+    public boolean startRevalidation(String key) {
+        return revalidating.add(key);
+    }
+
+    public void finishRevalidation(String key) {
+        revalidating.remove(key);
+    }
+
+    /**
+     * Сбрасывает ответы, которые могло изменить успешное изменение по path: сам ресурс
+     * и все ответы-списки. Ответы по другим id остаются.
+     */
+    public void invalidate(String path) {
+        long invalidation = generation.incrementAndGet();
+        listsInvalidatedAt.accumulateAndGet(invalidation, Math::max);
+        if (isSingleResource(path)) {
+            resourcesInvalidatedAt.asMap().merge(path, invalidation, Math::max);
+        }
+    }
+
+    private boolean invalidated(String path, long storedGeneration) {
+        if (!isSingleResource(path)) {
+            return storedGeneration < listsInvalidatedAt.get();
+        }
+        Long invalidatedAt = resourcesInvalidatedAt.getIfPresent(path);
+        return invalidatedAt != null && storedGeneration < invalidatedAt;
+    }
+
+    private static String pathOf(String key) {
+        int end = key.indexOf('?');
+        if (end < 0) {
+            end = key.indexOf('|');
+        }
+        return key.substring(0, end);
+    }
+
+    /**
+     * Путь вида /users/{число} — ответ об одном пользователе.
+     */
+    private static boolean isSingleResource(String path) {
+        int slash = path.lastIndexOf('/');
+        if (slash <= 0 || slash == path.length() - 1) {
+            return false;
+        }
+        for (int i = slash + 1; i < path.length(); i++) {
+            if (!Character.isDigit(path.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
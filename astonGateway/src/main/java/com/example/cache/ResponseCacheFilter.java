@@ -0,0 +1,306 @@
+package com.example.cache;
+
+import com.example.config.ResponseCacheProperties;
+import com.example.ratelimit.CachedReadRateLimiter;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.loadbalancer.reactive.LoadBalancedExchangeFilterFunction;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ORIGINAL_REQUEST_URL_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR;
+
+/**
+ * Кэширует GET-ответы маршрутов пользователей и сбрасывает их после успешных изменений.
+ * Свежий ответ отдаётся без обращения к сервису; устаревший — сразу, с фоновым обновлением;
+ * запасной — вместо ошибки 5xx. Ключ ответа кладётся в атрибуты обмена, чтобы его нашёл
+ * FallbackController, когда circuit breaker открыт. Попадания проходят RequestRateLimiter маршрута
+ * через {@link CachedReadRateLimiter}: до фильтров маршрута они не доходят.
+ */
+@Slf4j
+@Component
+public class ResponseCacheFilter implements GlobalFilter, Ordered {
+
+    public static final String CACHE_KEY_ATTR = ResponseCacheFilter.class.getName() + ".key";
+    public static final String FALLBACK_ATTR = ResponseCacheFilter.class.getName() + ".fallback";
+
+    public static final String CACHE_STATUS_HEADER = "X-Cache";
+    private static final String CONSISTENCY_TOKEN_HEADER = "X-Consistency-Token";
+    private static final List<String> NOT_STORED_HEADERS = List.of(
+            HttpHeaders.CONTENT_LENGTH, HttpHeaders.TRANSFER_ENCODING, HttpHeaders.CONNECTION, HttpHeaders.SET_COOKIE);
+    /**
+     * Заголовки клиента, которые не переносятся в фоновый запрос: hop-by-hop, Host и условные —
+     * обновлению нужен полный ответ.
+     */
+    private static final List<String> NOT_REVALIDATED_HEADERS = List.of(
+            HttpHeaders.HOST, HttpHeaders.CONNECTION, "Keep-Alive", HttpHeaders.TE, HttpHeaders.TRAILER,
+            HttpHeaders.TRANSFER_ENCODING, HttpHeaders.UPGRADE, HttpHeaders.PROXY_AUTHORIZATION,
+            HttpHeaders.CONTENT_LENGTH, HttpHeaders.IF_NONE_MATCH, HttpHeaders.IF_MODIFIED_SINCE);
+    private static final String LOAD_BALANCED_SCHEME = "lb";
+
+    private final ResponseCache responseCache;
+    private final CachedReadRateLimiter rateLimiter;
+    private final boolean enabled;
+    private final int maxBodyBytes;
+    private final WebClient webClient;
+    /**
+     * Клиент для адресов lb://; null — балансировщика нет, такие ответы в фоне не обновляются.
+     */
+    private final WebClient loadBalancedWebClient;
+
+    public ResponseCacheFilter(ResponseCache responseCache,
+                               CachedReadRateLimiter rateLimiter,
+                               ResponseCacheProperties properties,
+                               WebClient.Builder webClientBuilder,
+                               ObjectProvider<LoadBalancedExchangeFilterFunction> loadBalancer) {
+        this.responseCache = responseCache;
+        this.rateLimiter = rateLimiter;
+        this.enabled = properties.isEnabled();
+        this.maxBodyBytes = (int) properties.getMaxBodySize().toBytes();
+        this.webClient = webClientBuilder.clone().build();
+        LoadBalancedExchangeFilterFunction loadBalancerFunction = loadBalancer.getIfUnique();
+        this.loadBalancedWebClient = loadBalancerFunction == null
+                ? null
+                : webClientBuilder.clone().filter(loadBalancerFunction).build();
+    }
+
+    @Override
+    public int getOrder() {
+        // Раньше фильтров маршрута (в том числе CircuitBreaker) и до записи ответа NettyWriteResponseFilter
+        return NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (!enabled || !responseCache.isCacheable(request.getPath().value())) {
+            return chain.filter(exchange);
+        }
+        if (request.getMethod() != HttpMethod.GET) {
+            return chain.filter(exchange).then(Mono.fromRunnable(() -> invalidateOnSuccess(exchange)));
+        }
+        if (request.getHeaders().containsKey(CONSISTENCY_TOKEN_HEADER)) {
+            // Клиент читает после своей записи (токен сервиса пользователей): кэш может быть старее неё
+            return chain.filter(exchange);
+        }
+
+        String key = ResponseCache.key(request);
+        exchange.getAttributes().put(CACHE_KEY_ATTR, key);
+        Optional<CachedResponse> cached = responseCache.get(key);
+        if (cached.isPresent()) {
+            CachedResponse response = cached.get();
+            ResponseCache.Freshness freshness = responseCache.freshness(response, System.nanoTime());
+            if (freshness != ResponseCache.Freshness.STALE) {
+                // Попадание не доходит до RequestRateLimiter маршрута: лимит проверяется здесь
+                return rateLimiter.isAllowed(exchange).flatMap(allowed -> allowed
+                        ? serveCached(exchange, key, response, freshness)
+                        : exchange.getResponse().setComplete());
+            }
+            // Слишком старый для отдачи без запроса к сервису, но пригодится при ошибке
+        }
+        ServerWebExchange caching = exchange.mutate()
+                .response(new CachingResponse(exchange, key, cached.orElse(null), responseCache.generation()))
+                .build();
+        return chain.filter(caching);
+    }
+
+    private Mono<Void> serveCached(ServerWebExchange exchange, String key, CachedResponse response,
+                                   ResponseCache.Freshness freshness) {
+        if (freshness == ResponseCache.Freshness.REVALIDATE) {
+            revalidate(exchange.getRequest(), key, response);
+            return write(exchange.getResponse(), response, "STALE");
+        }
+        if (notModified(exchange.getRequest(), response)) {
+            exchange.getResponse().setStatusCode(HttpStatus.NOT_MODIFIED);
+            exchange.getResponse().getHeaders().setETag(response.headers().getETag());
+            exchange.getResponse().getHeaders().set(CACHE_STATUS_HEADER, "HIT");
+            return exchange.getResponse().setComplete();
+        }
+        return write(exchange.getResponse(), response, "HIT");
+    }
+
+    /**
+     * If-None-Match совпадает с ETag сохранённого ответа: клиенту достаточно 304.
+     */
+    private static boolean notModified(ServerHttpRequest request, CachedResponse cached) {
+        String etag = cached.headers().getETag();
+        if (etag == null) {
+            return false;
+        }
+        return request.getHeaders().getIfNoneMatch().stream()
+                .anyMatch(tag -> tag.equals("*") || tag.equals(etag) || tag.equals("W/" + etag));
+    }
+
+    private void invalidateOnSuccess(ServerWebExchange exchange) {
+        HttpStatusCode status = exchange.getResponse().getStatusCode();
+        if (status != null && status.is2xxSuccessful()) {
+            responseCache.invalidate(exchange.getRequest().getPath().value());
+        }
+    }
+
+    /**
+     * Отдаёт сохранённый ответ. cacheStatus попадает в X-Cache; устаревший ответ клиент узнаёт по X-Cache: STALE
+     * и Age (заголовок Warning из RFC 9111 удалён).
+     */
+    public static Mono<Void> write(ServerHttpResponse response, CachedResponse cached, String cacheStatus) {
+        response.setStatusCode(HttpStatusCode.valueOf(cached.status()));
+        response.getHeaders().putAll(cached.headers());
+        response.getHeaders().set(CACHE_STATUS_HEADER, cacheStatus);
+        response.getHeaders().set(HttpHeaders.AGE,
+                Long.toString(TimeUnit.NANOSECONDS.toSeconds(cached.ageNanos(System.nanoTime()))));
+        response.getHeaders().setContentLength(cached.body().length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(cached.body())));
+    }
+
+    /**
+     * Запрашивает ресурс напрямую у сервиса, по адресу из маршрута, сохранённому вместе с ответом:
+     * фоновый запрос не проходит фильтры шлюза и не считается запросом клиента. Передаются сквозные
+     * заголовки клиента (Authorization, X-Actor и т. п.); заголовки, добавляемые фильтрами маршрута, — нет.
+     */
+    private void revalidate(ServerHttpRequest request, String key, CachedResponse stale) {
+        URI upstream = stale.upstream();
+        WebClient client = webClient;
+        if (upstream != null && LOAD_BALANCED_SCHEME.equals(upstream.getScheme())) {
+            // Экземпляр выбирает балансировщик; схему он берёт из экземпляра
+            client = loadBalancedWebClient;
+            upstream = UriComponentsBuilder.fromUri(upstream).scheme("http").build(true).toUri();
+        }
+        if (upstream == null || client == null || !responseCache.startRevalidation(key)) {
+            return;
+        }
+        long generation = responseCache.generation();
+        URI uri = upstream;
+        client.get()
+                .uri(uri)
+                .headers(headers -> request.getHeaders().forEach((name, values) -> {
+                    if (NOT_REVALIDATED_HEADERS.stream().noneMatch(name::equalsIgnoreCase)) {
+                        headers.addAll(name, values);
+                    }
+                }))
+                .exchangeToMono(response -> response.statusCode().value() == HttpStatus.OK.value()
+                        ? response.toEntity(byte[].class)
+                        : response.releaseBody().then(Mono.empty()))
+                .doFinally(signal -> responseCache.finishRevalidation(key))
+                .subscribe(entity -> {
+                    byte[] body = entity.getBody() == null ? new byte[0] : entity.getBody();
+                    if (body.length <= maxBodyBytes) {
+                        HttpHeaders headers = storedHeaders(entity.getHeaders());
+                        responseCache.put(key, new CachedResponse(HttpStatus.OK.value(), headers, body,
+                                System.nanoTime(), generation, stale.upstream()));
+                    }
+                }, e -> log.debug("Фоновое обновление {} не удалось: {}", key, e.getMessage()));
+    }
+
+    /**
+     * Адрес сервиса, на который маршрут отправил запрос. Для lb:// берётся адрес до выбора экземпляра:
+     * к моменту обновления экземпляр может смениться.
+     */
+    private static URI upstream(ServerWebExchange exchange) {
+        Set<URI> originals = exchange.getAttribute(GATEWAY_ORIGINAL_REQUEST_URL_ATTR);
+        if (originals != null) {
+            for (URI original : originals) {
+                if (LOAD_BALANCED_SCHEME.equals(original.getScheme())) {
+                    return original;
+                }
+            }
+        }
+        return exchange.getAttribute(GATEWAY_REQUEST_URL_ATTR);
+    }
+
+    private static HttpHeaders storedHeaders(HttpHeaders headers) {
+        HttpHeaders stored = new HttpHeaders();
+        headers.forEach((name, values) -> {
+            if (NOT_STORED_HEADERS.stream().noneMatch(name::equalsIgnoreCase)) {
+                stored.addAll(name, values);
+            }
+        });
+        return HttpHeaders.readOnlyHttpHeaders(stored);
+    }
+
+    /**
+     * Копирует тело успешного ответа в кэш по мере передачи клиенту. При 5xx отдаёт запасной ответ, если он есть.
+     */
+    private class CachingResponse extends ServerHttpResponseDecorator {
+
+        private final ServerWebExchange exchange;
+        private final String key;
+        private final CachedResponse fallback;
+        private final long generation;
+
+        CachingResponse(ServerWebExchange exchange, String key, CachedResponse fallback, long generation) {
+            super(exchange.getResponse());
+            this.exchange = exchange;
+            this.key = key;
+            this.fallback = fallback;
+            this.generation = generation;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            HttpStatusCode status = getStatusCode();
+            if (fallback != null && status != null && status.is5xxServerError()) {
+                log.warn("Сервис ответил {}, отдаём сохранённый ответ для {}", status, key);
+                getHeaders().clear();
+                return write(getDelegate(), fallback, "STALE");
+            }
+            if (status == null || status.value() != HttpStatus.OK.value()
+                    || exchange.getAttributes().containsKey(FALLBACK_ATTR)) {
+                return super.writeWith(body);
+            }
+
+            ByteArrayOutputStream copy = new ByteArrayOutputStream();
+            boolean[] tooLarge = {false};
+            Flux<DataBuffer> tee = Flux.from(body).map(buffer -> {
+                if (!tooLarge[0]) {
+                    if (copy.size() + buffer.readableByteCount() > maxBodyBytes) {
+                        tooLarge[0] = true;
+                    } else {
+                        byte[] bytes = new byte[buffer.readableByteCount()];
+                        // Копия без сдвига позиции чтения: буфер дальше уходит клиенту
+                        buffer.toByteBuffer(buffer.readPosition(), ByteBuffer.wrap(bytes), 0, bytes.length);
+                        copy.writeBytes(bytes);
+                    }
+                }
+                return buffer;
+            });
+            return super.writeWith(tee).doOnSuccess(done -> {
+                if (!tooLarge[0]) {
+                    responseCache.put(key, new CachedResponse(status.value(), storedHeaders(getHeaders()),
+                            copy.toByteArray(), System.nanoTime(), generation, upstream(exchange)));
+                }
+            });
+        }
+
+        @Override
+        public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+            // Потоковые ответы (NDJSON) не кэшируются
+            return super.writeAndFlushWith(body);
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.config;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.circuitbreaker.event.CircuitBreakerOnStateTransitionEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Метрики circuit breaker вместо записи в лог каждой ошибки.
+ * Вызовы учитываются таймером gateway.circuitbreaker.calls с тегами name, state и outcome;
+ * отклонённые вызовы, переходы и текущее состояние — отдельными метриками.
+ * Breaker, созданные после старта, подключаются по событиям реестра.
+ * Ошибки в лог попадают только периодической сводкой; переходы состояний редки и логируются сразу.
+ */
+@Slf4j
+@Component
+public class CircuitBreakerTelemetry {
+
+    private static final String OTHER_ERRORS = "other";
+
+    private enum Outcome {
+        SUCCESS, ERROR, IGNORED;
+
+        private static final int COUNT = values().length;
+
+        private final String tag = name().toLowerCase(Locale.ROOT);
+    }
+
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+    private final MeterRegistry meterRegistry;
+    private final Duration summaryInterval;
+    private final int maxErrorTypes;
+    private final Map<String, BreakerStats> stats = new ConcurrentHashMap<>();
+    private final Set<CircuitBreaker> bound = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+    private final ScheduledExecutorService summarizer;
+
+    public CircuitBreakerTelemetry(CircuitBreakerRegistry circuitBreakerRegistry,
+                                   MeterRegistry meterRegistry,
+                                   CircuitBreakerTelemetryProperties properties) {
+        this.circuitBreakerRegistry = circuitBreakerRegistry;
+        this.meterRegistry = meterRegistry;
+        this.summaryInterval = properties.getSummaryInterval();
+        this.maxErrorTypes = properties.getMaxErrorTypes();
+        this.summarizer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "circuit-breaker-summary");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    public void start() {
+        // Сначала подписка, потом обход: breaker, добавленный между ними, не потеряется, а повтор отсекает bound
+        circuitBreakerRegistry.getEventPublisher()
+                .onEntryAdded(event -> bind(event.getAddedEntry()))
+                .onEntryReplaced(event -> bind(event.getNewEntry()));
+        circuitBreakerRegistry.getAllCircuitBreakers().forEach(this::bind);
+
+        long intervalMs = summaryInterval.toMillis();
+        summarizer.scheduleWithFixedDelay(this::logSummary, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        summarizer.shutdownNow();
+    }
+
+    private void bind(CircuitBreaker circuitBreaker) {
+        if (!bound.add(circuitBreaker)) {
+            return;
+        }
+        BreakerStats breakerStats = stats.computeIfAbsent(circuitBreaker.getName(), name -> new BreakerStats(name, circuitBreaker));
+        breakerStats.circuitBreaker = circuitBreaker;
+
+        circuitBreaker.getEventPublisher()
+                .onSuccess(event -> breakerStats.record(Outcome.SUCCESS, event.getElapsedDuration()))
+                .onError(event -> {
+                    breakerStats.record(Outcome.ERROR, event.getElapsedDuration());
+                    breakerStats.countError(event.getThrowable());
+                })
+                .onIgnoredError(event -> breakerStats.record(Outcome.IGNORED, event.getElapsedDuration()))
+                .onCallNotPermitted(event -> {
+                    breakerStats.notPermittedCounter.increment();
+                    breakerStats.notPermitted.increment();
+                })
+                .onStateTransition(this::onStateTransition)
+                .onReset(event -> log.info("CircuitBreaker '{}' сброшен в состояние CLOSED",
+                        event.getCircuitBreakerName()));
+
+        log.info("Подключены метрики CircuitBreaker: {}", circuitBreaker.getName());
+    }
+
+    private void onStateTransition(CircuitBreakerOnStateTransitionEvent event) {
+        CircuitBreaker.StateTransition transition = event.getStateTransition();
+        Counter.builder("gateway.circuitbreaker.transitions")
+                .tag("name", event.getCircuitBreakerName())
+                .tag("from", transition.getFromState().name())
+                .tag("to", transition.getToState().name())
+                .description("Переходы circuit breaker между состояниями")
+                .register(meterRegistry)
+                .increment();
+        log.warn("CircuitBreaker '{}' перешёл из {} в {}",
+                event.getCircuitBreakerName(), transition.getFromState(), transition.getToState());
+    }
+
+    /**
+     * Пишет по одной строке на breaker, у которого с прошлой сводки были ошибки или отклонённые вызовы.
+     */
+    void logSummary() {
+        for (BreakerStats breakerStats : stats.values()) {
+            long errors = breakerStats.errors.sumThenReset();
+            long notPermitted = breakerStats.notPermitted.sumThenReset();
+            if (errors == 0 && notPermitted == 0) {
+                continue;
+            }
+            String errorTypes = breakerStats.drainErrorTypes();
+            CircuitBreaker.Metrics metrics = breakerStats.circuitBreaker.getMetrics();
+            log.warn("CircuitBreaker '{}' за {} с: ошибок {}, отклонено {}, состояние {}, доля ошибок {}%, ошибки: {}",
+                    breakerStats.name, summaryInterval.toSeconds(), errors, notPermitted,
+                    breakerStats.circuitBreaker.getState(), metrics.getFailureRate(), errorTypes);
+        }
+    }
+
+    /**
+     * Счётчики одного breaker по имени. Таймеры создаются при первом вызове в паре состояние/исход,
+     * чтобы не регистрировать пустые серии для состояний, в которых breaker не бывает.
+     */
+    private class BreakerStats {
+
+        private final String name;
+        private final Timer[] timers = new Timer[CircuitBreaker.State.values().length * Outcome.COUNT];
+        private final Counter notPermittedCounter;
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder notPermitted = new LongAdder();
+        private final Map<String, LongAdder> errorTypes = new ConcurrentHashMap<>();
+        private volatile CircuitBreaker circuitBreaker;
+
+        BreakerStats(String name, CircuitBreaker circuitBreaker) {
+            this.name = name;
+            this.circuitBreaker = circuitBreaker;
+            this.notPermittedCounter = Counter.builder("gateway.circuitbreaker.not.permitted")
+                    .tag("name", name)
+                    .description("Вызовы, отклонённые открытым circuit breaker")
+                    .register(meterRegistry);
+            Gauge.builder("gateway.circuitbreaker.state", this, stats -> stats.circuitBreaker.getState().getOrder())
+                    .tag("name", name)
+                    .description("Состояние circuit breaker: 0 CLOSED, 1 OPEN, 2 HALF_OPEN, 3 DISABLED, 4 FORCED_OPEN, 5 METRICS_ONLY")
+                    .register(meterRegistry);
+        }
+
+        void record(Outcome outcome, Duration elapsed) {
+            CircuitBreaker.State state = circuitBreaker.getState();
+            int index = state.ordinal() * Outcome.COUNT + outcome.ordinal();
+            Timer timer = timers[index];
+            if (timer == null) {
+                // Гонка безопасна: реестр вернёт один и тот же таймер
+                timer = Timer.builder("gateway.circuitbreaker.calls")
+                        .tag("name", name)
+                        .tag("state", state.name())
+                        .tag("outcome", outcome.tag)
+                        .description("Вызовы через circuit breaker")
+                        .register(meterRegistry);
+                timers[index] = timer;
+            }
+            timer.record(elapsed);
+        }
+
+        void countError(Throwable throwable) {
+            errors.increment();
+            String type = throwable.getClass().getSimpleName();
+            LongAdder counter = errorTypes.get(type);
+            if (counter == null) {
+                counter = errorTypes.size() < maxErrorTypes
+                        ? errorTypes.computeIfAbsent(type, key -> new LongAdder())
+                        : errorTypes.computeIfAbsent(OTHER_ERRORS, key -> new LongAdder());
+            }
+            counter.increment();
+        }
+
+        String drainErrorTypes() {
+            Map<String, Long> drained = new TreeMap<>();
+            errorTypes.forEach((type, counter) -> {
+                long count = counter.sumThenReset();
+                if (count > 0) {
+                    drained.put(type, count);
+                }
+            });
+            return drained.entrySet().stream()
+                    .map(entry -> entry.getKey() + "=" + entry.getValue())
+                    .collect(Collectors.joining(", "));
+        }
+    }
+}
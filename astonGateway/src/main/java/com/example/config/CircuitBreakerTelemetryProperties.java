@@ -0,0 +1,40 @@
+package com.example.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Настройки телеметрии circuit breaker шлюза.
+ */
+@Component
+@ConfigurationProperties(prefix = "app.circuit-breaker.telemetry")
+public class CircuitBreakerTelemetryProperties {
+
+    /**
+     * Как часто в лог пишется сводка по ошибкам и отклонённым вызовам. Отдельные ошибки не логируются.
+     */
+    private Duration summaryInterval = Duration.ofSeconds(30);
+
+    /**
+     * Сколько разных типов исключений учитывается в сводке одного breaker; остальные идут в "other".
+     */
+    private int maxErrorTypes = 16;
+
+    public Duration getSummaryInterval() {
+        return summaryInterval;
+    }
+
+    public void setSummaryInterval(Duration summaryInterval) {
+        this.summaryInterval = summaryInterval;
+    }
+
+    public int getMaxErrorTypes() {
+        return maxErrorTypes;
+    }
+
+    public void setMaxErrorTypes(int maxErrorTypes) {
+        this.maxErrorTypes = maxErrorTypes;
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Настройки локального ограничителя запросов. Лимиты здесь — значения по умолчанию для маршрутов,
+ * у которых в аргументах RequestRateLimiter не заданы local-rate-limiter.*.
+ */
+@Component
+@ConfigurationProperties(prefix = "app.rate-limiter")
+public class RateLimiterProperties {
+
+    /**
+     * Что делать с новым ключом, когда корзин уже maxBuckets.
+     */
+    public enum OverflowPolicy {
+        /**
+         * Ключи сверх предела распределяются по overflowStripes корзинам маршрута по хешу ключа.
+         */
+        STRIPED,
+        /**
+         * Отклонять запросы новых ключей, пока полные корзины не будут удалены.
+         */
+        REJECT,
+        /**
+         * Пропускать запросы новых ключей без ограничения.
+         */
+        ALLOW
+    }
+
+    /**
+     * Токенов в секунду.
+     */
+    private int replenishRate = 10;
+
+    /**
+     * Ёмкость корзины — допустимый всплеск запросов.
+     */
+    private int burstCapacity = 20;
+
+    private int requestedTokens = 1;
+
+    /**
+     * Предел числа корзин в памяти.
+     */
+    private int maxBuckets = 100_000;
+
+    private OverflowPolicy overflowPolicy = OverflowPolicy.STRIPED;
+
+    /**
+     * Число общих корзин маршрута для ключей сверх предела при политике STRIPED.
+     */
+    private int overflowStripes = 1024;
+
+    /**
+     * Как часто удалять корзины, которые успели наполниться, то есть неотличимы от новых.
+     */
+    private Duration evictionInterval = Duration.ofSeconds(30);
+
+    private boolean includeHeaders = true;
+
+    public int getReplenishRate() {
+        return replenishRate;
+    }
+
+    public void setReplenishRate(int replenishRate) {
+        this.replenishRate = replenishRate;
+    }
+
+    public int getBurstCapacity() {
+        return burstCapacity;
+    }
+
+    public void setBurstCapacity(int burstCapacity) {
+        this.burstCapacity = burstCapacity;
+    }
+
+    public int getRequestedTokens() {
+        return requestedTokens;
+    }
+
+    public void setRequestedTokens(int requestedTokens) {
+        this.requestedTokens = requestedTokens;
+    }
+
+    public int getMaxBuckets() {
+        return maxBuckets;
+    }
+
+    public void setMaxBuckets(int maxBuckets) {
+        this.maxBuckets = maxBuckets;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    public int getOverflowStripes() {
+        return overflowStripes;
+    }
+
+    public void setOverflowStripes(int overflowStripes) {
+        this.overflowStripes = overflowStripes;
+    }
+
+    public Duration getEvictionInterval() {
+        return evictionInterval;
+    }
+
+    public void setEvictionInterval(Duration evictionInterval) {
+        this.evictionInterval = evictionInterval;
+    }
+
+    public boolean isIncludeHeaders() {
+        return includeHeaders;
+    }
+
+    public void setIncludeHeaders(boolean includeHeaders) {
+        this.includeHeaders = includeHeaders;
+    }
+}
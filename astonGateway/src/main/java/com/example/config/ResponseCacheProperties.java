@@ -0,0 +1,101 @@
+package com.example.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Настройки кэша ответов шлюза для чтения пользователей.
+ */
+@Component
+@ConfigurationProperties(prefix = "app.response-cache")
+public class ResponseCacheProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Пути, GET-ответы которых кэшируются, а запросы на изменение сбрасывают кэш.
+     */
+    private List<String> paths = List.of("/users", "/users/**");
+
+    private long maximumSize = 10_000;
+
+    /**
+     * Сколько ответ считается свежим и отдаётся без обращения к сервису.
+     */
+    private Duration ttl = Duration.ofSeconds(30);
+
+    /**
+     * Сколько после ttl ответ ещё отдаётся сразу, пока в фоне запрашивается свежий.
+     */
+    private Duration staleWhileRevalidate = Duration.ofSeconds(30);
+
+    /**
+     * Сколько после ttl ответ хранится для отдачи вместо ошибки, когда сервис недоступен.
+     */
+    private Duration staleIfError = Duration.ofMinutes(10);
+
+    /**
+     * Ответы больше этого размера не кэшируются.
+     */
+    private DataSize maxBodySize = DataSize.ofKilobytes(256);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public List<String> getPaths() {
+        return paths;
+    }
+
+    public void setPaths(List<String> paths) {
+        this.paths = paths;
+    }
+
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    public void setMaximumSize(long maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    public void setTtl(Duration ttl) {
+        this.ttl = ttl;
+    }
+
+    public Duration getStaleWhileRevalidate() {
+        return staleWhileRevalidate;
+    }
+
+    public void setStaleWhileRevalidate(Duration staleWhileRevalidate) {
+        this.staleWhileRevalidate = staleWhileRevalidate;
+    }
+
+    public Duration getStaleIfError() {
+        return staleIfError;
+    }
+
+    public void setStaleIfError(Duration staleIfError) {
+        this.staleIfError = staleIfError;
+    }
+
+    public DataSize getMaxBodySize() {
+        return maxBodySize;
+    }
+
+    public void setMaxBodySize(DataSize maxBodySize) {
+        this.maxBodySize = maxBodySize;
+    }
+}
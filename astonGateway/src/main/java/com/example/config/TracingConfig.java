@@ -0,0 +1,23 @@
+package com.example.config;
+
+import io.opentelemetry.exporter.logging.otlp.OtlpJsonLoggingSpanExporter;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Спаны gateway (входящий запрос и проксируемый вызов сервиса) пишутся в формате OTLP JSON
+ * в отдельный файл (logback-spring.xml), коллектор для этого не нужен.
+ * Контекст в сервисы передаёт заголовок traceparent, который добавляет наблюдение маршрутов
+ * Spring Cloud Gateway.
+ */
+@Configuration
+public class TracingConfig {
+
+    @Bean
+    @ConditionalOnProperty(prefix = "app.tracing", name = "log-export", havingValue = "true", matchIfMissing = true)
+    public SpanExporter otlpJsonLoggingSpanExporter() {
+        return OtlpJsonLoggingSpanExporter.create();
+    }
+}
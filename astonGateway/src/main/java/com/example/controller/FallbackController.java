@@ -1,18 +1,42 @@
 package com.example.controller;
 
+import com.example.cache.CachedResponse;
+import com.example.cache.ResponseCache;
+import com.example.cache.ResponseCacheFilter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
 
 @RestController
+@RequiredArgsConstructor
 public class FallbackController {
 
+    private final ResponseCache responseCache;
+
+    /**
+     * Если ответ на исходный запрос есть в кэше шлюза, отдаёт его с пометкой устаревшего вместо ошибки.
+     */
     @GetMapping("/fallback/users")
-    public String usersFallback() {
-        return "User service is temporarily unavailable. Please try again later.";
+    public Mono<Void> usersFallback(ServerWebExchange exchange) {
+        exchange.getAttributes().put(ResponseCacheFilter.FALLBACK_ATTR, Boolean.TRUE);
+        String key = exchange.getAttribute(ResponseCacheFilter.CACHE_KEY_ATTR);
+        Optional<CachedResponse> cached = key == null ? Optional.empty() : responseCache.get(key);
+        if (cached.isPresent()) {
+            return ResponseCacheFilter.write(exchange.getResponse(), cached.get(), "STALE");
+        }
+        exchange.getResponse().getHeaders().setContentType(MediaType.TEXT_PLAIN);
+        return exchange.getResponse().writeWith(Mono.just(exchange.getResponse().bufferFactory()
+                .wrap("User service is temporarily unavailable. Please try again later.".getBytes(StandardCharsets.UTF_8))));
     }
 
     @GetMapping("/fallback/notifications")
     public String notificationsFallback() {
         return "Notification service is temporarily unavailable. Please try again later.";
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,43 @@
+package com.example.filter;
+
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.security.Principal;
+
+/**
+ * Передаёт сервисам, от чьего имени выполняется запрос: имя аутентифицированного пользователя
+ * или, без аутентификации, IP клиента. Присланный клиентом заголовок удаляется, чтобы в аудит
+ * не попадал произвольный исполнитель.
+ */
+@Component
+public class ActorHeaderFilter implements GlobalFilter, Ordered {
+
+    public static final String ACTOR_HEADER = "X-Actor";
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        return exchange.getPrincipal()
+                .map(Principal::getName)
+                .defaultIfEmpty(clientAddress(exchange.getRequest()))
+                .flatMap(actor -> chain.filter(exchange.mutate()
+                        .request(request -> request.headers(headers -> headers.set(ACTOR_HEADER, actor)))
+                        .build()));
+    }
+
+    private static String clientAddress(ServerHttpRequest request) {
+        InetSocketAddress remote = request.getRemoteAddress();
+        return remote != null && remote.getAddress() != null ? remote.getAddress().getHostAddress() : "unknown";
+    }
+}
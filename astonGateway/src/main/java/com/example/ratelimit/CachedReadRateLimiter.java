@@ -0,0 +1,81 @@
+package com.example.ratelimit;
+
+import org.springframework.cloud.gateway.config.GatewayProperties;
+import org.springframework.cloud.gateway.filter.FilterDefinition;
+import org.springframework.cloud.gateway.filter.factory.RequestRateLimiterGatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.HttpStatusHolder;
+import org.springframework.cloud.gateway.support.NameUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * Ограничение частоты для ответов из кэша шлюза. ResponseCacheFilter отвечает на попадания раньше фильтров
+ * маршрута, поэтому RequestRateLimiter маршрута их не видит; здесь тот же ограничитель с тем же ключом
+ * и той же корзиной маршрута применяется до отдачи ответа из кэша. Промахи ограничивает фильтр маршрута.
+ * Используются ограничитель и KeyResolver фабрики по умолчанию, как у маршрутов без своих аргументов.
+ */
+@Component
+public class CachedReadRateLimiter {
+
+    private static final String FILTER_NAME =
+            NameUtils.normalizeFilterFactoryName(RequestRateLimiterGatewayFilterFactory.class);
+    private static final String EMPTY_KEY = "____EMPTY_KEY__";
+
+    private final GatewayProperties gatewayProperties;
+    private final RequestRateLimiterGatewayFilterFactory factory;
+
+    public CachedReadRateLimiter(GatewayProperties gatewayProperties, RequestRateLimiterGatewayFilterFactory factory) {
+        this.gatewayProperties = gatewayProperties;
+        this.factory = factory;
+    }
+
+    /**
+     * true — запрос можно обслужить; false — ответ отклонения (429 или статус пустого ключа) уже выставлен.
+     */
+    public Mono<Boolean> isAllowed(ServerWebExchange exchange) {
+        Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+        if (route == null || !isLimited(route.getId())) {
+            return Mono.just(true);
+        }
+        RateLimiter<?> rateLimiter = factory.getDefaultRateLimiter();
+        return factory.getDefaultKeyResolver().resolve(exchange)
+                .defaultIfEmpty(EMPTY_KEY)
+                .flatMap(key -> {
+                    if (EMPTY_KEY.equals(key)) {
+                        if (!factory.isDenyEmptyKey()) {
+                            return Mono.just(true);
+                        }
+                        HttpStatusHolder status = HttpStatusHolder.parse(factory.getEmptyKeyStatusCode());
+                        exchange.getResponse().setStatusCode(status.getHttpStatus());
+                        return Mono.just(false);
+                    }
+                    return rateLimiter.isAllowed(route.getId(), key).map(response -> {
+                        response.getHeaders().forEach(exchange.getResponse().getHeaders()::add);
+                        if (!response.isAllowed()) {
+                            exchange.getResponse().setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+                        }
+                        return response.isAllowed();
+                    });
+                });
+    }
+
+    private boolean isLimited(String routeId) {
+        if (hasRateLimiter(gatewayProperties.getDefaultFilters())) {
+            return true;
+        }
+        return gatewayProperties.getRoutes().stream()
+                .anyMatch(definition -> definition.getId().equals(routeId) && hasRateLimiter(definition.getFilters()));
+    }
+
+    private static boolean hasRateLimiter(List<FilterDefinition> filters) {
+        return filters.stream().anyMatch(filter -> FILTER_NAME.equals(filter.getName()));
+    }
+}
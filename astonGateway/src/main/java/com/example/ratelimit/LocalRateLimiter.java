@@ -0,0 +1,230 @@
+package com.example.ratelimit;
+
+import com.example.config.RateLimiterProperties;
+import com.example.config.RateLimiterProperties.OverflowPolicy;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.constraints.Min;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.gateway.filter.ratelimit.AbstractRateLimiter;
+import org.springframework.cloud.gateway.route.RouteDefinitionRouteLocator;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ограничитель запросов в памяти шлюза вместо RedisRateLimiter: решение принимается без сетевого
+ * вызова, корзины токенов ({@link TokenBucket}) обновляются без блокировок.
+ * Лимиты маршрута задаются в аргументах фильтра так же, как для Redis, но с префиксом local-rate-limiter:
+ * <pre>
+ * - name: RequestRateLimiter
+ *   args:
+ *     key-resolver: "#{@ipKeyResolver}"
+ *     local-rate-limiter.replenish-rate: 10
+ *     local-rate-limiter.burst-capacity: 20
+ * </pre>
+ * Лимит действует на один экземпляр шлюза. Число корзин ограничено maxBuckets; что делать с новым ключом
+ * сверх предела, задаёт {@link OverflowPolicy}.
+ */
+@Slf4j
+@Primary
+@Component
+public class LocalRateLimiter extends AbstractRateLimiter<LocalRateLimiter.Config> {
+
+    public static final String CONFIGURATION_PROPERTY_NAME = "local-rate-limiter";
+
+    public static final String REMAINING_HEADER = "X-RateLimit-Remaining";
+    public static final String REPLENISH_RATE_HEADER = "X-RateLimit-Replenish-Rate";
+    public static final String BURST_CAPACITY_HEADER = "X-RateLimit-Burst-Capacity";
+    public static final String REQUESTED_TOKENS_HEADER = "X-RateLimit-Requested-Tokens";
+
+    private static final String OVERFLOW_KEY = "\u0000overflow-";
+
+    private final Config defaultConfig;
+    private final int maxBuckets;
+    private final OverflowPolicy overflowPolicy;
+    private final int overflowStripes;
+    private final boolean includeHeaders;
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    /**
+     * Корзины ключей сверх предела при политике STRIPED: по overflowStripes на маршрут.
+     */
+    private final Map<String, TokenBucket> overflowBuckets = new ConcurrentHashMap<>();
+    /**
+     * Число корзин в buckets; место занимается внутри computeIfAbsent, поэтому предел не превышается.
+     */
+    private final AtomicInteger bucketCount = new AtomicInteger();
+    private final ScheduledExecutorService evictor;
+
+    public LocalRateLimiter(ConfigurationService configurationService, RateLimiterProperties properties) {
+        super(Config.class, CONFIGURATION_PROPERTY_NAME, configurationService);
+        this.defaultConfig = new Config()
+                .setReplenishRate(properties.getReplenishRate())
+                .setBurstCapacity(properties.getBurstCapacity())
+                .setRequestedTokens(properties.getRequestedTokens());
+        this.maxBuckets = properties.getMaxBuckets();
+        this.overflowPolicy = properties.getOverflowPolicy();
+        this.overflowStripes = properties.getOverflowStripes();
+        this.includeHeaders = properties.isIncludeHeaders();
+
+        long intervalMs = properties.getEvictionInterval().toMillis();
+        this.evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rate-limiter-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        evictor.scheduleWithFixedDelay(this::evictFull, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Mono<Response> isAllowed(String routeId, String id) {
+        Config config = loadConfiguration(routeId);
+        long now = System.nanoTime();
+        long remaining;
+        do {
+            TokenBucket bucket = bucket(routeId, id, now);
+            if (bucket == null) {
+                return Mono.just(new Response(overflowPolicy == OverflowPolicy.ALLOW,
+                        headers(config, overflowPolicy == OverflowPolicy.ALLOW ? config.getBurstCapacity() : 0)));
+            }
+            remaining = bucket.tryConsume(now, config.getRequestedTokens(), config.getReplenishRate(),
+                    config.getBurstCapacity());
+            // Корзину вывели из оборота между поиском и списанием: в карте её уже нет или сейчас не станет
+        } while (remaining == TokenBucket.RETIRED);
+        return Mono.just(new Response(remaining >= 0, headers(config, Math.max(remaining, 0))));
+    }
+
+    private Config loadConfiguration(String routeId) {
+        Config config = getConfig().get(routeId);
+        if (config == null) {
+            config = getConfig().get(RouteDefinitionRouteLocator.DEFAULT_FILTERS);
+        }
+        return config != null ? config : defaultConfig;
+    }
+
+    /**
+     * Корзина ключа; null — предел корзин достигнут, а политика не STRIPED.
+     */
+    private TokenBucket bucket(String routeId, String id, long now) {
+        String key = routeId + ':' + id;
+        TokenBucket bucket = buckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        bucket = buckets.computeIfAbsent(key, k -> reserveBucket() ? new TokenBucket(now) : null);
+        if (bucket != null || overflowPolicy != OverflowPolicy.STRIPED) {
+            return bucket;
+        }
+        // Ключ сверх предела делит корзину только с ключами своей полосы, а не со всеми новыми ключами маршрута
+        return overflowBuckets.computeIfAbsent(routeId + ':' + OVERFLOW_KEY + overflowStripe(id, overflowStripes),
+                k -> new TokenBucket(now));
+    }
+
+    static int overflowStripe(String id, int stripes) {
+        return Math.floorMod(id.hashCode() * 0x9E3779B9, stripes);
+    }
+
+    private boolean reserveBucket() {
+        int count;
+        do {
+            count = bucketCount.get();
+            if (count >= maxBuckets) {
+                return false;
+            }
+        } while (!bucketCount.compareAndSet(count, count + 1));
+        return true;
+    }
+
+    int bucketCount() {
+        return bucketCount.get();
+    }
+
+    private Map<String, String> headers(Config config, long remaining) {
+        if (!includeHeaders) {
+            return Map.of();
+        }
+        return Map.of(
+                REMAINING_HEADER, Long.toString(remaining),
+                REPLENISH_RATE_HEADER, Integer.toString(config.getReplenishRate()),
+                BURST_CAPACITY_HEADER, Integer.toString(config.getBurstCapacity()),
+                REQUESTED_TOKENS_HEADER, Integer.toString(config.getRequestedTokens()));
+    }
+
+    /**
+     * Удаляет полные корзины: при следующем запросе новая корзина даст тот же результат.
+     * Корзина выводится из оборота и удаляется внутри computeIfPresent, атомарно для своего ключа.
+     */
+    void evictFull() {
+        long now = System.nanoTime();
+        int evicted = 0;
+        for (String key : buckets.keySet()) {
+            if (buckets.computeIfPresent(key, (k, bucket) -> bucket.retireIfFull(now) ? null : bucket) == null) {
+                bucketCount.decrementAndGet();
+                evicted++;
+            }
+        }
+        for (String key : overflowBuckets.keySet()) {
+            overflowBuckets.computeIfPresent(key, (k, bucket) -> bucket.retireIfFull(now) ? null : bucket);
+        }
+        log.debug("Удалено корзин ограничителя: {}", evicted);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        evictor.shutdownNow();
+    }
+
+    @Validated
+    public static class Config {
+
+        @Min(1)
+        private int replenishRate = 1;
+
+        @Min(1)
+        private int burstCapacity = 1;
+
+        @Min(1)
+        private int requestedTokens = 1;
+
+        public int getReplenishRate() {
+            return replenishRate;
+        }
+
+        public Config setReplenishRate(int replenishRate) {
+            this.replenishRate = replenishRate;
+            return this;
+        }
+
+        public int getBurstCapacity() {
+            return burstCapacity;
+        }
+
+        public Config setBurstCapacity(int burstCapacity) {
+            this.burstCapacity = burstCapacity;
+            return this;
+        }
+
+        public int getRequestedTokens() {
+            return requestedTokens;
+        }
+
+        public Config setRequestedTokens(int requestedTokens) {
+            this.requestedTokens = requestedTokens;
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            return "Config{replenishRate=" + replenishRate + ", burstCapacity=" + burstCapacity
+                    + ", requestedTokens=" + requestedTokens + '}';
+        }
+    }
+}
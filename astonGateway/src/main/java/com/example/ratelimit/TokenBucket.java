@@ -0,0 +1,56 @@
+package com.example.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Корзина токенов без блокировок в форме GCRA: всё состояние — одно число,
+ * теоретическое время прихода следующего запроса (TAT), которое меняется через CAS.
+ * Корзина с TAT в прошлом полна, то есть неотличима от новой, и её можно безопасно удалить.
+ * Перед удалением корзина выводится из оборота тем же CAS ({@link #retireIfFull}), поэтому запрос,
+ * успевший получить ссылку на неё, не спишет токены мимо карты, а возьмёт новую корзину.
+ */
+final class TokenBucket {
+
+    /**
+     * Результат {@link #tryConsume} для выведенной из оборота корзины: нужно взять корзину заново.
+     */
+    static final long RETIRED = Long.MIN_VALUE;
+
+    private final AtomicLong theoreticalArrivalNanos;
+
+    TokenBucket(long nowNanos) {
+        this.theoreticalArrivalNanos = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * Пытается взять tokens токенов.
+     *
+     * @return остаток токенов после списания, -1, если запрос отклонён, или {@link #RETIRED}
+     */
+    long tryConsume(long nowNanos, int tokens, int replenishRate, int burstCapacity) {
+        long interval = 1_000_000_000L / replenishRate;
+        long tolerance = interval * burstCapacity;
+        while (true) {
+            long tat = theoreticalArrivalNanos.get();
+            if (tat == RETIRED) {
+                return RETIRED;
+            }
+            long newTat = Math.max(tat, nowNanos) + interval * tokens;
+            long debt = newTat - nowNanos;
+            if (debt > tolerance) {
+                return -1;
+            }
+            if (theoreticalArrivalNanos.compareAndSet(tat, newTat)) {
+                return (tolerance - debt) / interval;
+            }
+        }
+    }
+
+    /**
+     * Выводит полную корзину из оборота; false — корзина не полна или уже выведена.
+     */
+    boolean retireIfFull(long nowNanos) {
+        long tat = theoreticalArrivalNanos.get();
+        return tat != RETIRED && tat - nowNanos <= 0 && theoreticalArrivalNanos.compareAndSet(tat, RETIRED);
+    }
+}
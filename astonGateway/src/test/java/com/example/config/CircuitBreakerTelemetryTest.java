@@ -0,0 +1,118 @@
+package com.example.config;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CircuitBreakerTelemetryTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CircuitBreakerRegistry circuitBreakerRegistry = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+            .slidingWindowType(CircuitBreakerConfig.SlidingWindowType.COUNT_BASED)
+            .slidingWindowSize(4)
+            .minimumNumberOfCalls(4)
+            .failureRateThreshold(50)
+            .waitDurationInOpenState(Duration.ofHours(1))
+            .permittedNumberOfCallsInHalfOpenState(2)
+            .build());
+    private final ListAppender<ILoggingEvent> logs = new ListAppender<>();
+    private final Logger logger = (Logger) LoggerFactory.getLogger(CircuitBreakerTelemetry.class);
+    private CircuitBreakerTelemetry telemetry;
+
+    @BeforeEach
+    void setUp() {
+        logs.start();
+        logger.addAppender(logs);
+        CircuitBreakerTelemetryProperties properties = new CircuitBreakerTelemetryProperties();
+        properties.setSummaryInterval(Duration.ofHours(1));
+        telemetry = new CircuitBreakerTelemetry(circuitBreakerRegistry, meterRegistry, properties);
+        telemetry.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        telemetry.stop();
+        logger.detachAppender(logs);
+    }
+
+    private static void fail(CircuitBreaker circuitBreaker) {
+        assertThatThrownBy(() -> circuitBreaker.executeRunnable(() -> {
+            throw new IllegalStateException("сервис недоступен");
+        })).isInstanceOf(IllegalStateException.class);
+    }
+
+    private long calls(String state, String outcome) {
+        return meterRegistry.get("gateway.circuitbreaker.calls")
+                .tag("name", "users").tag("state", state).tag("outcome", outcome)
+                .timer().count();
+    }
+
+    private double transitions(String from, String to) {
+        return meterRegistry.get("gateway.circuitbreaker.transitions")
+                .tag("name", "users").tag("from", from).tag("to", to)
+                .counter().count();
+    }
+
+    private double state() {
+        return meterRegistry.get("gateway.circuitbreaker.state").tag("name", "users").gauge().value();
+    }
+
+    @Test
+    void breakerAddedAfterStart_shouldReportCallsTransitionsAndSummary() {
+        // Breaker создаётся после start(): подключение идёт по событию реестра
+        CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker("users");
+        assertThat(state()).isEqualTo(CircuitBreaker.State.CLOSED.getOrder());
+
+        circuitBreaker.executeRunnable(() -> { });
+        circuitBreaker.executeRunnable(() -> { });
+        fail(circuitBreaker);
+        fail(circuitBreaker);
+
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(state()).isEqualTo(CircuitBreaker.State.OPEN.getOrder());
+        assertThat(calls("CLOSED", "success")).isEqualTo(2);
+        assertThat(calls("CLOSED", "error")).isEqualTo(2);
+        assertThat(transitions("CLOSED", "OPEN")).isEqualTo(1);
+
+        assertThatThrownBy(() -> circuitBreaker.executeRunnable(() -> { }))
+                .isInstanceOf(CallNotPermittedException.class);
+        assertThat(meterRegistry.get("gateway.circuitbreaker.not.permitted").tag("name", "users").counter().count())
+                .isEqualTo(1);
+
+        circuitBreaker.transitionToHalfOpenState();
+        circuitBreaker.executeRunnable(() -> { });
+
+        assertThat(state()).isEqualTo(CircuitBreaker.State.HALF_OPEN.getOrder());
+        assertThat(transitions("OPEN", "HALF_OPEN")).isEqualTo(1);
+        assertThat(calls("HALF_OPEN", "success")).isEqualTo(1);
+        assertThat(logs.list).extracting(ILoggingEvent::getFormattedMessage)
+                .contains("CircuitBreaker 'users' перешёл из CLOSED в OPEN",
+                        "CircuitBreaker 'users' перешёл из OPEN в HALF_OPEN");
+
+        logs.list.clear();
+        telemetry.logSummary();
+        assertThat(logs.list).singleElement()
+                .extracting(ILoggingEvent::getFormattedMessage)
+                .asString()
+                .contains("ошибок 2, отклонено 1, состояние HALF_OPEN", "ошибки: IllegalStateException=2");
+
+        // Сводка пишется только по новым ошибкам
+        logs.list.clear();
+        telemetry.logSummary();
+        assertThat(logs.list).isEmpty();
+    }
+}
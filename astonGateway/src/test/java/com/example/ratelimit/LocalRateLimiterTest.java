@@ -0,0 +1,119 @@
+package com.example.ratelimit;
+
+import com.example.config.RateLimiterProperties;
+import com.example.config.RateLimiterProperties.OverflowPolicy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter.Response;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+
+import java.time.Duration;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LocalRateLimiterTest {
+
+    private static final String ROUTE = "users";
+
+    private LocalRateLimiter limiter;
+
+    @AfterEach
+    void tearDown() {
+        limiter.shutdown();
+    }
+
+    private LocalRateLimiter limiter(int replenishRate, int burstCapacity, int maxBuckets, OverflowPolicy policy) {
+        RateLimiterProperties properties = new RateLimiterProperties();
+        properties.setReplenishRate(replenishRate);
+        properties.setBurstCapacity(burstCapacity);
+        properties.setMaxBuckets(maxBuckets);
+        properties.setOverflowPolicy(policy);
+        properties.setOverflowStripes(16);
+        properties.setEvictionInterval(Duration.ofHours(1));
+        limiter = new LocalRateLimiter(Mockito.mock(ConfigurationService.class), properties);
+        return limiter;
+    }
+
+    private boolean allowed(String id) {
+        return limiter.isAllowed(ROUTE, id).block().isAllowed();
+    }
+
+    @Test
+    void isAllowed_shouldLimitEachKeySeparately() {
+        limiter(1, 2, 100, OverflowPolicy.STRIPED);
+
+        assertThat(allowed("a")).isTrue();
+        assertThat(allowed("a")).isTrue();
+        assertThat(allowed("a")).isFalse();
+        assertThat(allowed("b")).isTrue();
+
+        Response response = limiter.isAllowed(ROUTE, "b").block();
+        assertThat(response.getHeaders()).containsEntry(LocalRateLimiter.REMAINING_HEADER, "0");
+    }
+
+    @Test
+    void isAllowed_shouldRefillOverTime() throws InterruptedException {
+        limiter(100, 1, 100, OverflowPolicy.STRIPED);
+
+        assertThat(allowed("a")).isTrue();
+        assertThat(allowed("a")).isFalse();
+        Thread.sleep(30);
+        assertThat(allowed("a")).isTrue();
+    }
+
+    @Test
+    void evictFull_shouldDropOnlyFullBuckets() throws InterruptedException {
+        limiter(100, 1, 100, OverflowPolicy.STRIPED);
+        allowed("a");
+        limiter.evictFull();
+        assertThat(limiter.bucketCount()).isEqualTo(1);
+        assertThat(allowed("a")).isFalse();
+
+        Thread.sleep(30);
+        limiter.evictFull();
+        assertThat(limiter.bucketCount()).isZero();
+        assertThat(allowed("a")).isTrue();
+        assertThat(limiter.bucketCount()).isEqualTo(1);
+    }
+
+    @Test
+    void isAllowed_withStripedOverflow_shouldNotShareLimitAcrossStripes() {
+        limiter(1, 1, 1, OverflowPolicy.STRIPED);
+        assertThat(allowed("tracked")).isTrue();
+        String first = "k0";
+        String other = IntStream.range(1, 1000).mapToObj(i -> "k" + i)
+                .filter(id -> LocalRateLimiter.overflowStripe(id, 16) != LocalRateLimiter.overflowStripe(first, 16))
+                .findFirst().orElseThrow();
+
+        assertThat(allowed(first)).isTrue();
+        assertThat(allowed(first)).isFalse();
+        // Другая полоса переполнения не затронута исчерпанием первой
+        assertThat(allowed(other)).isTrue();
+        assertThat(limiter.bucketCount()).isEqualTo(1);
+        assertThat(allowed("tracked")).isFalse();
+    }
+
+    @Test
+    void isAllowed_withRejectOverflow_shouldRejectNewKeysUntilEviction() throws InterruptedException {
+        limiter(100, 1, 1, OverflowPolicy.REJECT);
+        assertThat(allowed("a")).isTrue();
+
+        assertThat(allowed("b")).isFalse();
+
+        Thread.sleep(30);
+        limiter.evictFull();
+        assertThat(allowed("b")).isTrue();
+    }
+
+    @Test
+    void isAllowed_withAllowOverflow_shouldPassNewKeys() {
+        limiter(1, 1, 1, OverflowPolicy.ALLOW);
+        assertThat(allowed("a")).isTrue();
+
+        assertThat(allowed("b")).isTrue();
+        assertThat(allowed("b")).isTrue();
+        assertThat(allowed("a")).isFalse();
+    }
+}
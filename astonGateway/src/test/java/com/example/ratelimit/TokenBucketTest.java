@@ -0,0 +1,48 @@
+package com.example.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void tryConsume_shouldAllowBurstThenRefillAtRate() {
+        TokenBucket bucket = new TokenBucket(0);
+
+        assertThat(bucket.tryConsume(0, 1, 10, 3)).isEqualTo(2);
+        assertThat(bucket.tryConsume(0, 1, 10, 3)).isEqualTo(1);
+        assertThat(bucket.tryConsume(0, 1, 10, 3)).isZero();
+        assertThat(bucket.tryConsume(0, 1, 10, 3)).isEqualTo(-1);
+
+        // За 0,1 с при 10 токенах в секунду добавляется один токен
+        assertThat(bucket.tryConsume(SECOND / 10, 1, 10, 3)).isZero();
+        assertThat(bucket.tryConsume(SECOND / 10, 1, 10, 3)).isEqualTo(-1);
+
+        // Через секунду корзина снова полна, но не больше burstCapacity
+        assertThat(bucket.tryConsume(2 * SECOND, 1, 10, 3)).isEqualTo(2);
+    }
+
+    @Test
+    void tryConsume_whenRequestExceedsBurst_shouldReject() {
+        TokenBucket bucket = new TokenBucket(0);
+
+        assertThat(bucket.tryConsume(0, 4, 10, 3)).isEqualTo(-1);
+        assertThat(bucket.tryConsume(0, 3, 10, 3)).isZero();
+    }
+
+    @Test
+    void retireIfFull_shouldRetireOnlyFullBucket() {
+        TokenBucket bucket = new TokenBucket(0);
+        bucket.tryConsume(0, 1, 10, 3);
+
+        assertThat(bucket.retireIfFull(SECOND / 20)).isFalse();
+        assertThat(bucket.retireIfFull(SECOND / 10)).isTrue();
+        assertThat(bucket.retireIfFull(SECOND)).isFalse();
+        assertThat(bucket.tryConsume(SECOND, 1, 10, 3)).isEqualTo(TokenBucket.RETIRED);
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.unit;
+
+import com.example.filter.ActorHeaderFilter;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ActorHeaderFilterTest {
+
+    private final ActorHeaderFilter filter = new ActorHeaderFilter();
+    private final List<ServerHttpRequest> forwarded = new ArrayList<>();
+    private final GatewayFilterChain upstream = exchange -> {
+        forwarded.add(exchange.getRequest());
+        return Mono.empty();
+    };
+
+    private static MockServerHttpRequest.BaseBuilder<?> spoofed() {
+        return MockServerHttpRequest.post("/users")
+                .remoteAddress(new InetSocketAddress("10.0.0.7", 5000))
+                .header(ActorHeaderFilter.ACTOR_HEADER, "admin", "root");
+    }
+
+    @Test
+    void filter_withoutPrincipal_shouldReplaceClientHeaderWithClientAddress() {
+        filter.filter(MockServerWebExchange.from(spoofed()), upstream).block();
+
+        assertThat(forwarded.get(0).getHeaders().get(ActorHeaderFilter.ACTOR_HEADER)).containsExactly("10.0.0.7");
+    }
+
+    @Test
+    void filter_withPrincipal_shouldForwardPrincipalName() {
+        Principal principal = () -> "ivan";
+        ServerWebExchange exchange = MockServerWebExchange.from(spoofed()).mutate()
+                .principal(Mono.just(principal))
+                .build();
+
+        filter.filter(exchange, upstream).block();
+
+        assertThat(forwarded.get(0).getHeaders().get(ActorHeaderFilter.ACTOR_HEADER)).containsExactly("ivan");
+    }
+}
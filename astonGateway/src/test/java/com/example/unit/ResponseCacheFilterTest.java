@@ -0,0 +1,218 @@
+package com.example.unit;
+
+import com.example.cache.ResponseCache;
+import com.example.cache.ResponseCacheFilter;
+import com.example.config.RateLimiterProperties;
+import com.example.config.ResponseCacheProperties;
+import com.example.ratelimit.CachedReadRateLimiter;
+import com.example.ratelimit.LocalRateLimiter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.cloud.client.loadbalancer.reactive.LoadBalancedExchangeFilterFunction;
+import org.springframework.cloud.gateway.config.GatewayProperties;
+import org.springframework.cloud.gateway.filter.FilterDefinition;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.factory.RequestRateLimiterGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.route.RouteDefinition;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResponseCacheFilterTest {
+
+    private static final Route ROUTE = Route.async()
+            .id("users").uri(URI.create("lb://aston-service")).predicate(exchange -> true).build();
+
+    private final ResponseCacheProperties properties = new ResponseCacheProperties();
+    private final RateLimiterProperties rateLimiterProperties = new RateLimiterProperties();
+    private final GatewayProperties gatewayProperties = new GatewayProperties();
+    private final List<ServerHttpRequest> forwarded = new ArrayList<>();
+    private final List<LocalRateLimiter> rateLimiters = new ArrayList<>();
+    /**
+     * Запросы фонового обновления; сервис отвечает на них телом v2.
+     */
+    private final List<ClientRequest> revalidations = new ArrayList<>();
+    private HttpStatus upstreamStatus = HttpStatus.OK;
+    private String upstreamBody = "v1";
+
+    @AfterEach
+    void tearDown() {
+        rateLimiters.forEach(LocalRateLimiter::shutdown);
+    }
+
+    private ResponseCacheFilter filter() {
+        LocalRateLimiter rateLimiter =
+                new LocalRateLimiter(Mockito.mock(ConfigurationService.class), rateLimiterProperties);
+        rateLimiters.add(rateLimiter);
+        RequestRateLimiterGatewayFilterFactory factory =
+                new RequestRateLimiterGatewayFilterFactory(rateLimiter, exchange -> Mono.just("client"));
+        WebClient.Builder webClient = WebClient.builder().exchangeFunction(request -> {
+            revalidations.add(request);
+            return Mono.just(ClientResponse.create(HttpStatus.OK).body("v2").build());
+        });
+        return new ResponseCacheFilter(new ResponseCache(properties),
+                new CachedReadRateLimiter(gatewayProperties, factory), properties, webClient,
+                new DefaultListableBeanFactory().getBeanProvider(LoadBalancedExchangeFilterFunction.class));
+    }
+
+    /**
+     * Сервис за шлюзом: запоминает переданные ему запросы и отвечает upstreamStatus с телом upstreamBody
+     * и ETag по телу.
+     */
+    private final GatewayFilterChain upstream = exchange -> {
+        forwarded.add(exchange.getRequest());
+        exchange.getResponse().setStatusCode(upstreamStatus);
+        exchange.getResponse().getHeaders().setETag('"' + upstreamBody + '"');
+        return exchange.getResponse().writeWith(Mono.just(exchange.getResponse().bufferFactory()
+                .wrap(upstreamBody.getBytes(StandardCharsets.UTF_8))));
+    };
+
+    private static MockServerWebExchange run(ResponseCacheFilter filter, GatewayFilterChain chain,
+                                             MockServerHttpRequest.BaseBuilder<?> request) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(request);
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, ROUTE);
+        filter.filter(exchange, chain).block();
+        return exchange;
+    }
+
+    private static String body(MockServerWebExchange exchange) {
+        return exchange.getResponse().getBodyAsString().block();
+    }
+
+    private static String cacheStatus(MockServerWebExchange exchange) {
+        return exchange.getResponse().getHeaders().getFirst(ResponseCacheFilter.CACHE_STATUS_HEADER);
+    }
+
+    @Test
+    void get_shouldServeSecondRequestFromCache() {
+        ResponseCacheFilter filter = filter();
+
+        run(filter, upstream, MockServerHttpRequest.get("/users/5"));
+        upstreamBody = "v2";
+        MockServerWebExchange second = run(filter, upstream, MockServerHttpRequest.get("/users/5"));
+
+        assertThat(forwarded).hasSize(1);
+        assertThat(cacheStatus(second)).isEqualTo("HIT");
+        assertThat(body(second)).isEqualTo("v1");
+    }
+
+    @Test
+    void successfulChange_shouldInvalidateResourceAndLists() {
+        ResponseCacheFilter filter = filter();
+        run(filter, upstream, MockServerHttpRequest.get("/users/5"));
+        run(filter, upstream, MockServerHttpRequest.get("/users/6"));
+        run(filter, upstream, MockServerHttpRequest.get("/users"));
+
+        run(filter, upstream, MockServerHttpRequest.put("/users/5"));
+        forwarded.clear();
+        upstreamBody = "v2";
+
+        assertThat(body(run(filter, upstream, MockServerHttpRequest.get("/users/5")))).isEqualTo("v2");
+        assertThat(body(run(filter, upstream, MockServerHttpRequest.get("/users")))).isEqualTo("v2");
+        assertThat(body(run(filter, upstream, MockServerHttpRequest.get("/users/6")))).isEqualTo("v1");
+        assertThat(forwarded).extracting(request -> request.getPath().value()).containsExactly("/users/5", "/users");
+    }
+
+    @Test
+    void failedChange_shouldKeepCache() {
+        ResponseCacheFilter filter = filter();
+        run(filter, upstream, MockServerHttpRequest.get("/users/5"));
+
+        upstreamStatus = HttpStatus.CONFLICT;
+        run(filter, upstream, MockServerHttpRequest.put("/users/5"));
+
+        assertThat(cacheStatus(run(filter, upstream, MockServerHttpRequest.get("/users/5")))).isEqualTo("HIT");
+    }
+
+    @Test
+    void staleResponse_shouldBeRefreshedFromRouteUpstreamWithClientHeaders() {
+        properties.setTtl(Duration.ZERO);
+        properties.setStaleWhileRevalidate(Duration.ofMinutes(1));
+        ResponseCacheFilter filter = filter();
+        GatewayFilterChain routed = exchange -> {
+            exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR,
+                    URI.create("http://users-service:8080/users/5?full=true"));
+            return upstream.filter(exchange);
+        };
+        run(filter, routed, MockServerHttpRequest.get("/users/5?full=true"));
+
+        MockServerWebExchange stale = run(filter, routed, MockServerHttpRequest.get("/users/5?full=true")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer token")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"v0\""));
+        assertThat(cacheStatus(stale)).isEqualTo("STALE");
+        assertThat(body(stale)).isEqualTo("v1");
+
+        assertThat(revalidations).singleElement().satisfies(request -> {
+            assertThat(request.url()).isEqualTo(URI.create("http://users-service:8080/users/5?full=true"));
+            assertThat(request.headers().getFirst(HttpHeaders.AUTHORIZATION)).isEqualTo("Bearer token");
+            assertThat(request.headers().containsKey(HttpHeaders.IF_NONE_MATCH)).isFalse();
+        });
+        // Обновление шло мимо цепочки фильтров шлюза
+        assertThat(forwarded).hasSize(1);
+        assertThat(body(run(filter, routed, MockServerHttpRequest.get("/users/5?full=true")))).isEqualTo("v2");
+    }
+
+    @Test
+    void cacheHits_shouldBeLimitedByRouteRateLimiter() {
+        RouteDefinition definition = new RouteDefinition();
+        definition.setId(ROUTE.getId());
+        definition.setFilters(List.of(new FilterDefinition("RequestRateLimiter")));
+        gatewayProperties.setRoutes(List.of(definition));
+        rateLimiterProperties.setReplenishRate(1);
+        rateLimiterProperties.setBurstCapacity(2);
+        ResponseCacheFilter filter = filter();
+        // Промах ограничивает фильтр маршрута, здесь его нет: корзина тратится только на попадания
+        run(filter, upstream, MockServerHttpRequest.get("/users/5"));
+
+        MockServerWebExchange hit = run(filter, upstream, MockServerHttpRequest.get("/users/5"));
+        MockServerWebExchange notModified = run(filter, upstream,
+                MockServerHttpRequest.get("/users/5").ifNoneMatch("*"));
+        MockServerWebExchange limited = run(filter, upstream, MockServerHttpRequest.get("/users/5"));
+
+        assertThat(cacheStatus(hit)).isEqualTo("HIT");
+        assertThat(hit.getResponse().getHeaders().getFirst(LocalRateLimiter.REMAINING_HEADER)).isEqualTo("1");
+        assertThat(notModified.getResponse().getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(limited.getResponse().getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(cacheStatus(limited)).isNull();
+        assertThat(body(limited)).isEmpty();
+        assertThat(forwarded).hasSize(1);
+    }
+
+    @Test
+    void serverError_shouldBeReplacedWithStaleResponse() {
+        properties.setTtl(Duration.ZERO);
+        properties.setStaleWhileRevalidate(Duration.ZERO);
+        ResponseCacheFilter filter = filter();
+        run(filter, upstream, MockServerHttpRequest.get("/users/5"));
+
+        upstreamStatus = HttpStatus.SERVICE_UNAVAILABLE;
+        upstreamBody = "down";
+        MockServerWebExchange failed = run(filter, upstream, MockServerHttpRequest.get("/users/5"));
+
+        assertThat(forwarded).hasSize(2);
+        assertThat(failed.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(cacheStatus(failed)).isEqualTo("STALE");
+        assertThat(body(failed)).isEqualTo("v1");
+        assertThat(failed.getResponse().getHeaders().getFirst(HttpHeaders.AGE)).isNotNull();
+        assertThat(failed.getResponse().getHeaders().containsKey(HttpHeaders.WARNING)).isFalse();
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.unit;
+
+import com.example.cache.CachedResponse;
+import com.example.cache.ResponseCache;
+import com.example.config.ResponseCacheProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResponseCacheTest {
+
+    private final ResponseCacheProperties properties = new ResponseCacheProperties();
+    private final ResponseCache cache = new ResponseCache(properties);
+
+    private static CachedResponse response(long generation) {
+        return new CachedResponse(200, HttpHeaders.EMPTY, new byte[]{1}, System.nanoTime(), generation, null);
+    }
+
+    private void put(String key) {
+        cache.put(key, response(cache.generation()));
+    }
+
+    @Test
+    void invalidate_shouldDropResourceAndListsButKeepOtherResources() {
+        put("/users/5|application/json");
+        put("/users/5?fields=name|");
+        put("/users/6|application/json");
+        put("/users?limit=10|application/json");
+        put("/users/search?name=ivan|");
+
+        cache.invalidate("/users/5");
+
+        assertThat(cache.get("/users/5|application/json")).isEmpty();
+        assertThat(cache.get("/users/5?fields=name|")).isEmpty();
+        assertThat(cache.get("/users?limit=10|application/json")).isEmpty();
+        assertThat(cache.get("/users/search?name=ivan|")).isEmpty();
+        assertThat(cache.get("/users/6|application/json")).isPresent();
+    }
+
+    @Test
+    void invalidate_ofCollection_shouldKeepSingleResources() {
+        put("/users/5|");
+        put("/users|");
+
+        cache.invalidate("/users");
+
+        assertThat(cache.get("/users|")).isEmpty();
+        assertThat(cache.get("/users/5|")).isPresent();
+    }
+
+    @Test
+    void get_shouldRejectResponseRequestedBeforeInvalidationButStoredAfter() {
+        long requestedAt = cache.generation();
+        cache.invalidate("/users/5");
+        cache.put("/users/5|", response(requestedAt));
+        cache.put("/users/6|", response(requestedAt));
+
+        assertThat(cache.get("/users/5|")).isEmpty();
+        assertThat(cache.get("/users/6|")).isPresent();
+
+        put("/users/5|");
+        assertThat(cache.get("/users/5|")).isPresent();
+    }
+
+    @Test
+    void freshness_shouldMoveFromFreshToRevalidateToStale() {
+        properties.setTtl(Duration.ofSeconds(10));
+        properties.setStaleWhileRevalidate(Duration.ofSeconds(10));
+        ResponseCache configured = new ResponseCache(properties);
+        long now = System.nanoTime();
+        CachedResponse response = new CachedResponse(200, HttpHeaders.EMPTY, new byte[0], now, 0, null);
+
+        assertThat(configured.freshness(response, now + Duration.ofSeconds(5).toNanos()))
+                .isEqualTo(ResponseCache.Freshness.FRESH);
+        assertThat(configured.freshness(response, now + Duration.ofSeconds(15).toNanos()))
+                .isEqualTo(ResponseCache.Freshness.REVALIDATE);
+        assertThat(configured.freshness(response, now + Duration.ofSeconds(25).toNanos()))
+                .isEqualTo(ResponseCache.Freshness.STALE);
+    }
+}
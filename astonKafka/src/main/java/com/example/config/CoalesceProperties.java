@@ -0,0 +1,76 @@
+package com.example.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Настройки склейки событий одного email перед отправкой писем.
+ */
+@Component
+@ConfigurationProperties(prefix = "app.mail.coalesce")
+public class CoalesceProperties {
+
+    /**
+     * Сколько копить события email с момента первого из них. Ноль — склеивать только внутри пачки из Kafka.
+     */
+    private Duration window = Duration.ofSeconds(30);
+
+    /**
+     * Предел числа email, ожидающих отправки. Событие для нового email сверх предела отправляется сразу.
+     */
+    private int maxPending = 100_000;
+
+    /**
+     * Задержка перед повтором неотправленного письма; удваивается с каждой неудачей до maxRetryBackoff.
+     */
+    private Duration retryBackoff = Duration.ofSeconds(5);
+
+    private Duration maxRetryBackoff = Duration.ofMinutes(5);
+
+    /**
+     * Сколько раз пытаться отправить склеенное письмо, прежде чем отказаться от него.
+     */
+    private int maxAttempts = 10;
+
+    public Duration getWindow() {
+        return window;
+    }
+
+    public void setWindow(Duration window) {
+        this.window = window;
+    }
+
+    public int getMaxPending() {
+        return maxPending;
+    }
+
+    public void setMaxPending(int maxPending) {
+        this.maxPending = maxPending;
+    }
+
+    public Duration getRetryBackoff() {
+        return retryBackoff;
+    }
+
+    public void setRetryBackoff(Duration retryBackoff) {
+        this.retryBackoff = retryBackoff;
+    }
+
+    public Duration getMaxRetryBackoff() {
+        return maxRetryBackoff;
+    }
+
+    public void setMaxRetryBackoff(Duration maxRetryBackoff) {
+        this.maxRetryBackoff = maxRetryBackoff;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+}
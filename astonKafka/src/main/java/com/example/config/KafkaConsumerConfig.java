@@ -1,6 +1,8 @@
 package com.example.config;
 
 import com.example.dto.UserEvent;
+import com.example.kafka.UserEventDeserializer;
+import lombok.RequiredArgsConstructor;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.springframework.beans.factory.annotation.Value;
@@ -10,15 +12,18 @@ import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
-import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.listener.ContainerProperties;
 
 import java.util.HashMap;
 import java.util.Map;
 
 @Configuration
 @EnableKafka
+@RequiredArgsConstructor
 public class KafkaConsumerConfig {
 
+    private final KafkaConsumerProperties properties;
+
     @Value("${spring.kafka.bootstrap-servers}")
     private String bootstrapServers;
 
@@ -27,16 +32,18 @@ public class KafkaConsumerConfig {
 
     @Bean
     public ConsumerFactory<String, UserEvent> consumerFactory() {
-        JsonDeserializer<UserEvent> deserializer = new JsonDeserializer<>(UserEvent.class);
         Map<String, Object> props = new HashMap<>();
         props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
         props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, JsonDeserializer.class);
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, UserEventDeserializer.class);
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, properties.getMaxPollRecords());
+        // Смещения коммитит контейнер по подтверждению пачки слушателем
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
 
         return new DefaultKafkaConsumerFactory<>(props,
                 new StringDeserializer(),
-                deserializer);
+                new UserEventDeserializer());
     }
 
     @Bean
@@ -44,6 +51,12 @@ public class KafkaConsumerConfig {
         ConcurrentKafkaListenerContainerFactory<String, UserEvent> factory =
                 new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactory());
+        factory.setBatchListener(true);
+        factory.setConcurrency(properties.getConcurrency());
+        // Пачка подтверждается после отправки её писем, возможно, из потока отправки (см. OrderedAck)
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        // null — запись неизвестного типа, которую десериализатор пропустил
+        factory.setRecordFilterStrategy(record -> record.value() == null);
 
         return factory;
     }
@@ -0,0 +1,35 @@
+package com.example.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "app.kafka")
+public class KafkaConsumerProperties {
+
+    /**
+     * Число потоков-потребителей контейнера. Больше числа партиций топика смысла не имеет.
+     */
+    private int concurrency = 3;
+
+    /**
+     * Максимум записей, которые слушатель получает за один poll и обрабатывает одной пачкой.
+     */
+    private int maxPollRecords = 500;
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public void setConcurrency(int concurrency) {
+        this.concurrency = concurrency;
+    }
+
+    public int getMaxPollRecords() {
+        return maxPollRecords;
+    }
+
+    public void setMaxPollRecords(int maxPollRecords) {
+        this.maxPollRecords = maxPollRecords;
+    }
+}
@@ -1,10 +1,12 @@
 package com.example.config;
 
+import com.example.mail.PooledJavaMailSender;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.tracing.Tracer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.JavaMailSenderImpl;
 
 import java.util.Properties;
 
@@ -16,8 +18,11 @@ public class MailConfig {
             @Value("${spring.mail.host}") String host,
             @Value("${spring.mail.port}") int port,
             @Value("${spring.mail.username}") String username,
-            @Value("${spring.mail.password}") String password) {
-        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+            @Value("${spring.mail.password}") String password,
+            MailPoolProperties poolProperties,
+            MeterRegistry meterRegistry,
+            Tracer tracer) {
+        PooledJavaMailSender mailSender = new PooledJavaMailSender(poolProperties, meterRegistry, tracer);
         mailSender.setHost(host);
         mailSender.setPort(port);
         mailSender.setUsername(username);
@@ -0,0 +1,41 @@
+package com.example.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Настройки параллельной отправки писем по событиям из Kafka.
+ */
+@Component
+@ConfigurationProperties(prefix = "app.mail.dispatch")
+public class MailDispatchProperties {
+
+    /**
+     * Число потоков, одновременно отправляющих письма.
+     */
+    private int workers = 8;
+
+    /**
+     * Сколько ждать отправки всей пачки, прежде чем считать её неуспешной и получить её повторно.
+     * Должно быть меньше max.poll.interval.ms потребителя.
+     */
+    private Duration batchTimeout = Duration.ofMinutes(2);
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    public void setWorkers(int workers) {
+        this.workers = workers;
+    }
+
+    public Duration getBatchTimeout() {
+        return batchTimeout;
+    }
+
+    public void setBatchTimeout(Duration batchTimeout) {
+        this.batchTimeout = batchTimeout;
+    }
+}
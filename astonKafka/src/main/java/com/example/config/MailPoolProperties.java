@@ -0,0 +1,66 @@
+package com.example.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Настройки пула SMTP-соединений.
+ */
+@Component
+@ConfigurationProperties(prefix = "app.mail.pool")
+public class MailPoolProperties {
+
+    /**
+     * Максимум одновременно открытых соединений. Имеет смысл держать не меньше числа потоков отправки.
+     */
+    private int maxSize = 8;
+
+    /**
+     * Соединение, простаивающее дольше этого, закрывается: SMTP-серверы всё равно рвут такие соединения сами.
+     */
+    private Duration idleTimeout = Duration.ofSeconds(60);
+
+    /**
+     * Как часто искать и закрывать простаивающие соединения.
+     */
+    private Duration evictionInterval = Duration.ofSeconds(30);
+
+    /**
+     * Сколько ждать свободного соединения, когда все заняты.
+     */
+    private Duration borrowTimeout = Duration.ofSeconds(10);
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public Duration getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public void setIdleTimeout(Duration idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public Duration getEvictionInterval() {
+        return evictionInterval;
+    }
+
+    public void setEvictionInterval(Duration evictionInterval) {
+        this.evictionInterval = evictionInterval;
+    }
+
+    public Duration getBorrowTimeout() {
+        return borrowTimeout;
+    }
+
+    public void setBorrowTimeout(Duration borrowTimeout) {
+        this.borrowTimeout = borrowTimeout;
+    }
+}
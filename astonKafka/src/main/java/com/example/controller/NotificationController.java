@@ -21,13 +21,13 @@ public class NotificationController implements NotificationApi {
 
     @Override
     public ResponseEntity<SendEmail200Response> sendEmail(@RequestBody SendEmailRequest request) {
-        log.info("Получен запрос на отправку письма: email={}, subject={}, text={}",
-                request.getEmail(), request.getSubject(), request.getText());
+        // Адрес и текст письма в лог не пишутся
+        log.atDebug().addKeyValue("subject", request.getSubject())
+                .addKeyValue("textLength", () -> request.getText() == null ? 0 : request.getText().length())
+                .log("Запрос на отправку письма");
         emailService.sendCustomEmail(request.getEmail(), request.getSubject(), request.getText());
         SendEmail200Response response = new SendEmail200Response()
                 .message("Письмо отправлено на " + request.getEmail());
-        log.info("Ответ отправлен: {}", response.getMessage());
-
         return ResponseEntity.ok(response);
     }
 }
@@ -0,0 +1,94 @@
+package com.example.kafka;
+
+import com.example.config.MailDispatchProperties;
+import com.example.dto.UserEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Раздаёт обработку пачки событий фиксированному пулу потоков.
+ * События одного email обрабатываются последовательно в порядке пачки, разные email — параллельно.
+ * Метод возвращается только когда обработана вся пачка, поэтому смещения коммитятся после неё.
+ */
+@Component
+@Slf4j
+public class MailDispatcher {
+
+    private final ExecutorService workers;
+    private final long batchTimeoutMs;
+
+    public MailDispatcher(MailDispatchProperties properties) {
+        this.batchTimeoutMs = properties.getBatchTimeout().toMillis();
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "mail-worker-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        // Очередь не растёт бесконечно: слушатель ждёт завершения пачки, прежде чем забрать следующую
+        this.workers = Executors.newFixedThreadPool(properties.getWorkers(), threadFactory);
+    }
+
+    /**
+     * Обрабатывает все события пачки. Если обработка хотя бы одного email не удалась или не уложилась
+     * в batchTimeout, бросает исключение, и пачка будет получена повторно. По истечении batchTimeout
+     * ещё не начатые события отменяются, а уже отправляемые письма дожидаются: иначе они ушли бы
+     * второй раз параллельно с повторной пачкой.
+     */
+    public void dispatch(List<UserEvent> events, Consumer<UserEvent> handler) {
+        Map<String, List<UserEvent>> byEmail = new LinkedHashMap<>();
+        for (UserEvent event : events) {
+            byEmail.computeIfAbsent(event.getEmail(), email -> new ArrayList<>()).add(event);
+        }
+
+        AtomicBoolean cancelled = new AtomicBoolean();
+        List<CompletableFuture<Void>> tasks = new ArrayList<>(byEmail.size());
+        for (List<UserEvent> sameEmail : byEmail.values()) {
+            tasks.add(CompletableFuture.runAsync(() -> {
+                for (UserEvent event : sameEmail) {
+                    if (cancelled.get()) {
+                        return;
+                    }
+                    handler.accept(event);
+                }
+            }, workers));
+        }
+
+        CompletableFuture<Void> all = CompletableFuture.allOf(tasks.toArray(CompletableFuture[]::new));
+        try {
+            all.get(batchTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            cancelled.set(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Обработка пачки событий прервана", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Не удалось обработать пачку событий", e.getCause());
+        } catch (TimeoutException e) {
+            cancelled.set(true);
+            all.exceptionally(failure -> null).join();
+            throw new IllegalStateException("Пачка событий не обработана за " + batchTimeoutMs + " мс", e);
+        }
+        log.debug("Обработана пачка из {} событий для {} адресов", events.size(), byEmail.size());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.kafka;
+
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Подтверждение пачки из Kafka, отложенное до отправки всех её писем.
+ * Пачки одного потребителя связаны в цепочку и подтверждаются строго по порядку: коммит смещений
+ * более поздней пачки не может перескочить письма более ранней, ещё ждущие окна склейки или повтора.
+ * <p>
+ * Каждое удержание ({@link #hold()}) снимается ровно одним {@link #release()}. Пачка подтверждается,
+ * когда сняты удержания её событий, удержание на время приёма и удержание предшественника.
+ * Брошенная пачка ({@link #abandon()}) будет получена повторно, поэтому не подтверждается, но очередь не держит.
+ */
+public final class OrderedAck {
+
+    private final Acknowledgment acknowledgment;
+    /**
+     * Приём пачки ещё не завершён — первое удержание.
+     */
+    private final AtomicInteger holds = new AtomicInteger(1);
+    private volatile boolean abandoned;
+    private boolean done;
+    private OrderedAck next;
+
+    private OrderedAck(Acknowledgment acknowledgment) {
+        this.acknowledgment = acknowledgment;
+    }
+
+    /**
+     * Первая пачка цепочки; acknowledgment == null — подтверждать нечего (склейка без Kafka).
+     */
+    public static OrderedAck first(Acknowledgment acknowledgment) {
+        return new OrderedAck(acknowledgment);
+    }
+
+    /**
+     * Следующая пачка того же потребителя: подтверждается не раньше этой.
+     */
+    public OrderedAck then(Acknowledgment acknowledgment) {
+        OrderedAck successor = new OrderedAck(acknowledgment);
+        synchronized (this) {
+            if (!done) {
+                successor.holds.incrementAndGet();
+                next = successor;
+            }
+        }
+        return successor;
+    }
+
+    public void hold() {
+        holds.incrementAndGet();
+    }
+
+    public void release() {
+        if (holds.decrementAndGet() != 0) {
+            return;
+        }
+        if (!abandoned && acknowledgment != null) {
+            acknowledgment.acknowledge();
+        }
+        OrderedAck successor;
+        synchronized (this) {
+            done = true;
+            successor = next;
+        }
+        if (successor != null) {
+            successor.release();
+        }
+    }
+
+    /**
+     * Приём пачки не удался, и контейнер получит её заново: снимает удержание приёма без подтверждения.
+     */
+    public void abandon() {
+        abandoned = true;
+        release();
+    }
+}
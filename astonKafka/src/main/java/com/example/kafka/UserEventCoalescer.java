@@ -0,0 +1,370 @@
+package com.example.kafka;
+
+import com.example.config.CoalesceProperties;
+import com.example.dto.UserEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.TraceContext;
+import io.micrometer.tracing.Tracer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Склеивает события одного email перед отправкой писем: несколько UPDATED дают одно письмо,
+ * CREATED с последующим DELETED — ни одного.
+ * События копятся в течение окна, отсчитываемого от первого события email, поэтому непрерывный
+ * поток изменений не откладывает письмо бесконечно.
+ * Пачка из Kafka подтверждается только после того, как каждое её письмо отправлено или отброшено
+ * (см. {@link OrderedAck}): при аварийной остановке ожидающие письма будут получены повторно, при штатной —
+ * отправляются. Неотправленное письмо возвращается в ожидание и повторяется с нарастающей задержкой,
+ * пока не кончатся попытки.
+ * Письмо отправляется в спане, дочернем к получению первого события email в окне.
+ */
+@Component
+@Slf4j
+public class UserEventCoalescer {
+
+    /**
+     * Склеенное состояние email. type == null — событий, требующих письма, не осталось.
+     * trace — контекст первого события окна, null — без трассировки; attempts — число неудачных отправок;
+     * acks — пачки, события которых склеены в это состояние, по одному удержанию на элемент.
+     */
+    private record Pending(UserEvent.EventTypeEnum type, long deadlineNanos, TraceContext trace, int attempts,
+                           List<OrderedAck> acks) {
+    }
+
+    private final MailDispatcher mailDispatcher;
+    private final UserEventNotifier notifier;
+    private final Tracer tracer;
+    private final long windowNanos;
+    private final int maxPending;
+    private final long retryBackoffNanos;
+    private final long maxRetryBackoffNanos;
+    private final int maxAttempts;
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+    /**
+     * Занятые места под предел maxPending: email в ожидании и email, письмо которых сейчас отправляется.
+     */
+    private final AtomicInteger slots = new AtomicInteger();
+    private final ScheduledExecutorService flusher;
+
+    private final Counter received;
+    private final Counter sent;
+    private final Counter failed;
+    private final Counter dropped;
+
+    public UserEventCoalescer(MailDispatcher mailDispatcher,
+                              UserEventNotifier notifier,
+                              CoalesceProperties properties,
+                              MeterRegistry meterRegistry,
+                              Tracer tracer) {
+        this.mailDispatcher = mailDispatcher;
+        this.notifier = notifier;
+        this.tracer = tracer;
+        this.windowNanos = properties.getWindow().toNanos();
+        this.maxPending = properties.getMaxPending();
+        this.retryBackoffNanos = properties.getRetryBackoff().toNanos();
+        this.maxRetryBackoffNanos = properties.getMaxRetryBackoff().toNanos();
+        this.maxAttempts = properties.getMaxAttempts();
+
+        this.received = Counter.builder("notifications.coalesce.events")
+                .tag("stage", "received")
+                .description("События, поступившие на склейку")
+                .register(meterRegistry);
+        this.sent = Counter.builder("notifications.coalesce.events")
+                .tag("stage", "sent")
+                .description("Письма, оставшиеся после склейки")
+                .register(meterRegistry);
+        this.failed = Counter.builder("notifications.coalesce.events")
+                .tag("stage", "failed")
+                .description("Письма, которые не удалось отправить после склейки")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("notifications.coalesce.events")
+                .tag("stage", "dropped")
+                .description("Письма, от которых отказались после всех попыток")
+                .register(meterRegistry);
+        Gauge.builder("notifications.coalesce.pending", slots, AtomicInteger::get)
+                .description("Email, ожидающие конца окна, повтора или отправки")
+                .register(meterRegistry);
+
+        if (windowNanos > 0) {
+            long tickMs = Math.max(100, properties.getWindow().toMillis() / 10);
+            this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "notification-coalescer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(this::flushExpired, tickMs, tickMs, TimeUnit.MILLISECONDS);
+        } else {
+            this.flusher = null;
+        }
+    }
+
+    /**
+     * Итог двух последовательных событий одного email; null — письмо не нужно.
+     */
+    static UserEvent.EventTypeEnum merge(UserEvent.EventTypeEnum current, UserEvent.EventTypeEnum next) {
+        if (current == null) {
+            return next;
+        }
+        return switch (next) {
+            // Письмо о создании уже описывает актуальный аккаунт
+            case UPDATED -> current == UserEvent.EventTypeEnum.CREATED ? current : next;
+            // Аккаунт, о создании которого ещё не сообщили, сообщать об удалении не нужно
+            case DELETED -> current == UserEvent.EventTypeEnum.CREATED ? null : next;
+            default -> next;
+        };
+    }
+
+    /**
+     * Принимает пачку событий без контекста трассировки.
+     */
+    public void submit(List<UserEvent> events) {
+        submit(events, Collections.nCopies(events.size(), null));
+    }
+
+    /**
+     * Принимает пачку событий; traces.get(i) — контекст получения events.get(i) или null.
+     * Внутри пачки события склеиваются сразу; при ненулевом окне результат ждёт его конца,
+     * иначе отправляется до возврата из метода.
+     */
+    public void submit(List<UserEvent> events, List<TraceContext> traces) {
+        submit(events, traces, OrderedAck.first(null));
+    }
+
+    /**
+     * Принимает пачку событий из Kafka; ack подтверждается, когда все её письма отправлены или отброшены.
+     * Если метод бросил исключение, пачка брошена и будет получена повторно.
+     */
+    public void submit(List<UserEvent> events, List<TraceContext> traces, OrderedAck ack) {
+        try {
+            accept(events, traces, ack);
+        } catch (RuntimeException e) {
+            ack.abandon();
+            throw e;
+        }
+        ack.release();
+    }
+
+    private void accept(List<UserEvent> events, List<TraceContext> traces, OrderedAck ack) {
+        received.increment(events.size());
+        if (windowNanos == 0) {
+            Map<String, Pending> merged = new LinkedHashMap<>();
+            for (int i = 0; i < events.size(); i++) {
+                UserEvent event = events.get(i);
+                TraceContext trace = traces.get(i);
+                merged.compute(event.getEmail(), (email, current) -> current == null
+                        ? new Pending(event.getEventType(), 0, trace, 0, List.of())
+                        : new Pending(merge(current.type(), event.getEventType()), 0, current.trace(), 0, List.of()));
+            }
+            dispatch(merged, email -> { });
+            return;
+        }
+
+        long now = System.nanoTime();
+        List<UserEvent> overflow = new ArrayList<>();
+        Map<UserEvent, TraceContext> overflowTraces = new IdentityHashMap<>();
+        for (int i = 0; i < events.size(); i++) {
+            UserEvent event = events.get(i);
+            TraceContext trace = traces.get(i);
+            boolean[] full = {false};
+            // Место под новый email занимается внутри compute, поэтому предел не превышается при параллельных пачках
+            pending.compute(event.getEmail(), (email, current) -> {
+                if (current != null) {
+                    return new Pending(merge(current.type(), event.getEventType()), current.deadlineNanos(),
+                            current.trace(), current.attempts(), withAck(current.acks(), ack));
+                }
+                if (!reserveSlot()) {
+                    full[0] = true;
+                    return null;
+                }
+                return new Pending(event.getEventType(), now + windowNanos, trace, 0, withAck(List.of(), ack));
+            });
+            if (full[0]) {
+                overflow.add(event);
+                overflowTraces.put(event, trace);
+            }
+        }
+        if (!overflow.isEmpty()) {
+            log.warn("Превышен предел ожидающих email ({}), событий отправлено без склейки: {}",
+                    maxPending, overflow.size());
+            send(overflow, overflowTraces, email -> { });
+        }
+    }
+
+    /**
+     * Удерживает пачку за состоянием email один раз, сколько бы её событий в него ни склеилось.
+     */
+    private static List<OrderedAck> withAck(List<OrderedAck> acks, OrderedAck ack) {
+        if (!acks.isEmpty() && acks.get(acks.size() - 1) == ack) {
+            return acks;
+        }
+        ack.hold();
+        List<OrderedAck> held = new ArrayList<>(acks.size() + 1);
+        held.addAll(acks);
+        held.add(ack);
+        return held;
+    }
+
+    private static void release(List<OrderedAck> acks) {
+        acks.forEach(OrderedAck::release);
+    }
+
+    private boolean reserveSlot() {
+        int taken;
+        do {
+            taken = slots.get();
+            if (taken >= maxPending) {
+                return false;
+            }
+        } while (!slots.compareAndSet(taken, taken + 1));
+        return true;
+    }
+
+    /**
+     * Отправляет письма по email, окно которых истекло.
+     */
+    void flushExpired() {
+        flush(System.nanoTime(), false);
+    }
+
+    @PreDestroy
+    public void flushAll() {
+        if (flusher != null) {
+            flusher.shutdown();
+        }
+        flush(System.nanoTime(), true);
+    }
+
+    void flush(long now, boolean all) {
+        // Место email освобождается только после отправки или отказа от неё
+        Map<String, Pending> due = new LinkedHashMap<>();
+        for (Map.Entry<String, Pending> entry : pending.entrySet()) {
+            Pending candidate = entry.getValue();
+            // remove(key, value) не удалит запись, если её успели изменить после чтения
+            if ((all || now - candidate.deadlineNanos() >= 0) && pending.remove(entry.getKey(), candidate)) {
+                due.put(entry.getKey(), candidate);
+            }
+        }
+        Set<String> delivered = ConcurrentHashMap.newKeySet();
+        try {
+            dispatch(due, delivered::add);
+        } catch (RuntimeException e) {
+            log.warn("Не удалось отправить склеенные уведомления: {}", e.getMessage());
+        }
+        due.forEach((email, state) -> {
+            if (state.type() == null || delivered.contains(email)) {
+                slots.decrementAndGet();
+                release(state.acks());
+            } else {
+                retry(email, state, now, all);
+            }
+        });
+    }
+
+    /**
+     * Возвращает неотправленное письмо в ожидание с задержкой, удваивающейся с каждой неудачей.
+     * События, пришедшие за время отправки, склеиваются поверх него.
+     */
+    private void retry(String email, Pending state, long now, boolean all) {
+        int attempts = state.attempts() + 1;
+        if (all || attempts >= maxAttempts) {
+            slots.decrementAndGet();
+            dropped.increment();
+            release(state.acks());
+            log.error("Письмо не отправлено после {} попыток и отброшено", attempts);
+            return;
+        }
+        long backoff = retryBackoffNanos << Math.min(attempts - 1, 20);
+        Pending requeued = new Pending(state.type(), now + Math.min(backoff, maxRetryBackoffNanos),
+                state.trace(), attempts, state.acks());
+        boolean[] merged = {false};
+        pending.compute(email, (key, newer) -> {
+            if (newer == null) {
+                return requeued;
+            }
+            merged[0] = true;
+            UserEvent.EventTypeEnum type = newer.type() == null ? state.type() : merge(state.type(), newer.type());
+            List<OrderedAck> acks = new ArrayList<>(state.acks());
+            acks.addAll(newer.acks());
+            return new Pending(type, requeued.deadlineNanos(), state.trace(), attempts, acks);
+        });
+        if (merged[0]) {
+            // Новые события уже заняли место под этот email
+            slots.decrementAndGet();
+        }
+    }
+
+    /**
+     * Отправляет письма склеенных состояний; delivered получает email каждого отправленного письма.
+     */
+    private void dispatch(Map<String, Pending> merged, Consumer<String> delivered) {
+        List<UserEvent> events = new ArrayList<>(merged.size());
+        Map<UserEvent, TraceContext> traces = new IdentityHashMap<>(merged.size());
+        merged.forEach((email, state) -> {
+            if (state.type() != null) {
+                UserEvent event = new UserEvent(email, state.type());
+                events.add(event);
+                traces.put(event, state.trace());
+            }
+        });
+        send(events, traces, delivered);
+    }
+
+    private void send(List<UserEvent> events, Map<UserEvent, TraceContext> traces, Consumer<String> delivered) {
+        if (events.isEmpty()) {
+            return;
+        }
+        AtomicInteger done = new AtomicInteger();
+        try {
+            mailDispatcher.dispatch(events, event -> {
+                notifyInSpan(event, traces.get(event));
+                done.incrementAndGet();
+                delivered.accept(event.getEmail());
+            });
+        } catch (RuntimeException e) {
+            failed.increment(events.size() - done.get());
+            throw e;
+        } finally {
+            sent.increment(done.get());
+        }
+    }
+
+    /**
+     * Письмо отправляется в спане, дочернем к получению события; SMTP-спаны отправки — его потомки.
+     */
+    private void notifyInSpan(UserEvent event, TraceContext parent) {
+        Span.Builder builder = tracer.spanBuilder();
+        if (parent != null) {
+            builder.setParent(parent);
+        }
+        Span span = builder.name("notification send")
+                .tag("event.type", event.getEventType().getValue())
+                .start();
+        try (Tracer.SpanInScope ignored = tracer.withSpan(span)) {
+            notifier.notify(event);
+        } catch (RuntimeException e) {
+            span.error(e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+}
@@ -1,37 +1,75 @@
 package com.example.kafka;
 
 import com.example.dto.UserEvent;
-import com.example.service.EmailService;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.TraceContext;
+import io.micrometer.tracing.Tracer;
+import io.micrometer.tracing.propagation.Propagator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class UserEventListener {
 
-    private final EmailService emailService;
+    private final UserEventCoalescer userEventCoalescer;
+    private final Tracer tracer;
+    private final Propagator propagator;
+    /**
+     * Последняя пачка потребителя этого потока: следующая подтверждается не раньше неё.
+     */
+    private final ThreadLocal<OrderedAck> lastAck = new ThreadLocal<>();
 
+    /**
+     * Получает пачку событий за один poll и передаёт её на склейку.
+     * Смещения коммитятся, когда письма пачки и всех предыдущих пачек отправлены или отброшены.
+     */
     @KafkaListener(topics = "user-events", groupId = "notification-group", containerFactory = "kafkaListenerContainerFactory")
-    public void handleUserEvent(UserEvent event) {
-        log.info("Получено событие из Kafka: {}", event);
-        //TODO: Временная замена отправки email на логирование
-//        switch (event.getEventType()) {
-//            case CREATED -> log.info("Событие CREATED для {}", event.getEmail());
-//            case DELETED -> log.info("Событие DELETED для {}", event.getEmail());
-//            case UPDATED -> log.info("Событие UPDATED для {}", event.getEmail());
-//            default -> log.info("Игнорируем событие: {}", event.getEventType());
-//        }
-        switch (event.getEventType()) {
-            case CREATED -> emailService.sendAccountCreatedEmail(event.getEmail());
-            case DELETED -> emailService.sendAccountDeletedEmail(event.getEmail());
-            case UPDATED -> emailService.sendCustomEmail(event.getEmail(),
-                    "Ваш аккаунт обновлен",
-                    "Здравствуйте! Данные вашего аккаунта были обновлены."
-            );
-            default -> log.info("Неизвестный тип события: {}", event.getEventType());
+    public void handleUserEvents(List<ConsumerRecord<String, UserEvent>> records, Acknowledgment acknowledgment) {
+        log.debug("Получено событий из Kafka: {}", records.size());
+        List<UserEvent> events = new ArrayList<>(records.size());
+        List<TraceContext> traces = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, UserEvent> record : records) {
+            events.add(record.value());
+            traces.add(received(record));
         }
+        OrderedAck previous = lastAck.get();
+        OrderedAck ack = previous == null ? OrderedAck.first(acknowledgment) : previous.then(acknowledgment);
+        lastAck.set(ack);
+        userEventCoalescer.submit(events, traces, ack);
+    }
+
+    /**
+     * Спан получения записи продолжает трассу отправителя из заголовков W3C (traceparent).
+     * Пачку получает один poll, поэтому спан только отмечает запись; ожидание окна склейки
+     * и отправка письма видны в дочернем спане.
+     */
+    private TraceContext received(ConsumerRecord<String, UserEvent> record) {
+        Span span = propagator.extract(record.headers(), UserEventListener::header)
+                .name("user-events receive")
+                .kind(Span.Kind.CONSUMER)
+                .remoteServiceName("kafka")
+                .tag("messaging.destination.name", record.topic())
+                .tag("messaging.kafka.partition", String.valueOf(record.partition()))
+                .tag("messaging.kafka.offset", String.valueOf(record.offset()))
+                .start();
+        span.end();
+        return span.context();
+    }
+
+    private static String header(Headers headers, String key) {
+        Header header = headers.lastHeader(key);
+        return header != null ? new String(header.value(), StandardCharsets.UTF_8) : null;
     }
 }
@@ -0,0 +1,32 @@
+package com.example.kafka;
+
+import com.example.dto.UserEvent;
+import com.example.service.EmailService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Отправляет письмо, соответствующее типу события.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class UserEventNotifier {
+
+    private final EmailService emailService;
+
+    public void notify(UserEvent event) {
+        log.atDebug().addKeyValue("eventType", event.getEventType())
+                .log("Обработка события");
+        switch (event.getEventType()) {
+            case CREATED -> emailService.sendAccountCreatedEmail(event.getEmail());
+            case DELETED -> emailService.sendAccountDeletedEmail(event.getEmail());
+            case UPDATED -> emailService.sendCustomEmail(event.getEmail(),
+                    "Ваш аккаунт обновлен",
+                    "Здравствуйте! Данные вашего аккаунта были обновлены."
+            );
+            default -> log.warn("Неизвестный тип события: {}", event.getEventType());
+        }
+    }
+}
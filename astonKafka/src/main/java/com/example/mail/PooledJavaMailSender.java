@@ -0,0 +1,120 @@
+package com.example.mail;
+
+import com.example.config.MailPoolProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import jakarta.mail.Address;
+import jakarta.mail.AuthenticationFailedException;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.mail.MailAuthenticationException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link JavaMailSenderImpl}, который не открывает SMTP-соединение (и не повторяет STARTTLS и AUTH)
+ * на каждую отправку, а берёт его из {@link SmtpTransportPool}. Пачка из send(...) уходит
+ * через одно соединение. Каждое письмо отправляется в SMTP-спане, дочернем к текущему.
+ */
+public class PooledJavaMailSender extends JavaMailSenderImpl implements DisposableBean {
+
+    private static final String HEADER_MESSAGE_ID = "Message-ID";
+
+    private final SmtpTransportPool pool;
+    private final Tracer tracer;
+    private final Timer sendSuccess;
+    private final Timer sendFailure;
+
+    public PooledJavaMailSender(MailPoolProperties properties, MeterRegistry meterRegistry, Tracer tracer) {
+        this.pool = new SmtpTransportPool(this::connectTransport, properties, meterRegistry);
+        this.tracer = tracer;
+        this.sendSuccess = sendTimer(meterRegistry, "success");
+        this.sendFailure = sendTimer(meterRegistry, "failure");
+    }
+
+    private static Timer sendTimer(MeterRegistry meterRegistry, String result) {
+        return Timer.builder("mail.send")
+                .tag("result", result)
+                .description("Время отправки одного письма через открытое соединение")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected void doSend(MimeMessage[] mimeMessages, Object[] originalMessages) {
+        Map<Object, Exception> failedMessages = new LinkedHashMap<>();
+        Transport transport = null;
+        try {
+            for (int i = 0; i < mimeMessages.length; i++) {
+                if (transport == null) {
+                    transport = borrow();
+                }
+                MimeMessage mimeMessage = mimeMessages[i];
+                Span span = tracer.spanBuilder()
+                        .name("smtp send")
+                        .kind(Span.Kind.CLIENT)
+                        .remoteServiceName("smtp")
+                        .start();
+                long start = System.nanoTime();
+                try {
+                    send(transport, mimeMessage);
+                    sendSuccess.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                } catch (Exception ex) {
+                    sendFailure.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    span.error(ex);
+                    failedMessages.put(originalMessages != null ? originalMessages[i] : mimeMessage, ex);
+                    if (!transport.isConnected()) {
+                        pool.release(transport, false);
+                        transport = null;
+                    }
+                } finally {
+                    span.end();
+                }
+            }
+        } finally {
+            if (transport != null) {
+                pool.release(transport, true);
+            }
+        }
+        if (!failedMessages.isEmpty()) {
+            throw new MailSendException(failedMessages);
+        }
+    }
+
+    private void send(Transport transport, MimeMessage mimeMessage) throws MessagingException {
+        if (mimeMessage.getSentDate() == null) {
+            mimeMessage.setSentDate(new Date());
+        }
+        // saveChanges() перегенерирует Message-ID, поэтому заданный вручную восстанавливаем
+        String messageId = mimeMessage.getMessageID();
+        mimeMessage.saveChanges();
+        if (messageId != null) {
+            mimeMessage.setHeader(HEADER_MESSAGE_ID, messageId);
+        }
+        Address[] addresses = mimeMessage.getAllRecipients();
+        transport.sendMessage(mimeMessage, addresses != null ? addresses : new Address[0]);
+    }
+
+    private Transport borrow() {
+        try {
+            return pool.borrow();
+        } catch (AuthenticationFailedException ex) {
+            throw new MailAuthenticationException(ex);
+        } catch (MessagingException ex) {
+            throw new MailSendException("Mail server connection failed", ex);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        pool.close();
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.mail;
+
+import com.example.config.MailPoolProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Transport;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пул подключённых и аутентифицированных SMTP-соединений.
+ * Свободные соединения выдаются в порядке LIFO: часто используемые остаются тёплыми,
+ * а лишние простаивают и закрываются по idleTimeout.
+ */
+@Slf4j
+public class SmtpTransportPool implements AutoCloseable {
+
+    /**
+     * Открывает новое соединение с SMTP-сервером.
+     */
+    @FunctionalInterface
+    public interface Connector {
+        Transport connect() throws MessagingException;
+    }
+
+    private record IdleTransport(Transport transport, long releasedAtNanos) {
+    }
+
+    private final Connector connector;
+    private final Semaphore permits;
+    private final int maxSize;
+    private final long borrowTimeoutMs;
+    private final long idleTimeoutNanos;
+    private final Deque<IdleTransport> idle = new ArrayDeque<>();
+    private final ScheduledExecutorService evictor;
+    private boolean closed;
+
+    private final Counter opened;
+    private final Counter reused;
+    private final Counter evicted;
+
+    public SmtpTransportPool(Connector connector, MailPoolProperties properties, MeterRegistry meterRegistry) {
+        this.connector = connector;
+        this.maxSize = properties.getMaxSize();
+        this.permits = new Semaphore(maxSize);
+        this.borrowTimeoutMs = properties.getBorrowTimeout().toMillis();
+        this.idleTimeoutNanos = properties.getIdleTimeout().toNanos();
+
+        this.opened = connectionCounter(meterRegistry, "opened", "Открытые SMTP-соединения");
+        this.reused = connectionCounter(meterRegistry, "reused", "Отправки через уже открытое соединение");
+        this.evicted = connectionCounter(meterRegistry, "evicted", "Закрытые простаивающие или оборванные соединения");
+        Gauge.builder("mail.smtp.pool.active", permits, p -> maxSize - p.availablePermits())
+                .description("Соединения, занятые отправкой")
+                .register(meterRegistry);
+        Gauge.builder("mail.smtp.pool.idle", this, SmtpTransportPool::idleCount)
+                .description("Свободные открытые соединения")
+                .register(meterRegistry);
+
+        long intervalMs = properties.getEvictionInterval().toMillis();
+        this.evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "smtp-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        evictor.scheduleWithFixedDelay(this::evictIdle, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    private static Counter connectionCounter(MeterRegistry meterRegistry, String event, String description) {
+        return Counter.builder("mail.smtp.connections")
+                .tag("event", event)
+                .description(description)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Выдаёт живое соединение: свободное из пула или новое. Каждое выданное соединение
+     * должно быть возвращено через {@link #release}.
+     */
+    public Transport borrow() throws MessagingException {
+        if (!acquirePermit()) {
+            throw new MessagingException("Нет свободного SMTP-соединения за " + borrowTimeoutMs + " мс");
+        }
+        try {
+            IdleTransport candidate;
+            while ((candidate = pollIdle()) != null) {
+                // isConnected() у SMTP отправляет NOOP: так отсеиваются соединения, закрытые сервером
+                if (!isExpired(candidate, System.nanoTime()) && candidate.transport().isConnected()) {
+                    reused.increment();
+                    return candidate.transport();
+                }
+                discard(candidate.transport());
+            }
+            Transport transport = connector.connect();
+            opened.increment();
+            return transport;
+        } catch (MessagingException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Возвращает соединение в пул. Соединение после ошибки протокола передаётся с reusable = false и закрывается.
+     */
+    public void release(Transport transport, boolean reusable) {
+        boolean pooled = false;
+        if (reusable) {
+            synchronized (this) {
+                if (!closed) {
+                    idle.addFirst(new IdleTransport(transport, System.nanoTime()));
+                    pooled = true;
+                }
+            }
+        }
+        if (!pooled) {
+            discard(transport);
+        }
+        permits.release();
+    }
+
+    /**
+     * Закрывает соединения, простаивающие дольше idleTimeout. Самые старые лежат в хвосте очереди.
+     */
+    void evictIdle() {
+        long now = System.nanoTime();
+        Deque<Transport> expired = new ArrayDeque<>();
+        synchronized (this) {
+            Iterator<IdleTransport> oldestFirst = idle.descendingIterator();
+            while (oldestFirst.hasNext()) {
+                IdleTransport candidate = oldestFirst.next();
+                if (!isExpired(candidate, now)) {
+                    break;
+                }
+                oldestFirst.remove();
+                expired.add(candidate.transport());
+            }
+        }
+        expired.forEach(this::discard);
+    }
+
+    @Override
+    public void close() {
+        evictor.shutdownNow();
+        Deque<IdleTransport> remaining;
+        synchronized (this) {
+            closed = true;
+            remaining = new ArrayDeque<>(idle);
+            idle.clear();
+        }
+        remaining.forEach(candidate -> discard(candidate.transport()));
+    }
+
+    private synchronized IdleTransport pollIdle() {
+        return idle.pollFirst();
+    }
+
+    private synchronized int idleCount() {
+        return idle.size();
+    }
+
+    private boolean isExpired(IdleTransport candidate, long now) {
+        return now - candidate.releasedAtNanos() > idleTimeoutNanos;
+    }
+
+    private boolean acquirePermit() {
+        try {
+            return permits.tryAcquire(borrowTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void discard(Transport transport) {
+        evicted.increment();
+        try {
+            transport.close();
+        } catch (MessagingException e) {
+            log.debug("Ошибка при закрытии SMTP-соединения: {}", e.getMessage());
+        }
+    }
+}
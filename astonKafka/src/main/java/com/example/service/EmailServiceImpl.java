@@ -30,6 +30,6 @@ public class EmailServiceImpl implements EmailService {
         message.setSubject(subject);
         message.setText(text);
         mailSender.send(message);
-        log.info("Письмо отправлено на {} с темой '{}'", email, subject);
+        log.atDebug().addKeyValue("subject", subject).log("Письмо отправлено");
     }
 }
\ No newline at end of file
@@ -0,0 +1,98 @@
+package com.example.kafka;
+
+import com.example.config.MailDispatchProperties;
+import com.example.dto.UserEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MailDispatcherTest {
+
+    private final MailDispatcher dispatcher = new MailDispatcher(properties());
+
+    private static MailDispatchProperties properties() {
+        MailDispatchProperties properties = new MailDispatchProperties();
+        properties.setWorkers(4);
+        properties.setBatchTimeout(Duration.ofSeconds(5));
+        return properties;
+    }
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.shutdown();
+    }
+
+    @Test
+    void dispatch_shouldKeepOrderPerEmail() {
+        List<UserEvent> events = List.of(
+                new UserEvent("a@example.com", UserEvent.EventTypeEnum.CREATED),
+                new UserEvent("b@example.com", UserEvent.EventTypeEnum.CREATED),
+                new UserEvent("a@example.com", UserEvent.EventTypeEnum.UPDATED),
+                new UserEvent("b@example.com", UserEvent.EventTypeEnum.DELETED),
+                new UserEvent("a@example.com", UserEvent.EventTypeEnum.DELETED));
+        ConcurrentHashMap<String, List<UserEvent.EventTypeEnum>> handled = new ConcurrentHashMap<>();
+
+        dispatcher.dispatch(events, event -> handled
+                .computeIfAbsent(event.getEmail(), email -> new CopyOnWriteArrayList<>())
+                .add(event.getEventType()));
+
+        assertThat(handled.get("a@example.com")).containsExactly(
+                UserEvent.EventTypeEnum.CREATED, UserEvent.EventTypeEnum.UPDATED, UserEvent.EventTypeEnum.DELETED);
+        assertThat(handled.get("b@example.com")).containsExactly(
+                UserEvent.EventTypeEnum.CREATED, UserEvent.EventTypeEnum.DELETED);
+    }
+
+    @Test
+    void dispatch_shouldFailWholeBatchWhenOneMailFails() {
+        List<UserEvent> events = List.of(
+                new UserEvent("a@example.com", UserEvent.EventTypeEnum.CREATED),
+                new UserEvent("b@example.com", UserEvent.EventTypeEnum.CREATED));
+
+        assertThatThrownBy(() -> dispatcher.dispatch(events, event -> {
+            if (event.getEmail().startsWith("b")) {
+                throw new IllegalStateException("smtp down");
+            }
+        })).isInstanceOf(IllegalStateException.class).hasRootCauseMessage("smtp down");
+    }
+
+    @Test
+    void dispatch_whenBatchTimesOut_shouldSkipPendingMailsAndWaitForSendingOnes() {
+        MailDispatchProperties properties = properties();
+        properties.setBatchTimeout(Duration.ofMillis(100));
+        MailDispatcher slowDispatcher = new MailDispatcher(properties);
+        List<UserEvent> events = List.of(
+                new UserEvent("a@example.com", UserEvent.EventTypeEnum.CREATED),
+                new UserEvent("a@example.com", UserEvent.EventTypeEnum.UPDATED));
+        List<UserEvent.EventTypeEnum> sent = new CopyOnWriteArrayList<>();
+
+        try {
+            assertThatThrownBy(() -> slowDispatcher.dispatch(events, event -> {
+                sleep(300);
+                sent.add(event.getEventType());
+            })).isInstanceOf(IllegalStateException.class).hasCauseInstanceOf(TimeoutException.class);
+
+            // Начатое письмо дописано до выхода, следующее за ним не отправлялось
+            assertThat(sent).containsExactly(UserEvent.EventTypeEnum.CREATED);
+            sleep(400);
+            assertThat(sent).containsExactly(UserEvent.EventTypeEnum.CREATED);
+        } finally {
+            slowDispatcher.shutdown();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
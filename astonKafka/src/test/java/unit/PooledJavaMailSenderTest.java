@@ -0,0 +1,85 @@
+package com.example.mail;
+
+import com.example.config.MailPoolProperties;
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Tracer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.SimpleMailMessage;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PooledJavaMailSenderTest {
+
+    private GreenMail greenMail;
+    private SimpleMeterRegistry meterRegistry;
+    private PooledJavaMailSender mailSender;
+
+    @BeforeEach
+    void setUp() {
+        greenMail = new GreenMail(ServerSetupTest.SMTP);
+        greenMail.start();
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        mailSender.destroy();
+        greenMail.stop();
+    }
+
+    private PooledJavaMailSender sender(Duration idleTimeout) {
+        MailPoolProperties properties = new MailPoolProperties();
+        properties.setMaxSize(2);
+        properties.setIdleTimeout(idleTimeout);
+        PooledJavaMailSender sender = new PooledJavaMailSender(properties, meterRegistry, Tracer.NOOP);
+        sender.setHost(ServerSetupTest.SMTP.getBindAddress());
+        sender.setPort(ServerSetupTest.SMTP.getPort());
+        return sender;
+    }
+
+    private static SimpleMailMessage message(String to) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom("noreply@example.com");
+        message.setTo(to);
+        message.setSubject("subject");
+        message.setText("text");
+        return message;
+    }
+
+    private double connections(String event) {
+        return meterRegistry.get("mail.smtp.connections").tag("event", event).counter().count();
+    }
+
+    @Test
+    void send_shouldReuseOneConnectionForBatchAndSubsequentSends() {
+        mailSender = sender(Duration.ofMinutes(1));
+
+        mailSender.send(message("a@example.com"), message("b@example.com"), message("c@example.com"));
+        mailSender.send(message("d@example.com"));
+        mailSender.send(message("e@example.com"));
+
+        assertThat(greenMail.getReceivedMessages()).hasSize(5);
+        assertThat(connections("opened")).isEqualTo(1);
+        assertThat(connections("reused")).isEqualTo(2);
+        assertThat(meterRegistry.get("mail.send").tag("result", "success").timer().count()).isEqualTo(5);
+        assertThat(meterRegistry.get("mail.smtp.pool.idle").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void send_shouldReplaceConnectionThatStayedIdleTooLong() {
+        mailSender = sender(Duration.ZERO);
+
+        mailSender.send(message("a@example.com"));
+        mailSender.send(message("b@example.com"));
+
+        assertThat(greenMail.getReceivedMessages()).hasSize(2);
+        assertThat(connections("opened")).isEqualTo(2);
+        assertThat(connections("evicted")).isEqualTo(1);
+    }
+}
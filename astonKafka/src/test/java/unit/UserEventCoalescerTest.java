@@ -0,0 +1,237 @@
+package com.example.kafka;
+
+import com.example.config.CoalesceProperties;
+import com.example.config.MailDispatchProperties;
+import com.example.dto.UserEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Tracer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.groups.Tuple.tuple;
+
+class UserEventCoalescerTest {
+
+    private final MailDispatcher mailDispatcher = new MailDispatcher(new MailDispatchProperties());
+    private final UserEventNotifier notifier = Mockito.mock(UserEventNotifier.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @AfterEach
+    void tearDown() {
+        mailDispatcher.shutdown();
+    }
+
+    private UserEventCoalescer coalescer(Duration window) {
+        CoalesceProperties properties = new CoalesceProperties();
+        properties.setWindow(window);
+        return coalescer(properties);
+    }
+
+    private UserEventCoalescer coalescer(CoalesceProperties properties) {
+        return new UserEventCoalescer(mailDispatcher, notifier, properties, meterRegistry, Tracer.NOOP);
+    }
+
+    private static long after(Duration delay) {
+        return System.nanoTime() + delay.toNanos();
+    }
+
+    private double events(String stage) {
+        return meterRegistry.get("notifications.coalesce.events").tag("stage", stage).counter().count();
+    }
+
+    private static UserEvent event(String email, UserEvent.EventTypeEnum type) {
+        return new UserEvent(email, type);
+    }
+
+    private List<UserEvent> notified(int times) {
+        ArgumentCaptor<UserEvent> captor = ArgumentCaptor.forClass(UserEvent.class);
+        Mockito.verify(notifier, Mockito.times(times)).notify(captor.capture());
+        return captor.getAllValues();
+    }
+
+    @Test
+    void flush_shouldSendOneMailPerEmailAfterMerging() {
+        UserEventCoalescer coalescer = coalescer(Duration.ofMinutes(1));
+
+        coalescer.submit(List.of(
+                event("a@example.com", UserEvent.EventTypeEnum.UPDATED),
+                event("b@example.com", UserEvent.EventTypeEnum.CREATED),
+                event("a@example.com", UserEvent.EventTypeEnum.UPDATED)));
+        coalescer.submit(List.of(
+                event("a@example.com", UserEvent.EventTypeEnum.UPDATED),
+                event("b@example.com", UserEvent.EventTypeEnum.DELETED),
+                event("c@example.com", UserEvent.EventTypeEnum.CREATED),
+                event("c@example.com", UserEvent.EventTypeEnum.UPDATED)));
+        coalescer.flushExpired();
+        Mockito.verifyNoInteractions(notifier);
+
+        coalescer.flushAll();
+
+        assertThat(notified(2))
+                .extracting(UserEvent::getEmail, UserEvent::getEventType)
+                .containsExactlyInAnyOrder(
+                        tuple("a@example.com", UserEvent.EventTypeEnum.UPDATED),
+                        tuple("c@example.com", UserEvent.EventTypeEnum.CREATED));
+    }
+
+    @Test
+    void submit_withZeroWindow_shouldMergeWithinBatchAndSendImmediately() {
+        UserEventCoalescer coalescer = coalescer(Duration.ZERO);
+
+        coalescer.submit(List.of(
+                event("a@example.com", UserEvent.EventTypeEnum.UPDATED),
+                event("a@example.com", UserEvent.EventTypeEnum.DELETED)));
+
+        assertThat(notified(1))
+                .extracting(UserEvent::getEventType)
+                .containsExactly(UserEvent.EventTypeEnum.DELETED);
+    }
+
+    @Test
+    void flush_whenSendFails_shouldRetryAfterBackoffAndMergeNewEvents() {
+        CoalesceProperties properties = new CoalesceProperties();
+        properties.setWindow(Duration.ofMinutes(1));
+        properties.setRetryBackoff(Duration.ofSeconds(10));
+        UserEventCoalescer coalescer = coalescer(properties);
+        Mockito.doThrow(new IllegalStateException("SMTP недоступен")).doNothing()
+                .when(notifier).notify(Mockito.argThat(event -> event.getEmail().equals("a@example.com")));
+
+        coalescer.submit(List.of(
+                event("a@example.com", UserEvent.EventTypeEnum.CREATED),
+                event("b@example.com", UserEvent.EventTypeEnum.UPDATED)));
+        coalescer.flush(after(Duration.ofMinutes(2)), false);
+        coalescer.submit(List.of(event("a@example.com", UserEvent.EventTypeEnum.UPDATED)));
+
+        // Задержка повтора ещё не прошла
+        coalescer.flush(after(Duration.ofMinutes(2)), false);
+        assertThat(notified(2)).extracting(UserEvent::getEmail)
+                .containsExactlyInAnyOrder("a@example.com", "b@example.com");
+
+        coalescer.flush(after(Duration.ofMinutes(3)), false);
+        List<UserEvent> all = notified(3);
+        assertThat(all.get(2))
+                .extracting(UserEvent::getEmail, UserEvent::getEventType)
+                .containsExactly("a@example.com", UserEvent.EventTypeEnum.CREATED);
+        assertThat(events("sent")).isEqualTo(2);
+        assertThat(events("failed")).isEqualTo(1);
+        assertThat(meterRegistry.get("notifications.coalesce.pending").gauge().value()).isZero();
+    }
+
+    @Test
+    void flush_whenAttemptsExhausted_shouldDropMail() {
+        CoalesceProperties properties = new CoalesceProperties();
+        properties.setWindow(Duration.ofMinutes(1));
+        properties.setRetryBackoff(Duration.ZERO);
+        properties.setMaxAttempts(2);
+        UserEventCoalescer coalescer = coalescer(properties);
+        Mockito.doThrow(new IllegalStateException("SMTP недоступен")).when(notifier).notify(Mockito.any());
+
+        coalescer.submit(List.of(event("a@example.com", UserEvent.EventTypeEnum.UPDATED)));
+        coalescer.flush(after(Duration.ofMinutes(2)), false);
+        coalescer.flush(after(Duration.ofMinutes(2)), false);
+        coalescer.flush(after(Duration.ofMinutes(2)), false);
+
+        notified(2);
+        assertThat(events("dropped")).isEqualTo(1);
+        assertThat(meterRegistry.get("notifications.coalesce.pending").gauge().value()).isZero();
+    }
+
+    @Test
+    void submit_shouldAcknowledgeBatchOnlyAfterItsMailsAreSentAndInOrder() {
+        CoalesceProperties properties = new CoalesceProperties();
+        properties.setWindow(Duration.ofMinutes(1));
+        properties.setRetryBackoff(Duration.ofSeconds(10));
+        UserEventCoalescer coalescer = coalescer(properties);
+        Mockito.doThrow(new IllegalStateException("SMTP недоступен")).doNothing()
+                .when(notifier).notify(Mockito.argThat(event -> event.getEmail().equals("a@example.com")));
+        Acknowledgment firstAck = Mockito.mock(Acknowledgment.class);
+        Acknowledgment secondAck = Mockito.mock(Acknowledgment.class);
+        OrderedAck first = OrderedAck.first(firstAck);
+
+        coalescer.submit(List.of(
+                event("a@example.com", UserEvent.EventTypeEnum.UPDATED),
+                event("a@example.com", UserEvent.EventTypeEnum.UPDATED)), Collections.nCopies(2, null), first);
+        coalescer.submit(List.of(event("b@example.com", UserEvent.EventTypeEnum.UPDATED)), Collections.nCopies(1, null),
+                first.then(secondAck));
+        Mockito.verifyNoInteractions(firstAck, secondAck);
+
+        // Письмо b отправлено, но первая пачка ждёт повтора a: коммит второй перескочил бы её
+        coalescer.flush(after(Duration.ofMinutes(2)), false);
+        notified(2);
+        Mockito.verifyNoInteractions(firstAck, secondAck);
+
+        coalescer.flush(after(Duration.ofMinutes(3)), false);
+        notified(3);
+        InOrder inOrder = Mockito.inOrder(firstAck, secondAck);
+        inOrder.verify(firstAck).acknowledge();
+        inOrder.verify(secondAck).acknowledge();
+    }
+
+    @Test
+    void submit_whenOverflowSendFails_shouldAbandonBatchWithoutBlockingNextOne() {
+        CoalesceProperties properties = new CoalesceProperties();
+        properties.setWindow(Duration.ofMinutes(1));
+        properties.setMaxPending(1);
+        UserEventCoalescer coalescer = coalescer(properties);
+        Mockito.doThrow(new IllegalStateException("SMTP недоступен"))
+                .when(notifier).notify(Mockito.argThat(event -> event.getEmail().equals("b@example.com")));
+        Acknowledgment failedAck = Mockito.mock(Acknowledgment.class);
+        Acknowledgment redeliveredAck = Mockito.mock(Acknowledgment.class);
+        OrderedAck failed = OrderedAck.first(failedAck);
+        List<UserEvent> batch = List.of(
+                event("a@example.com", UserEvent.EventTypeEnum.UPDATED),
+                event("b@example.com", UserEvent.EventTypeEnum.UPDATED));
+
+        assertThatThrownBy(() -> coalescer.submit(batch, Collections.nCopies(2, null), failed))
+                .isInstanceOf(IllegalStateException.class);
+        Mockito.doNothing().when(notifier).notify(Mockito.any());
+        coalescer.submit(batch, Collections.nCopies(2, null), failed.then(redeliveredAck));
+        coalescer.flushAll();
+
+        Mockito.verify(failedAck, Mockito.never()).acknowledge();
+        Mockito.verify(redeliveredAck).acknowledge();
+    }
+
+    @Test
+    void submit_fromConcurrentListeners_shouldNotExceedMaxPending() throws Exception {
+        CoalesceProperties properties = new CoalesceProperties();
+        properties.setWindow(Duration.ofMinutes(1));
+        properties.setMaxPending(50);
+        UserEventCoalescer coalescer = coalescer(properties);
+
+        ExecutorService listeners = Executors.newFixedThreadPool(8);
+        List<Future<?>> batches = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int thread = t;
+            batches.add(listeners.submit(() -> {
+                for (int i = 0; i < 100; i++) {
+                    coalescer.submit(List.of(event(thread + "-" + i + "@example.com", UserEvent.EventTypeEnum.CREATED)));
+                }
+            }));
+        }
+        for (Future<?> batch : batches) {
+            batch.get();
+        }
+        listeners.shutdown();
+
+        assertThat(meterRegistry.get("notifications.coalesce.pending").gauge().value()).isEqualTo(50);
+        notified(750);
+        Mockito.clearInvocations(notifier);
+        coalescer.flushAll();
+        notified(50);
+    }
+}
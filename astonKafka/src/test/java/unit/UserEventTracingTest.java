@@ -0,0 +1,116 @@
+package com.example.kafka;
+
+import com.example.config.CoalesceProperties;
+import com.example.config.MailDispatchProperties;
+import com.example.dto.UserEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Tracer;
+import io.micrometer.tracing.otel.bridge.OtelCurrentTraceContext;
+import io.micrometer.tracing.otel.bridge.OtelPropagator;
+import io.micrometer.tracing.otel.bridge.OtelTracer;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.propagation.ContextPropagators;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserEventTracingTest {
+
+    private static final String TRACE_ID = "0af7651916cd43dd8448eb211c80319c";
+    private static final String SENDER_SPAN_ID = "b7ad6b7169203331";
+
+    private final InMemorySpanExporter exporter = InMemorySpanExporter.create();
+    private final MailDispatcher mailDispatcher = new MailDispatcher(new MailDispatchProperties());
+    private SdkTracerProvider tracerProvider;
+    private UserEventListener listener;
+
+    @BeforeEach
+    void setUp() {
+        tracerProvider = SdkTracerProvider.builder()
+                .addSpanProcessor(SimpleSpanProcessor.create(exporter))
+                .build();
+        io.opentelemetry.api.trace.Tracer otelTracer = tracerProvider.get("test");
+        Tracer tracer = new OtelTracer(otelTracer, new OtelCurrentTraceContext(), event -> {
+        });
+        OtelPropagator propagator = new OtelPropagator(
+                ContextPropagators.create(W3CTraceContextPropagator.getInstance()), otelTracer);
+
+        // SMTP-спан PooledJavaMailSender строится так же: от текущего спана потока отправки
+        UserEventNotifier notifier = Mockito.mock(UserEventNotifier.class);
+        Mockito.doAnswer(invocation -> {
+            tracer.spanBuilder().name("smtp send").start().end();
+            return null;
+        }).when(notifier).notify(Mockito.any());
+
+        CoalesceProperties properties = new CoalesceProperties();
+        properties.setWindow(Duration.ZERO);
+        UserEventCoalescer coalescer = new UserEventCoalescer(mailDispatcher, notifier, properties,
+                new SimpleMeterRegistry(), tracer);
+        listener = new UserEventListener(coalescer, tracer, propagator);
+    }
+
+    @AfterEach
+    void tearDown() {
+        mailDispatcher.shutdown();
+        tracerProvider.close();
+    }
+
+    private static ConsumerRecord<String, UserEvent> record(String email, String traceParent) {
+        ConsumerRecord<String, UserEvent> record = new ConsumerRecord<>("user-events", 0, 42L, "1",
+                new UserEvent(email, UserEvent.EventTypeEnum.CREATED));
+        if (traceParent != null) {
+            record.headers().add("traceparent", traceParent.getBytes(StandardCharsets.UTF_8));
+        }
+        return record;
+    }
+
+    private SpanData span(String name) {
+        return exporter.getFinishedSpanItems().stream()
+                .filter(span -> span.getName().equals(name))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    @Test
+    void handleUserEvents_shouldContinueSenderTraceUpToSmtpSpan() {
+        listener.handleUserEvents(List.of(record("a@example.com", "00-" + TRACE_ID + "-" + SENDER_SPAN_ID + "-01")),
+                Mockito.mock(Acknowledgment.class));
+
+        SpanData received = span("user-events receive");
+        SpanData notification = span("notification send");
+        SpanData smtp = span("smtp send");
+        assertThat(received.getKind()).isEqualTo(SpanKind.CONSUMER);
+        assertThat(received.getTraceId()).isEqualTo(TRACE_ID);
+        assertThat(received.getParentSpanId()).isEqualTo(SENDER_SPAN_ID);
+        assertThat(notification.getTraceId()).isEqualTo(TRACE_ID);
+        assertThat(notification.getParentSpanId()).isEqualTo(received.getSpanId());
+        assertThat(smtp.getParentSpanId()).isEqualTo(notification.getSpanId());
+    }
+
+    @Test
+    void handleUserEvents_withoutTraceHeader_shouldStartNewTracePerRecord() {
+        listener.handleUserEvents(List.of(record("a@example.com", null), record("b@example.com", null)),
+                Mockito.mock(Acknowledgment.class));
+
+        List<SpanData> received = exporter.getFinishedSpanItems().stream()
+                .filter(span -> span.getName().equals("user-events receive"))
+                .toList();
+        assertThat(received).hasSize(2);
+        assertThat(received).allSatisfy(span -> assertThat(span.getParentSpanContext().isValid()).isFalse());
+        assertThat(received.get(0).getTraceId()).isNotEqualTo(received.get(1).getTraceId());
+    }
+}
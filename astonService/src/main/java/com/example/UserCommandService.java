@@ -2,11 +2,13 @@ package com.example;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * Точка входа в приложение.
  */
 @SpringBootApplication
+@EnableScheduling
 public class UserCommandService {
     public static void main(String[] args) {
         SpringApplication.run(UserCommandService.class, args);
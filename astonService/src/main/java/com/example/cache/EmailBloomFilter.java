@@ -0,0 +1,125 @@
+package com.example.cache;
+
+import com.example.config.EmailFilterProperties;
+import com.example.repository.UserRepository;
+import com.example.shard.Shards;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Stream;
+
+/**
+ * Фильтр Блума по email из таблицы users.
+ * Отрицательный ответ означает, что email точно свободен и проверять его в базе не нужно.
+ * Положительный ответ может быть ложным, тогда решает запрос в базу.
+ * Удаление пользователей фильтр не отражает — это только добавляет ложноположительные ответы.
+ * Email, добавленные другими экземплярами сервиса после загрузки, здесь не видны, поэтому отрицательный
+ * ответ используется только в предварительных проверках перед записью, где дубликат всё равно отклонит
+ * уникальный индекс в базе. На вопрос «занят ли email» отвечает база.
+ */
+@Component
+@Slf4j
+public class EmailBloomFilter {
+
+    private final UserRepository userRepository;
+    private final Shards shards;
+    private final boolean enabled;
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+
+    private volatile boolean ready;
+
+    public EmailBloomFilter(UserRepository userRepository, Shards shards, EmailFilterProperties properties) {
+        this.userRepository = userRepository;
+        this.shards = shards;
+        this.enabled = properties.isEnabled();
+
+        long n = Math.max(1, properties.getExpectedInsertions());
+        double p = properties.getFalsePositiveRate();
+        long m = (long) Math.ceil(-n * Math.log(p) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.min(Integer.MAX_VALUE - 8, (m + 63) / 64);
+        this.bits = new AtomicLongArray(enabled ? words : 1);
+        this.bitCount = (long) words * 64;
+        this.hashCount = Math.max(1, (int) Math.round((double) m / n * Math.log(2)));
+    }
+
+    /**
+     * Заполняет фильтр email из базы. До окончания загрузки фильтр считает занятым любой email.
+     * Шарды читаются параллельно: добавление в фильтр потокобезопасно.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        long count = shards.query(shard -> {
+            long[] loaded = {0};
+            try (Stream<String> emails = userRepository.streamAllEmails()) {
+                emails.forEach(email -> {
+                    add(email);
+                    loaded[0]++;
+                });
+            }
+            return loaded[0];
+        }).stream().mapToLong(Long::longValue).sum();
+        ready = true;
+        log.info("Фильтр email загружен: {} адресов, {} бит, {} хеш-функций", count, bitCount, hashCount);
+    }
+
+    public void add(String email) {
+        if (!enabled || email == null) {
+            return;
+        }
+        long h1 = hash(email, 0x9E3779B97F4A7C15L);
+        long h2 = hash(email, 0xC2B2AE3D27D4EB4FL);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << (bit & 63);
+            long current;
+            do {
+                current = bits.get(word);
+                if ((current & mask) != 0) {
+                    break;
+                }
+            } while (!bits.compareAndSet(word, current, current | mask));
+        }
+    }
+
+    /**
+     * false — email точно не встречался; true — возможно, занят, нужна проверка в базе.
+     */
+    public boolean mightContain(String email) {
+        if (!enabled || !ready) {
+            return true;
+        }
+        long h1 = hash(email, 0x9E3779B97F4A7C15L);
+        long h2 = hash(email, 0xC2B2AE3D27D4EB4FL);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            if ((bits.get((int) (bit >>> 6)) & (1L << (bit & 63))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long hash(String value, long seed) {
+        long h = seed;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001B3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return h;
+    }
+}
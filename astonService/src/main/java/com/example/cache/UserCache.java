@@ -0,0 +1,112 @@
+package com.example.cache;
+
+import com.example.config.UserCacheProperties;
+import com.example.entity.UserEntity;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Ограниченный по размеру и времени жизни read-through кэш пользователей по ID.
+ * Загрузка и сброс одного ключа взаимно атомарны, поэтому чтение, начатое до записи,
+ * не может оставить в кэше устаревшее значение после evict. Чтение с отстающей реплики может начаться
+ * и после записи: такой результат версии старее записанной отдаётся вызывающему, но не кэшируется.
+ */
+@Component
+public class UserCache implements MeterBinder {
+
+    public static final String CACHE_NAME = "users";
+
+    private final Cache<Long, UserEntity> cache;
+    private final Cache<Long, Long> writtenVersions;
+
+    public UserCache(UserCacheProperties properties) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getTtl())
+                .recordStats()
+                .build();
+        this.writtenVersions = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getTtl())
+                .build();
+    }
+
+    /**
+     * Возвращает пользователя из кэша или загружает его через loader.
+     * Отсутствующие пользователи не кэшируются.
+     */
+    public Optional<UserEntity> get(Long id, Function<Long, Optional<UserEntity>> loader) {
+        UserEntity[] stale = new UserEntity[1];
+        UserEntity user = cache.get(id, key -> {
+            UserEntity loaded = loader.apply(key).orElse(null);
+            if (loaded != null && olderThanWritten(loaded)) {
+                stale[0] = loaded;
+                return null;
+            }
+            return loaded;
+        });
+        return Optional.ofNullable(user != null ? user : stale[0]);
+    }
+
+    private boolean olderThanWritten(UserEntity user) {
+        Long written = writtenVersions.getIfPresent(user.getId());
+        return written != null && user.getVersion() != null && user.getVersion() < written;
+    }
+
+    /**
+     * Пользователь, если он уже в кэше; загрузка не выполняется.
+     */
+    public Optional<UserEntity> getIfPresent(Long id) {
+        return Optional.ofNullable(cache.getIfPresent(id));
+    }
+
+    /**
+     * Сбрасывает запись после изменения; загрузки с версией ниже minVersion больше не кэшируются.
+     */
+    public void evict(Long id, Long minVersion) {
+        if (id != null && minVersion != null) {
+            writtenVersions.asMap().merge(id, minVersion, Math::max);
+        }
+        evict(id);
+    }
+
+    /**
+     * Сбрасывает запись сразу и, если идёт транзакция, повторно после её коммита.
+     */
+    public void evict(Long id) {
+        if (id == null) {
+            return;
+        }
+        cache.invalidate(id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.invalidate(id);
+                }
+            });
+        }
+    }
+
+    /**
+     * Сбрасывает записи с указанным email. Полный проход по кэшу, используется только
+     * для событий без ID.
+     */
+    public void evictByEmail(String email) {
+        cache.asMap().values().removeIf(user -> email.equals(user.getEmail()));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, CACHE_NAME);
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.config;
+
+import net.ttddyy.observation.boot.autoconfigure.DataSourceObservationBeanPostProcessor;
+import org.springframework.beans.factory.ObjectProvider;
+
+import javax.sql.DataSource;
+
+/**
+ * Наблюдения JDBC для пулов, которые не являются бинами: маршрутизирующие DataSource исключены
+ * из наблюдений (jdbc.excluded-data-source-bean-names), их пулы оборачиваются здесь.
+ */
+final class DataSourceObservations {
+
+    private DataSourceObservations() {
+    }
+
+    static DataSource observed(ObjectProvider<DataSourceObservationBeanPostProcessor> observations,
+                               DataSource pool, String name) {
+        DataSourceObservationBeanPostProcessor postProcessor = observations.getIfAvailable();
+        return postProcessor != null ? (DataSource) postProcessor.postProcessAfterInitialization(pool, name) : pool;
+    }
+}
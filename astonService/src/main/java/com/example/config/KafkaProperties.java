@@ -3,12 +3,48 @@ package com.example.config;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+
 @Component
 @ConfigurationProperties(prefix = "app.kafka")
 public class KafkaProperties {
 
     private String bootstrapServers;
 
+    /**
+     * Сколько продюсер ждёт, набирая пакет, прежде чем отправить его брокеру.
+     */
+    private int lingerMs = 20;
+
+    /**
+     * Максимальный размер пакета на партицию, байт.
+     */
+    private int batchSize = 64 * 1024;
+
+    private String compressionType = "lz4";
+
+    private String acks = "all";
+
+    private boolean idempotence = true;
+
+    /**
+     * Память продюсера под неотправленные записи, байт. Когда она заполнена, send() блокируется.
+     */
+    private long bufferMemory = 32L * 1024 * 1024;
+
+    /**
+     * Сколько send() может ждать метаданных или места в буфере, прежде чем завершиться ошибкой.
+     */
+    private Duration maxBlock = Duration.ofSeconds(5);
+
+    /**
+     * Предел неподтверждённых отправок. При его достижении поток запроса ждёт подтверждений
+     * не дольше pendingAcquireTimeout.
+     */
+    private int maxPendingSends = 10_000;
+
+    private Duration pendingAcquireTimeout = Duration.ofSeconds(5);
+
     public String getBootstrapServers() {
         return bootstrapServers;
     }
@@ -16,4 +52,76 @@ public class KafkaProperties {
     public void setBootstrapServers(String bootstrapServers) {
         this.bootstrapServers = bootstrapServers;
     }
+
+    public int getLingerMs() {
+        return lingerMs;
+    }
+
+    public void setLingerMs(int lingerMs) {
+        this.lingerMs = lingerMs;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public String getCompressionType() {
+        return compressionType;
+    }
+
+    public void setCompressionType(String compressionType) {
+        this.compressionType = compressionType;
+    }
+
+    public String getAcks() {
+        return acks;
+    }
+
+    public void setAcks(String acks) {
+        this.acks = acks;
+    }
+
+    public boolean isIdempotence() {
+        return idempotence;
+    }
+
+    public void setIdempotence(boolean idempotence) {
+        this.idempotence = idempotence;
+    }
+
+    public long getBufferMemory() {
+        return bufferMemory;
+    }
+
+    public void setBufferMemory(long bufferMemory) {
+        this.bufferMemory = bufferMemory;
+    }
+
+    public Duration getMaxBlock() {
+        return maxBlock;
+    }
+
+    public void setMaxBlock(Duration maxBlock) {
+        this.maxBlock = maxBlock;
+    }
+
+    public int getMaxPendingSends() {
+        return maxPendingSends;
+    }
+
+    public void setMaxPendingSends(int maxPendingSends) {
+        this.maxPendingSends = maxPendingSends;
+    }
+
+    public Duration getPendingAcquireTimeout() {
+        return pendingAcquireTimeout;
+    }
+
+    public void setPendingAcquireTimeout(Duration pendingAcquireTimeout) {
+        this.pendingAcquireTimeout = pendingAcquireTimeout;
+    }
 }
@@ -0,0 +1,63 @@
+package com.example.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Настройки отправки событий из таблицы outbox.
+ */
+@Component
+@ConfigurationProperties(prefix = "app.outbox")
+public class OutboxProperties {
+
+    private boolean relayEnabled = true;
+
+    /**
+     * Сколько событий блокируется, отправляется и удаляется за одну транзакцию.
+     */
+    private int batchSize = 500;
+
+    /**
+     * Пауза между опросами таблицы, когда она опустела.
+     */
+    private long pollIntervalMs = 200;
+
+    /**
+     * Сколько ждать подтверждения брокером всей порции, прежде чем откатить её и повторить позже.
+     */
+    private Duration sendTimeout = Duration.ofSeconds(30);
+
+    public boolean isRelayEnabled() {
+        return relayEnabled;
+    }
+
+    public void setRelayEnabled(boolean relayEnabled) {
+        this.relayEnabled = relayEnabled;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public long getPollIntervalMs() {
+        return pollIntervalMs;
+    }
+
+    public void setPollIntervalMs(long pollIntervalMs) {
+        this.pollIntervalMs = pollIntervalMs;
+    }
+
+    public Duration getSendTimeout() {
+        return sendTimeout;
+    }
+
+    public void setSendTimeout(Duration sendTimeout) {
+        this.sendTimeout = sendTimeout;
+    }
+}
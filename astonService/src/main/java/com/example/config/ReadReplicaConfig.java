@@ -0,0 +1,79 @@
+package com.example.config;
+
+import com.example.datasource.ReplicaRouter;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import net.ttddyy.observation.boot.autoconfigure.DataSourceObservationBeanPostProcessor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Единственный DataSource приложения при включённой маршрутизации. LazyConnectionDataSourceProxy
+ * берёт физическое соединение при первом запросе транзакции, когда её флаг readOnly уже известен:
+ * транзакции readOnly получают соединение от {@link ReplicaRouter}, остальные, Liquibase и outbox — от primary.
+ * <p>
+ * Сам routingDataSource исключён из наблюдений JDBC (jdbc.excluded-data-source-bean-names): прокси наблюдений
+ * читает URL соединения сразу после getConnection и тем заставил бы ленивый прокси взять primary до setReadOnly.
+ * Поэтому наблюдения навешиваются на пулы под ним. Пулы не бины, закрывает их ReplicaRouter.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.datasource.routing", name = "enabled", havingValue = "true")
+public class ReadReplicaConfig {
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    public ReplicaRouter replicaRouter(DataSourceProperties dataSourceProperties, Environment environment,
+                                       ReplicaRoutingProperties properties, MeterRegistry meterRegistry,
+                                       ObjectProvider<DataSourceObservationBeanPostProcessor> observations) {
+        HikariDataSource primary = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (ReplicaRoutingProperties.Replica replica : properties.getReplicas()) {
+            HikariDataSource pool = replicaPool(primary, replica, properties, meterRegistry);
+            replicas.put(replica.getName(), DataSourceObservations.observed(observations, pool, pool.getPoolName()));
+        }
+        return new ReplicaRouter(DataSourceObservations.observed(observations, primary, "dataSource"), replicas,
+                properties, meterRegistry);
+    }
+
+    @Bean
+    public DataSource routingDataSource(ReplicaRouter replicaRouter) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(replicaRouter.primary());
+        dataSource.setReadOnlyDataSource(replicaRouter.readOnlyDataSource());
+        return dataSource;
+    }
+
+    private static HikariDataSource replicaPool(HikariDataSource primary, ReplicaRoutingProperties.Replica replica,
+                                                ReplicaRoutingProperties properties, MeterRegistry meterRegistry) {
+        HikariConfig config = new HikariConfig();
+        primary.copyStateTo(config);
+        config.setPoolName("replica-" + replica.getName());
+        config.setJdbcUrl(replica.getUrl());
+        if (replica.getUsername() != null) {
+            config.setUsername(replica.getUsername());
+        }
+        if (replica.getPassword() != null) {
+            config.setPassword(replica.getPassword());
+        }
+        config.setReadOnly(true);
+        config.setConnectionTimeout(properties.getConnectionTimeout().toMillis());
+        // Недоступная при старте реплика не мешает запуску: до первой удачной проверки чтения идут на primary
+        config.setInitializationFailTimeout(-1);
+        config.setMetricRegistry(meterRegistry);
+        return new HikariDataSource(config);
+    }
+}
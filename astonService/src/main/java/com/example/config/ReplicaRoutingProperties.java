@@ -0,0 +1,146 @@
+package com.example.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Настройки маршрутизации чтений на реплики Postgres.
+ */
+@Component
+@ConfigurationProperties(prefix = "app.datasource.routing")
+public class ReplicaRoutingProperties {
+
+    /**
+     * Отправлять транзакции readOnly на реплики. Без этого все запросы идут на spring.datasource.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Реплики потоковой репликации primary. Пул каждой наследует настройки spring.datasource.hikari.
+     */
+    private List<Replica> replicas = new ArrayList<>();
+
+    private long healthCheckIntervalMs = 1000;
+
+    /**
+     * Наибольшее отставание реплики от primary по WAL, при котором на неё ещё идут чтения.
+     */
+    private long maxLagBytes = 16L * 1024 * 1024;
+
+    /**
+     * Сколько ждать соединения с репликой, прежде чем читать с primary.
+     */
+    private Duration connectionTimeout = Duration.ofSeconds(1);
+
+    /**
+     * Чтение после записи для клиента, передавшего X-Consistency-Token: PIN — primary, пока ни одна
+     * реплика не догнала токен; WAIT — ожидание реплики до lsn-wait-timeout; NONE — токен не выдаётся.
+     */
+    private ReadYourWrites readYourWrites = ReadYourWrites.PIN;
+
+    private Duration lsnWaitTimeout = Duration.ofMillis(200);
+
+    public enum ReadYourWrites {
+        NONE, PIN, WAIT
+    }
+
+    public static class Replica {
+
+        private String name;
+        private String url;
+        private String username;
+        private String password;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public void setUrl(String url) {
+            this.url = url;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public void setUsername(String username) {
+            this.username = username;
+        }
+
+        public String getPassword() {
+            return password;
+        }
+
+        public void setPassword(String password) {
+            this.password = password;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public List<Replica> getReplicas() {
+        return replicas;
+    }
+
+    public void setReplicas(List<Replica> replicas) {
+        this.replicas = replicas;
+    }
+
+    public long getHealthCheckIntervalMs() {
+        return healthCheckIntervalMs;
+    }
+
+    public void setHealthCheckIntervalMs(long healthCheckIntervalMs) {
+        this.healthCheckIntervalMs = healthCheckIntervalMs;
+    }
+
+    public long getMaxLagBytes() {
+        return maxLagBytes;
+    }
+
+    public void setMaxLagBytes(long maxLagBytes) {
+        this.maxLagBytes = maxLagBytes;
+    }
+
+    public Duration getConnectionTimeout() {
+        return connectionTimeout;
+    }
+
+    public void setConnectionTimeout(Duration connectionTimeout) {
+        this.connectionTimeout = connectionTimeout;
+    }
+
+    public ReadYourWrites getReadYourWrites() {
+        return readYourWrites;
+    }
+
+    public void setReadYourWrites(ReadYourWrites readYourWrites) {
+        this.readYourWrites = readYourWrites;
+    }
+
+    public Duration getLsnWaitTimeout() {
+        return lsnWaitTimeout;
+    }
+
+    public void setLsnWaitTimeout(Duration lsnWaitTimeout) {
+        this.lsnWaitTimeout = lsnWaitTimeout;
+    }
+}
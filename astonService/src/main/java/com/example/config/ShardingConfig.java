@@ -0,0 +1,114 @@
+package com.example.config;
+
+import com.example.shard.ShardPools;
+import com.example.shard.ShardRoutingDataSource;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import liquibase.exception.LiquibaseException;
+import liquibase.integration.spring.SpringLiquibase;
+import net.ttddyy.observation.boot.autoconfigure.DataSourceObservationBeanPostProcessor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.liquibase.LiquibaseProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DataSource приложения при шардировании: соединение с шардом из ShardContext, выбранным к первому
+ * запросу транзакции (LazyConnectionDataSourceProxy), поэтому транзакция открывается до выбора шарда.
+ * Как и в {@link ReadReplicaConfig}, наблюдения JDBC навешиваются на пулы шардов, а не на маршрутизатор.
+ * Миграции Liquibase выполняются на каждом шарде по очереди.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.sharding", name = "enabled", havingValue = "true")
+public class ShardingConfig {
+
+    @Bean(destroyMethod = "close")
+    public ShardPools shardPools(ShardingProperties properties, ReplicaRoutingProperties routingProperties,
+                                 DataSourceProperties dataSourceProperties, Environment environment,
+                                 MeterRegistry meterRegistry) {
+        if (routingProperties.isEnabled()) {
+            throw new IllegalStateException("app.sharding и app.datasource.routing не включаются одновременно");
+        }
+        List<HikariDataSource> pools = new ArrayList<>(properties.getShards().size());
+        for (ShardingProperties.Shard shard : properties.getShards()) {
+            HikariConfig config = new HikariConfig();
+            Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(config));
+            config.setPoolName("shard-" + shard.getName());
+            config.setJdbcUrl(shard.getUrl());
+            config.setUsername(shard.getUsername() != null
+                    ? shard.getUsername() : dataSourceProperties.getUsername());
+            config.setPassword(shard.getPassword() != null
+                    ? shard.getPassword() : dataSourceProperties.getPassword());
+            config.setMetricRegistry(meterRegistry);
+            pools.add(new HikariDataSource(config));
+        }
+        return new ShardPools(pools);
+    }
+
+    @Bean
+    public DataSource shardedDataSource(ShardPools shardPools,
+                                        ObjectProvider<DataSourceObservationBeanPostProcessor> observations) {
+        List<DataSource> shards = new ArrayList<>(shardPools.pools().size());
+        for (HikariDataSource pool : shardPools.pools()) {
+            shards.add(DataSourceObservations.observed(observations, pool, pool.getPoolName()));
+        }
+        return new LazyConnectionDataSourceProxy(new ShardRoutingDataSource(shards));
+    }
+
+    /**
+     * Собственный бин Liquibase отключает автоконфигурацию, а с ней и регистрацию её свойств.
+     */
+    @Bean
+    @ConfigurationProperties(prefix = "spring.liquibase")
+    public LiquibaseProperties liquibaseProperties() {
+        return new LiquibaseProperties();
+    }
+
+    @Bean
+    public SpringLiquibase liquibase(ShardPools shardPools, LiquibaseProperties properties) {
+        ShardedLiquibase liquibase = new ShardedLiquibase(shardPools);
+        liquibase.setChangeLog(properties.getChangeLog());
+        if (properties.getContexts() != null) {
+            liquibase.setContexts(String.join(",", properties.getContexts()));
+        }
+        if (properties.getLabelFilter() != null) {
+            liquibase.setLabelFilter(String.join(",", properties.getLabelFilter()));
+        }
+        liquibase.setDefaultSchema(properties.getDefaultSchema());
+        liquibase.setChangeLogParameters(properties.getParameters());
+        liquibase.setShouldRun(properties.isEnabled());
+        return liquibase;
+    }
+
+    /**
+     * Один и тот же changelog применяется к каждому шарду.
+     */
+    static class ShardedLiquibase extends SpringLiquibase {
+
+        private final ShardPools shardPools;
+
+        ShardedLiquibase(ShardPools shardPools) {
+            this.shardPools = shardPools;
+        }
+
+        @Override
+        public void afterPropertiesSet() throws LiquibaseException {
+            for (HikariDataSource pool : shardPools.pools()) {
+                setDataSource(pool);
+                super.afterPropertiesSet();
+            }
+        }
+    }
+}
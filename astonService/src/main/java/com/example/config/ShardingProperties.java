@@ -0,0 +1,121 @@
+package com.example.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Настройки шардирования таблицы users по нескольким базам.
+ */
+@Component
+@ConfigurationProperties(prefix = "app.sharding")
+public class ShardingProperties {
+
+    /**
+     * Распределять пользователей по shards. Без этого все данные в spring.datasource.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Базы-шарды. Номер шарда — позиция в списке; пул каждого наследует настройки spring.datasource.hikari.
+     */
+    private List<Shard> shards = new ArrayList<>();
+
+    /**
+     * Сколько запросов к шардам выполняется одновременно при обходе всех шардов.
+     */
+    private int scatterThreads = 16;
+
+    /**
+     * Сколько заявка на email при его смене считается действующей, даже если владелец ещё не сохранил новый email.
+     */
+    private Duration emailClaimTimeout = Duration.ofMinutes(1);
+
+    public static class Shard {
+
+        private String name;
+        private String url;
+        private String username;
+        private String password;
+        /**
+         * Бакеты шарда через запятую, диапазоны через дефис: «0-511,1000». Если не задано ни у одного
+         * шарда, бакет b принадлежит шарду b % число шардов.
+         */
+        private String buckets;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public void setUrl(String url) {
+            this.url = url;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public void setUsername(String username) {
+            this.username = username;
+        }
+
+        public String getPassword() {
+            return password;
+        }
+
+        public void setPassword(String password) {
+            this.password = password;
+        }
+
+        public String getBuckets() {
+            return buckets;
+        }
+
+        public void setBuckets(String buckets) {
+            this.buckets = buckets;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public List<Shard> getShards() {
+        return shards;
+    }
+
+    public void setShards(List<Shard> shards) {
+        this.shards = shards;
+    }
+
+    public int getScatterThreads() {
+        return scatterThreads;
+    }
+
+    public void setScatterThreads(int scatterThreads) {
+        this.scatterThreads = scatterThreads;
+    }
+
+    public Duration getEmailClaimTimeout() {
+        return emailClaimTimeout;
+    }
+
+    public void setEmailClaimTimeout(Duration emailClaimTimeout) {
+        this.emailClaimTimeout = emailClaimTimeout;
+    }
+}
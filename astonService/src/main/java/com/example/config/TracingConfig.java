@@ -0,0 +1,42 @@
+package com.example.config;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationPredicate;
+import io.micrometer.observation.ObservationRegistry;
+import io.opentelemetry.exporter.logging.otlp.OtlpJsonLoggingSpanExporter;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Трассировка запроса: HTTP-спан, спаны JDBC, спан outbox relay и отправки в Kafka.
+ * Спаны пишутся в формате OTLP JSON в файл app.tracing.file (logback-spring.xml) — локально,
+ * без коллектора.
+ */
+@Configuration
+public class TracingConfig {
+
+    @Bean
+    @ConditionalOnProperty(prefix = "app.tracing", name = "log-export", havingValue = "true", matchIfMissing = true)
+    public SpanExporter otlpJsonLoggingSpanExporter() {
+        return OtlpJsonLoggingSpanExporter.create();
+    }
+
+    /**
+     * Запросы JDBC трассируются только внутри наблюдаемой операции: опрос outbox, Liquibase
+     * и фоновые задачи не создают по трассе на каждое обращение к базе.
+     */
+    @Bean
+    public ObservationPredicate jdbcInsideObservationOnly(ObjectProvider<ObservationRegistry> observationRegistry) {
+        return (name, context) -> {
+            if (!name.startsWith("jdbc.")) {
+                return true;
+            }
+            // Отключённое наблюдение (например, @Scheduled) тоже становится текущим, но как no-op
+            Observation current = observationRegistry.getObject().getCurrentObservation();
+            return current != null && !current.isNoop();
+        };
+    }
+}
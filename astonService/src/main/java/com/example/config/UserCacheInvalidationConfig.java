@@ -0,0 +1,53 @@
+package com.example.config;
+
+import com.example.dto.UserEvent;
+import com.example.kafka.UserEventDeserializer;
+import lombok.RequiredArgsConstructor;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Потребитель user-events для межузловой инвалидации кэша.
+ * Каждый экземпляр сервиса читает топик своей группой, чтобы получить все события,
+ * и начинает с конца топика: старые события кэшу не нужны.
+ * CREATED отбрасываются по заголовку без декодирования: отсутствующие пользователи не кэшируются.
+ */
+@Configuration
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "app.user-cache", name = "kafka-invalidation", havingValue = "true")
+public class UserCacheInvalidationConfig {
+
+    private final KafkaProperties kafkaProperties;
+
+    @Bean
+    public ConsumerFactory<String, UserEvent> userCacheInvalidationConsumerFactory() {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaProperties.getBootstrapServers());
+        props.put(ConsumerConfig.GROUP_ID_CONFIG, "aston-service-cache-" + UUID.randomUUID());
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest");
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        return new DefaultKafkaConsumerFactory<>(props,
+                new StringDeserializer(),
+                new UserEventDeserializer(EnumSet.of(UserEvent.EventTypeEnum.UPDATED, UserEvent.EventTypeEnum.DELETED)));
+    }
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, UserEvent> userCacheInvalidationContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, UserEvent> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(userCacheInvalidationConsumerFactory());
+        factory.setRecordFilterStrategy(record -> record.value() == null);
+        return factory;
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Настройки локального кэша пользователей.
+ */
+@Component
+@ConfigurationProperties(prefix = "app.user-cache")
+public class UserCacheProperties {
+
+    private long maximumSize = 10_000;
+
+    private Duration ttl = Duration.ofMinutes(5);
+
+    /**
+     * Сбрасывать записи по событиям из топика user-events, чтобы кэши всех узлов оставались согласованными.
+     */
+    private boolean kafkaInvalidation = false;
+
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    public void setMaximumSize(long maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    public void setTtl(Duration ttl) {
+        this.ttl = ttl;
+    }
+
+    public boolean isKafkaInvalidation() {
+        return kafkaInvalidation;
+    }
+
+    public void setKafkaInvalidation(boolean kafkaInvalidation) {
+        this.kafkaInvalidation = kafkaInvalidation;
+    }
+}
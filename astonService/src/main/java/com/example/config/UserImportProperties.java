@@ -0,0 +1,25 @@
+package com.example.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Настройки массового импорта пользователей.
+ */
+@Component
+@ConfigurationProperties(prefix = "app.user-import")
+public class UserImportProperties {
+
+    /**
+     * Количество строк, которые проверяются одним запросом и вставляются в одной транзакции.
+     */
+    private int chunkSize = 1000;
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+}
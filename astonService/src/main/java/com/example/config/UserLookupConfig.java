@@ -0,0 +1,27 @@
+package com.example.config;
+
+import com.example.entity.UserEntity;
+import com.example.util.SingleFlight;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Optional;
+
+/**
+ * Объединение одновременных промахов по одному пользователю и по его версии в один запрос к базе.
+ * Объединение не зависит от кэша; счётчики — singleflight.calls с тегами name и role.
+ */
+@Configuration
+public class UserLookupConfig {
+
+    @Bean
+    public SingleFlight<Long, Optional<UserEntity>> userFlight(MeterRegistry meterRegistry) {
+        return new SingleFlight<>("users", meterRegistry);
+    }
+
+    @Bean
+    public SingleFlight<Long, Optional<Long>> userVersionFlight(MeterRegistry meterRegistry) {
+        return new SingleFlight<>("user-versions", meterRegistry);
+    }
+}
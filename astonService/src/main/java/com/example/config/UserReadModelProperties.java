@@ -0,0 +1,135 @@
+package com.example.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Настройки модели чтения пользователей, построенной по топику user-events.
+ */
+@Component
+@ConfigurationProperties(prefix = "app.read-model")
+public class UserReadModelProperties {
+
+    /**
+     * Обслуживать чтения пользователей из локальной проекции вместо базы.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Файл снимка проекции. Пустое значение — снимки не пишутся, проекция каждый раз заполняется из базы.
+     */
+    private String snapshotFile = "data/user-read-model.snapshot";
+
+    private Duration snapshotInterval = Duration.ofMinutes(5);
+
+    /**
+     * Игнорировать снимок при старте и заполнить проекцию из базы.
+     */
+    private boolean rebuildOnStart = false;
+
+    /**
+     * Потоки начальной загрузки; партиции топика делятся между ними поровну.
+     */
+    private int rebuildThreads = 4;
+
+    private Duration pollTimeout = Duration.ofMillis(500);
+
+    /**
+     * Наибольшее отставание в записях, при котором чтения ещё обслуживает проекция; при большем — база.
+     */
+    private long maxServingLag = 1000;
+
+    /**
+     * Размер keyset-порции при заполнении проекции из базы, когда снимка нет.
+     */
+    private int seedPageSize = 1000;
+
+    /**
+     * Задержка перед перезапуском построения после сбоя; удваивается с каждым сбоем до maxRestartBackoff.
+     */
+    private Duration restartBackoff = Duration.ofSeconds(1);
+
+    private Duration maxRestartBackoff = Duration.ofMinutes(1);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getSnapshotFile() {
+        return snapshotFile;
+    }
+
+    public void setSnapshotFile(String snapshotFile) {
+        this.snapshotFile = snapshotFile;
+    }
+
+    public Duration getSnapshotInterval() {
+        return snapshotInterval;
+    }
+
+    public void setSnapshotInterval(Duration snapshotInterval) {
+        this.snapshotInterval = snapshotInterval;
+    }
+
+    public boolean isRebuildOnStart() {
+        return rebuildOnStart;
+    }
+
+    public void setRebuildOnStart(boolean rebuildOnStart) {
+        this.rebuildOnStart = rebuildOnStart;
+    }
+
+    public int getRebuildThreads() {
+        return rebuildThreads;
+    }
+
+    public void setRebuildThreads(int rebuildThreads) {
+        this.rebuildThreads = rebuildThreads;
+    }
+
+    public Duration getPollTimeout() {
+        return pollTimeout;
+    }
+
+    public void setPollTimeout(Duration pollTimeout) {
+        this.pollTimeout = pollTimeout;
+    }
+
+    public long getMaxServingLag() {
+        return maxServingLag;
+    }
+
+    public void setMaxServingLag(long maxServingLag) {
+        this.maxServingLag = maxServingLag;
+    }
+
+    public int getSeedPageSize() {
+        return seedPageSize;
+    }
+
+    public void setSeedPageSize(int seedPageSize) {
+        this.seedPageSize = seedPageSize;
+    }
+
+    public Duration getRestartBackoff() {
+        return restartBackoff;
+    }
+
+    public void setRestartBackoff(Duration restartBackoff) {
+        this.restartBackoff = restartBackoff;
+    }
+
+    public Duration getMaxRestartBackoff() {
+        return maxRestartBackoff;
+    }
+
+    public void setMaxRestartBackoff(Duration maxRestartBackoff) {
+        this.maxRestartBackoff = maxRestartBackoff;
+    }
+}
@@ -1,24 +1,44 @@
 package com.example.controller;
 
 import com.example.api.UserApi;
+import com.example.dto.UserBatchResponse;
 import com.example.dto.UserCreateRequest;
 import com.example.dto.UserEvent;
 import com.example.dto.UserResponse;
+import com.example.dto.UserSearchResponse;
 import com.example.dto.UserUpdateRequest;
 import com.example.hateoas.UserEventLinksBuilder;
 import com.example.hateoas.UserLinksBuilder;
+import com.example.repository.UserSearchFilter;
 import com.example.service.UserService;
+import com.example.util.UserCursor;
+import com.example.util.UserETag;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @RestController
 @RequiredArgsConstructor
 public class UserController implements UserApi {
 
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final String APPLICATION_NDJSON = "application/x-ndjson";
+
+    private static final int STREAM_FLUSH_EVERY = 500;
+
     private final UserService userService;
+    private final ObjectMapper objectMapper;
 
     @Override
     public ResponseEntity<UserEvent> createUser(UserCreateRequest userCreateRequest) {
@@ -28,34 +48,114 @@ public class UserController implements UserApi {
     }
 
     @Override
-    public ResponseEntity<UserEvent> updateUser(Long id, UserUpdateRequest userUpdateRequest) {
+    public ResponseEntity<UserEvent> updateUser(Long id, UserUpdateRequest userUpdateRequest, String ifMatch) {
         userUpdateRequest.setId(id);
-        UserEvent event = userService.updateUser(userUpdateRequest);
+        UserEvent event = userService.updateUser(userUpdateRequest, UserETag.parseIfMatch(ifMatch));
         UserEventLinksBuilder.attachTo(event);
         return ResponseEntity.ok(event);
     }
 
     @Override
-    public ResponseEntity<UserEvent> deleteUser(Long id) {
-        UserEvent event = userService.deleteUser(id);
+    public ResponseEntity<UserEvent> deleteUser(Long id, String ifMatch) {
+        UserEvent event = userService.deleteUser(id, UserETag.parseIfMatch(ifMatch));
         UserEventLinksBuilder.attachTo(event);
         return ResponseEntity.ok(event);
     }
 
     @Override
-    public ResponseEntity<List<UserResponse>> getAllUsers() {
-        List<UserResponse> users = userService.getAllUsers();
+    public ResponseEntity<List<UserResponse>> getAllUsers(Integer limit, String after, String ifNoneMatch) {
+        Long afterId = UserCursor.decode(after);
+        if (ifNoneMatch != null) {
+            String etag = UserETag.ofPage(userService.getUsersPageFingerprint(afterId, limit));
+            if (UserETag.matchesNoneMatch(ifNoneMatch, etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
+        }
+
+        List<UserResponse> users = userService.getUsersPage(afterId, limit);
         users.forEach(UserLinksBuilder::attachTo);
-        return ResponseEntity.ok(users);
+
+        long fingerprint = UserETag.EMPTY_PAGE;
+        for (UserResponse user : users) {
+            fingerprint = UserETag.mix(fingerprint, user.getId(), user.getVersion() == null ? 0L : user.getVersion());
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().eTag(UserETag.ofPage(fingerprint));
+        if (!users.isEmpty() && users.size() == limit) {
+            response.header(NEXT_CURSOR_HEADER, UserCursor.encode(users.get(users.size() - 1).getId()));
+        }
+        return response.body(users);
+    }
+
+    /**
+     * Потоковая выгрузка всех пользователей в формате NDJSON.
+     * Строки пишутся в ответ по мере чтения из базы, поэтому память не зависит от размера таблицы.
+     */
+    @GetMapping(value = UserApi.PATH_GET_ALL_USERS, produces = APPLICATION_NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamAllUsers() {
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.createGenerator(out).setRootValueSeparator(null)) {
+                int[] written = {0};
+                userService.streamAllUsers(user -> {
+                    UserLinksBuilder.attachTo(user);
+                    try {
+                        generator.writeObject(user);
+                        generator.writeRaw('\n');
+                        if (++written[0] % STREAM_FLUSH_EVERY == 0) {
+                            generator.flush();
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok().header("Content-Type", APPLICATION_NDJSON).body(body);
+    }
+
+    @Override
+    public ResponseEntity<UserBatchResponse> getUsersByIds(List<Long> ids) {
+        UserBatchResponse batch = userService.getUsersByIds(ids);
+        batch.getUsers().forEach(UserLinksBuilder::attachTo);
+        return ResponseEntity.ok(batch);
+    }
+
+    @Override
+    public ResponseEntity<UserSearchResponse> searchUsers(String name, String match, Integer minAge, Integer maxAge,
+                                                          LocalDateTime createdFrom, LocalDateTime createdTo,
+                                                          Integer limit, String after) {
+        UserSearchFilter filter = new UserSearchFilter(name, UserSearchFilter.NameMatch.parse(match),
+                minAge, maxAge, createdFrom, createdTo);
+        UserSearchResponse result = userService.searchUsers(filter, UserCursor.decode(after), limit);
+        List<UserResponse> users = result.getUsers();
+        users.forEach(UserLinksBuilder::attachTo);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (!users.isEmpty() && users.size() == limit) {
+            response.header(NEXT_CURSOR_HEADER, UserCursor.encode(users.get(users.size() - 1).getId()));
+        }
+        return response.body(result);
     }
 
+    /**
+     * С If-None-Match сначала сверяется только версия: совпадение отвечает 304 без чтения записи.
+     */
     @Override
-    public ResponseEntity<UserResponse> getUser(Long id) {
+    public ResponseEntity<UserResponse> getUser(Long id, String ifNoneMatch) {
+        if (ifNoneMatch != null) {
+            Optional<String> etag = userService.getUserVersion(id).map(UserETag::of);
+            if (etag.isPresent() && UserETag.matchesNoneMatch(ifNoneMatch, etag.get())) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag.get()).build();
+            }
+        }
         return userService.getUserById(id)
                 .map(user -> {
                     UserLinksBuilder.attachTo(user);
-                    return ResponseEntity.ok(user);
+                    ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+                    if (user.getVersion() != null) {
+                        response.eTag(UserETag.of(user.getVersion()));
+                    }
+                    return response.body(user);
                 })
                 .orElse(ResponseEntity.notFound().build());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,41 @@
+package com.example.controller;
+
+import com.example.dto.BulkImportReport;
+import com.example.service.UserImportService;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+
+/**
+ * Операция bulkCreateUsers из openapi.yaml (тег user-import).
+ * Реализована вручную, а не через сгенерированный интерфейс: тело запроса читается
+ * из потока по мере обработки, а не собирается целиком в список.
+ */
+@RestController
+@RequiredArgsConstructor
+public class UserImportController {
+
+    public static final String PATH_BULK_CREATE_USERS = "/users/bulk";
+    public static final String TEXT_CSV = "text/csv";
+
+    private final UserImportService userImportService;
+
+    @PostMapping(value = PATH_BULK_CREATE_USERS,
+            consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<BulkImportReport> bulkCreateUsersJson(HttpServletRequest request) throws IOException {
+        return ResponseEntity.ok(userImportService.importJson(request.getInputStream()));
+    }
+
+    @PostMapping(value = PATH_BULK_CREATE_USERS,
+            consumes = TEXT_CSV,
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<BulkImportReport> bulkCreateUsersCsv(HttpServletRequest request) throws IOException {
+        return ResponseEntity.ok(userImportService.importCsv(request.getInputStream()));
+    }
+}
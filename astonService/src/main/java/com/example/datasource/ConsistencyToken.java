@@ -0,0 +1,90 @@
+package com.example.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.function.LongConsumer;
+
+/**
+ * Токен чтения после записи — LSN primary после коммита изменения. Ответ на изменение несёт его
+ * в X-Consistency-Token; клиент, вернувший токен в следующих запросах, не прочитает данные старше своей записи.
+ * <p>
+ * Заголовки разбирает и выставляет веб-слой ({@link com.example.web.ConsistencyTokenFilter}): на время запроса
+ * он открывает контекст потока, из которого маршрутизация и сервисы узнают требуемый LSN и которому отдают новый.
+ */
+@Slf4j
+public final class ConsistencyToken {
+
+    public static final String HEADER = "X-Consistency-Token";
+    public static final long NONE = 0L;
+
+    private static final ThreadLocal<Context> CURRENT = new ThreadLocal<>();
+
+    /**
+     * Контекст запроса: LSN, который клиент требует увидеть, и получатель выданных за запрос токенов.
+     */
+    private record Context(long required, LongConsumer issued) {
+    }
+
+    /**
+     * Контекст текущего потока; закрытие восстанавливает предыдущий.
+     */
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private ConsistencyToken() {
+    }
+
+    public static Scope open(long required, LongConsumer issued) {
+        Context previous = CURRENT.get();
+        CURRENT.set(new Context(required, issued));
+        return () -> {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        };
+    }
+
+    /**
+     * Значение заголовка в LSN. Без заголовка и с некорректным значением — NONE.
+     */
+    public static long parse(String token) {
+        if (token == null || token.isBlank()) {
+            return NONE;
+        }
+        try {
+            return Lsn.parse(token.trim());
+        } catch (IllegalArgumentException e) {
+            log.debug("Заголовок {} проигнорирован: {}", HEADER, e.getMessage());
+            return NONE;
+        }
+    }
+
+    /**
+     * true — поток обслуживает HTTP-запрос, и выданный токен дойдёт до клиента.
+     */
+    public static boolean inRequest() {
+        return CURRENT.get() != null;
+    }
+
+    /**
+     * LSN, который требует текущий запрос. Вне запроса — NONE: чтение идёт без требований к свежести.
+     */
+    public static long required() {
+        Context context = CURRENT.get();
+        return context == null ? NONE : context.required();
+    }
+
+    /**
+     * Выдаёт токен в ответе текущего запроса; вне запроса ничего не делает.
+     */
+    public static void issue(long lsn) {
+        Context context = CURRENT.get();
+        if (context != null) {
+            context.issued().accept(lsn);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.datasource;
+
+/**
+ * Позиция в журнале WAL Postgres. В тексте это две шестнадцатеричные половины через слеш
+ * (16/B374D848), в числе — смещение в байтах, поэтому позиции сравниваются и вычитаются как long.
+ */
+public final class Lsn {
+
+    private static final long HALF = 0xFFFFFFFFL;
+
+    private Lsn() {
+    }
+
+    public static long parse(String text) {
+        int slash = text.indexOf('/');
+        if (slash <= 0 || slash == text.length() - 1) {
+            throw new IllegalArgumentException("Некорректный LSN: " + text);
+        }
+        long high;
+        long low;
+        try {
+            high = Long.parseLong(text, 0, slash, 16);
+            low = Long.parseLong(text, slash + 1, text.length(), 16);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Некорректный LSN: " + text, e);
+        }
+        if (high < 0 || high > HALF || low < 0 || low > HALF) {
+            throw new IllegalArgumentException("Некорректный LSN: " + text);
+        }
+        return high << 32 | low;
+    }
+
+    public static String format(long lsn) {
+        return Long.toHexString(lsn >>> 32).toUpperCase() + '/' + Long.toHexString(lsn & HALF).toUpperCase();
+    }
+}
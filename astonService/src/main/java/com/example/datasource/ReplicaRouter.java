@@ -0,0 +1,366 @@
+package com.example.datasource;
+
+import com.example.config.ReplicaRoutingProperties;
+import com.example.config.ReplicaRoutingProperties.ReadYourWrites;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Выбор базы для чтений вне изменяющих транзакций. Реплика годится, если последняя проверка
+ * подтвердила, что она в режиме восстановления и отстаёт от primary не больше max-lag-bytes.
+ * Из двух случайных годных реплик берётся та, у которой меньше занятых соединений.
+ * Если годных нет или соединение не получено, чтение идёт на primary.
+ * <p>
+ * Клиент с токеном согласованности читает только с реплики, уже проигравшей его LSN; иначе в режиме
+ * PIN — с primary, в режиме WAIT — с реплики после ожидания, а по таймауту тоже с primary.
+ */
+@Slf4j
+public class ReplicaRouter implements AutoCloseable {
+
+    private static final String PRIMARY_LSN_SQL = "SELECT pg_current_wal_lsn()::text";
+    private static final String REPLICA_STATE_SQL = "SELECT pg_is_in_recovery(), pg_last_wal_replay_lsn()::text";
+    private static final String REPLAY_LSN_SQL = "SELECT pg_last_wal_replay_lsn()::text";
+    private static final long WAIT_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final ReadYourWrites readYourWrites;
+    private final long maxLagBytes;
+    private final long lsnWaitTimeoutNanos;
+    private final long healthCheckIntervalMs;
+    private final Counter noReplicaReads;
+    private final Counter pinnedReads;
+    private final Counter waitTimeoutReads;
+    private final DataSource readOnlyDataSource = new ReadDataSource();
+    private final AtomicLong primaryLsn = new AtomicLong();
+    private ScheduledExecutorService healthChecker;
+
+    public ReplicaRouter(DataSource primary, Map<String, DataSource> replicas,
+                         ReplicaRoutingProperties properties, MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.readYourWrites = properties.getReadYourWrites();
+        this.maxLagBytes = properties.getMaxLagBytes();
+        this.lsnWaitTimeoutNanos = properties.getLsnWaitTimeout().toNanos();
+        this.healthCheckIntervalMs = properties.getHealthCheckIntervalMs();
+        this.replicas = new ArrayList<>(replicas.size());
+        replicas.forEach((name, pool) -> this.replicas.add(new Replica(name, pool, meterRegistry)));
+        this.noReplicaReads = reads(meterRegistry, "primary", "no-replica");
+        this.pinnedReads = reads(meterRegistry, "primary", "read-your-writes");
+        this.waitTimeoutReads = reads(meterRegistry, "primary", "wait-timeout");
+    }
+
+    private static Counter reads(MeterRegistry meterRegistry, String target, String reason) {
+        return Counter.builder("user.db.reads")
+                .tag("target", target)
+                .tag("reason", reason)
+                .description("Соединения для транзакций readOnly по выбранной базе")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Запускает проверку реплик. До первой проверки все чтения идут на primary.
+     */
+    public void start() {
+        healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-health");
+            thread.setDaemon(true);
+            return thread;
+        });
+        healthChecker.scheduleWithFixedDelay(this::checkHealthSafely, 0, healthCheckIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public DataSource primary() {
+        return primary;
+    }
+
+    /**
+     * Источник соединений для транзакций readOnly (LazyConnectionDataSourceProxy#setReadOnlyDataSource).
+     */
+    public DataSource readOnlyDataSource() {
+        return readOnlyDataSource;
+    }
+
+    public ReadYourWrites readYourWrites() {
+        return readYourWrites;
+    }
+
+    /**
+     * Текущий LSN primary, прочитанный отдельным соединением: после коммита он не меньше LSN коммита.
+     */
+    public long primaryLsn() throws SQLException {
+        long lsn;
+        try (Connection connection = primary.getConnection()) {
+            lsn = queryLsn(connection, PRIMARY_LSN_SQL);
+        }
+        primaryLsn.accumulateAndGet(lsn, Math::max);
+        return lsn;
+    }
+
+    Connection readConnection() throws SQLException {
+        long required = readYourWrites == ReadYourWrites.NONE ? ConsistencyToken.NONE : ConsistencyToken.required();
+        Replica replica;
+        while ((replica = pick(required)) != null) {
+            Connection connection = connect(replica);
+            if (connection != null) {
+                replica.reads.increment();
+                return connection;
+            }
+        }
+        if (required == ConsistencyToken.NONE || pick(ConsistencyToken.NONE) == null) {
+            noReplicaReads.increment();
+        } else if (readYourWrites == ReadYourWrites.WAIT) {
+            Connection connection = awaitReplica(required);
+            if (connection != null) {
+                return connection;
+            }
+            waitTimeoutReads.increment();
+        } else {
+            pinnedReads.increment();
+        }
+        return primary.getConnection();
+    }
+
+    /**
+     * Ждёт, пока годная реплика проиграет WAL до required, опрашивая её по своему же соединению.
+     */
+    private Connection awaitReplica(long required) {
+        Replica replica = pick(ConsistencyToken.NONE);
+        Connection connection = replica == null ? null : connect(replica);
+        if (connection == null) {
+            return null;
+        }
+        boolean caughtUp = false;
+        try (Statement statement = connection.createStatement()) {
+            long deadline = System.nanoTime() + lsnWaitTimeoutNanos;
+            while (!(caughtUp = replica.advance(queryLsn(statement, REPLAY_LSN_SQL)) >= required)
+                    && System.nanoTime() < deadline && !Thread.currentThread().isInterrupted()) {
+                LockSupport.parkNanos(WAIT_POLL_NANOS);
+            }
+        } catch (SQLException e) {
+            setHealthy(replica, false, e.getMessage());
+        }
+        if (caughtUp) {
+            replica.waitedReads.increment();
+            return connection;
+        }
+        closeQuietly(connection);
+        return null;
+    }
+
+    private Replica pick(long required) {
+        int eligible = 0;
+        for (Replica replica : replicas) {
+            if (replica.serves(required)) {
+                eligible++;
+            }
+        }
+        if (eligible == 0) {
+            return null;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int firstIndex = random.nextInt(eligible);
+        Replica first = nth(firstIndex, required);
+        if (eligible == 1 || first == null) {
+            return first;
+        }
+        int secondIndex = random.nextInt(eligible - 1);
+        Replica second = nth(secondIndex >= firstIndex ? secondIndex + 1 : secondIndex, required);
+        return second != null && second.activeConnections() < first.activeConnections() ? second : first;
+    }
+
+    private Replica nth(int index, long required) {
+        for (Replica replica : replicas) {
+            if (replica.serves(required) && index-- == 0) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    private Connection connect(Replica replica) {
+        try {
+            return replica.pool.getConnection();
+        } catch (SQLException e) {
+            setHealthy(replica, false, e.getMessage());
+            return null;
+        }
+    }
+
+    private void checkHealthSafely() {
+        try {
+            checkHealth();
+        } catch (RuntimeException e) {
+            log.warn("Проверка реплик завершилась ошибкой", e);
+        }
+    }
+
+    public void checkHealth() {
+        try {
+            primaryLsn();
+        } catch (SQLException e) {
+            // Отставание считается от последнего известного LSN primary
+            log.warn("Не удалось получить LSN primary: {}", e.getMessage());
+        }
+        for (Replica replica : replicas) {
+            check(replica);
+        }
+    }
+
+    private void check(Replica replica) {
+        try (Connection connection = replica.pool.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(REPLICA_STATE_SQL)) {
+            rs.next();
+            String replay = rs.getString(2);
+            if (!rs.getBoolean(1) || replay == null) {
+                // Отдельный сервер или повышенная до primary реплика не получает изменений этого primary
+                setHealthy(replica, false, "не находится в режиме восстановления");
+                return;
+            }
+            long lsn = Lsn.parse(replay);
+            replica.replayLsn.set(lsn);
+            replica.lagBytes = Math.max(0, primaryLsn.get() - lsn);
+            setHealthy(replica, replica.lagBytes <= maxLagBytes, "отставание " + replica.lagBytes + " байт");
+        } catch (SQLException e) {
+            setHealthy(replica, false, e.getMessage());
+        }
+    }
+
+    private static void setHealthy(Replica replica, boolean healthy, String detail) {
+        if (replica.healthy == healthy) {
+            return;
+        }
+        replica.healthy = healthy;
+        if (healthy) {
+            log.info("Реплика {} принимает чтения: {}", replica.name, detail);
+        } else {
+            log.warn("Реплика {} исключена из чтений: {}", replica.name, detail);
+        }
+    }
+
+    private static long queryLsn(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            return queryLsn(statement, sql);
+        }
+    }
+
+    private static long queryLsn(Statement statement, String sql) throws SQLException {
+        try (ResultSet rs = statement.executeQuery(sql)) {
+            String lsn = rs.next() ? rs.getString(1) : null;
+            return lsn == null ? ConsistencyToken.NONE : Lsn.parse(lsn);
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            log.debug("Не удалось закрыть соединение с репликой: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        if (healthChecker != null) {
+            healthChecker.shutdownNow();
+        }
+        for (Replica replica : replicas) {
+            close(replica.pool);
+        }
+        close(primary);
+    }
+
+    private static void close(DataSource dataSource) {
+        HikariDataSource hikari = hikari(dataSource);
+        if (hikari != null) {
+            hikari.close();
+        }
+    }
+
+    /**
+     * Пул под прокси наблюдений JDBC: прокси передаёт unwrap целевому DataSource.
+     */
+    private static HikariDataSource hikari(DataSource dataSource) {
+        try {
+            return dataSource.isWrapperFor(HikariDataSource.class) ? dataSource.unwrap(HikariDataSource.class) : null;
+        } catch (SQLException e) {
+            return null;
+        }
+    }
+
+    private static final class Replica {
+
+        private final String name;
+        private final DataSource pool;
+        private final HikariDataSource hikari;
+        private final Counter reads;
+        private final Counter waitedReads;
+        private final AtomicLong replayLsn = new AtomicLong();
+        private volatile boolean healthy;
+        private volatile long lagBytes;
+
+        private Replica(String name, DataSource pool, MeterRegistry meterRegistry) {
+            this.name = name;
+            this.pool = pool;
+            this.hikari = hikari(pool);
+            this.reads = reads(meterRegistry, name, "balanced");
+            this.waitedReads = reads(meterRegistry, name, "caught-up");
+            Gauge.builder("user.db.replica.lag", this, replica -> replica.lagBytes)
+                    .tag("replica", name)
+                    .baseUnit("bytes")
+                    .description("Отставание реплики от primary по WAL на последней проверке")
+                    .register(meterRegistry);
+            Gauge.builder("user.db.replica.healthy", this, replica -> replica.healthy ? 1 : 0)
+                    .tag("replica", name)
+                    .description("1, если реплика принимает чтения")
+                    .register(meterRegistry);
+        }
+
+        private boolean serves(long required) {
+            return healthy && (required == ConsistencyToken.NONE || replayLsn.get() >= required);
+        }
+
+        private long advance(long lsn) {
+            return replayLsn.accumulateAndGet(lsn, Math::max);
+        }
+
+        private int activeConnections() {
+            HikariPoolMXBean mxBean = hikari != null ? hikari.getHikariPoolMXBean() : null;
+            return mxBean != null ? mxBean.getActiveConnections() : 0;
+        }
+    }
+
+    private final class ReadDataSource extends AbstractDataSource {
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return readConnection();
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            throw new SQLFeatureNotSupportedException("Реплики используют учётные данные своих пулов");
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.datasource;
+
+import com.example.config.ReplicaRoutingProperties.ReadYourWrites;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.SQLException;
+
+/**
+ * Выдаёт в ответе на изменение токен согласованности (см. {@link ConsistencyToken}).
+ * Стоит одного запроса к primary после коммита; без маршрутизации на реплики и в режиме NONE ничего не делает.
+ */
+@Slf4j
+@Component
+public class WriteLsnTracker {
+
+    private final ReplicaRouter replicaRouter;
+
+    public WriteLsnTracker(ObjectProvider<ReplicaRouter> replicaRouter) {
+        ReplicaRouter router = replicaRouter.getIfAvailable();
+        this.replicaRouter = router != null && router.readYourWrites() != ReadYourWrites.NONE ? router : null;
+    }
+
+    /**
+     * Вызывается внутри изменяющей транзакции HTTP-запроса; токен выдаётся после её коммита.
+     */
+    public void recordWrite() {
+        if (replicaRouter == null || !ConsistencyToken.inRequest()
+                || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    ConsistencyToken.issue(replicaRouter.primaryLsn());
+                } catch (SQLException e) {
+                    // Изменение уже сохранено: клиент без токена просто читает без гарантии свежести
+                    log.warn("Токен согласованности не выдан: {}", e.getMessage());
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.entity;
+
+import com.example.shard.ShardSequence;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+/**
+ * Событие, ожидающее отправки в Kafka (transactional outbox).
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString
+@Entity
+@Table(name = "outbox")
+public class OutboxEventEntity {
+
+    /**
+     * Уникален в пределах шарда: событие отправляет relay того же шарда.
+     */
+    @Id
+    @ShardSequence(name = "outbox_id_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "aggregate_id")
+    private Long aggregateId;
+
+    /**
+     * Ключ записи в Kafka.
+     */
+    @Column(name = "event_key", nullable = false)
+    private String eventKey;
+
+    @Column(name = "event_type", nullable = false)
+    private String eventType;
+
+    /**
+     * UserEvent в JSON.
+     */
+    @Column(nullable = false)
+    private String payload;
+
+    /**
+     * W3C traceparent запроса, записавшего событие; null — запрос не трассировался.
+     */
+    @Column(name = "trace_parent", length = 55)
+    private String traceParent;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+/**
+ * Запись справочника email при шардировании: кому принадлежит адрес и когда он был заявлен.
+ * Пишется только запросами {@link com.example.repository.UserEmailRepository}.
+ */
+@Getter
+@NoArgsConstructor
+@ToString
+@Entity
+@Table(name = "user_emails")
+public class UserEmailEntity {
+
+    @Id
+    private String email;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "claimed_at", nullable = false)
+    private LocalDateTime claimedAt;
+}
@@ -1,5 +1,7 @@
 package com.example.entity;
 
+import com.example.shard.ShardKeyed;
+import com.example.shard.ShardSequence;
 import jakarta.persistence.PrePersist;
 import lombok.AllArgsConstructor;
 import lombok.EqualsAndHashCode;
@@ -10,17 +12,9 @@ import lombok.ToString;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
-
-import jakarta.validation.constraints.Email;
-import jakarta.validation.constraints.Max;
-import jakarta.validation.constraints.Min;
-import jakarta.validation.constraints.NotBlank;
-import jakarta.validation.constraints.NotNull;
-import jakarta.validation.constraints.Size;
+import jakarta.persistence.Version;
 
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
@@ -33,32 +27,44 @@ import java.time.temporal.ChronoUnit;
 @EqualsAndHashCode
 @Entity
 @Table(name = "users")
-public class UserEntity {
+public class UserEntity implements ShardKeyed {
 
+    /**
+     * Идентификаторы выдаются из последовательности блоками (pooled), чтобы Hibernate мог
+     * объединять вставки в JDBC-пакеты. allocationSize совпадает с INCREMENT последовательности.
+     * При шардировании в младших битах ID — бакет email, с которым пользователь был создан.
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @ShardSequence(name = "users_id_seq", allocationSize = 50, bucketed = true)
     private Long id;
 
+    // Поля проверяет UserValidator до сохранения; повторной Bean Validation при persist нет
     @Column(nullable = false)
-    @NotNull(message = "Имя не может быть пустым")
-    @Size(min = 2, max = 50, message = "Имя должно быть от 2 до 50 символов")
     private String name;
 
     @Column(nullable = false, unique = true)
-    @Email(message = "Некорректный email")
-    @NotBlank(message = "Email обязателен")
     private String email;
 
-    @NotNull(message = "Возраст обязателен")
-    @Min(value = 1, message = "Возраст должен быть больше 0")
-    @Max(value = 150, message = "Возраст должен быть меньше или равен 150")
+    @Column(nullable = false)
     private Integer age;
 
     @Column(name = "created_at", nullable = false, columnDefinition = "TIMESTAMP(0)")
     private LocalDateTime createdAt;
 
+    /**
+     * Версия для оптимистической блокировки; из неё же строится ETag пользователя.
+     */
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
     }
+
+    @Override
+    public String shardKey() {
+        return email;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,10 @@
+package com.example.exception;
+
+public class PreconditionFailedException extends RuntimeException {
+    /**
+     * Создаёт новое исключение, указывающее, что версия ресурса не совпала с условием запроса.
+     */
+    public PreconditionFailedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.hateoas;
+
+import com.example.dto.UserResponseLinksValue;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Ссылки пользователя как неизменяемое представление Map поверх одного ID: таблица не строится,
+ * общие ссылки разделяются всеми пользователями, ссылка на самого пользователя создаётся один раз
+ * и отдаётся для self, update и delete.
+ */
+final class UserLinks extends AbstractMap<String, UserResponseLinksValue> {
+
+    private static final List<String> RELATIONS = List.of("self", "all", "create", "update", "delete");
+    private static final String COLLECTION_HREF = "/users";
+    private static final UserResponseLinksValue COLLECTION = new UserResponseLinksValue().href(COLLECTION_HREF);
+
+    private final Long id;
+    private UserResponseLinksValue item;
+
+    UserLinks(Long id) {
+        this.id = id;
+    }
+
+    @Override
+    public UserResponseLinksValue get(Object relation) {
+        if (!(relation instanceof String name)) {
+            return null;
+        }
+        return switch (name) {
+            case "self", "update", "delete" -> item();
+            case "all", "create" -> COLLECTION;
+            default -> null;
+        };
+    }
+
+    @Override
+    public boolean containsKey(Object relation) {
+        return RELATIONS.contains(relation);
+    }
+
+    @Override
+    public int size() {
+        return RELATIONS.size();
+    }
+
+    @Override
+    public Set<Map.Entry<String, UserResponseLinksValue>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Map.Entry<String, UserResponseLinksValue>> iterator() {
+                Iterator<String> relations = RELATIONS.iterator();
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return relations.hasNext();
+                    }
+
+                    @Override
+                    public Map.Entry<String, UserResponseLinksValue> next() {
+                        String relation = relations.next();
+                        return new SimpleImmutableEntry<>(relation, get(relation));
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return RELATIONS.size();
+            }
+        };
+    }
+
+    private UserResponseLinksValue item() {
+        if (item == null) {
+            item = new UserResponseLinksValue().href(COLLECTION_HREF + "/" + id);
+        }
+        return item;
+    }
+}
@@ -7,14 +7,11 @@ import java.util.Map;
 
 public class UserLinksBuilder {
 
+    /**
+     * Ссылки self, all, create, update и delete; общий объект ссылок на коллекцию не изменять.
+     */
     public static Map<String, UserResponseLinksValue> buildForUser(Long id) {
-        return Map.of(
-                "self", new UserResponseLinksValue().href("/users/" + id),
-                "all", new UserResponseLinksValue().href("/users"),
-                "create", new UserResponseLinksValue().href("/users"),
-                "update", new UserResponseLinksValue().href("/users/" + id),
-                "delete", new UserResponseLinksValue().href("/users/" + id)
-        );
+        return new UserLinks(id);
     }
 
     public static void attachTo(UserResponse user) {
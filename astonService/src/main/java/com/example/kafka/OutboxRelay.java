@@ -0,0 +1,146 @@
+package com.example.kafka;
+
+import com.example.config.OutboxProperties;
+import com.example.dto.UserEvent;
+import com.example.entity.OutboxEventEntity;
+import com.example.repository.OutboxRepository;
+import com.example.shard.Shards;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import io.micrometer.tracing.propagation.Propagator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Фоновая отправка событий из outbox в Kafka.
+ * Порция блокируется через FOR UPDATE SKIP LOCKED, отправляется целиком, и после подтверждения
+ * брокером всех записей удаляется одним запросом в той же транзакции. Порции шарда отправляет один
+ * экземпляр за раз (advisory-блокировка на транзакцию): следующую порцию можно взять только после
+ * подтверждения предыдущей, поэтому события одного пользователя приходят в Kafka в порядке записи. При ошибке транзакция
+ * откатывается и порция будет отправлена повторно (at-least-once).
+ * Отправка события продолжает трассу записавшего его запроса: спан outbox relay начинается в момент
+ * записи в outbox, так что ожидание в таблице видно отдельно, а дочерний спан KafkaTemplate передаёт
+ * контекст дальше в заголовках записи.
+ * При шардировании у каждого шарда своя таблица outbox, они обходятся по очереди.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(prefix = "app.outbox", name = "relay-enabled", havingValue = "true", matchIfMissing = true)
+public class OutboxRelay {
+
+    /**
+     * Ключ advisory-блокировки отправителя; к нему прибавляется номер шарда.
+     */
+    static final long RELAY_LOCK_KEY = 0x6F7574626F78L;
+
+    private final OutboxRepository outboxRepository;
+    private final UserEventPublisher userEventPublisher;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final OutboxProperties properties;
+    private final Tracer tracer;
+    private final Propagator propagator;
+    private final Shards shards;
+
+    @Scheduled(fixedDelayString = "${app.outbox.poll-interval-ms:200}")
+    public void relay() {
+        shards.forEach(this::relay);
+    }
+
+    private void relay(int shard) {
+        try {
+            Integer relayed;
+            do {
+                relayed = transactionTemplate.execute(status -> relayBatch(shard));
+            } while (relayed != null && relayed == properties.getBatchSize());
+        } catch (RuntimeException e) {
+            log.error("Отправка outbox шарда {} прервана, порция будет повторена: {}", shards.name(shard), e.getMessage());
+        }
+    }
+
+    private int relayBatch(int shard) {
+        if (!outboxRepository.tryLockRelay(RELAY_LOCK_KEY + shard)) {
+            log.debug("Outbox шарда {} отправляет другой экземпляр", shards.name(shard));
+            return 0;
+        }
+        List<OutboxEventEntity> batch = outboxRepository.lockNextBatch(properties.getBatchSize());
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        List<CompletableFuture<?>> acks = new ArrayList<>(batch.size());
+        List<Long> ids = new ArrayList<>(batch.size());
+        for (OutboxEventEntity entity : batch) {
+            ids.add(entity.getId());
+            UserEvent event = toEvent(entity);
+            if (event != null) {
+                acks.add(send(entity, event));
+            }
+        }
+        awaitAll(acks);
+
+        outboxRepository.deleteAllByIdInBatch(ids);
+        log.debug("Отправлено из outbox: {}", batch.size());
+        return batch.size();
+    }
+
+    private CompletableFuture<?> send(OutboxEventEntity entity, UserEvent event) {
+        if (entity.getTraceParent() == null) {
+            return userEventPublisher.send(event);
+        }
+        Span span = propagator.extract(entity.getTraceParent(), OutboxRelay::traceParentHeader)
+                .name("outbox relay")
+                .startTimestamp(entity.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(),
+                        TimeUnit.MILLISECONDS)
+                .tag("outbox.id", String.valueOf(entity.getId()))
+                .start();
+        try (Tracer.SpanInScope ignored = tracer.withSpan(span)) {
+            return userEventPublisher.send(event);
+        } finally {
+            span.end();
+        }
+    }
+
+    private static String traceParentHeader(String traceParent, String key) {
+        return UserEventOutbox.TRACE_PARENT.equals(key) ? traceParent : null;
+    }
+
+    private void awaitAll(List<CompletableFuture<?>> acks) {
+        try {
+            CompletableFuture.allOf(acks.toArray(CompletableFuture[]::new))
+                    .get(properties.getSendTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Отправка outbox прервана", e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IllegalStateException("Брокер не подтвердил порцию outbox", e);
+        }
+    }
+
+    /**
+     * Запись, которую невозможно прочитать, не отправляется и удаляется, чтобы не блокировать очередь.
+     */
+    private UserEvent toEvent(OutboxEventEntity entity) {
+        try {
+            return objectMapper.readValue(entity.getPayload(), UserEvent.class);
+        } catch (JsonProcessingException e) {
+            log.error("Пропущена повреждённая запись outbox {}: {}", entity.getId(), e.getMessage());
+            return null;
+        }
+    }
+}
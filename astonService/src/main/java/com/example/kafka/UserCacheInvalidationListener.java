@@ -0,0 +1,36 @@
+package com.example.kafka;
+
+import com.example.cache.UserCache;
+import com.example.dto.UserEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Сбрасывает локальный кэш пользователей по событиям, опубликованным любым узлом.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(prefix = "app.user-cache", name = "kafka-invalidation", havingValue = "true")
+public class UserCacheInvalidationListener {
+
+    private final UserCache userCache;
+
+    @KafkaListener(topics = UserEventPublisher.TOPIC, containerFactory = "userCacheInvalidationContainerFactory")
+    public void onUserEvent(UserEvent event) {
+        log.atDebug().addKeyValue("userId", event.getId()).addKeyValue("eventType", event.getEventType())
+                .log("Инвалидация кэша по событию");
+        if (event.getId() != null) {
+            Long version = event.getVersion();
+            if (version != null && event.getEventType() == UserEvent.EventTypeEnum.DELETED) {
+                version++;
+            }
+            userCache.evict(event.getId(), version);
+        } else if (event.getEmail() != null) {
+            userCache.evictByEmail(event.getEmail());
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.kafka;
+
+import com.example.dto.UserEvent;
+import com.example.entity.OutboxEventEntity;
+import com.example.entity.UserEntity;
+import com.example.repository.OutboxRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import io.micrometer.tracing.propagation.Propagator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Запись событий пользователя в outbox. Вызывается только внутри транзакции, изменяющей users,
+ * поэтому событие сохраняется тогда и только тогда, когда сохранено изменение.
+ * В Kafka события отправляет {@link OutboxRelay}, продолжая трассу запроса по сохранённому traceparent.
+ */
+@Component
+@RequiredArgsConstructor
+public class UserEventOutbox {
+
+    static final String TRACE_PARENT = "traceparent";
+
+    private final OutboxRepository outboxRepository;
+    private final ObjectMapper objectMapper;
+    private final Tracer tracer;
+    private final Propagator propagator;
+
+    /**
+     * Событие с полным снимком пользователя: потребителям не нужно обращаться за ним к сервису.
+     * Для DELETED снимок берётся до удаления.
+     */
+    public static UserEvent snapshot(UserEntity user, UserEvent.EventTypeEnum eventType) {
+        return new UserEvent(user.getEmail(), eventType)
+                .id(user.getId())
+                .name(user.getName())
+                .age(user.getAge())
+                .version(user.getVersion())
+                .createdAt(user.getCreatedAt());
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void append(UserEvent event) {
+        outboxRepository.save(toEntity(event, traceParent()));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void appendAll(List<UserEvent> events) {
+        String traceParent = traceParent();
+        outboxRepository.saveAll(events.stream().map(event -> toEntity(event, traceParent)).toList());
+    }
+
+    private OutboxEventEntity toEntity(UserEvent event, String traceParent) {
+        OutboxEventEntity entity = new OutboxEventEntity();
+        entity.setAggregateId(event.getId());
+        entity.setEventKey(event.getEmail());
+        entity.setEventType(event.getEventType().getValue());
+        try {
+            entity.setPayload(objectMapper.writeValueAsString(event));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось сериализовать событие " + event, e);
+        }
+        entity.setTraceParent(traceParent);
+        return entity;
+    }
+
+    /**
+     * traceparent текущего спана: события импорта получают контекст запроса импорта.
+     */
+    private String traceParent() {
+        Span span = tracer.currentSpan();
+        if (span == null) {
+            return null;
+        }
+        Map<String, String> carrier = new HashMap<>(4);
+        propagator.inject(span.context(), carrier, Map::put);
+        return carrier.get(TRACE_PARENT);
+    }
+}
@@ -1,21 +1,124 @@
 package com.example.kafka;
 
+import com.example.config.KafkaProperties;
 import com.example.dto.UserEvent;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Component;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Асинхронная публикация событий пользователя.
+ * Результат каждой отправки учитывается в метриках; число неподтверждённых отправок ограничено,
+ * поэтому при медленном брокере тормозит поток запроса, а не растёт память.
+ */
 @Component
-@RequiredArgsConstructor
 @Slf4j
 public class UserEventPublisher {
 
-    private static final String TOPIC = "user-events";
+    public static final String TOPIC = "user-events";
+
     private final KafkaTemplate<String, UserEvent> kafkaTemplate;
+    private final Semaphore pendingSends;
+    private final long acquireTimeoutMs;
+
+    private final Counter sent;
+    private final Counter failed;
+    private final Counter rejected;
+    private final Timer latency;
+
+    public UserEventPublisher(KafkaTemplate<String, UserEvent> kafkaTemplate,
+                              KafkaProperties kafkaProperties,
+                              MeterRegistry meterRegistry) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.pendingSends = new Semaphore(kafkaProperties.getMaxPendingSends());
+        this.acquireTimeoutMs = kafkaProperties.getPendingAcquireTimeout().toMillis();
+
+        this.sent = Counter.builder("user.events.publish")
+                .tag("result", "success")
+                .description("Подтверждённые брокером события")
+                .register(meterRegistry);
+        this.failed = Counter.builder("user.events.publish")
+                .tag("result", "failure")
+                .description("События, которые брокер не принял")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("user.events.publish")
+                .tag("result", "rejected")
+                .description("События, не отправленные из-за переполнения очереди неподтверждённых")
+                .register(meterRegistry);
+        this.latency = Timer.builder("user.events.publish.latency")
+                .description("Время от send() до подтверждения брокером")
+                .register(meterRegistry);
+        Gauge.builder("user.events.publish.pending", pendingSends,
+                        s -> kafkaProperties.getMaxPendingSends() - s.availablePermits())
+                .description("Неподтверждённые отправки")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Отправляет событие и возвращает future подтверждения брокером.
+     * Если предел неподтверждённых отправок исчерпан дольше pendingAcquireTimeout, future сразу завершается ошибкой.
+     */
+    public CompletableFuture<SendResult<String, UserEvent>> send(UserEvent event) {
+        if (!acquirePermit()) {
+            rejected.increment();
+            // Отказы считаются метрикой, а порцию целиком в лог пишет OutboxRelay
+            log.atDebug().addKeyValue("userId", event.getId()).addKeyValue("eventType", event.getEventType())
+                    .log("Событие не отправлено: превышен предел неподтверждённых отправок");
+            return CompletableFuture.failedFuture(
+                    new IllegalStateException("Превышен предел неподтверждённых отправок в Kafka"));
+        }
+        long start = System.nanoTime();
+        try {
+            return kafkaTemplate.send(TOPIC, key(event), event).whenComplete((result, ex) -> {
+                pendingSends.release();
+                latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                if (ex == null) {
+                    sent.increment();
+                    log.atDebug().addKeyValue("userId", event.getId()).addKeyValue("eventType", event.getEventType())
+                            .addKeyValue("offset", () -> result.getRecordMetadata().offset())
+                            .log("Событие подтверждено брокером");
+                } else {
+                    failed.increment();
+                    log.atDebug().addKeyValue("userId", event.getId()).addKeyValue("eventType", event.getEventType())
+                            .log("Не удалось отправить событие: {}", ex.getMessage());
+                }
+            });
+        } catch (RuntimeException e) {
+            pendingSends.release();
+            failed.increment();
+            log.atDebug().addKeyValue("userId", event.getId()).addKeyValue("eventType", event.getEventType())
+                    .log("Не удалось отправить событие: {}", e.getMessage());
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Ключ записи — ID пользователя: события одного пользователя идут в одну партицию по порядку,
+     * а в сжатом (compacted) топике остаётся последнее состояние каждого пользователя.
+     * События без ID ключуются email, как раньше.
+     */
+    static String key(UserEvent event) {
+        return event.getId() != null ? event.getId().toString() : event.getEmail();
+    }
 
-    public void publishUserEvent(UserEvent event) {
-        kafkaTemplate.send(TOPIC, event.getEmail(), event);
-        log.info("Отправлено событие в Kafka: {}", event);
+    /**
+     * Ждёт освобождения места среди неподтверждённых отправок — это и есть обратное давление на поток запроса.
+     */
+    private boolean acquirePermit() {
+        try {
+            return pendingSends.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
     }
 }
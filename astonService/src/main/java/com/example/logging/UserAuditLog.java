@@ -0,0 +1,117 @@
+package com.example.logging;
+
+import com.example.dto.UserUpdateRequest;
+import com.example.entity.UserEntity;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.spi.LoggingEventBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.StringJoiner;
+
+/**
+ * Аудит изменений пользователей: кто, что и с каким пользователем сделал.
+ * Записи идут в логгер AUDIT, который в logback-spring.xml выведен в отдельный асинхронный файл
+ * и не смешивается с отладочным логом. Запись делается после коммита, поэтому откаченные
+ * изменения в аудит не попадают. Значения полей не пишутся, только их имена.
+ */
+@Component
+public class UserAuditLog {
+
+    public static final String LOGGER_NAME = "AUDIT";
+
+    /**
+     * Заголовок, в котором шлюз передаёт, от чьего имени выполняется запрос. Шлюз удаляет
+     * присланный клиентом заголовок и выставляет свой, поэтому сервису доверяется только его значение.
+     */
+    public static final String ACTOR_HEADER = "X-Actor";
+
+    private static final String SYSTEM_ACTOR = "system";
+
+    private static final Logger AUDIT = LoggerFactory.getLogger(LOGGER_NAME);
+
+    public void created(UserEntity user) {
+        record("create", Collections.singletonList(user.getId()), null);
+    }
+
+    public void createdAll(List<UserEntity> users) {
+        record("import", users.stream().map(UserEntity::getId).toList(), null);
+    }
+
+    public void updated(Long userId, String changedFields) {
+        record("update", Collections.singletonList(userId), changedFields);
+    }
+
+    public void deleted(Long userId) {
+        record("delete", Collections.singletonList(userId), null);
+    }
+
+    /**
+     * Имена полей, которые изменит запрос, через запятую; вызывать до применения запроса к сущности.
+     */
+    public static String changedFields(UserEntity before, UserUpdateRequest request) {
+        StringJoiner changed = new StringJoiner(",");
+        if (!Objects.equals(before.getName(), request.getName())) {
+            changed.add("name");
+        }
+        if (!Objects.equals(before.getEmail(), request.getEmail())) {
+            changed.add("email");
+        }
+        if (request.getAge() != null && !Objects.equals(before.getAge(), request.getAge())) {
+            changed.add("age");
+        }
+        return changed.toString();
+    }
+
+    private void record(String action, List<Long> userIds, String fields) {
+        if (!AUDIT.isInfoEnabled()) {
+            return;
+        }
+        // Исполнитель определяется в потоке запроса, запись — после коммита
+        String actor = currentActor();
+        Runnable write = () -> {
+            for (Long userId : userIds) {
+                LoggingEventBuilder event = AUDIT.atInfo()
+                        .addKeyValue("action", action)
+                        .addKeyValue("userId", userId)
+                        .addKeyValue("actor", actor);
+                if (fields != null) {
+                    event = event.addKeyValue("fields", fields);
+                }
+                event.log("user.audit");
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    write.run();
+                }
+            });
+        } else {
+            write.run();
+        }
+    }
+
+    private static String currentActor() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes servlet) {
+            HttpServletRequest request = servlet.getRequest();
+            if (request.getUserPrincipal() != null) {
+                return request.getUserPrincipal().getName();
+            }
+            String actor = request.getHeader(ACTOR_HEADER);
+            return actor != null && !actor.isBlank() ? actor : request.getRemoteAddr();
+        }
+        return SYSTEM_ACTOR;
+    }
+}
@@ -5,12 +5,18 @@ import com.example.dto.UserResponse;
 import com.example.dto.UserUpdateRequest;
 import com.example.entity.UserEntity;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 import org.mapstruct.MappingTarget;
 
 @Mapper(componentModel = "spring")
 public interface UserMapper {
 
     UserResponse toResponse(UserEntity entity);
+
+    // Версией строки управляет Hibernate (@Version), из запроса она не берётся
+    @Mapping(target = "version", ignore = true)
     UserEntity fromCreateRequest(UserCreateRequest request);
+
+    @Mapping(target = "version", ignore = true)
     void updateEntityFromDto(UserUpdateRequest dto, @MappingTarget UserEntity entity);
 }
\ No newline at end of file
@@ -0,0 +1,65 @@
+package com.example.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Таймер user.service{class, method, exception} на каждый метод UserService. Гистограмма включается
+ * в management.metrics.distribution. Таймер успешных вызовов регистрируется один раз на метод,
+ * поэтому вызов стоит двух System.nanoTime() и записи в гистограмму; исключения ищутся в реестре.
+ * При включённой модели чтения время видно отдельно для ReadModelUserService и UserServiceImpl.
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class UserServiceTimingAspect {
+
+    public static final String METRIC = "user.service";
+    private static final String NO_EXCEPTION = "none";
+
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<MethodKey, Timer> successTimers = new ConcurrentHashMap<>();
+
+    @Around("execution(public * com.example.service.UserService+.*(..))")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        long start = System.nanoTime();
+        try {
+            Object result = joinPoint.proceed();
+            successTimer(joinPoint).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return result;
+        } catch (Throwable ex) {
+            timer(joinPoint, ex.getClass().getSimpleName()).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw ex;
+        }
+    }
+
+    private Timer successTimer(ProceedingJoinPoint joinPoint) {
+        MethodKey key = new MethodKey(joinPoint.getTarget().getClass(),
+                ((MethodSignature) joinPoint.getSignature()).getMethod());
+        Timer timer = successTimers.get(key);
+        return timer != null ? timer : successTimers.computeIfAbsent(key, k -> timer(joinPoint, NO_EXCEPTION));
+    }
+
+    private Timer timer(ProceedingJoinPoint joinPoint, String exception) {
+        return Timer.builder(METRIC)
+                .tag("class", joinPoint.getTarget().getClass().getSimpleName())
+                .tag("method", joinPoint.getSignature().getName())
+                .tag("exception", exception)
+                .description("Время вызова метода UserService")
+                .register(meterRegistry);
+    }
+
+    private record MethodKey(Class<?> type, Method method) {
+    }
+}
@@ -0,0 +1,497 @@
+package com.example.readmodel;
+
+import com.example.config.KafkaProperties;
+import com.example.config.UserReadModelProperties;
+import com.example.dto.UserEvent;
+import com.example.entity.UserEntity;
+import com.example.kafka.UserEventDeserializer;
+import com.example.kafka.UserEventOutbox;
+import com.example.kafka.UserEventPublisher;
+import com.example.repository.UserRepository;
+import com.example.shard.Shards;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.RecordDeserializationException;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Модель чтения пользователей: проекция топика user-events в {@link UserReadStore}.
+ * Каждый экземпляр сервиса читает все партиции сам (без группы потребителей), поэтому чтения
+ * масштабируются добавлением экземпляров и не нагружают базу.
+ * При старте проекция восстанавливается из снимка, а без снимка заполняется из базы keyset-порциями:
+ * перед чтением базы запоминаются смещения конца топика, и события до них уже отражены в прочитанных строках.
+ * Так в проекцию попадают и пользователи, чьих событий в топике нет (созданные до модели, удалённые retention).
+ * Затем проекция догоняет топик: партиции делятся между rebuildThreads потребителями и читаются параллельно
+ * до смещений конца на момент старта. После этого один поток следит за хвостом топика и периодически пишет снимок.
+ * Пока проекция не догнала топик или отстаёт больше maxServingLag записей, {@link #isServing()} ложно
+ * и чтения обслуживает база. После сбоя построение повторяется с нарастающей задержкой.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(prefix = "app.read-model", name = "enabled", havingValue = "true")
+public class UserReadModel {
+
+    /**
+     * Снимки прежнего формата (0x55524D31) строились только по топику и отбрасываются.
+     */
+    private static final int SNAPSHOT_MAGIC = 0x55524D32;
+    private static final Duration TOPIC_WAIT = Duration.ofSeconds(5);
+    private static final AtomicInteger CONSUMER_IDS = new AtomicInteger();
+
+    private final UserReadModelProperties properties;
+    private final Supplier<Consumer<String, UserEvent>> consumers;
+    private final Shards shards;
+    private final UserRepository userRepository;
+    private final UserReadStore store = new UserReadStore();
+    private final AtomicLong lag = new AtomicLong(Long.MAX_VALUE);
+    private final Map<Integer, Long> partitionLag = new ConcurrentHashMap<>();
+    private final Thread worker;
+
+    private final Counter applied;
+    private final Counter skipped;
+    private final Counter restarts;
+    private final Timer rebuildTimer;
+    private final Timer snapshotTimer;
+    private final MeterRegistry meterRegistry;
+
+    private volatile boolean running = true;
+    private volatile boolean caughtUp;
+    private volatile Consumer<String, UserEvent> tailConsumer;
+
+    @Autowired
+    public UserReadModel(UserReadModelProperties properties,
+                         KafkaProperties kafkaProperties,
+                         MeterRegistry meterRegistry,
+                         Shards shards,
+                         UserRepository userRepository) {
+        this(properties, () -> newConsumer(kafkaProperties), meterRegistry, shards, userRepository);
+    }
+
+    /**
+     * consumers создаёт потребителя user-events без группы; каждый вызов — новый потребитель.
+     */
+    public UserReadModel(UserReadModelProperties properties,
+                         Supplier<Consumer<String, UserEvent>> consumers,
+                         MeterRegistry meterRegistry,
+                         Shards shards,
+                         UserRepository userRepository) {
+        this.properties = properties;
+        this.consumers = consumers;
+        this.meterRegistry = meterRegistry;
+        this.shards = shards;
+        this.userRepository = userRepository;
+        this.worker = new Thread(this::run, "user-read-model");
+        this.worker.setDaemon(true);
+
+        this.applied = Counter.builder("user.readmodel.events")
+                .tag("result", "applied")
+                .description("События, изменившие проекцию")
+                .register(meterRegistry);
+        this.skipped = Counter.builder("user.readmodel.events")
+                .tag("result", "skipped")
+                .description("Повторные, устаревшие и нечитаемые события")
+                .register(meterRegistry);
+        this.restarts = Counter.builder("user.readmodel.restarts")
+                .description("Перезапуски построения проекции после сбоя")
+                .register(meterRegistry);
+        this.rebuildTimer = Timer.builder("user.readmodel.rebuild")
+                .description("Восстановление из снимка или базы и догон топика при старте")
+                .register(meterRegistry);
+        this.snapshotTimer = Timer.builder("user.readmodel.snapshot")
+                .description("Запись снимка проекции")
+                .register(meterRegistry);
+        Gauge.builder("user.readmodel.lag", lag, value -> caughtUp ? value.get() : Double.NaN)
+                .description("Отставание проекции от конца топика, записей")
+                .register(meterRegistry);
+        Gauge.builder("user.readmodel.size", store, UserReadStore::size)
+                .description("Пользователи в проекции")
+                .register(meterRegistry);
+        Gauge.builder("user.readmodel.serving", this, model -> model.isServing() ? 1 : 0)
+                .description("1 — чтения обслуживает проекция, 0 — база")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        Consumer<String, UserEvent> consumer = tailConsumer;
+        if (consumer != null) {
+            consumer.wakeup();
+        } else {
+            // Построение или ожидание перезапуска: последний снимок писать не из чего
+            worker.interrupt();
+        }
+        worker.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    public boolean isServing() {
+        return caughtUp && lag.get() <= properties.getMaxServingLag();
+    }
+
+    public UserReadStore store() {
+        return store;
+    }
+
+    private void run() {
+        long initialDelayMs = properties.getRestartBackoff().toMillis();
+        long delayMs = initialDelayMs;
+        while (running) {
+            try {
+                build();
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                if (!running) {
+                    return;
+                }
+                if (caughtUp) {
+                    // Проекция успела поработать: сбой новый, а не повтор прежнего
+                    delayMs = initialDelayMs;
+                }
+                caughtUp = false;
+                restarts.increment();
+                log.error("Модель чтения пользователей остановлена, чтения обслуживает база; перезапуск через {} мс",
+                        delayMs, e);
+            }
+            try {
+                Thread.sleep(delayMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            delayMs = Math.min(delayMs * 2, properties.getMaxRestartBackoff().toMillis());
+        }
+    }
+
+    private void build() throws InterruptedException {
+        long start = System.nanoTime();
+        List<TopicPartition> partitions = awaitPartitions();
+        if (partitions.isEmpty()) {
+            return;
+        }
+        Map<TopicPartition, Long> offsets = properties.isRebuildOnStart() ? null : restoreSnapshot(partitions);
+        if (offsets == null) {
+            offsets = seed(partitions);
+        }
+        offsets = catchUp(partitions, offsets);
+        rebuildTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        lag.set(0);
+        caughtUp = true;
+        log.info("Модель чтения пользователей готова: {} пользователей, {} партиций, {} мс",
+                store.size(), partitions.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        tail(offsets);
+    }
+
+    /**
+     * Заполняет проекцию строками всех шардов. Чтение идёт с primary (транзакция не только для чтения):
+     * отстающая реплика может не содержать изменений, события которых уже в топике до возвращаемых смещений.
+     *
+     * @return смещения конца топика до чтения базы — с них проекция продолжит по топику
+     */
+    private Map<TopicPartition, Long> seed(List<TopicPartition> partitions) {
+        Map<TopicPartition, Long> offsets;
+        try (Consumer<String, UserEvent> consumer = consumers.get()) {
+            offsets = new HashMap<>(consumer.endOffsets(partitions));
+        }
+        store.clear();
+        int pageSize = properties.getSeedPageSize();
+        for (int shard = 0; shard < shards.count(); shard++) {
+            long after = 0;
+            List<UserEntity> page;
+            do {
+                long from = after;
+                page = shards.inNewTransaction(shard,
+                        () -> userRepository.findByIdGreaterThanOrderByIdAsc(from, Limit.of(pageSize)));
+                for (UserEntity user : page) {
+                    store.apply(UserEventOutbox.snapshot(user, UserEvent.EventTypeEnum.UPDATED));
+                }
+                if (!page.isEmpty()) {
+                    after = page.get(page.size() - 1).getId();
+                }
+            } while (running && page.size() == pageSize);
+        }
+        log.info("Модель чтения заполнена из базы: {} пользователей", store.size());
+        return offsets;
+    }
+
+    /**
+     * Параллельно дочитывает партиции от сохранённых смещений (или с начала) до конца на момент вызова.
+     *
+     * @return следующие смещения для чтения по каждой партиции
+     */
+    private Map<TopicPartition, Long> catchUp(List<TopicPartition> partitions, Map<TopicPartition, Long> from)
+            throws InterruptedException {
+        int threads = Math.max(1, Math.min(properties.getRebuildThreads(), partitions.size()));
+        List<List<TopicPartition>> slices = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            slices.add(new ArrayList<>());
+        }
+        for (int i = 0; i < partitions.size(); i++) {
+            slices.get(i % threads).add(partitions.get(i));
+        }
+
+        AtomicInteger threadIds = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "user-read-model-rebuild-" + threadIds.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Map<TopicPartition, Long>>> results = new ArrayList<>(threads);
+            for (List<TopicPartition> slice : slices) {
+                results.add(pool.submit(() -> replay(slice, from)));
+            }
+            Map<TopicPartition, Long> offsets = new HashMap<>();
+            for (Future<Map<TopicPartition, Long>> result : results) {
+                offsets.putAll(result.get());
+            }
+            return offsets;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Не удалось построить модель чтения", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private Map<TopicPartition, Long> replay(List<TopicPartition> slice, Map<TopicPartition, Long> from) {
+        try (Consumer<String, UserEvent> consumer = consumers.get()) {
+            consumer.assign(slice);
+            for (TopicPartition partition : slice) {
+                Long offset = from.get(partition);
+                if (offset == null) {
+                    consumer.seekToBeginning(List.of(partition));
+                } else {
+                    consumer.seek(partition, offset);
+                }
+            }
+            Map<TopicPartition, Long> end = consumer.endOffsets(slice);
+            while (running && !reached(consumer, end)) {
+                pollAndApply(consumer);
+            }
+            Map<TopicPartition, Long> offsets = new HashMap<>();
+            for (TopicPartition partition : slice) {
+                offsets.put(partition, consumer.position(partition));
+            }
+            return offsets;
+        }
+    }
+
+    private static boolean reached(Consumer<String, UserEvent> consumer, Map<TopicPartition, Long> end) {
+        for (Map.Entry<TopicPartition, Long> entry : end.entrySet()) {
+            if (consumer.position(entry.getKey()) < entry.getValue()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void tail(Map<TopicPartition, Long> offsets) {
+        try (Consumer<String, UserEvent> consumer = consumers.get()) {
+            tailConsumer = consumer;
+            consumer.assign(offsets.keySet());
+            offsets.forEach(consumer::seek);
+            long snapshotIntervalNanos = properties.getSnapshotInterval().toNanos();
+            long lastSnapshot = System.nanoTime();
+            while (running) {
+                try {
+                    pollAndApply(consumer);
+                } catch (WakeupException e) {
+                    // Остановка сервиса: дальше пишется последний снимок
+                    break;
+                }
+                updateLag(consumer);
+                if (System.nanoTime() - lastSnapshot >= snapshotIntervalNanos) {
+                    writeSnapshot(consumer);
+                    lastSnapshot = System.nanoTime();
+                }
+            }
+            writeSnapshot(consumer);
+        } finally {
+            tailConsumer = null;
+        }
+    }
+
+    private void pollAndApply(Consumer<String, UserEvent> consumer) {
+        try {
+            for (ConsumerRecord<String, UserEvent> record : consumer.poll(properties.getPollTimeout())) {
+                if (record.value() != null && store.apply(record.value())) {
+                    applied.increment();
+                } else {
+                    skipped.increment();
+                }
+            }
+        } catch (RecordDeserializationException e) {
+            // Нечитаемая запись не должна останавливать проекцию
+            log.error("Пропущена нечитаемая запись {}@{}: {}", e.topicPartition(), e.offset(), e.getMessage());
+            skipped.increment();
+            consumer.seek(e.topicPartition(), e.offset() + 1);
+        }
+    }
+
+    private void updateLag(Consumer<String, UserEvent> consumer) {
+        long total = 0;
+        for (TopicPartition partition : consumer.assignment()) {
+            OptionalLong partitionValue = consumer.currentLag(partition);
+            if (partitionValue.isPresent()) {
+                total += partitionValue.getAsLong();
+                if (partitionLag.put(partition.partition(), partitionValue.getAsLong()) == null) {
+                    Gauge.builder("user.readmodel.partition.lag", partitionLag,
+                                    lags -> lags.getOrDefault(partition.partition(), 0L))
+                            .tag("partition", Integer.toString(partition.partition()))
+                            .description("Отставание проекции по партиции, записей")
+                            .register(meterRegistry);
+                }
+            }
+        }
+        lag.set(total);
+    }
+
+    private List<TopicPartition> awaitPartitions() throws InterruptedException {
+        try (Consumer<String, UserEvent> consumer = consumers.get()) {
+            while (running) {
+                List<PartitionInfo> infos = consumer.partitionsFor(UserEventPublisher.TOPIC);
+                if (infos != null && !infos.isEmpty()) {
+                    return infos.stream()
+                            .map(info -> new TopicPartition(info.topic(), info.partition()))
+                            .toList();
+                }
+                log.info("Топик {} ещё не создан, модель чтения ждёт", UserEventPublisher.TOPIC);
+                Thread.sleep(TOPIC_WAIT.toMillis());
+            }
+            return List.of();
+        }
+    }
+
+    /**
+     * Снимок пишется потоком хвоста между poll, поэтому строки и смещения согласованы.
+     * Файл заменяется атомарно: прерванная запись не портит прежний снимок.
+     */
+    private void writeSnapshot(Consumer<String, UserEvent> consumer) {
+        if (properties.getSnapshotFile() == null || properties.getSnapshotFile().isBlank()) {
+            return;
+        }
+        Path file = Path.of(properties.getSnapshotFile());
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        long start = System.nanoTime();
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeInt(consumer.assignment().size());
+                for (TopicPartition partition : consumer.assignment()) {
+                    out.writeInt(partition.partition());
+                    out.writeLong(consumer.position(partition));
+                }
+                store.writeTo(out);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            snapshotTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            log.debug("Снимок модели чтения записан: {} пользователей", store.size());
+        } catch (IOException e) {
+            log.warn("Не удалось записать снимок модели чтения {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Загружает снимок, если он есть. Повреждённый снимок и снимок, смещения которого топик уже удалил
+     * по retention, отбрасываются.
+     *
+     * @return смещения снимка или null — проекцию нужно заполнить из базы
+     */
+    private Map<TopicPartition, Long> restoreSnapshot(List<TopicPartition> partitions) {
+        if (properties.getSnapshotFile() == null || properties.getSnapshotFile().isBlank()) {
+            return null;
+        }
+        Path file = Path.of(properties.getSnapshotFile());
+        if (!Files.exists(file)) {
+            return null;
+        }
+        Map<TopicPartition, Long> offsets = new HashMap<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("неизвестный формат");
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                offsets.put(new TopicPartition(UserEventPublisher.TOPIC, in.readInt()), in.readLong());
+            }
+            store.readFrom(in);
+        } catch (IOException e) {
+            log.warn("Снимок модели чтения {} не прочитан, заполнение из базы: {}", file, e.getMessage());
+            store.clear();
+            return null;
+        }
+        try (Consumer<String, UserEvent> consumer = consumers.get()) {
+            Map<TopicPartition, Long> beginning = consumer.beginningOffsets(partitions);
+            for (Map.Entry<TopicPartition, Long> entry : beginning.entrySet()) {
+                if (offsets.getOrDefault(entry.getKey(), 0L) < entry.getValue()) {
+                    log.warn("Снимок модели чтения {} старше начала партиции {}, заполнение из базы",
+                            file, entry.getKey());
+                    store.clear();
+                    return null;
+                }
+            }
+        }
+        log.info("Модель чтения восстановлена из снимка: {} пользователей", store.size());
+        return offsets;
+    }
+
+    private static KafkaConsumer<String, UserEvent> newConsumer(KafkaProperties kafkaProperties) {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaProperties.getBootstrapServers());
+        props.put(ConsumerConfig.CLIENT_ID_CONFIG, "user-read-model-" + CONSUMER_IDS.incrementAndGet());
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 5000);
+        return new KafkaConsumer<>(props, new StringDeserializer(), new UserEventDeserializer());
+    }
+}
@@ -0,0 +1,208 @@
+package com.example.readmodel;
+
+import com.example.dto.UserEvent;
+import com.example.dto.UserResponse;
+import com.example.util.UserETag;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+
+/**
+ * Проекция пользователей в памяти, упорядоченная по ID.
+ * Пользователь хранится одним упакованным массивом байт вместо объекта со строками:
+ * версия и дата создания, возраст, затем имя и email в UTF-8 с длиной. Это в несколько раз
+ * компактнее UserResponse, а версию можно прочитать, не разбирая строки.
+ * Пишет один поток на пользователя (события одного ID приходят из одной партиции), читать можно из любых.
+ */
+public class UserReadStore {
+
+    private static final long NO_LONG = Long.MIN_VALUE;
+    private static final int NO_INT = Integer.MIN_VALUE;
+    private static final int VERSION_OFFSET = 0;
+    private static final int CREATED_AT_OFFSET = 8;
+    private static final int AGE_OFFSET = 16;
+    private static final int STRINGS_OFFSET = 20;
+
+    private final ConcurrentSkipListMap<Long, byte[]> rows = new ConcurrentSkipListMap<>();
+
+    /**
+     * Применяет событие. Событие с версией не новее сохранённой (повтор при at-least-once) пропускается.
+     *
+     * @return true, если проекция изменилась
+     */
+    public boolean apply(UserEvent event) {
+        Long id = event.getId();
+        if (id == null) {
+            return false;
+        }
+        byte[] current = rows.get(id);
+        if (current != null && event.getVersion() != null) {
+            long stored = readLong(current, VERSION_OFFSET);
+            boolean stale = event.getEventType() == UserEvent.EventTypeEnum.DELETED
+                    ? event.getVersion() < stored
+                    : event.getVersion() <= stored;
+            if (stored != NO_LONG && stale) {
+                return false;
+            }
+        }
+        if (event.getEventType() == UserEvent.EventTypeEnum.DELETED) {
+            return rows.remove(id) != null;
+        }
+        rows.put(id, pack(event));
+        return true;
+    }
+
+    public Optional<UserResponse> get(long id) {
+        byte[] row = rows.get(id);
+        return row == null ? Optional.empty() : Optional.of(unpack(id, row));
+    }
+
+    /**
+     * Версия пользователя; пустой результат — пользователя нет. Строки не разбираются.
+     */
+    public Optional<Long> version(long id) {
+        byte[] row = rows.get(id);
+        if (row == null) {
+            return Optional.empty();
+        }
+        long version = readLong(row, VERSION_OFFSET);
+        return Optional.of(version == NO_LONG ? 0L : version);
+    }
+
+    public boolean contains(long id) {
+        return rows.containsKey(id);
+    }
+
+    /**
+     * До limit пользователей с ID больше afterId (null — с начала) по возрастанию ID.
+     */
+    public List<UserResponse> page(Long afterId, int limit) {
+        List<UserResponse> page = new ArrayList<>(Math.min(limit, 256));
+        for (Map.Entry<Long, byte[]> entry : tail(afterId).entrySet()) {
+            if (page.size() == limit) {
+                break;
+            }
+            page.add(unpack(entry.getKey(), entry.getValue()));
+        }
+        return page;
+    }
+
+    /**
+     * Свёртка ID и версий той же страницы, что и page, как у {@link UserETag#mix}.
+     */
+    public long pageFingerprint(Long afterId, int limit) {
+        long fingerprint = UserETag.EMPTY_PAGE;
+        int taken = 0;
+        for (Map.Entry<Long, byte[]> entry : tail(afterId).entrySet()) {
+            if (taken++ == limit) {
+                break;
+            }
+            long version = readLong(entry.getValue(), VERSION_OFFSET);
+            fingerprint = UserETag.mix(fingerprint, entry.getKey(), version == NO_LONG ? 0L : version);
+        }
+        return fingerprint;
+    }
+
+    public void forEach(Consumer<UserResponse> consumer) {
+        rows.forEach((id, row) -> consumer.accept(unpack(id, row)));
+    }
+
+    public int size() {
+        return rows.size();
+    }
+
+    public void clear() {
+        rows.clear();
+    }
+
+    /**
+     * Пишет все строки как есть, без распаковки. Вызывающий отвечает за отсутствие параллельной записи.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(rows.size());
+        for (Map.Entry<Long, byte[]> entry : rows.entrySet()) {
+            out.writeLong(entry.getKey());
+            out.writeShort(entry.getValue().length);
+            out.write(entry.getValue());
+        }
+    }
+
+    /**
+     * Заменяет содержимое строками, записанными {@link #writeTo}.
+     */
+    public void readFrom(DataInput in) throws IOException {
+        rows.clear();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            long id = in.readLong();
+            byte[] row = new byte[in.readUnsignedShort()];
+            in.readFully(row);
+            rows.put(id, row);
+        }
+    }
+
+    private ConcurrentNavigableMap<Long, byte[]> tail(Long afterId) {
+        return afterId == null ? rows : rows.tailMap(afterId, false);
+    }
+
+    private static byte[] pack(UserEvent event) {
+        byte[] name = event.getName() == null ? null : event.getName().getBytes(StandardCharsets.UTF_8);
+        byte[] email = event.getEmail().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer row = ByteBuffer.allocate(STRINGS_OFFSET + 2 + (name == null ? 0 : name.length) + 2 + email.length);
+        row.putLong(event.getVersion() == null ? NO_LONG : event.getVersion());
+        row.putLong(event.getCreatedAt() == null ? NO_LONG : event.getCreatedAt().toEpochSecond(ZoneOffset.UTC));
+        row.putInt(event.getAge() == null ? NO_INT : event.getAge());
+        putString(row, name);
+        putString(row, email);
+        return row.array();
+    }
+
+    private static UserResponse unpack(long id, byte[] bytes) {
+        ByteBuffer row = ByteBuffer.wrap(bytes);
+        long version = row.getLong(VERSION_OFFSET);
+        long createdAt = row.getLong(CREATED_AT_OFFSET);
+        int age = row.getInt(AGE_OFFSET);
+        row.position(STRINGS_OFFSET);
+        UserResponse user = new UserResponse();
+        user.setId(id);
+        user.setName(getString(row));
+        user.setEmail(getString(row));
+        user.setAge(age == NO_INT ? null : age);
+        user.setVersion(version == NO_LONG ? null : version);
+        user.setCreatedAt(createdAt == NO_LONG ? null : LocalDateTime.ofEpochSecond(createdAt, 0, ZoneOffset.UTC));
+        return user;
+    }
+
+    private static void putString(ByteBuffer row, byte[] value) {
+        row.putShort((short) (value == null ? -1 : value.length));
+        if (value != null) {
+            row.put(value);
+        }
+    }
+
+    private static String getString(ByteBuffer row) {
+        int length = row.getShort();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(row.array(), row.position(), length, StandardCharsets.UTF_8);
+        row.position(row.position() + length);
+        return value;
+    }
+
+    private static long readLong(byte[] row, int offset) {
+        return ByteBuffer.wrap(row).getLong(offset);
+    }
+}
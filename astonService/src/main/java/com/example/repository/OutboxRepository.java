@@ -0,0 +1,26 @@
+package com.example.repository;
+
+import com.example.entity.OutboxEventEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface OutboxRepository extends JpaRepository<OutboxEventEntity, Long> {
+
+    /**
+     * Берёт блокировку отправителя outbox до конца транзакции; false — её держит другой экземпляр.
+     * Порции отправляются по одной, иначе события одного пользователя могли бы прийти в партицию
+     * в обратном порядке.
+     */
+    @Query(value = "SELECT pg_try_advisory_xact_lock(:key)", nativeQuery = true)
+    boolean tryLockRelay(@Param("key") long key);
+
+    /**
+     * Блокирует следующую порцию событий. Вызывается под {@link #tryLockRelay}, поэтому SKIP LOCKED
+     * лишь страхует от долгого ожидания строк, которые удаляет ещё не завершённая транзакция.
+     */
+    @Query(value = "SELECT * FROM outbox ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<OutboxEventEntity> lockNextBatch(@Param("limit") int limit);
+}
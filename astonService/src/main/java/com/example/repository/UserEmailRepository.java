@@ -0,0 +1,43 @@
+package com.example.repository;
+
+import com.example.entity.UserEmailEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface UserEmailRepository extends JpaRepository<UserEmailEntity, String> {
+
+    /**
+     * Заявка на email; 0, если адрес уже в справочнике.
+     */
+    @Modifying
+    @Query(value = "insert into user_emails (email, user_id) values (:email, :userId) on conflict (email) do nothing",
+            nativeQuery = true)
+    int claim(@Param("email") String email, @Param("userId") Long userId);
+
+    /**
+     * Заявки порции одним запросом; возвращает число добавленных строк.
+     */
+    @Modifying
+    @Query(value = "insert into user_emails (email, user_id) select * from unnest(:emails, :ids) "
+            + "on conflict (email) do nothing", nativeQuery = true)
+    int claimAll(@Param("emails") String[] emails, @Param("ids") Long[] ids);
+
+    /**
+     * Передаёт устаревшую заявку новому владельцу, если её не перехватили раньше.
+     */
+    @Modifying
+    @Query(value = "update user_emails set user_id = :userId, claimed_at = now() "
+            + "where email = :email and user_id = :previousOwner", nativeQuery = true)
+    int takeOver(@Param("email") String email, @Param("userId") Long userId, @Param("previousOwner") Long previousOwner);
+
+    @Modifying
+    @Query(value = "delete from user_emails where email = :email and user_id = :userId", nativeQuery = true)
+    int release(@Param("email") String email, @Param("userId") Long userId);
+
+    List<UserEmailEntity> findAllByEmailIn(Collection<String> emails);
+}
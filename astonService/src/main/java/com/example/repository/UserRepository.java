@@ -1,10 +1,89 @@
 package com.example.repository;
 
 import com.example.entity.UserEntity;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+public interface UserRepository extends JpaRepository<UserEntity, Long>, UserSearchRepository {
+
+    /**
+     * Пара ID и версии — всё, что нужно для ETag строки страницы.
+     */
+    interface IdVersion {
+        Long getId();
+
+        Long getVersion();
+    }
+
+    /**
+     * Размер порции строк, которую драйвер PostgreSQL читает из курсора за один раз.
+     */
+    String STREAM_FETCH_SIZE = "500";
 
-public interface UserRepository extends JpaRepository<UserEntity, Long> {
     Optional<UserEntity> findByEmail(String email);
-}
\ No newline at end of file
+
+    boolean existsByEmail(String email);
+
+    boolean existsByEmailAndIdNot(String email, Long id);
+
+    /**
+     * Какие из переданных email уже заняты — одна проверка на порцию импорта.
+     */
+    @Query("select u.email from UserEntity u where u.email in :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    /**
+     * Пользователи с ID из массива. Массив передаётся одним параметром (= ANY), поэтому текст
+     * запроса и его план не зависят от числа ID. Порядок строк не определён.
+     */
+    @Query(value = "select * from users where id = any(:ids)", nativeQuery = true)
+    List<UserEntity> findAllByIdArray(@Param("ids") Long[] ids);
+
+    /**
+     * Keyset-страница: пользователи с ID больше указанного в порядке возрастания ID.
+     */
+    List<UserEntity> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    /**
+     * Версия пользователя без загрузки остальных колонок; пусто, если пользователя нет.
+     */
+    @Query("select u.version from UserEntity u where u.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    /**
+     * Текущий email пользователя; пусто, если пользователя нет.
+     */
+    @Query("select u.email from UserEntity u where u.id = :id")
+    Optional<String> findEmailById(@Param("id") Long id);
+
+    /**
+     * ID и версии той же keyset-страницы, что и {@link #findByIdGreaterThanOrderByIdAsc}.
+     */
+    @Query("select u.id as id, u.version as version from UserEntity u where u.id > :id order by u.id")
+    List<IdVersion> findVersionsByIdGreaterThan(@Param("id") Long id, Limit limit);
+
+    /**
+     * Потоковое чтение всех пользователей через серверный курсор.
+     * Должно вызываться внутри транзакции, поток обязательно закрывать.
+     */
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+            @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select u from UserEntity u order by u.id")
+    Stream<UserEntity> streamAllOrderById();
+
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query("select u.email from UserEntity u")
+    Stream<String> streamAllEmails();
+}
@@ -0,0 +1,38 @@
+package com.example.repository;
+
+import com.example.exception.InvalidDataException;
+
+import java.time.LocalDateTime;
+import java.util.Locale;
+
+/**
+ * Условия поиска пользователей; null — условие не задано. Все заданные условия объединяются через И.
+ *
+ * @param createdFrom включительно
+ * @param createdTo   не включительно
+ */
+public record UserSearchFilter(String name,
+                               NameMatch nameMatch,
+                               Integer minAge,
+                               Integer maxAge,
+                               LocalDateTime createdFrom,
+                               LocalDateTime createdTo) {
+
+    public enum NameMatch {
+        PREFIX, CONTAINS;
+
+        /**
+         * Значение параметра match из запроса; null — по умолчанию PREFIX.
+         */
+        public static NameMatch parse(String value) {
+            if (value == null) {
+                return PREFIX;
+            }
+            try {
+                return valueOf(value.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new InvalidDataException("Некорректный способ сравнения имени: " + value);
+            }
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.repository;
+
+import com.example.entity.UserEntity;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+/**
+ * Поиск пользователей по {@link Specification} без запроса COUNT(*) по всей выборке.
+ */
+public interface UserSearchRepository {
+
+    /**
+     * До limit пользователей, подходящих под spec, по возрастанию ID.
+     */
+    List<UserEntity> findAllOrderedById(Specification<UserEntity> spec, int limit);
+
+    /**
+     * Число пользователей, подходящих под spec, но не больше cap + 1: база считает строки подзапроса
+     * с LIMIT cap + 1, поэтому результат больше cap означает «больше cap».
+     */
+    long countUpTo(Specification<UserEntity> spec, int cap);
+}
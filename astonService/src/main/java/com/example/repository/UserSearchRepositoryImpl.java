@@ -0,0 +1,66 @@
+package com.example.repository;
+
+import com.example.entity.UserEntity;
+import com.example.entity.UserEntity_;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.SessionFactory;
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
+import org.hibernate.query.criteria.JpaCriteriaQuery;
+import org.hibernate.query.criteria.JpaPath;
+import org.hibernate.query.criteria.JpaRoot;
+import org.hibernate.query.criteria.JpaSubQuery;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+@RequiredArgsConstructor
+public class UserSearchRepositoryImpl implements UserSearchRepository {
+
+    private final EntityManager entityManager;
+
+    @Override
+    public List<UserEntity> findAllOrderedById(Specification<UserEntity> spec, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<UserEntity> query = cb.createQuery(UserEntity.class);
+        Root<UserEntity> root = query.from(UserEntity.class);
+        where(query, spec.toPredicate(root, query, cb));
+        query.orderBy(cb.asc(root.get(UserEntity_.id)));
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public long countUpTo(Specification<UserEntity> spec, int cap) {
+        // select count(*) from (select id from users where ... limit cap + 1): в JPA нет подзапроса во FROM, поэтому запрос строится через API Hibernate
+        HibernateCriteriaBuilder cb = entityManager.getEntityManagerFactory()
+                .unwrap(SessionFactory.class)
+                .getCriteriaBuilder();
+        JpaCriteriaQuery<Long> query = cb.createQuery(Long.class);
+        JpaSubQuery<Long> matching = query.subquery(Long.class);
+        JpaRoot<UserEntity> root = matching.from(UserEntity.class);
+        JpaPath<Long> id = root.get(UserEntity_.id);
+        // Столбцы подзапроса во FROM должны иметь имена
+        id.alias(UserEntity_.ID);
+        matching.select(id);
+        Predicate predicate = spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            matching.where(predicate);
+        }
+        matching.fetch(cap + 1);
+        query.from(matching);
+        query.select(cb.count());
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    private static void where(CriteriaQuery<?> query, Predicate predicate) {
+        if (predicate != null) {
+            query.where(predicate);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.repository;
+
+import com.example.entity.UserEntity;
+import com.example.entity.UserEntity_;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Условия поиска пользователей по метамодели UserEntity_. Значения передаются параметрами запроса,
+ * а выражения совпадают с индексами из changelog-users.yaml: lower(name) — триграммный GIN,
+ * age — btree, created_at — BRIN.
+ */
+public final class UserSpecifications {
+
+    private static final char LIKE_ESCAPE = '\\';
+
+    private UserSpecifications() {
+    }
+
+    /**
+     * Все заданные условия фильтра через И; без условий — все пользователи.
+     */
+    public static Specification<UserEntity> matching(UserSearchFilter filter) {
+        List<Specification<UserEntity>> conditions = new ArrayList<>(5);
+        if (filter.name() != null) {
+            conditions.add(filter.nameMatch() == UserSearchFilter.NameMatch.CONTAINS
+                    ? nameContains(filter.name())
+                    : nameStartsWith(filter.name()));
+        }
+        if (filter.minAge() != null) {
+            conditions.add(ageAtLeast(filter.minAge()));
+        }
+        if (filter.maxAge() != null) {
+            conditions.add(ageAtMost(filter.maxAge()));
+        }
+        if (filter.createdFrom() != null) {
+            conditions.add(createdAtOrAfter(filter.createdFrom()));
+        }
+        if (filter.createdTo() != null) {
+            conditions.add(createdBefore(filter.createdTo()));
+        }
+        return Specification.allOf(conditions);
+    }
+
+    public static Specification<UserEntity> nameStartsWith(String prefix) {
+        String pattern = escapeLike(prefix.toLowerCase(Locale.ROOT)) + "%";
+        return (root, query, cb) -> cb.like(cb.lower(root.get(UserEntity_.name)), pattern, LIKE_ESCAPE);
+    }
+
+    public static Specification<UserEntity> nameContains(String part) {
+        String pattern = "%" + escapeLike(part.toLowerCase(Locale.ROOT)) + "%";
+        return (root, query, cb) -> cb.like(cb.lower(root.get(UserEntity_.name)), pattern, LIKE_ESCAPE);
+    }
+
+    public static Specification<UserEntity> ageAtLeast(int minAge) {
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get(UserEntity_.age), minAge);
+    }
+
+    public static Specification<UserEntity> ageAtMost(int maxAge) {
+        return (root, query, cb) -> cb.lessThanOrEqualTo(root.get(UserEntity_.age), maxAge);
+    }
+
+    public static Specification<UserEntity> createdAtOrAfter(LocalDateTime from) {
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get(UserEntity_.createdAt), from);
+    }
+
+    public static Specification<UserEntity> createdBefore(LocalDateTime to) {
+        return (root, query, cb) -> cb.lessThan(root.get(UserEntity_.createdAt), to);
+    }
+
+    /**
+     * Keyset-условие следующей страницы.
+     */
+    public static Specification<UserEntity> idGreaterThan(long afterId) {
+        return (root, query, cb) -> cb.greaterThan(root.get(UserEntity_.id), afterId);
+    }
+
+    /**
+     * Символы % и _ из ввода пользователя ищутся буквально.
+     */
+    static String escapeLike(String value) {
+        StringBuilder escaped = new StringBuilder(value.length() + 4);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '%' || c == '_' || c == LIKE_ESCAPE) {
+                escaped.append(LIKE_ESCAPE);
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+}
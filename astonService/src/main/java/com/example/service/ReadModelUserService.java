@@ -0,0 +1,199 @@
+package com.example.service;
+
+import com.example.dto.UserBatchResponse;
+import com.example.dto.UserCreateRequest;
+import com.example.dto.UserEvent;
+import com.example.dto.UserResponse;
+import com.example.dto.UserSearchResponse;
+import com.example.dto.UserUpdateRequest;
+import com.example.readmodel.UserReadModel;
+import com.example.readmodel.UserReadStore;
+import com.example.repository.UserSearchFilter;
+import com.example.util.UserChecks;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Сторона чтения CQRS: запросы пользователей обслуживает {@link UserReadModel}, изменения и
+ * запросы в то время, когда модель не готова, — {@link UserServiceImpl} и база.
+ * Чтобы узел видел собственные изменения, ID, изменённые через него, читаются из базы,
+ * пока до модели не дойдёт событие с той же версией. Списки согласованы в конечном счёте.
+ */
+@Service
+@Primary
+@Slf4j
+@ConditionalOnProperty(prefix = "app.read-model", name = "enabled", havingValue = "true")
+public class ReadModelUserService implements UserService {
+
+    private static final long DELETED = -1L;
+
+    private final UserServiceImpl delegate;
+    private final UserReadModel readModel;
+    private final UserReadStore store;
+    private final UserChecks userChecks;
+    /**
+     * ID, изменённые через этот узел, и версия, которую модель должна увидеть (DELETED — удаление).
+     */
+    private final Cache<Long, Long> recentWrites = Caffeine.newBuilder()
+            .expireAfterWrite(Duration.ofMinutes(1))
+            .maximumSize(100_000)
+            .build();
+
+    public ReadModelUserService(UserServiceImpl delegate, UserReadModel readModel, UserChecks userChecks) {
+        this.delegate = delegate;
+        this.readModel = readModel;
+        this.store = readModel.store();
+        this.userChecks = userChecks;
+    }
+
+    @Override
+    public UserEvent createUser(UserCreateRequest request) {
+        return written(delegate.createUser(request));
+    }
+
+    @Override
+    public UserEvent updateUser(UserUpdateRequest request) {
+        return written(delegate.updateUser(request));
+    }
+
+    @Override
+    public UserEvent updateUser(UserUpdateRequest request, Long expectedVersion) {
+        return written(delegate.updateUser(request, expectedVersion));
+    }
+
+    @Override
+    public UserEvent deleteUser(Long id) {
+        return written(delegate.deleteUser(id));
+    }
+
+    @Override
+    public UserEvent deleteUser(Long id, Long expectedVersion) {
+        return written(delegate.deleteUser(id, expectedVersion));
+    }
+
+    @Override
+    public Optional<UserResponse> getUserById(Long id) {
+        userChecks.validateId(id);
+        if (!readModel.isServing() || !caughtUpWith(id)) {
+            return delegate.getUserById(id);
+        }
+        return store.get(id);
+    }
+
+    @Override
+    public UserBatchResponse getUsersByIds(List<Long> ids) {
+        userChecks.validateBatchIds(ids);
+        if (!readModel.isServing()) {
+            return delegate.getUsersByIds(ids);
+        }
+        Set<Long> distinct = new LinkedHashSet<>(ids);
+        List<UserResponse> users = new ArrayList<>(distinct.size());
+        List<Long> missing = new ArrayList<>();
+        for (Long id : distinct) {
+            if (!caughtUpWith(id)) {
+                return delegate.getUsersByIds(ids);
+            }
+            store.get(id).ifPresentOrElse(users::add, () -> missing.add(id));
+        }
+        return new UserBatchResponse().users(users).missing(missing);
+    }
+
+    @Override
+    public Optional<Long> getUserVersion(Long id) {
+        userChecks.validateId(id);
+        if (!readModel.isServing() || !caughtUpWith(id)) {
+            return delegate.getUserVersion(id);
+        }
+        return store.version(id);
+    }
+
+    @Override
+    public List<UserResponse> getAllUsers() {
+        if (!readModel.isServing()) {
+            return delegate.getAllUsers();
+        }
+        List<UserResponse> users = new ArrayList<>(store.size());
+        store.forEach(users::add);
+        return users;
+    }
+
+    @Override
+    public List<UserResponse> getUsersPage(Long afterId, Integer limit) {
+        userChecks.validatePageLimit(limit);
+        if (!readModel.isServing()) {
+            return delegate.getUsersPage(afterId, limit);
+        }
+        return store.page(afterId, limit);
+    }
+
+    @Override
+    public long getUsersPageFingerprint(Long afterId, Integer limit) {
+        userChecks.validatePageLimit(limit);
+        if (!readModel.isServing()) {
+            return delegate.getUsersPageFingerprint(afterId, limit);
+        }
+        return store.pageFingerprint(afterId, limit);
+    }
+
+    /**
+     * Поиск по условиям обслуживают индексы базы.
+     */
+    @Override
+    public UserSearchResponse searchUsers(UserSearchFilter filter, Long afterId, Integer limit) {
+        return delegate.searchUsers(filter, afterId, limit);
+    }
+
+    @Override
+    public void streamAllUsers(Consumer<UserResponse> consumer) {
+        if (!readModel.isServing()) {
+            delegate.streamAllUsers(consumer);
+            return;
+        }
+        store.forEach(consumer);
+    }
+
+    @Override
+    public boolean isEmailExists(String email) {
+        // Проверка уникальности нужна для записи и должна видеть последние изменения
+        return delegate.isEmailExists(email);
+    }
+
+    private UserEvent written(UserEvent event) {
+        if (event.getId() != null) {
+            recentWrites.put(event.getId(), event.getEventType() == UserEvent.EventTypeEnum.DELETED
+                    ? DELETED
+                    : event.getVersion() == null ? 0L : event.getVersion());
+        }
+        return event;
+    }
+
+    /**
+     * Дошло ли до модели последнее изменение ID, сделанное через этот узел.
+     */
+    private boolean caughtUpWith(Long id) {
+        Long expected = recentWrites.getIfPresent(id);
+        if (expected == null) {
+            return true;
+        }
+        boolean caughtUp = expected == DELETED
+                ? !store.contains(id)
+                : store.version(id).map(version -> version >= expected).orElse(false);
+        if (caughtUp) {
+            // Удаляем только то значение, которое проверили: параллельная запись могла его заменить
+            recentWrites.asMap().remove(id, expected);
+        }
+        return caughtUp;
+    }
+}
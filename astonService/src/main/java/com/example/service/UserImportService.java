@@ -0,0 +1,17 @@
+package com.example.service;
+
+import com.example.dto.BulkImportReport;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public interface UserImportService {
+    /**
+     * Импортирует пользователей из JSON-массива объектов UserCreateRequest, читая его потоково.
+     */
+    BulkImportReport importJson(InputStream in) throws IOException;
+    /**
+     * Импортирует пользователей из CSV с колонками name,email,age.
+     */
+    BulkImportReport importCsv(InputStream in) throws IOException;
+}
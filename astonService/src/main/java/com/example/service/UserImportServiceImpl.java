@@ -0,0 +1,249 @@
+package com.example.service;
+
+import com.example.config.UserImportProperties;
+import com.example.datasource.WriteLsnTracker;
+import com.example.dto.BulkImportReport;
+import com.example.dto.BulkImportRowResult;
+import com.example.dto.UserCreateRequest;
+import com.example.dto.UserEvent;
+import com.example.entity.UserEntity;
+import com.example.exception.InvalidDataException;
+import com.example.kafka.UserEventOutbox;
+import com.example.logging.UserAuditLog;
+import com.example.mapper.UserMapper;
+import com.example.repository.UserRepository;
+import com.example.shard.Shards;
+import com.example.shard.UserEmailDirectory;
+import com.example.util.UserChecks;
+import com.example.util.UserCsvReader;
+import com.example.util.UserValidator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Массовый импорт: вход читается потоково и обрабатывается порциями фиксированного размера,
+ * поэтому память не зависит от размера файла (кроме самого отчёта).
+ * Каждая порция — одна проверка занятых email и одна транзакция с пакетной вставкой
+ * (при шардировании — по транзакции на каждый шард, которому достались строки порции).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UserImportServiceImpl implements UserImportService {
+
+    private final UserRepository userRepository;
+    private final UserChecks userChecks;
+    private final UserMapper userMapper;
+    private final UserEventOutbox userEventOutbox;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+    private final UserImportProperties properties;
+    private final UserAuditLog userAuditLog;
+    private final WriteLsnTracker writeLsnTracker;
+    private final Shards shards;
+    private final UserEmailDirectory userEmails;
+
+    @Override
+    public BulkImportReport importJson(InputStream in) throws IOException {
+        try (JsonParser parser = objectMapper.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new InvalidDataException("Ожидается JSON-массив пользователей");
+            }
+            int[] number = {0};
+            return importRows(() -> {
+                JsonToken token = parser.nextToken();
+                if (token == null || token == JsonToken.END_ARRAY) {
+                    return null;
+                }
+                int row = ++number[0];
+                // Читаем объект целиком, чтобы ошибка в одном поле не сбивала разбор следующих строк
+                JsonNode node = objectMapper.readTree(parser);
+                if (!node.isObject()) {
+                    return new ImportRow(row, null, "Ожидается объект пользователя");
+                }
+                try {
+                    return new ImportRow(row, objectMapper.treeToValue(node, UserCreateRequest.class), null);
+                } catch (JsonProcessingException e) {
+                    return new ImportRow(row, null, "Некорректная строка: " + e.getOriginalMessage());
+                }
+            });
+        }
+    }
+
+    @Override
+    public BulkImportReport importCsv(InputStream in) throws IOException {
+        try (UserCsvReader reader = new UserCsvReader(in)) {
+            int[] number = {0};
+            return importRows(() -> {
+                List<String> fields = reader.next();
+                if (fields == null) {
+                    return null;
+                }
+                int row = ++number[0];
+                if (fields.size() != 3) {
+                    return new ImportRow(row, null, "Ожидается 3 поля: name,email,age");
+                }
+                UserCreateRequest request = new UserCreateRequest()
+                        .name(fields.get(0).trim())
+                        .email(fields.get(1).trim());
+                try {
+                    request.setAge(Integer.parseInt(fields.get(2).trim()));
+                } catch (NumberFormatException e) {
+                    return new ImportRow(row, request, "Некорректный возраст: " + fields.get(2));
+                }
+                return new ImportRow(row, request, null);
+            });
+        }
+    }
+
+    private BulkImportReport importRows(RowSource source) throws IOException {
+        BulkImportReport report = new BulkImportReport().total(0).created(0).failed(0);
+        List<ImportRow> chunk = new ArrayList<>(properties.getChunkSize());
+        ImportRow row;
+        while ((row = source.next()) != null) {
+            chunk.add(row);
+            if (chunk.size() == properties.getChunkSize()) {
+                processChunk(chunk, report);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            processChunk(chunk, report);
+        }
+        report.getResults().sort(Comparator.comparing(BulkImportRowResult::getRow));
+        log.info("Импорт завершён: всего {}, создано {}, отклонено {}",
+                report.getTotal(), report.getCreated(), report.getFailed());
+        return report;
+    }
+
+    private void processChunk(List<ImportRow> chunk, BulkImportReport report) {
+        // Вся порция проверяется одним проходом; текст ошибки строится только для отклонённых строк
+        int[] violations = new int[chunk.size()];
+        userChecks.validateAll(chunk.stream().map(ImportRow::request).toList(), violations);
+
+        List<ImportRow> candidates = new ArrayList<>(chunk.size());
+        Set<String> emails = new HashSet<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            ImportRow row = chunk.get(i);
+            String error = row.error() != null ? row.error()
+                    : violations[i] != 0 ? UserValidator.describe(violations[i]) : null;
+            if (error != null) {
+                reject(report, row, BulkImportRowResult.StatusEnum.INVALID, error);
+            } else if (!emails.add(row.request().getEmail())) {
+                reject(report, row, BulkImportRowResult.StatusEnum.DUPLICATE, "Email повторяется в импорте");
+            } else {
+                candidates.add(row);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return;
+        }
+
+        Set<String> taken = new HashSet<>(userEmails.findTaken(emails));
+        Map<Integer, List<ImportRow>> toInsert = new TreeMap<>();
+        for (ImportRow row : candidates) {
+            if (taken.contains(row.request().getEmail())) {
+                reject(report, row, BulkImportRowResult.StatusEnum.DUPLICATE,
+                        UserChecks.duplicateEmailOnCreate(row.request().getEmail()).getMessage());
+            } else {
+                toInsert.computeIfAbsent(shards.forEmail(row.request().getEmail()), shard -> new ArrayList<>())
+                        .add(row);
+            }
+        }
+        toInsert.forEach((shard, rows) -> shards.on(shard, () -> {
+            insertRows(rows, report);
+            return null;
+        }));
+    }
+
+    private void insertRows(List<ImportRow> rows, BulkImportReport report) {
+        List<UserEntity> entities = rows.stream().map(row -> userMapper.fromCreateRequest(row.request())).toList();
+        try {
+            transactionTemplate.executeWithoutResult(status -> insertBatch(entities));
+        } catch (DataIntegrityViolationException e) {
+            // Email занял параллельный запрос между проверкой и вставкой: вставляем порцию по одной строке
+            log.debug("Конфликт при пакетной вставке, повтор по строкам: {}", e.getMessage());
+            insertOneByOne(rows, report);
+            return;
+        }
+        for (int i = 0; i < entities.size(); i++) {
+            accept(report, rows.get(i), entities.get(i));
+        }
+    }
+
+    private void insertBatch(List<UserEntity> entities) {
+        // flush через репозиторий, чтобы нарушение ограничения пришло как DataIntegrityViolationException
+        userRepository.saveAllAndFlush(entities);
+        userEmails.registerAll(entities);
+        // События пишутся в outbox той же транзакцией, что и пользователи
+        userEventOutbox.appendAll(entities.stream()
+                .map(user -> UserEventOutbox.snapshot(user, UserEvent.EventTypeEnum.CREATED))
+                .toList());
+        userAuditLog.createdAll(entities);
+        writeLsnTracker.recordWrite();
+        // Порция уже записана: не держим её в persistence context до конца запроса
+        entityManager.clear();
+    }
+
+    private void insertOneByOne(List<ImportRow> rows, BulkImportReport report) {
+        for (ImportRow row : rows) {
+            UserEntity entity = userMapper.fromCreateRequest(row.request());
+            try {
+                transactionTemplate.executeWithoutResult(status -> insertBatch(List.of(entity)));
+                accept(report, row, entity);
+            } catch (DataIntegrityViolationException e) {
+                if (!UserChecks.isUniqueViolation(e)) {
+                    throw e;
+                }
+                reject(report, row, BulkImportRowResult.StatusEnum.DUPLICATE,
+                        UserChecks.duplicateEmailOnCreate(row.request().getEmail()).getMessage());
+            }
+        }
+    }
+
+    private void accept(BulkImportReport report, ImportRow row, UserEntity entity) {
+        userChecks.markEmailTaken(entity.getEmail());
+        report.total(report.getTotal() + 1).created(report.getCreated() + 1)
+                .addResultsItem(new BulkImportRowResult(row.number(), BulkImportRowResult.StatusEnum.CREATED)
+                        .id(entity.getId())
+                        .email(entity.getEmail()));
+    }
+
+    private void reject(BulkImportReport report, ImportRow row, BulkImportRowResult.StatusEnum status, String error) {
+        report.total(report.getTotal() + 1).failed(report.getFailed() + 1)
+                .addResultsItem(new BulkImportRowResult(row.number(), status)
+                        .email(row.request() == null ? null : row.request().getEmail())
+                        .error(error));
+    }
+
+    private record ImportRow(int number, UserCreateRequest request, String error) {
+    }
+
+    @FunctionalInterface
+    private interface RowSource {
+        /**
+         * Следующая строка входных данных или null, если они закончились.
+         */
+        ImportRow next() throws IOException;
+    }
+}
@@ -1,12 +1,16 @@
 package com.example.service;
 
+import com.example.dto.UserBatchResponse;
 import com.example.dto.UserCreateRequest;
 import com.example.dto.UserEvent;
 import com.example.dto.UserResponse;
+import com.example.dto.UserSearchResponse;
 import com.example.dto.UserUpdateRequest;
+import com.example.repository.UserSearchFilter;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface UserService {
     /**
@@ -17,18 +21,52 @@ public interface UserService {
      * Обновляет существующего пользователя на основе переданного запроса.
      */
     UserEvent updateUser(UserUpdateRequest request);
+    /**
+     * Обновляет пользователя, только если его версия равна expectedVersion (null — без условия).
+     */
+    UserEvent updateUser(UserUpdateRequest request, Long expectedVersion);
     /**
      * Удаляет пользователя по его идентификатору.
      */
     UserEvent deleteUser(Long id);
+    /**
+     * Удаляет пользователя, только если его версия равна expectedVersion (null — без условия).
+     */
+    UserEvent deleteUser(Long id, Long expectedVersion);
     /**
      * Получает информацию о пользователе по его идентификатору.
      */
     Optional<UserResponse> getUserById(Long id);
+    /**
+     * Получает пользователей по списку ID одним запросом в порядке запроса, без повторов;
+     * ненайденные ID перечисляются отдельно.
+     */
+    UserBatchResponse getUsersByIds(List<Long> ids);
+    /**
+     * Получает версию пользователя, не загружая и не преобразуя запись целиком.
+     */
+    Optional<Long> getUserVersion(Long id);
     /**
      * Получает список всех пользователей.
      */
     List<UserResponse> getAllUsers();
+    /**
+     * Получает страницу пользователей с ID больше afterId (null — с начала), упорядоченных по ID.
+     */
+    List<UserResponse> getUsersPage(Long afterId, Integer limit);
+    /**
+     * Ищет пользователей по фильтру постранично (afterId — keyset-курсор, null — с начала).
+     * Общее число найденных считается не дальше {@link com.example.util.UserChecks#SEARCH_COUNT_CAP}.
+     */
+    UserSearchResponse searchUsers(UserSearchFilter filter, Long afterId, Integer limit);
+    /**
+     * Свёртка ID и версий той же страницы, что и getUsersPage, для ETag без загрузки строк.
+     */
+    long getUsersPageFingerprint(Long afterId, Integer limit);
+    /**
+     * Передаёт всех пользователей в consumer по мере чтения из базы, не накапливая их в памяти.
+     */
+    void streamAllUsers(Consumer<UserResponse> consumer);
     /**
      * Проверяет, существует ли пользователь с указанным email.
      */
@@ -1,71 +1,163 @@
 package com.example.service;
 
+import com.example.cache.UserCache;
+import com.example.datasource.ConsistencyToken;
+import com.example.datasource.WriteLsnTracker;
+import com.example.dto.UserBatchResponse;
 import com.example.dto.UserCreateRequest;
 import com.example.dto.UserEvent;
 import com.example.dto.UserResponse;
+import com.example.dto.UserSearchResponse;
 import com.example.dto.UserUpdateRequest;
 import com.example.entity.UserEntity;
+import com.example.entity.UserEntity_;
 import com.example.exception.NotFoundException;
-import com.example.kafka.UserEventPublisher;
+import com.example.exception.PreconditionFailedException;
+import com.example.kafka.UserEventOutbox;
+import com.example.logging.UserAuditLog;
 import com.example.mapper.UserMapper;
 import com.example.repository.UserRepository;
+import com.example.repository.UserSearchFilter;
+import com.example.repository.UserSpecifications;
+import com.example.shard.Shards;
+import com.example.shard.UserEmailDirectory;
 import com.example.util.UserChecks;
+import com.example.util.SingleFlight;
+import com.example.util.SortedMerge;
+import com.example.util.UserETag;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class UserServiceImpl implements UserService {
 
+    private static final Comparator<UserEntity> BY_ID = Comparator.comparing(UserEntity::getId);
+
     private final UserRepository userRepository;
     private final UserChecks userChecks;
     private final UserMapper userMapper;
-    private final UserEventPublisher userEventPublisher;
+    private final UserEventOutbox userEventOutbox;
+    private final EntityManager entityManager;
+    private final UserCache userCache;
+    private final UserAuditLog userAuditLog;
+    private final SingleFlight<Long, Optional<UserEntity>> userFlight;
+    private final SingleFlight<Long, Optional<Long>> userVersionFlight;
+    private final WriteLsnTracker writeLsnTracker;
+    private final Shards shards;
+    private final UserEmailDirectory userEmails;
 
     @Override
+    @Transactional
     public UserEvent createUser(UserCreateRequest request) {
-        log.debug("Попытка создания пользователя с email: {}", request.getEmail());
+        log.debug("Попытка создания пользователя");
 
-        userChecks.validateUserNotNull(request);
-        userChecks.validateEmail(request.getEmail());
-        userChecks.validateAge(request.getAge());
+        userChecks.validateCreateRequest(request);
+        // Пользователь создаётся на шарде своего email, там же и запись справочника email
+        return shards.on(shards.forEmail(request.getEmail()), () -> create(request));
+    }
+
+    private UserEvent create(UserCreateRequest request) {
         userChecks.ensureEmailUniqueForCreate(request.getEmail());
 
         UserEntity user = userMapper.fromCreateRequest(request);
-        userRepository.save(user);
-        log.info("Пользователь успешно создан: {}", user);
+        try {
+            userRepository.saveAndFlush(user);
+        } catch (DataIntegrityViolationException e) {
+            if (UserChecks.isUniqueViolation(e)) {
+                throw UserChecks.duplicateEmailOnCreate(request.getEmail());
+            }
+            throw e;
+        }
+        userEmails.register(user);
+        userChecks.markEmailTaken(user.getEmail());
+        evict(user.getId(), user.getVersion());
+        userAuditLog.created(user);
+        log.atDebug().addKeyValue("userId", user.getId()).log("Пользователь создан");
 
-        UserEvent event = new UserEvent(user.getEmail(), UserEvent.EventTypeEnum.CREATED);
-        userEventPublisher.publishUserEvent(event);
+        UserEvent event = UserEventOutbox.snapshot(user, UserEvent.EventTypeEnum.CREATED);
+        userEventOutbox.append(event);
+        writeLsnTracker.recordWrite();
         return event;
     }
 
     @Override
+    @Transactional
     public UserEvent updateUser(UserUpdateRequest request) {
+        return updateUser(request, null);
+    }
+
+    @Override
+    @Transactional
+    public UserEvent updateUser(UserUpdateRequest request, Long expectedVersion) {
         log.debug("Попытка обновления пользователя с id: {}", request.getId());
 
-        userChecks.validateId(request.getId());
         userChecks.validateUserNotNull(request);
-        userChecks.validateEmail(request.getEmail());
-        userChecks.validateAge(request.getAge());
+        userChecks.validateId(request.getId());
+        userChecks.validateUpdateRequest(request);
+        return shards.on(shards.forId(request.getId()), () -> update(request, expectedVersion));
+    }
 
+    private UserEvent update(UserUpdateRequest request, Long expectedVersion) {
         UserEntity existing = userRepository.findById(request.getId())
                 .orElseThrow(() -> new NotFoundException("Пользователь с ID " + request.getId() + " не найден"));
+        ensureVersion(existing, expectedVersion);
 
+        String previousEmail = existing.getEmail();
+        boolean emailChanged = !Objects.equals(previousEmail, request.getEmail());
+        String changedFields = UserAuditLog.changedFields(existing, request);
         userMapper.updateEntityFromDto(request, existing);
-        userChecks.ensureEmailUniqueForUpdate(existing);
 
-        userRepository.save(existing);
-        log.info("Пользователь обновлён: {}", existing);
+        try {
+            // Запросы проверки email могут сбросить изменённую строку раньше saveAndFlush
+            if (emailChanged) {
+                userChecks.ensureEmailUniqueForUpdate(existing);
+                userEmails.move(existing.getId(), previousEmail, existing.getEmail());
+            }
+            userRepository.saveAndFlush(existing);
+        } catch (DataIntegrityViolationException e) {
+            if (UserChecks.isUniqueViolation(e)) {
+                throw UserChecks.duplicateEmailOnUpdate(request.getEmail());
+            }
+            throw e;
+        } catch (OptimisticLockingFailureException e) {
+            throw versionConflict(existing.getId(), expectedVersion, e);
+        }
+        if (emailChanged) {
+            userChecks.markEmailTaken(existing.getEmail());
+        }
+        evict(existing.getId(), existing.getVersion());
+        userAuditLog.updated(existing.getId(), changedFields);
+        log.atDebug().addKeyValue("userId", existing.getId()).log("Пользователь обновлён");
 
-        UserEvent event = new UserEvent(existing.getEmail(), UserEvent.EventTypeEnum.UPDATED);
-        userEventPublisher.publishUserEvent(event);
+        UserEvent event = UserEventOutbox.snapshot(existing, UserEvent.EventTypeEnum.UPDATED);
+        userEventOutbox.append(event);
+        writeLsnTracker.recordWrite();
         return event;
     }
 
@@ -73,37 +165,271 @@ public class UserServiceImpl implements UserService {
     public Optional<UserResponse> getUserById(Long id) {
         log.debug("Поиск пользователя с id: {}", id);
         userChecks.validateId(id);
-        return userRepository.findById(id).map(userMapper::toResponse);
+        Optional<UserEntity> cached = userCache.getIfPresent(id);
+        if (cached.isPresent()) {
+            return cached.map(userMapper::toResponse);
+        }
+        // Читатель с токеном согласованности не ждёт чужую загрузку: она могла идти с отстающей реплики
+        if (ConsistencyToken.required() != ConsistencyToken.NONE) {
+            return userCache.get(id, this::findById).map(userMapper::toResponse);
+        }
+        // Одновременные промахи по одному ID сводятся в одну загрузку, её результат ведущий кладёт в кэш
+        return userFlight.execute(id, key -> userCache.get(key, this::findById)).map(userMapper::toResponse);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public UserBatchResponse getUsersByIds(List<Long> ids) {
+        userChecks.validateBatchIds(ids);
+        Set<Long> distinct = new LinkedHashSet<>(ids);
+        log.debug("Получение {} пользователей по списку ID", distinct.size());
+
+        Map<Long, UserEntity> found = new HashMap<>(distinct.size() * 2);
+        List<Long> toLoad = new ArrayList<>(distinct.size());
+        for (Long id : distinct) {
+            Optional<UserEntity> cached = userCache.getIfPresent(id);
+            if (cached.isPresent()) {
+                found.put(id, cached.get());
+            } else {
+                toLoad.add(id);
+            }
+        }
+        if (!toLoad.isEmpty()) {
+            List<List<UserEntity>> loaded = shards.query(shard -> {
+                Long[] shardIds = toLoad.stream().filter(id -> shards.forId(id) == shard).toArray(Long[]::new);
+                return shardIds.length == 0 ? List.of() : userRepository.findAllByIdArray(shardIds);
+            });
+            for (List<UserEntity> shardUsers : loaded) {
+                for (UserEntity user : shardUsers) {
+                    found.put(user.getId(), user);
+                }
+            }
+        }
+
+        List<UserResponse> users = new ArrayList<>(found.size());
+        List<Long> missing = new ArrayList<>();
+        for (Long id : distinct) {
+            UserEntity user = found.get(id);
+            if (user == null) {
+                missing.add(id);
+            } else {
+                users.add(userMapper.toResponse(user));
+            }
+        }
+        return new UserBatchResponse().users(users).missing(missing);
+    }
+
+    @Override
+    public Optional<Long> getUserVersion(Long id) {
+        userChecks.validateId(id);
+        Optional<UserEntity> cached = userCache.getIfPresent(id);
+        if (cached.isPresent()) {
+            return cached.map(UserEntity::getVersion);
+        }
+        // Читатель с токеном согласованности не ждёт чужую загрузку: она могла идти с отстающей реплики
+        if (ConsistencyToken.required() != ConsistencyToken.NONE) {
+            return findVersionById(id);
+        }
+        return userVersionFlight.execute(id, this::findVersionById);
+    }
+
+    private Optional<Long> findVersionById(Long id) {
+        return shards.on(shards.forId(id), () -> userRepository.findVersionById(id));
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<UserResponse> getAllUsers() {
         log.debug("Получение списка всех пользователей");
-        return userRepository.findAll().stream()
+        List<List<UserEntity>> perShard = shards.query(shard -> userRepository.findAll(Sort.by(UserEntity_.ID)));
+        return SortedMerge.merge(perShard, BY_ID, Integer.MAX_VALUE).stream()
+                .map(userMapper::toResponse)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<UserResponse> getUsersPage(Long afterId, Integer limit) {
+        log.debug("Получение страницы пользователей после id: {}, limit: {}", afterId, limit);
+        userChecks.validatePageLimit(limit);
+        long from = afterId == null ? 0L : afterId;
+        // Страница всей таблицы — первые limit строк слияния страниц шардов
+        List<List<UserEntity>> perShard = shards.query(
+                shard -> userRepository.findByIdGreaterThanOrderByIdAsc(from, Limit.of(limit)));
+        return SortedMerge.merge(perShard, BY_ID, limit).stream()
                 .map(userMapper::toResponse)
                 .collect(Collectors.toList());
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public UserSearchResponse searchUsers(UserSearchFilter filter, Long afterId, Integer limit) {
+        userChecks.validatePageLimit(limit);
+        userChecks.validateSearch(filter);
+        log.atDebug().addKeyValue("filter", filter).addKeyValue("afterId", afterId).log("Поиск пользователей");
+
+        Specification<UserEntity> matching = UserSpecifications.matching(filter);
+        Specification<UserEntity> page = afterId == null
+                ? matching
+                : matching.and(UserSpecifications.idGreaterThan(afterId));
+        List<List<UserEntity>> perShard = shards.query(shard -> userRepository.findAllOrderedById(page, limit));
+        List<UserEntity> found = SortedMerge.merge(perShard, BY_ID, limit);
+        int fetched = perShard.stream().mapToInt(List::size).sum();
+
+        UserSearchResponse response = new UserSearchResponse()
+                .users(found.stream().map(userMapper::toResponse).collect(Collectors.toList()));
+        if (afterId != null) {
+            // Итог считается только для первой страницы: клиент уже получил его и листает дальше
+            return response;
+        }
+        long total;
+        if (fetched < limit) {
+            // Первая страница неполная: она и есть вся выборка, подсчёт не нужен
+            total = fetched;
+        } else {
+            total = shards.query(shard -> userRepository.countUpTo(matching, UserChecks.SEARCH_COUNT_CAP)).stream()
+                    .mapToLong(Long::longValue)
+                    .sum();
+        }
+        boolean capped = total > UserChecks.SEARCH_COUNT_CAP;
+        return response
+                .total(capped ? UserChecks.SEARCH_COUNT_CAP : total)
+                .totalCapped(capped);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long getUsersPageFingerprint(Long afterId, Integer limit) {
+        userChecks.validatePageLimit(limit);
+        long from = afterId == null ? 0L : afterId;
+        long fingerprint = UserETag.EMPTY_PAGE;
+        List<List<UserRepository.IdVersion>> perShard = shards.query(
+                shard -> userRepository.findVersionsByIdGreaterThan(from, Limit.of(limit)));
+        for (UserRepository.IdVersion row : SortedMerge.merge(perShard,
+                Comparator.comparing(UserRepository.IdVersion::getId), limit)) {
+            fingerprint = UserETag.mix(fingerprint, row.getId(), row.getVersion());
+        }
+        return fingerprint;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAllUsers(Consumer<UserResponse> consumer) {
+        log.debug("Потоковое чтение всех пользователей");
+        if (shards.sharded()) {
+            streamAllShards(consumer);
+            return;
+        }
+        try (Stream<UserEntity> users = userRepository.streamAllOrderById()) {
+            users.forEach(user -> {
+                consumer.accept(userMapper.toResponse(user));
+                // Отпускаем прочитанную строку из persistence context, чтобы память не росла с размером таблицы
+                entityManager.detach(user);
+            });
+        }
+    }
+
+    /**
+     * Курсор держал бы открытыми транзакции на всех шардах сразу, поэтому шарды читаются keyset-порциями
+     * и сливаются по ID. Строки порций уже отсоединены: каждая порция читается в своей транзакции.
+     */
+    private void streamAllShards(Consumer<UserResponse> consumer) {
+        int pageSize = Integer.parseInt(UserRepository.STREAM_FETCH_SIZE);
+        List<Iterator<UserEntity>> sources = new ArrayList<>(shards.count());
+        for (int shard = 0; shard < shards.count(); shard++) {
+            sources.add(shards.scan(shard, pageSize,
+                    after -> userRepository.findByIdGreaterThanOrderByIdAsc(after, Limit.of(pageSize)),
+                    UserEntity::getId));
+        }
+        SortedMerge.merge(sources, BY_ID).forEachRemaining(user -> consumer.accept(userMapper.toResponse(user)));
+    }
+
+    @Override
+    @Transactional
     public UserEvent deleteUser(Long id) {
+        return deleteUser(id, null);
+    }
+
+    @Override
+    @Transactional
+    public UserEvent deleteUser(Long id, Long expectedVersion) {
         log.debug("Попытка удалить пользователя с id: {}", id);
 
         userChecks.validateId(id);
+        return shards.on(shards.forId(id), () -> delete(id, expectedVersion));
+    }
 
+    private UserEvent delete(Long id, Long expectedVersion) {
         UserEntity user = userRepository.findById(id)
                 .orElseThrow(() -> new NotFoundException("Пользователь с ID " + id + " не найден"));
+        ensureVersion(user, expectedVersion);
 
-        userRepository.deleteById(id);
-        log.info("Пользователь с ID {} удалён", id);
+        try {
+            // DELETE с условием по версии выполняется здесь, а не при коммите, чтобы обработать конфликт
+            userRepository.deleteById(id);
+            userRepository.flush();
+        } catch (OptimisticLockingFailureException e) {
+            throw versionConflict(id, expectedVersion, e);
+        }
+        userEmails.release(user);
+        // После удаления любая прочитанная строка устарела, включая последнюю версию
+        evict(id, user.getVersion() == null ? null : user.getVersion() + 1);
+        userAuditLog.deleted(id);
+        log.atDebug().addKeyValue("userId", id).log("Пользователь удалён");
 
-        UserEvent event = new UserEvent(user.getEmail(), UserEvent.EventTypeEnum.DELETED);
-        userEventPublisher.publishUserEvent(event);
+        UserEvent event = UserEventOutbox.snapshot(user, UserEvent.EventTypeEnum.DELETED);
+        userEventOutbox.append(event);
+        writeLsnTracker.recordWrite();
         return event;
     }
 
     @Override
     public boolean isEmailExists(String email) {
         if (email == null || email.isBlank()) return false;
-        return userRepository.findByEmail(email).isPresent();
+        return userChecks.isEmailTaken(email);
+    }
+
+    private Optional<UserEntity> findById(Long id) {
+        return shards.on(shards.forId(id), () -> userRepository.findById(id));
+    }
+
+    /**
+     * Сбрасывает кэш и текущую загрузку пользователя сразу и, если идёт транзакция, повторно после коммита:
+     * загрузка, начатая до коммита, могла прочитать старую версию.
+     */
+    private void evict(Long id, Long minVersion) {
+        userCache.evict(id, minVersion);
+        if (id == null) {
+            return;
+        }
+        userFlight.forget(id);
+        userVersionFlight.forget(id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    userFlight.forget(id);
+                    userVersionFlight.forget(id);
+                }
+            });
+        }
+    }
+
+    private static void ensureVersion(UserEntity user, Long expectedVersion) {
+        if (expectedVersion != null && !expectedVersion.equals(user.getVersion())) {
+            throw new PreconditionFailedException("Версия пользователя с ID " + user.getId() + " — "
+                    + user.getVersion() + ", ожидалась " + expectedVersion);
+        }
+    }
+
+    /**
+     * Запись изменили между чтением и записью. С If-Match это несовпадение версии (412),
+     * без него — конфликт параллельных изменений (409).
+     */
+    private static RuntimeException versionConflict(Long id, Long expectedVersion, OptimisticLockingFailureException e) {
+        if (expectedVersion != null) {
+            return new PreconditionFailedException("Пользователь с ID " + id + " изменён после версии " + expectedVersion);
+        }
+        return e;
     }
 }
@@ -0,0 +1,30 @@
+package com.example.shard;
+
+/**
+ * Шард, с которым работает текущий поток. Читается при получении соединения
+ * ({@link ShardRoutingDataSource}) и при выдаче ID ({@link ShardSequenceGenerator}); задаётся через {@link Shards}.
+ */
+public final class ShardContext {
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    /**
+     * Номер шарда или null вне шардирования и вне {@link Shards#on}.
+     */
+    public static Integer current() {
+        return CURRENT.get();
+    }
+
+    static Integer set(Integer shard) {
+        Integer previous = CURRENT.get();
+        if (shard == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(shard);
+        }
+        return previous;
+    }
+}
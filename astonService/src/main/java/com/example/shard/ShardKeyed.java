@@ -0,0 +1,9 @@
+package com.example.shard;
+
+/**
+ * Сущность, шард которой задаётся ключом, известным до вставки.
+ */
+public interface ShardKeyed {
+
+    String shardKey();
+}
@@ -0,0 +1,43 @@
+package com.example.shard;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Ключ шардирования — email при создании пользователя. Хеш email задаёт один из {@link #BUCKETS} бакетов,
+ * бакет записывается в младшие биты ID, поэтому шард находится и по email, и по ID без обращения к базе.
+ * Шарду принадлежит набор бакетов ({@link Shards}); перенос бакета на другой шард не меняет ID пользователей.
+ */
+public final class ShardKeys {
+
+    public static final int BUCKET_BITS = 10;
+    public static final int BUCKETS = 1 << BUCKET_BITS;
+
+    private static final long BUCKET_MASK = BUCKETS - 1;
+
+    private ShardKeys() {
+    }
+
+    public static int bucket(String shardKey) {
+        long h = 0xCBF29CE484222325L;
+        for (byte b : shardKey.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001B3L;
+        }
+        // Перемешивание младших бит: FNV-1a без него распределяет короткие ключи неравномерно
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return (int) (h & BUCKET_MASK);
+    }
+
+    public static int bucket(long id) {
+        return (int) (id & BUCKET_MASK);
+    }
+
+    /**
+     * ID из значения последовательности шарда и бакета. Пара уникальна, пока бакет принадлежит одному шарду.
+     */
+    public static long id(long sequenceValue, int bucket) {
+        return sequenceValue << BUCKET_BITS | bucket;
+    }
+}
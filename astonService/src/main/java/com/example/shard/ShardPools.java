@@ -0,0 +1,27 @@
+package com.example.shard;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import java.util.List;
+
+/**
+ * Пулы соединений шардов в порядке номеров шардов. Не бины по отдельности, чтобы единственным
+ * DataSource приложения оставался маршрутизирующий; закрываются вместе с этим бином.
+ */
+public class ShardPools implements AutoCloseable {
+
+    private final List<HikariDataSource> pools;
+
+    public ShardPools(List<HikariDataSource> pools) {
+        this.pools = List.copyOf(pools);
+    }
+
+    public List<HikariDataSource> pools() {
+        return pools;
+    }
+
+    @Override
+    public void close() {
+        pools.forEach(HikariDataSource::close);
+    }
+}
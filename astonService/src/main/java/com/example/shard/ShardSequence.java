@@ -0,0 +1,30 @@
+package com.example.shard;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * ID из последовательности того шарда, куда вставляется строка, см. {@link ShardSequenceGenerator}.
+ */
+@IdGeneratorType(ShardSequenceGenerator.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface ShardSequence {
+
+    String name();
+
+    /**
+     * Совпадает с INCREMENT последовательности: один nextval резервирует столько ID.
+     */
+    int allocationSize() default 50;
+
+    /**
+     * Дописывать к значению бакет ключа шардирования ({@link ShardKeyed}), чтобы ID был уникален
+     * между шардами и указывал на свой шард. Иначе ID уникален только внутри шарда.
+     */
+    boolean bucketed() default false;
+}
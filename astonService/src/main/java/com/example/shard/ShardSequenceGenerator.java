@@ -0,0 +1,83 @@
+package com.example.shard;
+
+import org.hibernate.engine.jdbc.spi.JdbcCoordinator;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.EventTypeSets;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.EnumSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Pooled-генератор с отдельным блоком ID на каждый шард: у шардов свои последовательности, и общий блок
+ * Hibernate выдавал бы на одном шарде ID, зарезервированные на другом. Значение nextval — верхняя граница
+ * блока из allocationSize ID, как у оптимизатора pooled, поэтому без шардирования ID те же, что у @SequenceGenerator.
+ */
+public class ShardSequenceGenerator implements BeforeExecutionGenerator {
+
+    private static final int NO_SHARD = -1;
+
+    private final String sequenceName;
+    private final int allocationSize;
+    private final boolean bucketed;
+    private final ConcurrentMap<Integer, Block> blocks = new ConcurrentHashMap<>();
+
+    public ShardSequenceGenerator(ShardSequence config) {
+        this.sequenceName = config.name();
+        this.allocationSize = config.allocationSize();
+        this.bucketed = config.bucketed();
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object owner, Object currentValue,
+                           EventType eventType) {
+        Integer shard = ShardContext.current();
+        long value = blocks.computeIfAbsent(shard == null ? NO_SHARD : shard, key -> new Block()).next(session);
+        if (shard == null || !bucketed) {
+            return value;
+        }
+        return ShardKeys.id(value, ShardKeys.bucket(((ShardKeyed) owner).shardKey()));
+    }
+
+    @Override
+    public EnumSet<EventType> getEventTypes() {
+        return EventTypeSets.INSERT_ONLY;
+    }
+
+    private long nextval(SharedSessionContractImplementor session) {
+        String sql = session.getJdbcServices().getDialect().getSequenceSupport().getSequenceNextValString(sequenceName);
+        JdbcCoordinator jdbc = session.getJdbcCoordinator();
+        PreparedStatement statement = jdbc.getStatementPreparer().prepareStatement(sql);
+        try {
+            ResultSet rs = jdbc.getResultSetReturn().extract(statement, sql);
+            rs.next();
+            return rs.getLong(1);
+        } catch (SQLException e) {
+            throw session.getJdbcServices().getSqlExceptionHelper()
+                    .convert(e, "Не удалось получить значение последовательности " + sequenceName, sql);
+        } finally {
+            jdbc.getLogicalConnection().getResourceRegistry().release(statement);
+            jdbc.afterStatementExecution();
+        }
+    }
+
+    private final class Block {
+
+        private long next;
+        private long hi;
+
+        synchronized long next(SharedSessionContractImplementor session) {
+            if (next == 0 || next > hi) {
+                hi = nextval(session);
+                // Первое значение новой последовательности — 1: блок из одного ID, дальше полные блоки
+                next = Math.max(1, hi - allocationSize + 1);
+            }
+            return next++;
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.example.shard;
+
+import com.example.config.ShardingProperties;
+import io.micrometer.context.ContextSnapshotFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Шарды и распределение по ним бакетов ({@link ShardKeys}). Без app.sharding.enabled шард один,
+ * а все методы выполняют действие как есть — в текущем потоке и текущей транзакции.
+ * <p>
+ * Транзакция работает с одним шардом: соединение берётся с шарда, выбранного {@link #on} к первому запросу.
+ * Обход всех шардов ({@link #query}) идёт параллельно, каждый шард в своей транзакции.
+ */
+@Slf4j
+@Component
+public class Shards implements DisposableBean {
+
+    private final boolean sharded;
+    private final List<String> names;
+    private final int[] shardByBucket;
+    private final TransactionTemplate readOnly;
+    private final TransactionTemplate readWrite;
+    private final ExecutorService scatter;
+    private final ContextSnapshotFactory snapshots = ContextSnapshotFactory.builder().build();
+
+    public Shards(ShardingProperties properties, PlatformTransactionManager transactionManager) {
+        this.sharded = properties.isEnabled();
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.readOnly.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readWrite = new TransactionTemplate(transactionManager);
+        this.readWrite.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        if (!sharded) {
+            this.names = List.of("default");
+            this.shardByBucket = null;
+            this.scatter = null;
+            return;
+        }
+        List<ShardingProperties.Shard> shards = properties.getShards();
+        if (shards.isEmpty()) {
+            throw new IllegalStateException("Шардирование включено, но app.sharding.shards пуст");
+        }
+        this.names = shards.stream().map(ShardingProperties.Shard::getName).toList();
+        this.shardByBucket = bucketMap(shards);
+        AtomicInteger threads = new AtomicInteger();
+        this.scatter = Executors.newFixedThreadPool(properties.getScatterThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "shard-scatter-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.info("Шардирование users: {} шардов {}", names.size(), names);
+    }
+
+    public boolean sharded() {
+        return sharded;
+    }
+
+    public int count() {
+        return names.size();
+    }
+
+    public String name(int shard) {
+        return names.get(shard);
+    }
+
+    public int forId(long id) {
+        return sharded ? shardByBucket[ShardKeys.bucket(id)] : 0;
+    }
+
+    public int forEmail(String email) {
+        return sharded ? shardByBucket[ShardKeys.bucket(email)] : 0;
+    }
+
+    /**
+     * Номер шарда, с которым сейчас работает поток, или null.
+     */
+    public Integer current() {
+        return ShardContext.current();
+    }
+
+    /**
+     * Выполняет action с шардом shard: транзакции и запросы внутри получают соединение с ним.
+     */
+    public <T> T on(int shard, Supplier<T> action) {
+        if (!sharded) {
+            return action.get();
+        }
+        Integer previous = ShardContext.set(shard);
+        try {
+            return action.get();
+        } finally {
+            ShardContext.set(previous);
+        }
+    }
+
+    /**
+     * action по очереди на каждом шарде, в текущем потоке.
+     */
+    public void forEach(IntConsumer action) {
+        for (int shard = 0; shard < names.size(); shard++) {
+            int current = shard;
+            on(shard, () -> {
+                action.accept(current);
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Результаты action на всех шардах в порядке шардов. Шарды опрашиваются параллельно, каждый
+     * в отдельной транзакции только для чтения; контекст трассировки переносится в потоки опроса.
+     */
+    public <T> List<T> query(IntFunction<T> action) {
+        if (!sharded) {
+            return Collections.singletonList(action.apply(0));
+        }
+        Executor executor = snapshots.captureAll().wrapExecutor(scatter);
+        List<CompletableFuture<T>> futures = new ArrayList<>(names.size());
+        for (int shard = 0; shard < names.size(); shard++) {
+            int current = shard;
+            futures.add(CompletableFuture.supplyAsync(
+                    () -> on(current, () -> readOnly.execute(status -> action.apply(current))), executor));
+        }
+        List<T> results = new ArrayList<>(futures.size());
+        for (CompletableFuture<T> future : futures) {
+            try {
+                results.add(future.join());
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Все строки шарда по возрастанию ключа без серверного курсора: keyset-порциями по pageSize,
+     * каждая в своей транзакции. pageAfter(k) — до pageSize строк с ключом больше k.
+     */
+    public <T> Iterator<T> scan(int shard, int pageSize, LongFunction<List<T>> pageAfter, ToLongFunction<T> key) {
+        return new Iterator<>() {
+            private Iterator<T> page = Collections.emptyIterator();
+            private long after;
+            private boolean last;
+
+            @Override
+            public boolean hasNext() {
+                while (!page.hasNext() && !last) {
+                    List<T> rows = on(shard, () -> readOnly.execute(status -> pageAfter.apply(after)));
+                    last = rows.size() < pageSize;
+                    if (!rows.isEmpty()) {
+                        after = key.applyAsLong(rows.get(rows.size() - 1));
+                    }
+                    page = rows.iterator();
+                }
+                return page.hasNext();
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return page.next();
+            }
+        };
+    }
+
+    /**
+     * action в транзакции на шарде shard: в текущей, если поток уже в транзакции с этим шардом, иначе в новой.
+     */
+    public <T> T inTransaction(int shard, Supplier<T> action) {
+        Integer current = ShardContext.current();
+        if (current != null && current == shard && TransactionSynchronizationManager.isActualTransactionActive()) {
+            return action.get();
+        }
+        return inNewTransaction(shard, action);
+    }
+
+    /**
+     * action в новой транзакции на шарде shard, например из завершения другой транзакции.
+     */
+    public <T> T inNewTransaction(int shard, Supplier<T> action) {
+        return on(shard, () -> readWrite.execute(status -> action.get()));
+    }
+
+    @Override
+    public void destroy() {
+        if (scatter != null) {
+            scatter.shutdownNow();
+        }
+    }
+
+    /**
+     * Явное распределение из buckets шардов или, если оно не задано, бакет b — шарду b % число шардов.
+     * Каждый бакет должен принадлежать ровно одному шарду.
+     */
+    private static int[] bucketMap(List<ShardingProperties.Shard> shards) {
+        int[] map = new int[ShardKeys.BUCKETS];
+        if (shards.stream().allMatch(shard -> shard.getBuckets() == null)) {
+            for (int bucket = 0; bucket < map.length; bucket++) {
+                map[bucket] = bucket % shards.size();
+            }
+            return map;
+        }
+        Arrays.fill(map, -1);
+        for (int shard = 0; shard < shards.size(); shard++) {
+            String buckets = shards.get(shard).getBuckets();
+            if (buckets == null) {
+                throw new IllegalStateException("Не заданы бакеты шарда " + shards.get(shard).getName());
+            }
+            for (String range : buckets.split(",")) {
+                String[] bounds = range.trim().split("-", 2);
+                int from = Integer.parseInt(bounds[0].trim());
+                int to = bounds.length == 2 ? Integer.parseInt(bounds[1].trim()) : from;
+                if (from < 0 || to >= ShardKeys.BUCKETS || from > to) {
+                    throw new IllegalStateException("Некорректный диапазон бакетов " + range + ": допустимо 0-"
+                            + (ShardKeys.BUCKETS - 1));
+                }
+                for (int bucket = from; bucket <= to; bucket++) {
+                    if (map[bucket] != -1) {
+                        throw new IllegalStateException("Бакет " + bucket + " назначен шардам "
+                                + shards.get(map[bucket]).getName() + " и " + shards.get(shard).getName());
+                    }
+                    map[bucket] = shard;
+                }
+            }
+        }
+        for (int bucket = 0; bucket < map.length; bucket++) {
+            if (map[bucket] == -1) {
+                throw new IllegalStateException("Бакет " + bucket + " не назначен ни одному шарду");
+            }
+        }
+        return map;
+    }
+}
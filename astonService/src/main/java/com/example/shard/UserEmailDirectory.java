@@ -0,0 +1,185 @@
+package com.example.shard;
+
+import com.example.config.ShardingProperties;
+import com.example.entity.UserEmailEntity;
+import com.example.entity.UserEntity;
+import com.example.repository.UserEmailRepository;
+import com.example.repository.UserRepository;
+import com.example.util.UserChecks;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Уникальность email между шардами. Без шардирования её обеспечивает уникальный индекс users.email,
+ * и справочник только проверяет таблицу users.
+ * <p>
+ * При шардировании адрес записан в user_emails на шарде email. Новый пользователь создаётся на том же шарде,
+ * и запись справочника добавляется его транзакцией. После смены email пользователь остаётся на своём шарде,
+ * а новый адрес заявляется на другом отдельной транзакцией до сохранения; старый освобождается после коммита.
+ * Заявка, владелец которой так и не сохранил этот email (откат без освобождения, падение процесса),
+ * через app.sharding.email-claim-timeout считается устаревшей и может быть передана другому.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserEmailDirectory {
+
+    private final Shards shards;
+    private final UserRepository userRepository;
+    private final UserEmailRepository userEmailRepository;
+    private final ShardingProperties properties;
+
+    public boolean isTaken(String email) {
+        if (!shards.sharded()) {
+            return userRepository.existsByEmail(email);
+        }
+        return owner(email) != null;
+    }
+
+    public boolean isTakenByOther(String email, Long userId) {
+        if (!shards.sharded()) {
+            return userRepository.existsByEmailAndIdNot(email, userId);
+        }
+        Long owner = owner(email);
+        return owner != null && !owner.equals(userId);
+    }
+
+    /**
+     * Какие из адресов заняты: по одному запросу на шард, которому принадлежат адреса.
+     */
+    public List<String> findTaken(Collection<String> emails) {
+        if (!shards.sharded()) {
+            return userRepository.findExistingEmails(emails);
+        }
+        Map<Integer, List<String>> byShard = new HashMap<>();
+        for (String email : emails) {
+            byShard.computeIfAbsent(shards.forEmail(email), shard -> new ArrayList<>()).add(email);
+        }
+        List<String> taken = new ArrayList<>();
+        byShard.forEach((shard, group) -> {
+            for (UserEmailEntity entry : shards.inTransaction(shard, () -> userEmailRepository.findAllByEmailIn(group))) {
+                if (live(entry)) {
+                    taken.add(entry.getEmail());
+                }
+            }
+        });
+        return taken;
+    }
+
+    /**
+     * Записывает email только что вставленного пользователя. Вызывается в его транзакции на шарде email.
+     */
+    public void register(UserEntity user) {
+        if (shards.sharded() && !claim(user.getEmail(), user.getId())) {
+            throw UserChecks.duplicateEmailOnCreate(user.getEmail());
+        }
+    }
+
+    /**
+     * {@link #register} для порции пользователей одного шарда. Занятый адрес откатывает всю порцию
+     * через DuplicateKeyException, как и нарушение уникального индекса.
+     */
+    public void registerAll(List<UserEntity> users) {
+        if (!shards.sharded() || users.isEmpty()) {
+            return;
+        }
+        String[] emails = users.stream().map(UserEntity::getEmail).toArray(String[]::new);
+        Long[] ids = users.stream().map(UserEntity::getId).toArray(Long[]::new);
+        if (userEmailRepository.claimAll(emails, ids) == users.size()) {
+            return;
+        }
+        for (UserEntity user : users) {
+            if (!claim(user.getEmail(), user.getId())) {
+                throw new DuplicateKeyException("Email " + user.getEmail() + " уже занят");
+            }
+        }
+    }
+
+    /**
+     * Смена email пользователя userId с from на to: заявка на to сразу, освобождение по итогам транзакции.
+     */
+    public void move(Long userId, String from, String to) {
+        if (!shards.sharded()) {
+            return;
+        }
+        if (!shards.inTransaction(shards.forEmail(to), () -> claim(to, userId))) {
+            throw UserChecks.duplicateEmailOnUpdate(to);
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                release(status == STATUS_COMMITTED ? from : to, userId);
+            }
+        });
+    }
+
+    /**
+     * Освобождает email удаляемого пользователя после коммита удаления.
+     */
+    public void release(UserEntity user) {
+        if (!shards.sharded()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                release(user.getEmail(), user.getId());
+            }
+        });
+    }
+
+    private boolean claim(String email, Long userId) {
+        if (userEmailRepository.claim(email, userId) == 1) {
+            return true;
+        }
+        UserEmailEntity entry = userEmailRepository.findById(email).orElse(null);
+        if (entry == null) {
+            // Запись удалили между вставкой и чтением
+            return userEmailRepository.claim(email, userId) == 1;
+        }
+        if (entry.getUserId().equals(userId)) {
+            return true;
+        }
+        return !live(entry) && userEmailRepository.takeOver(email, userId, entry.getUserId()) == 1;
+    }
+
+    private void release(String email, Long userId) {
+        try {
+            shards.inNewTransaction(shards.forEmail(email), () -> userEmailRepository.release(email, userId));
+        } catch (RuntimeException e) {
+            // Оставшаяся запись устареет сама, см. email-claim-timeout
+            log.warn("Не удалось освободить email пользователя {}: {}", userId, e.getMessage());
+        }
+    }
+
+    private Long owner(String email) {
+        UserEmailEntity entry = shards.inTransaction(shards.forEmail(email),
+                () -> userEmailRepository.findById(email).orElse(null));
+        return entry != null && live(entry) ? entry.getUserId() : null;
+    }
+
+    /**
+     * Заявка действует, пока свежая или пока владелец действительно носит этот email.
+     */
+    private boolean live(UserEmailEntity entry) {
+        if (entry.getClaimedAt().isAfter(LocalDateTime.now().minus(properties.getEmailClaimTimeout()))) {
+            return true;
+        }
+        long owner = entry.getUserId();
+        String ownerEmail = shards.inTransaction(shards.forId(owner),
+                () -> userRepository.findEmailById(owner).orElse(null));
+        return Objects.equals(ownerEmail, entry.getEmail());
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+/**
+ * Объединение одновременных одинаковых загрузок: пока загрузка ключа выполняется, остальные
+ * вызовы с тем же ключом ждут её результата вместо собственного запроса. Результат не хранится —
+ * следующий вызов после завершения загрузки выполнит её заново, кэшированием занимается вызывающий.
+ * <p>
+ * Загрузку выполняет поток первого вызова. Её исключение получают все ожидающие. Если поток,
+ * выполнявший загрузку, прерван, ожидающие не получают чужую отмену, а повторяют попытку;
+ * прерванный ожидающий перестаёт ждать, загрузка продолжается для остальных.
+ */
+public class SingleFlight<K, V> {
+
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter leaders;
+    private final Counter followers;
+    private final Counter failures;
+
+    public SingleFlight(String name, MeterRegistry meterRegistry) {
+        this.leaders = Counter.builder("singleflight.calls")
+                .tag("name", name)
+                .tag("role", "leader")
+                .description("Вызовы, выполнившие загрузку сами")
+                .register(meterRegistry);
+        this.followers = Counter.builder("singleflight.calls")
+                .tag("name", name)
+                .tag("role", "coalesced")
+                .description("Вызовы, дождавшиеся чужой загрузки того же ключа")
+                .register(meterRegistry);
+        this.failures = Counter.builder("singleflight.failures")
+                .tag("name", name)
+                .description("Загрузки, завершившиеся ошибкой")
+                .register(meterRegistry);
+    }
+
+    public V execute(K key, Function<K, V> loader) {
+        while (true) {
+            CompletableFuture<V> flight = new CompletableFuture<>();
+            CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+            if (existing == null) {
+                return lead(key, flight, loader);
+            }
+            followers.increment();
+            try {
+                return existing.get();
+            } catch (CancellationException e) {
+                // Загрузку прервали вместе с её потоком — пробуем снова, возможно уже ведущими
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Ожидание загрузки прервано");
+            } catch (ExecutionException e) {
+                throw rethrow(e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Забывает текущую загрузку ключа: вызовы после этого начнут новую. Нужен после изменения данных,
+     * чтобы к загрузке, начатой до изменения, не присоединялись новые вызовы.
+     */
+    public void forget(K key) {
+        inFlight.remove(key);
+    }
+
+    private V lead(K key, CompletableFuture<V> flight, Function<K, V> loader) {
+        leaders.increment();
+        V value;
+        try {
+            value = loader.apply(key);
+        } catch (RuntimeException | Error e) {
+            failures.increment();
+            // Запись убирается до завершения, чтобы поздние вызовы не получили уже известную ошибку
+            inFlight.remove(key, flight);
+            flight.completeExceptionally(Thread.currentThread().isInterrupted()
+                    ? new CancellationException("Загрузка прервана")
+                    : e);
+            throw e;
+        }
+        inFlight.remove(key, flight);
+        flight.complete(value);
+        return value;
+    }
+
+    private static RuntimeException rethrow(Throwable cause) {
+        if (cause instanceof RuntimeException runtime) {
+            return runtime;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        return new IllegalStateException(cause);
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * Слияние k упорядоченных последовательностей через кучу из их текущих голов: O(n log k),
+ * элементы источников читаются по мере выдачи результата.
+ */
+public final class SortedMerge {
+
+    private SortedMerge() {
+    }
+
+    /**
+     * Первые limit элементов слияния упорядоченных списков. Единственный список, уже не длиннее limit,
+     * возвращается как есть.
+     */
+    public static <T> List<T> merge(List<? extends List<? extends T>> sorted, Comparator<? super T> order, int limit) {
+        if (sorted.size() == 1 && sorted.get(0).size() <= limit) {
+            return Collections.unmodifiableList(sorted.get(0));
+        }
+        List<Iterator<? extends T>> sources = new ArrayList<>(sorted.size());
+        int total = 0;
+        for (List<? extends T> list : sorted) {
+            sources.add(list.iterator());
+            total += list.size();
+        }
+        List<T> merged = new ArrayList<>(Math.min(total, limit));
+        Iterator<T> it = merge(sources, order);
+        while (merged.size() < limit && it.hasNext()) {
+            merged.add(it.next());
+        }
+        return merged;
+    }
+
+    public static <T> Iterator<T> merge(List<? extends Iterator<? extends T>> sources, Comparator<? super T> order) {
+        return new Merging<>(sources, order);
+    }
+
+    private static final class Merging<T> implements Iterator<T> {
+
+        private final PriorityQueue<Head<T>> heads;
+
+        private Merging(List<? extends Iterator<? extends T>> sources, Comparator<? super T> order) {
+            this.heads = new PriorityQueue<>(Math.max(1, sources.size()),
+                    (a, b) -> order.compare(a.value, b.value));
+            for (Iterator<? extends T> source : sources) {
+                advance(source);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public T next() {
+            Head<T> head = heads.poll();
+            if (head == null) {
+                throw new NoSuchElementException();
+            }
+            advance(head.source);
+            return head.value;
+        }
+
+        private void advance(Iterator<? extends T> source) {
+            if (source.hasNext()) {
+                heads.add(new Head<>(source.next(), source));
+            }
+        }
+    }
+
+    private record Head<T>(T value, Iterator<? extends T> source) {
+    }
+}
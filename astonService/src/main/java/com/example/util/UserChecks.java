@@ -1,13 +1,21 @@
 package com.example.util;
 
+import com.example.cache.EmailBloomFilter;
+import com.example.dto.UserCreateRequest;
+import com.example.dto.UserUpdateRequest;
 import com.example.entity.UserEntity;
 import com.example.exception.DuplicateResourceException;
 import com.example.exception.InvalidDataException;
-import com.example.repository.UserRepository;
+import com.example.repository.UserSearchFilter;
+import com.example.shard.UserEmailDirectory;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Component;
 
-import java.util.regex.Pattern;
+import java.sql.SQLException;
+import java.util.List;
 
 /**
  * Общие проверки и предусловия для пользователя.
@@ -16,7 +24,21 @@ import java.util.regex.Pattern;
 @Component
 @RequiredArgsConstructor
 public final class UserChecks {
-    private final UserRepository userRepository;
+    public static final int MAX_PAGE_LIMIT = 1000;
+    public static final int MAX_BATCH_IDS = 100;
+    /**
+     * Предел подсчёта результатов поиска: дальше него точное число не считается.
+     */
+    public static final int SEARCH_COUNT_CAP = 10_000;
+    /**
+     * Короче трёх символов подстрока не даёт ни одной триграммы, и индекс по имени не используется.
+     */
+    public static final int MIN_CONTAINS_LENGTH = 3;
+
+    private static final String UNIQUE_VIOLATION_SQL_STATE = "23505";
+
+    private final UserEmailDirectory userEmails;
+    private final EmailBloomFilter emailBloomFilter;
 
     public void validateUserNotNull(Object user) {
         if (user == null) {
@@ -34,42 +56,135 @@ public final class UserChecks {
         if (email == null) {
             throw new InvalidDataException("Email не может быть null");
         }
-
-        String emailRegex = "^[\\w.-]+@[\\w.-]+\\.[a-zA-Z]{2,}$";
-        Pattern pattern = Pattern.compile(emailRegex);
-
-        if (!pattern.matcher(email).matches()) {
+        if (!UserValidator.isValidEmail(email)) {
             throw new InvalidDataException("Некорректный email: " + email);
         }
     }
 
     public void validateAge(Integer age) {
-        if (age != null && (age < 0 || age > 150)) {
+        if (age != null && !UserValidator.isValidAge(age)) {
             throw new InvalidDataException("Некорректный возраст: " + age);
         }
     }
 
+    public void validateName(String name) {
+        if (name == null || name.length() < UserValidator.NAME_MIN_LENGTH
+                || name.length() > UserValidator.NAME_MAX_LENGTH) {
+            throw new InvalidDataException(UserValidator.Violation.NAME_LENGTH.message());
+        }
+    }
+
+    /**
+     * Полная проверка запроса на создание за один проход; в исключении перечислены все нарушения.
+     */
+    public void validateCreateRequest(UserCreateRequest request) {
+        throwIfInvalid(UserValidator.validate(request));
+    }
+
+    public void validateUpdateRequest(UserUpdateRequest request) {
+        validateUserNotNull(request);
+        throwIfInvalid(UserValidator.validate(request.getName(), request.getEmail(), request.getAge()));
+    }
+
+    /**
+     * Пакетная проверка, см. {@link UserValidator#validateAll}.
+     */
+    public int validateAll(List<UserCreateRequest> requests, int[] violations) {
+        return UserValidator.validateAll(requests, violations);
+    }
+
+    private static void throwIfInvalid(int violations) {
+        if (violations != 0) {
+            throw new InvalidDataException(UserValidator.describe(violations));
+        }
+    }
+
+    public void validatePageLimit(Integer limit) {
+        if (limit == null || limit < 1 || limit > MAX_PAGE_LIMIT) {
+            throw new InvalidDataException("Некорректный размер страницы: " + limit);
+        }
+    }
+
+    public void validateBatchIds(List<Long> ids) {
+        if (ids == null || ids.isEmpty() || ids.size() > MAX_BATCH_IDS) {
+            throw new InvalidDataException("Нужно от 1 до " + MAX_BATCH_IDS + " ID");
+        }
+        for (Long id : ids) {
+            validateId(id);
+        }
+    }
+
+    public void validateSearch(UserSearchFilter filter) {
+        String name = filter.name();
+        if (name != null) {
+            if (name.isBlank() || name.length() > UserValidator.NAME_MAX_LENGTH) {
+                throw new InvalidDataException("Имя для поиска должно быть от 1 до " + UserValidator.NAME_MAX_LENGTH + " символов");
+            }
+            if (filter.nameMatch() == UserSearchFilter.NameMatch.CONTAINS && name.length() < MIN_CONTAINS_LENGTH) {
+                throw new InvalidDataException("Для поиска по части имени нужно не меньше " + MIN_CONTAINS_LENGTH + " символов");
+            }
+        }
+        if (filter.minAge() != null && filter.maxAge() != null && filter.minAge() > filter.maxAge()) {
+            throw new InvalidDataException("Минимальный возраст больше максимального");
+        }
+        if (filter.createdFrom() != null && filter.createdTo() != null
+                && !filter.createdFrom().isBefore(filter.createdTo())) {
+            throw new InvalidDataException("Начало периода создания должно быть раньше конца");
+        }
+    }
+
     /**
-     * Проверка при создании нового пользователя
+     * Проверяет, занят ли email, по базе. Фильтр Блума здесь не используется: адреса, созданные
+     * другими экземплярами после его загрузки, фильтр не видит, и его отказ был бы ложным ответом.
+     */
+    public boolean isEmailTaken(String email) {
+        return userEmails.isTaken(email);
+    }
+
+    /**
+     * Запоминает email, только что записанный в базу.
+     */
+    public void markEmailTaken(String email) {
+        emailBloomFilter.add(email);
+    }
+
+    /**
+     * Проверка при создании нового пользователя.
+     * Быстрый отказ до вставки; окончательное решение принимает уникальный индекс, см. {@link #duplicateEmailOnCreate}.
+     * Поэтому здесь отказ фильтра Блума достаточен: пропущенный им дубликат отклонит индекс.
      */
     public void ensureEmailUniqueForCreate(String email) {
-        userRepository.findByEmail(email)
-                .ifPresent(u -> {
-                    throw new DuplicateResourceException(
-                            "Пользователь с email " + email + " уже существует");
-                });
+        if (emailBloomFilter.mightContain(email) && userEmails.isTaken(email)) {
+            throw duplicateEmailOnCreate(email);
+        }
     }
 
     /**
-     * Проверка при обновлении существующего пользователя
+     * Проверка при обновлении существующего пользователя; как и при создании, пропущенный фильтром
+     * дубликат отклонит уникальный индекс или справочник email.
      */
     public void ensureEmailUniqueForUpdate(UserEntity user) {
-        userRepository.findByEmail(user.getEmail())
-                .ifPresent(existing -> {
-                    if (!existing.getId().equals(user.getId())) {
-                        throw new DuplicateResourceException(
-                                "Email " + user.getEmail() + " уже используется другим пользователем");
-                    }
-                });
+        if (emailBloomFilter.mightContain(user.getEmail())
+                && userEmails.isTakenByOther(user.getEmail(), user.getId())) {
+            throw duplicateEmailOnUpdate(user.getEmail());
+        }
+    }
+
+    public static DuplicateResourceException duplicateEmailOnCreate(String email) {
+        return new DuplicateResourceException("Пользователь с email " + email + " уже существует");
+    }
+
+    public static DuplicateResourceException duplicateEmailOnUpdate(String email) {
+        return new DuplicateResourceException("Email " + email + " уже используется другим пользователем");
+    }
+
+    /**
+     * Нарушение уникального индекса при вставке или обновлении. Единственный уникальный
+     * столбец таблицы users помимо первичного ключа — email; при шардировании занятый адрес
+     * в справочнике сообщается как DuplicateKeyException.
+     */
+    public static boolean isUniqueViolation(DataIntegrityViolationException e) {
+        return e instanceof DuplicateKeyException || NestedExceptionUtils.getMostSpecificCause(e) instanceof SQLException sql
+                && UNIQUE_VIOLATION_SQL_STATE.equals(sql.getSQLState());
     }
 }
@@ -0,0 +1,81 @@
+package com.example.util;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Построчное чтение CSV с пользователями (name,email,age).
+ * Поддерживаются поля в двойных кавычках с экранированием "" внутри; перевод строки внутри поля не поддерживается.
+ * Первая строка пропускается, если это заголовок.
+ */
+public final class UserCsvReader implements Closeable {
+
+    private final BufferedReader reader;
+    private boolean firstLine = true;
+
+    public UserCsvReader(InputStream in) {
+        this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Возвращает поля следующей непустой строки или null, если данные закончились.
+     */
+    public List<String> next() throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            List<String> fields = parseLine(line);
+            if (firstLine) {
+                firstLine = false;
+                if (fields.size() > 1 && "email".equalsIgnoreCase(fields.get(1).trim())) {
+                    continue;
+                }
+            }
+            return fields;
+        }
+        return null;
+    }
+
+    static List<String> parseLine(String line) {
+        List<String> fields = new ArrayList<>(3);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.util;
+
+import com.example.exception.InvalidDataException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Непрозрачный курсор keyset-пагинации по ID пользователя.
+ * Клиент получает его в заголовке X-Next-Cursor и возвращает как есть в параметре after.
+ */
+public final class UserCursor {
+
+    private UserCursor() {
+    }
+
+    public static String encode(Long lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(Long.toString(lastId).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Возвращает ID, после которого начинается страница, или null для первой страницы.
+     */
+    public static Long decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            long id = Long.parseLong(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII));
+            if (id < 0) {
+                throw new InvalidDataException("Некорректный курсор: " + cursor);
+            }
+            return id;
+        } catch (IllegalArgumentException e) {
+            throw new InvalidDataException("Некорректный курсор: " + cursor);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.util;
+
+import com.example.exception.PreconditionFailedException;
+
+/**
+ * Строгие ETag ответов о пользователях, построенные по версии записи (@Version).
+ * Метка пользователя — его версия, метка страницы — свёртка пар (ID, версия) её строк,
+ * поэтому обе вычисляются без чтения остальных колонок.
+ */
+public final class UserETag {
+
+    /**
+     * Свёртка пустой страницы; начальное значение для {@link #mix(long, long, long)}.
+     */
+    public static final long EMPTY_PAGE = 0xcbf29ce484222325L;
+
+    private static final long MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    private UserETag() {
+    }
+
+    public static String of(long version) {
+        return "\"" + version + "\"";
+    }
+
+    public static String ofPage(long fingerprint) {
+        return "\"p" + Long.toHexString(fingerprint) + "\"";
+    }
+
+    /**
+     * Добавляет строку страницы к свёртке. Порядок строк учитывается.
+     */
+    public static long mix(long hash, long id, long version) {
+        hash = (hash ^ id) * MULTIPLIER;
+        hash = (hash ^ version) * MULTIPLIER;
+        return hash ^ (hash >>> 29);
+    }
+
+    /**
+     * Совпадает ли метка со значением If-None-Match. Сравнение слабое: префикс W/ не учитывается.
+     */
+    public static boolean matchesNoneMatch(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Версия, которую требует If-Match; null — условия нет (заголовок отсутствует или равен *).
+     * Поддерживается одна строгая метка пользователя: слабая, чужая или список меток не совпадут
+     * ни с одной версией, поэтому сразу дают 412.
+     */
+    public static Long parseIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.length() > 2 && tag.charAt(0) == '"' && tag.charAt(tag.length() - 1) == '"') {
+            try {
+                return Long.parseLong(tag.substring(1, tag.length() - 1));
+            } catch (NumberFormatException e) {
+                // не метка версии пользователя
+            }
+        }
+        throw new PreconditionFailedException("If-Match не совпадает с текущей версией пользователя: " + ifMatch);
+    }
+}
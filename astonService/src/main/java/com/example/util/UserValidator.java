@@ -0,0 +1,170 @@
+package com.example.util;
+
+import com.example.dto.UserCreateRequest;
+
+import java.util.List;
+
+/**
+ * Проверка полей пользователя за один проход без выделения памяти на успешном пути.
+ * Нарушения возвращаются битовой маской {@link Violation}; текст ошибки собирается
+ * только для отклонённых данных. Правила совпадают с ограничениями таблицы users и openapi.yaml.
+ */
+public final class UserValidator {
+
+    public static final int NAME_MIN_LENGTH = 2;
+    public static final int NAME_MAX_LENGTH = 50;
+    public static final int AGE_MIN = 1;
+    public static final int AGE_MAX = 150;
+
+    /**
+     * Нарушение правил; bit — его разряд в маске.
+     */
+    public enum Violation {
+        REQUEST_NULL("Пользователь не может быть null"),
+        NAME_REQUIRED("Имя обязательно"),
+        NAME_LENGTH("Имя должно быть от " + NAME_MIN_LENGTH + " до " + NAME_MAX_LENGTH + " символов"),
+        EMAIL_REQUIRED("Email не может быть null"),
+        EMAIL_FORMAT("Некорректный email"),
+        AGE_REQUIRED("Возраст обязателен"),
+        AGE_RANGE("Возраст должен быть от " + AGE_MIN + " до " + AGE_MAX);
+
+        private static final Violation[] VALUES = values();
+
+        private final String message;
+        private final int bit;
+
+        Violation(String message) {
+            this.message = message;
+            this.bit = 1 << ordinal();
+        }
+
+        public String message() {
+            return message;
+        }
+
+        public int bit() {
+            return bit;
+        }
+
+        public boolean in(int violations) {
+            return (violations & bit) != 0;
+        }
+    }
+
+    private UserValidator() {
+    }
+
+    /**
+     * Маска нарушений для полей пользователя; 0 — данные корректны.
+     */
+    public static int validate(String name, String email, Integer age) {
+        int violations = 0;
+        if (name == null) {
+            violations |= Violation.NAME_REQUIRED.bit;
+        } else if (name.length() < NAME_MIN_LENGTH || name.length() > NAME_MAX_LENGTH) {
+            violations |= Violation.NAME_LENGTH.bit;
+        }
+        if (email == null) {
+            violations |= Violation.EMAIL_REQUIRED.bit;
+        } else if (!isValidEmail(email)) {
+            violations |= Violation.EMAIL_FORMAT.bit;
+        }
+        if (age == null) {
+            violations |= Violation.AGE_REQUIRED.bit;
+        } else if (!isValidAge(age)) {
+            violations |= Violation.AGE_RANGE.bit;
+        }
+        return violations;
+    }
+
+    public static int validate(UserCreateRequest request) {
+        if (request == null) {
+            return Violation.REQUEST_NULL.bit;
+        }
+        return validate(request.getName(), request.getEmail(), request.getAge());
+    }
+
+    /**
+     * Проверяет пачку запросов: violations[i] получает маску для requests.get(i).
+     * Единственная выделяемая память — массив, который передаёт вызывающий.
+     *
+     * @return число запросов с нарушениями
+     */
+    public static int validateAll(List<UserCreateRequest> requests, int[] violations) {
+        if (violations.length < requests.size()) {
+            throw new IllegalArgumentException("Массив результатов меньше числа запросов");
+        }
+        int invalid = 0;
+        for (int i = 0; i < requests.size(); i++) {
+            violations[i] = validate(requests.get(i));
+            if (violations[i] != 0) {
+                invalid++;
+            }
+        }
+        return invalid;
+    }
+
+    /**
+     * Текст всех нарушений маски через "; ".
+     */
+    public static String describe(int violations) {
+        StringBuilder sb = new StringBuilder();
+        for (Violation violation : Violation.VALUES) {
+            if (violation.in(violations)) {
+                if (!sb.isEmpty()) {
+                    sb.append("; ");
+                }
+                sb.append(violation.message);
+            }
+        }
+        return sb.toString();
+    }
+
+    public static boolean isValidAge(int age) {
+        return age >= AGE_MIN && age <= AGE_MAX;
+    }
+
+    /**
+     * Однопроходная проверка того же формата, что и {@code ^[\w.-]+@[\w.-]+\.[a-zA-Z]{2,}$}:
+     * непустая локальная часть и домен из [A-Za-z0-9_.-], ровно один '@', после последней точки
+     * домена не меньше двух латинских букв, перед ней хотя бы один символ.
+     */
+    public static boolean isValidEmail(CharSequence email) {
+        int length = email.length();
+        int at = -1;
+        int lastDot = -1;
+        for (int i = 0; i < length; i++) {
+            char c = email.charAt(i);
+            if (c == '@') {
+                if (at >= 0) {
+                    return false;
+                }
+                at = i;
+            } else if (c == '.') {
+                if (at >= 0) {
+                    lastDot = i;
+                }
+            } else if (!isWordChar(c) && c != '-') {
+                return false;
+            }
+        }
+        // at > 0: локальная часть не пуста; lastDot > at + 1: перед точкой есть символ домена
+        if (at <= 0 || lastDot <= at + 1 || length - lastDot - 1 < 2) {
+            return false;
+        }
+        for (int i = lastDot + 1; i < length; i++) {
+            if (!isLatinLetter(email.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isLatinLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isWordChar(char c) {
+        return isLatinLetter(c) || (c >= '0' && c <= '9') || c == '_';
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.web;
+
+import com.example.datasource.ConsistencyToken;
+import com.example.datasource.Lsn;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Читает токен согласованности из заголовка запроса и отдаёт выданные за запрос токены в заголовок ответа.
+ * Нижние слои работают только с LSN через {@link ConsistencyToken}.
+ */
+@Component
+public class ConsistencyTokenFilter extends OncePerRequestFilter {
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long required = ConsistencyToken.parse(request.getHeader(ConsistencyToken.HEADER));
+        try (ConsistencyToken.Scope ignored = ConsistencyToken.open(required, lsn -> issue(response, lsn))) {
+            chain.doFilter(request, response);
+        }
+    }
+
+    /**
+     * Если изменений за запрос несколько, в ответе остаётся поздний токен.
+     */
+    private static void issue(HttpServletResponse response, long lsn) {
+        if (response.isCommitted()) {
+            return;
+        }
+        String issued = response.getHeader(ConsistencyToken.HEADER);
+        if (issued == null || Lsn.parse(issued) < lsn) {
+            response.setHeader(ConsistencyToken.HEADER, Lsn.format(lsn));
+        }
+    }
+}
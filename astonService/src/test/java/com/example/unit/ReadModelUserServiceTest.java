@@ -0,0 +1,117 @@
+package com.example.unit;
+
+import com.example.cache.EmailBloomFilter;
+import com.example.dto.UserBatchResponse;
+import com.example.dto.UserEvent;
+import com.example.dto.UserResponse;
+import com.example.dto.UserUpdateRequest;
+import com.example.readmodel.UserReadModel;
+import com.example.readmodel.UserReadStore;
+import com.example.service.ReadModelUserService;
+import com.example.service.UserServiceImpl;
+import com.example.shard.UserEmailDirectory;
+import com.example.util.UserChecks;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReadModelUserServiceTest {
+
+    private final UserServiceImpl delegate = Mockito.mock(UserServiceImpl.class);
+    private final UserReadModel readModel = Mockito.mock(UserReadModel.class);
+    private final UserReadStore store = new UserReadStore();
+    private ReadModelUserService service;
+
+    @BeforeEach
+    void setUp() {
+        Mockito.when(readModel.store()).thenReturn(store);
+        Mockito.when(readModel.isServing()).thenReturn(true);
+        service = new ReadModelUserService(delegate, readModel,
+                new UserChecks(Mockito.mock(UserEmailDirectory.class), Mockito.mock(EmailBloomFilter.class)));
+    }
+
+    private static UserEvent event(long id, UserEvent.EventTypeEnum type, long version) {
+        return new UserEvent("user" + id + "@example.com", type)
+                .id(id).name("Пользователь " + id).age(30).version(version);
+    }
+
+    private static UserResponse fromDatabase(long id) {
+        UserResponse user = new UserResponse();
+        user.setId(id);
+        user.setName("из базы");
+        return user;
+    }
+
+    @Test
+    void getUserById_whenServing_shouldReadStoreOnly() {
+        store.apply(event(1, UserEvent.EventTypeEnum.UPDATED, 0));
+
+        assertThat(service.getUserById(1L)).map(UserResponse::getEmail).contains("user1@example.com");
+        assertThat(service.getUserById(2L)).isEmpty();
+        Mockito.verifyNoInteractions(delegate);
+    }
+
+    @Test
+    void getUserById_whenNotServing_shouldReadDatabase() {
+        Mockito.when(readModel.isServing()).thenReturn(false);
+        Mockito.when(delegate.getUserById(1L)).thenReturn(Optional.of(fromDatabase(1)));
+
+        assertThat(service.getUserById(1L)).map(UserResponse::getName).contains("из базы");
+    }
+
+    @Test
+    void getUserById_afterOwnUpdate_shouldReadDatabaseUntilEventReachesModel() {
+        store.apply(event(1, UserEvent.EventTypeEnum.CREATED, 0));
+        Mockito.when(delegate.updateUser(Mockito.any(UserUpdateRequest.class)))
+                .thenReturn(event(1, UserEvent.EventTypeEnum.UPDATED, 1));
+        Mockito.when(delegate.getUserById(1L)).thenReturn(Optional.of(fromDatabase(1)));
+
+        service.updateUser(new UserUpdateRequest());
+        assertThat(service.getUserById(1L)).map(UserResponse::getName).contains("из базы");
+
+        store.apply(event(1, UserEvent.EventTypeEnum.UPDATED, 1).name("из модели"));
+        assertThat(service.getUserById(1L)).map(UserResponse::getName).contains("из модели");
+        Mockito.verify(delegate, Mockito.times(1)).getUserById(1L);
+    }
+
+    @Test
+    void getUserVersion_afterOwnDelete_shouldReadDatabaseUntilModelDropsUser() {
+        store.apply(event(1, UserEvent.EventTypeEnum.CREATED, 2));
+        Mockito.when(delegate.deleteUser(1L)).thenReturn(event(1, UserEvent.EventTypeEnum.DELETED, 2));
+        Mockito.when(delegate.getUserVersion(1L)).thenReturn(Optional.empty());
+
+        service.deleteUser(1L);
+        assertThat(service.getUserVersion(1L)).isEmpty();
+        Mockito.verify(delegate).getUserVersion(1L);
+
+        store.apply(event(1, UserEvent.EventTypeEnum.DELETED, 2));
+        assertThat(service.getUserVersion(1L)).isEmpty();
+        Mockito.verify(delegate, Mockito.times(1)).getUserVersion(1L);
+    }
+
+    @Test
+    void getUsersByIds_whenServing_shouldReportMissingFromStore() {
+        store.apply(event(1, UserEvent.EventTypeEnum.CREATED, 0));
+        store.apply(event(3, UserEvent.EventTypeEnum.CREATED, 0));
+
+        UserBatchResponse response = service.getUsersByIds(List.of(3L, 2L, 1L, 3L));
+
+        assertThat(response.getUsers()).extracting(UserResponse::getId).containsExactly(3L, 1L);
+        assertThat(response.getMissing()).containsExactly(2L);
+        Mockito.verifyNoInteractions(delegate);
+    }
+
+    @Test
+    void getUsersPage_whenNotServing_shouldReadDatabase() {
+        Mockito.when(readModel.isServing()).thenReturn(false);
+        Mockito.when(delegate.getUsersPage(null, 10)).thenReturn(List.of(fromDatabase(5)));
+        store.apply(event(1, UserEvent.EventTypeEnum.CREATED, 0));
+
+        assertThat(service.getUsersPage(null, 10)).extracting(UserResponse::getId).containsExactly(5L);
+    }
+}
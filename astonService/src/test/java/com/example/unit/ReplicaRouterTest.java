@@ -0,0 +1,174 @@
+package com.example.unit;
+
+import com.example.config.ReplicaRoutingProperties;
+import com.example.datasource.ConsistencyToken;
+import com.example.datasource.Lsn;
+import com.example.datasource.ReplicaRouter;
+import com.example.web.ConsistencyTokenFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReplicaRouterTest {
+
+    private static final String PRIMARY_LSN = "0/3000000";
+
+    private ReplicaRoutingProperties properties;
+    private Connection primaryConnection;
+    private DataSource primary;
+    private ConsistencyToken.Scope token;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        properties = new ReplicaRoutingProperties();
+        properties.setMaxLagBytes(1024);
+        primaryConnection = connection(false, PRIMARY_LSN);
+        primary = dataSource(primaryConnection);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (token != null) {
+            token.close();
+        }
+    }
+
+    @Test
+    void readOnlyDataSource_shouldUseReplicaOnlyWhileItIsInRecoveryAndWithinLag() throws SQLException {
+        Connection replicaConnection = connection(true, "0/2FFFF00");
+        DataSource replica = dataSource(replicaConnection);
+        ReplicaRouter router = router(Map.of("r1", replica));
+
+        assertThat(router.readOnlyDataSource().getConnection()).isSameAs(primaryConnection);
+
+        router.checkHealth();
+        assertThat(router.readOnlyDataSource().getConnection()).isSameAs(replicaConnection);
+
+        stubState(replicaConnection, true, "0/1000000");
+        router.checkHealth();
+        assertThat(router.readOnlyDataSource().getConnection()).isSameAs(primaryConnection);
+
+        stubState(replicaConnection, false, null);
+        router.checkHealth();
+        assertThat(router.readOnlyDataSource().getConnection()).isSameAs(primaryConnection);
+    }
+
+    @Test
+    void readOnlyDataSource_shouldPinTokenHolderToPrimaryUntilReplicaReplaysToken() throws SQLException {
+        Connection replicaConnection = connection(true, PRIMARY_LSN);
+        ReplicaRouter router = router(Map.of("r1", dataSource(replicaConnection)));
+        router.checkHealth();
+        withToken("0/3000010");
+
+        assertThat(router.readOnlyDataSource().getConnection()).isSameAs(primaryConnection);
+
+        stubState(replicaConnection, true, "0/3000010");
+        router.checkHealth();
+        assertThat(router.readOnlyDataSource().getConnection()).isSameAs(replicaConnection);
+    }
+
+    @Test
+    void readOnlyDataSource_shouldWaitForReplicaInWaitModeAndFallBackAfterTimeout() throws SQLException {
+        properties.setReadYourWrites(ReplicaRoutingProperties.ReadYourWrites.WAIT);
+        properties.setLsnWaitTimeout(Duration.ofMillis(50));
+        Connection replicaConnection = connection(true, PRIMARY_LSN);
+        ReplicaRouter router = router(Map.of("r1", dataSource(replicaConnection)));
+        router.checkHealth();
+        ResultSet replay = replicaConnection.createStatement().executeQuery("replay");
+        Mockito.when(replay.getString(1)).thenReturn(PRIMARY_LSN, "0/3000010");
+        withToken("0/3000010");
+
+        assertThat(router.readOnlyDataSource().getConnection()).isSameAs(replicaConnection);
+
+        Mockito.clearInvocations(replicaConnection);
+        withToken("0/4000000");
+        assertThat(router.readOnlyDataSource().getConnection()).isSameAs(primaryConnection);
+        Mockito.verify(replicaConnection).close();
+    }
+
+    @Test
+    void readOnlyDataSource_shouldExcludeReplicaWhenConnectionFails() throws SQLException {
+        DataSource replica = dataSource(connection(true, PRIMARY_LSN));
+        ReplicaRouter router = router(Map.of("r1", replica));
+        router.checkHealth();
+        Mockito.when(replica.getConnection()).thenThrow(new SQLException("connection refused"));
+
+        assertThat(router.readOnlyDataSource().getConnection()).isSameAs(primaryConnection);
+        assertThat(router.readOnlyDataSource().getConnection()).isSameAs(primaryConnection);
+        Mockito.verify(replica, Mockito.times(2)).getConnection();
+    }
+
+    @Test
+    void consistencyTokenFilter_shouldKeepLatestLsnAndIgnoreMalformedHeader() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(ConsistencyToken.HEADER, "not-an-lsn");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        long[] required = {-1};
+
+        new ConsistencyTokenFilter().doFilter(request, response, (req, resp) -> {
+            required[0] = ConsistencyToken.required();
+            ConsistencyToken.issue(Lsn.parse("1/A0"));
+            ConsistencyToken.issue(Lsn.parse("1/9F"));
+        });
+
+        assertThat(response.getHeader(ConsistencyToken.HEADER)).isEqualTo("1/A0");
+        assertThat(required[0]).isEqualTo(ConsistencyToken.NONE);
+        assertThat(ConsistencyToken.inRequest()).isFalse();
+        assertThat(Lsn.parse("16/B374D848")).isEqualTo(0x16B374D848L);
+        assertThat(Lsn.format(0x16B374D848L)).isEqualTo("16/B374D848");
+        assertThatThrownBy(() -> Lsn.parse("16/")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private ReplicaRouter router(Map<String, DataSource> replicas) {
+        return new ReplicaRouter(primary, replicas, properties, new SimpleMeterRegistry());
+    }
+
+    private void withToken(String lsn) {
+        tearDown();
+        token = ConsistencyToken.open(Lsn.parse(lsn), issued -> {
+        });
+    }
+
+    private static DataSource dataSource(Connection connection) throws SQLException {
+        DataSource dataSource = Mockito.mock(DataSource.class);
+        Mockito.when(dataSource.getConnection()).thenReturn(connection);
+        return dataSource;
+    }
+
+    /**
+     * Соединение отвечает на любой запрос одной строкой: (pg_is_in_recovery, LSN) для проверки реплики
+     * и LSN в первой колонке для запросов позиции WAL.
+     */
+    private static Connection connection(boolean inRecovery, String lsn) throws SQLException {
+        Connection connection = Mockito.mock(Connection.class);
+        Statement statement = Mockito.mock(Statement.class);
+        ResultSet rs = Mockito.mock(ResultSet.class);
+        Mockito.when(connection.createStatement()).thenReturn(statement);
+        Mockito.when(statement.executeQuery(Mockito.anyString())).thenReturn(rs);
+        Mockito.when(rs.next()).thenReturn(true);
+        stubState(connection, inRecovery, lsn);
+        Mockito.when(rs.getString(1)).thenReturn(lsn);
+        return connection;
+    }
+
+    private static void stubState(Connection connection, boolean inRecovery, String replayLsn) throws SQLException {
+        ResultSet rs = connection.createStatement().executeQuery("state");
+        Mockito.when(rs.getBoolean(1)).thenReturn(inRecovery);
+        Mockito.when(rs.getString(2)).thenReturn(replayLsn);
+    }
+}
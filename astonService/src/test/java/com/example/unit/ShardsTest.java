@@ -0,0 +1,139 @@
+package com.example.unit;
+
+import com.example.config.ShardingProperties;
+import com.example.shard.ShardKeys;
+import com.example.shard.Shards;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ShardsTest {
+
+    private Shards shards;
+
+    @AfterEach
+    void tearDown() {
+        if (shards != null) {
+            shards.destroy();
+        }
+    }
+
+    @Test
+    void forId_shouldFindShardOfEmailUsedAtCreation() {
+        shards = shards(null, null, null);
+        for (int i = 0; i < 1000; i++) {
+            String email = "user" + i + "@example.com";
+            long id = ShardKeys.id(i + 1, ShardKeys.bucket(email));
+
+            assertThat(shards.forId(id)).isEqualTo(shards.forEmail(email));
+        }
+    }
+
+    @Test
+    void forEmail_withoutBuckets_shouldSpreadEvenly() {
+        shards = shards(null, null, null);
+        int[] users = new int[shards.count()];
+        for (int i = 0; i < 30_000; i++) {
+            users[shards.forEmail("user" + i + "@example.com")]++;
+        }
+
+        for (int count : users) {
+            assertThat(count).isBetween(9_000, 11_000);
+        }
+    }
+
+    @Test
+    void forId_withBucketRanges_shouldUseConfiguredShard() {
+        shards = shards("0-511", "512-1022", "1023");
+
+        assertThat(shards.forId(ShardKeys.id(7, 0))).isZero();
+        assertThat(shards.forId(ShardKeys.id(7, 511))).isZero();
+        assertThat(shards.forId(ShardKeys.id(7, 512))).isEqualTo(1);
+        assertThat(shards.forId(ShardKeys.id(7, 1023))).isEqualTo(2);
+    }
+
+    @Test
+    void constructor_overlappingOrMissingBuckets_shouldFail() {
+        assertThatThrownBy(() -> shards("0-600", "500-1023", "1000"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("Бакет 500");
+        assertThatThrownBy(() -> shards("0-511", "513-1023", null))
+                .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> shards("0-511", "513-1023", "1024"))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void query_shouldRunOnEveryShardAndKeepShardOrder() {
+        shards = shards(null, null, null);
+
+        List<Integer> seen = shards.query(shard -> shards.current());
+
+        assertThat(seen).containsExactly(0, 1, 2);
+        assertThat(shards.current()).isNull();
+    }
+
+    @Test
+    void on_shouldRestorePreviousShard() {
+        shards = shards(null, null, null);
+
+        Integer inner = shards.on(1, () -> shards.on(2, () -> shards.current()));
+        Integer outer = shards.on(1, () -> {
+            shards.on(2, () -> null);
+            return shards.current();
+        });
+
+        assertThat(inner).isEqualTo(2);
+        assertThat(outer).isEqualTo(1);
+        assertThat(shards.current()).isNull();
+    }
+
+    @Test
+    void scan_shouldReadPagesUntilShortPage() {
+        shards = shards(null, null, null);
+        List<Long> afters = new ArrayList<>();
+
+        Iterator<Long> rows = shards.scan(0, 2, after -> {
+            afters.add(after);
+            return LongStream.rangeClosed(after + 1, Math.min(after + 2, 5)).boxed().toList();
+        }, Long::longValue);
+        List<Long> all = new ArrayList<>();
+        rows.forEachRemaining(all::add);
+
+        assertThat(all).containsExactly(1L, 2L, 3L, 4L, 5L);
+        assertThat(afters).containsExactly(0L, 2L, 4L);
+    }
+
+    @Test
+    void notSharded_shouldRunInPlaceOnSingleShard() {
+        shards = new Shards(new ShardingProperties(), Mockito.mock(PlatformTransactionManager.class));
+
+        assertThat(shards.count()).isEqualTo(1);
+        assertThat(shards.forEmail("user@example.com")).isZero();
+        assertThat(shards.on(0, () -> shards.current())).isNull();
+        assertThat(shards.query(shard -> Thread.currentThread())).containsExactly(Thread.currentThread());
+    }
+
+    private static Shards shards(String... buckets) {
+        ShardingProperties properties = new ShardingProperties();
+        properties.setEnabled(true);
+        properties.setScatterThreads(2);
+        for (int i = 0; i < buckets.length; i++) {
+            ShardingProperties.Shard shard = new ShardingProperties.Shard();
+            shard.setName("shard-" + i);
+            shard.setUrl("jdbc:postgresql://shard-" + i + "/aston");
+            shard.setBuckets(buckets[i]);
+            properties.getShards().add(shard);
+        }
+        return new Shards(properties, Mockito.mock(PlatformTransactionManager.class));
+    }
+}
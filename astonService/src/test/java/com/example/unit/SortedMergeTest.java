@@ -0,0 +1,75 @@
+package com.example.unit;
+
+import com.example.util.SortedMerge;
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SortedMergeTest {
+
+    @Test
+    void merge_shouldInterleaveSortedLists() {
+        List<Integer> merged = SortedMerge.merge(List.of(List.of(1, 4, 7), List.of(2, 5), List.of(), List.of(3, 6, 8)),
+                Comparator.naturalOrder(), Integer.MAX_VALUE);
+
+        assertThat(merged).containsExactly(1, 2, 3, 4, 5, 6, 7, 8);
+    }
+
+    @Test
+    void merge_shouldStopAtLimit() {
+        List<Integer> merged = SortedMerge.merge(List.of(List.of(1, 3, 5), List.of(2, 4, 6)),
+                Comparator.naturalOrder(), 4);
+
+        assertThat(merged).containsExactly(1, 2, 3, 4);
+    }
+
+    @Test
+    void merge_singleListWithinLimit_shouldReturnItAsIs() {
+        List<Integer> merged = SortedMerge.merge(List.of(List.of(3, 1, 2)), Comparator.naturalOrder(), 3);
+
+        assertThat(merged).containsExactly(3, 1, 2);
+    }
+
+    @Test
+    void merge_iterators_shouldReadSourcesLazily() {
+        AtomicInteger reads = new AtomicInteger();
+        Iterator<Integer> merged = SortedMerge.merge(List.of(counting(List.of(1, 3, 5), reads),
+                counting(List.of(2, 4, 6), reads)), Comparator.naturalOrder());
+
+        assertThat(merged.next()).isEqualTo(1);
+        assertThat(merged.next()).isEqualTo(2);
+        assertThat(reads).hasValue(4);
+    }
+
+    @Test
+    void merge_exhausted_shouldThrow() {
+        Iterator<Integer> merged = SortedMerge.merge(List.of(List.of(1).iterator()), Comparator.naturalOrder());
+        merged.next();
+
+        assertThat(merged.hasNext()).isFalse();
+        assertThatThrownBy(merged::next).isInstanceOf(NoSuchElementException.class);
+    }
+
+    private static Iterator<Integer> counting(List<Integer> values, AtomicInteger reads) {
+        Iterator<Integer> it = values.iterator();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public Integer next() {
+                reads.incrementAndGet();
+                return it.next();
+            }
+        };
+    }
+}
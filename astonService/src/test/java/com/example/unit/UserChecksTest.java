@@ -0,0 +1,58 @@
+package com.example.unit;
+
+import com.example.cache.EmailBloomFilter;
+import com.example.config.EmailFilterProperties;
+import com.example.config.ShardingProperties;
+import com.example.exception.DuplicateResourceException;
+import com.example.repository.UserRepository;
+import com.example.shard.Shards;
+import com.example.shard.UserEmailDirectory;
+import com.example.util.UserChecks;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UserChecksTest {
+
+    private final UserEmailDirectory userEmails = Mockito.mock(UserEmailDirectory.class);
+    private UserChecks userChecks;
+
+    @BeforeEach
+    void setUp() {
+        UserRepository userRepository = Mockito.mock(UserRepository.class);
+        Mockito.when(userRepository.streamAllEmails()).thenReturn(Stream.of("loaded@example.com"));
+        Shards shards = new Shards(new ShardingProperties(), Mockito.mock(PlatformTransactionManager.class));
+        EmailBloomFilter filter = new EmailBloomFilter(userRepository, shards, new EmailFilterProperties());
+        filter.rebuild();
+        userChecks = new UserChecks(userEmails, filter);
+    }
+
+    @Test
+    void isEmailTaken_whenCreatedByOtherInstanceAfterLoad_shouldAskDatabase() {
+        Mockito.when(userEmails.isTaken("remote@example.com")).thenReturn(true);
+
+        assertThat(userChecks.isEmailTaken("remote@example.com")).isTrue();
+        assertThat(userChecks.isEmailTaken("free@example.com")).isFalse();
+    }
+
+    @Test
+    void ensureEmailUniqueForCreate_whenFilterMisses_shouldSkipDatabase() {
+        userChecks.ensureEmailUniqueForCreate("free@example.com");
+
+        Mockito.verify(userEmails, Mockito.never()).isTaken("free@example.com");
+    }
+
+    @Test
+    void ensureEmailUniqueForCreate_whenFilterHits_shouldCheckDatabase() {
+        Mockito.when(userEmails.isTaken("loaded@example.com")).thenReturn(true);
+
+        assertThatThrownBy(() -> userChecks.ensureEmailUniqueForCreate("loaded@example.com"))
+                .isInstanceOf(DuplicateResourceException.class);
+    }
+}
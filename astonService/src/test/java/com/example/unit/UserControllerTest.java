@@ -140,7 +140,7 @@ public class UserControllerTest {
     @Test
     @DisplayName("Получение всех пользователей")
     void getAllUsers_shouldReturnList() throws Exception {
-        Mockito.when(userService.getAllUsers()).thenReturn(Arrays.asList(user1, user2));
+        Mockito.when(userService.getUsersPage(null, 100)).thenReturn(Arrays.asList(user1, user2));
 
         mockMvc.perform(get("/api/users"))
                 .andExpect(status().isOk())
@@ -0,0 +1,41 @@
+package com.example.unit;
+
+import com.example.exception.PreconditionFailedException;
+import com.example.util.UserETag;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UserETagTest {
+
+    @Test
+    void matchesNoneMatch_shouldAcceptListsWeakTagsAndWildcard() {
+        String etag = UserETag.of(4);
+
+        assertThat(UserETag.matchesNoneMatch("\"3\", W/\"4\"", etag)).isTrue();
+        assertThat(UserETag.matchesNoneMatch("*", etag)).isTrue();
+        assertThat(UserETag.matchesNoneMatch("\"3\"", etag)).isFalse();
+        assertThat(UserETag.matchesNoneMatch(null, etag)).isFalse();
+    }
+
+    @Test
+    void parseIfMatch_shouldReturnVersionOrRejectForeignTags() {
+        assertThat(UserETag.parseIfMatch("\"12\"")).isEqualTo(12L);
+        assertThat(UserETag.parseIfMatch("*")).isNull();
+        assertThat(UserETag.parseIfMatch(null)).isNull();
+        assertThatThrownBy(() -> UserETag.parseIfMatch("W/\"12\""))
+                .isInstanceOf(PreconditionFailedException.class);
+        assertThatThrownBy(() -> UserETag.parseIfMatch(UserETag.ofPage(1)))
+                .isInstanceOf(PreconditionFailedException.class);
+    }
+
+    @Test
+    void pageFingerprint_shouldChangeWithAnyVersionOrRow() {
+        long page = UserETag.mix(UserETag.mix(UserETag.EMPTY_PAGE, 1, 0), 2, 0);
+
+        assertThat(UserETag.mix(UserETag.mix(UserETag.EMPTY_PAGE, 1, 0), 2, 1)).isNotEqualTo(page);
+        assertThat(UserETag.mix(UserETag.EMPTY_PAGE, 1, 0)).isNotEqualTo(page);
+        assertThat(UserETag.mix(UserETag.mix(UserETag.EMPTY_PAGE, 1, 0), 3, 0)).isNotEqualTo(page);
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.unit;
+
+import com.example.config.KafkaProperties;
+import com.example.dto.UserEvent;
+import com.example.kafka.UserEventPublisher;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserEventPublisherTest {
+
+    private KafkaTemplate<String, UserEvent> kafkaTemplate;
+    private SimpleMeterRegistry meterRegistry;
+    private UserEventPublisher publisher;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        kafkaTemplate = Mockito.mock(KafkaTemplate.class);
+        meterRegistry = new SimpleMeterRegistry();
+
+        KafkaProperties properties = new KafkaProperties();
+        properties.setMaxPendingSends(1);
+        properties.setPendingAcquireTimeout(Duration.ofMillis(10));
+        publisher = new UserEventPublisher(kafkaTemplate, properties, meterRegistry);
+    }
+
+    private double count(String result) {
+        return meterRegistry.get("user.events.publish").tag("result", result).counter().count();
+    }
+
+    @Test
+    void failedSend_shouldBeCountedAndReleasePermit() {
+        Mockito.when(kafkaTemplate.send(Mockito.anyString(), Mockito.anyString(), Mockito.any()))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("broker down")));
+
+        UserEvent event = new UserEvent("user1@example.com", UserEvent.EventTypeEnum.CREATED);
+        assertThat(publisher.send(event)).isCompletedExceptionally();
+        assertThat(publisher.send(event)).isCompletedExceptionally();
+
+        assertThat(count("failure")).isEqualTo(2);
+        assertThat(count("rejected")).isZero();
+    }
+
+    @Test
+    void pendingLimitReached_shouldRejectInsteadOfQueueing() {
+        CompletableFuture<SendResult<String, UserEvent>> neverAcked = new CompletableFuture<>();
+        Mockito.when(kafkaTemplate.send(Mockito.anyString(), Mockito.anyString(), Mockito.any()))
+                .thenReturn(neverAcked);
+
+        UserEvent event = new UserEvent("user1@example.com", UserEvent.EventTypeEnum.UPDATED);
+        assertThat(publisher.send(event)).isNotDone();
+        assertThat(publisher.send(event)).isCompletedExceptionally();
+
+        assertThat(count("rejected")).isEqualTo(1);
+        Mockito.verify(kafkaTemplate, Mockito.times(1)).send(Mockito.anyString(), Mockito.anyString(), Mockito.any());
+        assertThat(meterRegistry.get("user.events.publish.pending").gauge().value()).isEqualTo(1);
+    }
+}
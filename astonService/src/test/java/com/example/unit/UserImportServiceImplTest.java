@@ -0,0 +1,130 @@
+package com.example.unit;
+
+import com.example.cache.EmailBloomFilter;
+import com.example.config.EmailFilterProperties;
+import com.example.config.ShardingProperties;
+import com.example.config.UserImportProperties;
+import com.example.datasource.WriteLsnTracker;
+import com.example.dto.BulkImportReport;
+import com.example.dto.BulkImportRowResult;
+import com.example.dto.UserCreateRequest;
+import com.example.entity.UserEntity;
+import com.example.kafka.UserEventOutbox;
+import com.example.logging.UserAuditLog;
+import com.example.mapper.UserMapper;
+import com.example.repository.UserRepository;
+import com.example.repository.UserEmailRepository;
+import com.example.service.UserImportServiceImpl;
+import com.example.shard.Shards;
+import com.example.shard.UserEmailDirectory;
+import com.example.util.UserChecks;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class UserImportServiceImplTest {
+
+    private UserRepository userRepository;
+    private UserImportServiceImpl importService;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = Mockito.mock(UserRepository.class);
+        UserMapper userMapper = Mockito.mock(UserMapper.class);
+        ShardingProperties sharding = new ShardingProperties();
+        Shards shards = new Shards(sharding, Mockito.mock(PlatformTransactionManager.class));
+        UserEmailDirectory userEmails = new UserEmailDirectory(shards, userRepository,
+                Mockito.mock(UserEmailRepository.class), sharding);
+        UserChecks userChecks = new UserChecks(userEmails,
+                new EmailBloomFilter(userRepository, shards, new EmailFilterProperties()));
+        UserImportProperties properties = new UserImportProperties();
+        properties.setChunkSize(2);
+
+        importService = new UserImportServiceImpl(userRepository, userChecks, userMapper,
+                Mockito.mock(UserEventOutbox.class), new ObjectMapper(),
+                new TransactionTemplate(Mockito.mock(PlatformTransactionManager.class)),
+                Mockito.mock(EntityManager.class), properties, new UserAuditLog(),
+                Mockito.mock(WriteLsnTracker.class), shards, userEmails);
+
+        Mockito.when(userMapper.fromCreateRequest(Mockito.any())).thenAnswer(inv -> {
+            UserCreateRequest request = inv.getArgument(0);
+            UserEntity entity = new UserEntity();
+            entity.setName(request.getName());
+            entity.setEmail(request.getEmail());
+            entity.setAge(request.getAge());
+            return entity;
+        });
+        AtomicLong ids = new AtomicLong();
+        Mockito.when(userRepository.saveAllAndFlush(Mockito.anyList())).thenAnswer(inv -> {
+            List<UserEntity> entities = inv.getArgument(0);
+            entities.forEach(e -> e.setId(ids.incrementAndGet()));
+            return entities;
+        });
+    }
+
+    @Test
+    void importCsv_shouldReportEveryRow() throws Exception {
+        String csv = """
+                name,email,age
+                User1,user1@example.com,25
+                User2,bad-email,30
+                User3,taken@example.com,40
+                User4,user4@example.com,50
+                "Last, First",user5@example.com,abc
+                """;
+        Mockito.when(userRepository.findExistingEmails(Mockito.anyCollection()))
+                .thenAnswer(inv -> inv.<Collection<String>>getArgument(0).stream()
+                        .filter("taken@example.com"::equals).toList());
+
+        BulkImportReport report = importService.importCsv(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(report.getTotal()).isEqualTo(5);
+        assertThat(report.getCreated()).isEqualTo(2);
+        assertThat(report.getFailed()).isEqualTo(3);
+        assertThat(report.getResults())
+                .extracting(BulkImportRowResult::getRow, BulkImportRowResult::getStatus)
+                .containsExactly(
+                        tuple(1, BulkImportRowResult.StatusEnum.CREATED),
+                        tuple(2, BulkImportRowResult.StatusEnum.INVALID),
+                        tuple(3, BulkImportRowResult.StatusEnum.DUPLICATE),
+                        tuple(4, BulkImportRowResult.StatusEnum.CREATED),
+                        tuple(5, BulkImportRowResult.StatusEnum.INVALID));
+    }
+
+    @Test
+    void importJson_shouldRejectDuplicateWithinChunk() throws Exception {
+        String json = """
+                [
+                  {"name": "User1", "email": "user1@example.com", "age": 25},
+                  {"name": "User1bis", "email": "user1@example.com", "age": 26},
+                  {"name": "User2", "email": "user2@example.com", "age": "x"}
+                ]
+                """;
+        Mockito.when(userRepository.findExistingEmails(Mockito.anyCollection())).thenReturn(List.of());
+
+        BulkImportReport report = importService.importJson(
+                new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(report.getResults())
+                .extracting(BulkImportRowResult::getStatus)
+                .containsExactly(
+                        BulkImportRowResult.StatusEnum.CREATED,
+                        BulkImportRowResult.StatusEnum.DUPLICATE,
+                        BulkImportRowResult.StatusEnum.INVALID);
+        assertThat(report.getResults().get(0).getId()).isEqualTo(1L);
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.unit;
+
+import com.example.config.ShardingProperties;
+import com.example.config.UserReadModelProperties;
+import com.example.dto.UserEvent;
+import com.example.entity.UserEntity;
+import com.example.kafka.UserEventPublisher;
+import com.example.readmodel.UserReadModel;
+import com.example.repository.UserRepository;
+import com.example.shard.Shards;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserReadModelTest {
+
+    private static final TopicPartition PARTITION = new TopicPartition(UserEventPublisher.TOPIC, 0);
+
+    /**
+     * Содержимое единственной партиции user-events; каждый потребитель видит записи, добавленные и после его создания.
+     */
+    private final List<UserEvent> topic = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean failNextPoll = new AtomicBoolean();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final UserRepository userRepository = Mockito.mock(UserRepository.class);
+    private Shards shards;
+    private UserReadModel model;
+
+    @BeforeEach
+    void setUp() {
+        shards = new Shards(new ShardingProperties(), Mockito.mock(PlatformTransactionManager.class));
+        UserReadModelProperties properties = new UserReadModelProperties();
+        properties.setSnapshotFile("");
+        properties.setPollTimeout(Duration.ofMillis(10));
+        properties.setSeedPageSize(2);
+        properties.setRestartBackoff(Duration.ofMillis(10));
+        model = new UserReadModel(properties, this::consumer, meterRegistry, shards, userRepository);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        model.stop();
+        shards.destroy();
+    }
+
+    private Consumer<String, UserEvent> consumer() {
+        MockConsumer<String, UserEvent> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+        consumer.updatePartitions(UserEventPublisher.TOPIC,
+                List.of(new PartitionInfo(UserEventPublisher.TOPIC, 0, null, null, null)));
+        consumer.updateBeginningOffsets(Map.of(PARTITION, 0L));
+        consumer.updateEndOffsets(Map.of(PARTITION, (long) topic.size()));
+        feed(consumer, new int[1]);
+        return consumer;
+    }
+
+    /**
+     * Перед каждым poll передаёт потребителю новые записи топика или, если выставлен failNextPoll, роняет poll.
+     */
+    private void feed(MockConsumer<String, UserEvent> consumer, int[] delivered) {
+        consumer.schedulePollTask(() -> {
+            feed(consumer, delivered);
+            if (failNextPoll.compareAndSet(true, false)) {
+                throw new KafkaException("брокер недоступен");
+            }
+            if (consumer.assignment().contains(PARTITION)) {
+                for (; delivered[0] < topic.size(); delivered[0]++) {
+                    UserEvent event = topic.get(delivered[0]);
+                    consumer.addRecord(new ConsumerRecord<>(UserEventPublisher.TOPIC, 0, delivered[0],
+                            String.valueOf(event.getId()), event));
+                }
+                consumer.updateEndOffsets(Map.of(PARTITION, (long) topic.size()));
+            }
+        });
+    }
+
+    private static UserEntity user(long id, long version) {
+        UserEntity user = new UserEntity();
+        user.setId(id);
+        user.setName("Пользователь " + id);
+        user.setEmail("user" + id + "@example.com");
+        user.setAge(30);
+        user.setVersion(version);
+        user.setCreatedAt(LocalDateTime.of(2024, 1, 1, 12, 0));
+        return user;
+    }
+
+    private static UserEvent event(long id, UserEvent.EventTypeEnum type, long version) {
+        return new UserEvent("user" + id + "@example.com", type)
+                .id(id).name("Пользователь " + id).age(30).version(version);
+    }
+
+    private void database(UserEntity... users) {
+        List<UserEntity> rows = List.of(users);
+        Mockito.when(userRepository.findByIdGreaterThanOrderByIdAsc(Mockito.anyLong(), Mockito.any(Limit.class)))
+                .thenAnswer(invocation -> {
+                    long after = invocation.getArgument(0);
+                    int limit = invocation.<Limit>getArgument(1).max();
+                    return rows.stream().filter(user -> user.getId() > after).limit(limit).toList();
+                });
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("условие не выполнено за 10 с").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void start_withoutSnapshot_shouldSeedFromDatabaseAndTailTopic() throws InterruptedException {
+        // Пользователь 1 создан до модели: в топике только событие без ID
+        topic.add(new UserEvent("user1@example.com", UserEvent.EventTypeEnum.CREATED));
+        topic.add(event(2, UserEvent.EventTypeEnum.CREATED, 0));
+        database(user(1, 0), user(2, 3), user(3, 1));
+
+        model.start();
+        await(model::isServing);
+
+        assertThat(model.store().size()).isEqualTo(3);
+        assertThat(model.store().get(1).orElseThrow().getEmail()).isEqualTo("user1@example.com");
+        assertThat(model.store().version(2)).contains(3L);
+
+        topic.add(event(2, UserEvent.EventTypeEnum.UPDATED, 4));
+        topic.add(event(1, UserEvent.EventTypeEnum.DELETED, 0));
+        await(() -> model.store().version(2).equals(Optional.of(4L)) && !model.store().contains(1));
+        assertThat(model.store().size()).isEqualTo(2);
+    }
+
+    @Test
+    void run_afterDatabaseAndKafkaFailures_shouldRestartAndServeAgain() throws InterruptedException {
+        Mockito.when(userRepository.findByIdGreaterThanOrderByIdAsc(Mockito.anyLong(), Mockito.any(Limit.class)))
+                .thenThrow(new DataAccessResourceFailureException("база недоступна"))
+                .thenReturn(List.of(user(1, 0)));
+
+        model.start();
+        await(model::isServing);
+        assertThat(model.store().contains(1)).isTrue();
+
+        Mockito.reset(userRepository);
+        database(user(1, 0), user(2, 0));
+        failNextPoll.set(true);
+        await(() -> meterRegistry.get("user.readmodel.restarts").counter().count() == 2);
+        await(model::isServing);
+        assertThat(model.store().contains(2)).isTrue();
+
+        topic.add(event(3, UserEvent.EventTypeEnum.CREATED, 0));
+        await(() -> model.store().contains(3));
+    }
+}
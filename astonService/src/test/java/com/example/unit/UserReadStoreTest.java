@@ -0,0 +1,77 @@
+package com.example.unit;
+
+import com.example.dto.UserEvent;
+import com.example.dto.UserResponse;
+import com.example.readmodel.UserReadStore;
+import com.example.util.UserETag;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserReadStoreTest {
+
+    private final UserReadStore store = new UserReadStore();
+
+    private static UserEvent event(long id, UserEvent.EventTypeEnum type, long version) {
+        return new UserEvent("user" + id + "@example.com", type)
+                .id(id).name("Пользователь " + id).age(20).version(version)
+                .createdAt(LocalDateTime.of(2025, 1, 1, 12, 0));
+    }
+
+    @Test
+    void apply_shouldKeepNewestVersionAndIgnoreReplays() {
+        store.apply(event(1, UserEvent.EventTypeEnum.CREATED, 0));
+        store.apply(event(1, UserEvent.EventTypeEnum.UPDATED, 2).name("Новое имя"));
+
+        assertThat(store.apply(event(1, UserEvent.EventTypeEnum.UPDATED, 1))).isFalse();
+        UserResponse user = store.get(1).orElseThrow();
+        assertThat(user.getName()).isEqualTo("Новое имя");
+        assertThat(user.getEmail()).isEqualTo("user1@example.com");
+        assertThat(user.getAge()).isEqualTo(20);
+        assertThat(user.getVersion()).isEqualTo(2L);
+        assertThat(user.getCreatedAt()).isEqualTo(LocalDateTime.of(2025, 1, 1, 12, 0));
+        assertThat(store.version(1)).contains(2L);
+    }
+
+    @Test
+    void apply_shouldRemoveDeletedUser() {
+        store.apply(event(1, UserEvent.EventTypeEnum.CREATED, 0));
+
+        assertThat(store.apply(event(1, UserEvent.EventTypeEnum.DELETED, 0))).isTrue();
+        assertThat(store.get(1)).isEmpty();
+        assertThat(store.version(1)).isEmpty();
+    }
+
+    @Test
+    void page_shouldFollowIdOrderAndMatchFingerprint() {
+        for (long id = 5; id >= 1; id--) {
+            store.apply(event(id, UserEvent.EventTypeEnum.CREATED, id));
+        }
+
+        assertThat(store.page(2L, 2)).extracting(UserResponse::getId).containsExactly(3L, 4L);
+        assertThat(store.pageFingerprint(2L, 2))
+                .isEqualTo(UserETag.mix(UserETag.mix(UserETag.EMPTY_PAGE, 3, 3), 4, 4));
+    }
+
+    @Test
+    void snapshot_shouldRestoreSameRows() throws Exception {
+        store.apply(event(1, UserEvent.EventTypeEnum.CREATED, 0));
+        store.apply(event(2, UserEvent.EventTypeEnum.CREATED, 3).name(null).age(null));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        store.writeTo(new DataOutputStream(bytes));
+
+        UserReadStore restored = new UserReadStore();
+        restored.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertThat(restored.size()).isEqualTo(2);
+        assertThat(restored.get(1)).isEqualTo(store.get(1));
+        assertThat(restored.get(2).orElseThrow().getName()).isNull();
+        assertThat(restored.get(2).orElseThrow().getAge()).isNull();
+    }
+}
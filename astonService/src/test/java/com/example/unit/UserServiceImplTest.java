@@ -1,22 +1,52 @@
 package com.example.unit;
 
+import com.example.cache.UserCache;
+import com.example.config.ShardingProperties;
+import com.example.config.UserCacheProperties;
+import com.example.datasource.WriteLsnTracker;
+import com.example.dto.UserBatchResponse;
 import com.example.dto.UserCreateRequest;
 import com.example.dto.UserResponse;
+import com.example.dto.UserSearchResponse;
 import com.example.dto.UserUpdateRequest;
 import com.example.entity.UserEntity;
+import com.example.exception.DuplicateResourceException;
 import com.example.exception.NotFoundException;
-import com.example.kafka.UserEventPublisher;
+import com.example.exception.PreconditionFailedException;
+import com.example.kafka.UserEventOutbox;
+import com.example.logging.UserAuditLog;
 import com.example.mapper.UserMapper;
 import com.example.repository.UserRepository;
+import com.example.repository.UserSearchFilter;
 import com.example.service.UserServiceImpl;
+import com.example.shard.Shards;
+import com.example.shard.UserEmailDirectory;
+import com.example.util.SingleFlight;
 import com.example.util.UserChecks;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import java.sql.SQLException;
+
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -26,7 +56,9 @@ class UserServiceImplTest {
     private UserRepository userRepository;
     private UserChecks userChecks;
     private UserMapper userMapper;
-    private UserEventPublisher userEventPublisher;  // Мок для UserEventPublisher
+    private UserEventOutbox userEventOutbox;  // Мок для UserEventOutbox
+    private EntityManager entityManager;
+    private SimpleMeterRegistry meterRegistry;
     private UserServiceImpl userService;
 
     @BeforeEach
@@ -34,14 +66,20 @@ class UserServiceImplTest {
         userRepository = Mockito.mock(UserRepository.class);
         userChecks = Mockito.mock(UserChecks.class);
         userMapper = Mockito.mock(UserMapper.class);
-        userEventPublisher = Mockito.mock(UserEventPublisher.class);  // Мокируем UserEventPublisher
+        userEventOutbox = Mockito.mock(UserEventOutbox.class);  // Мокируем UserEventOutbox
+        entityManager = Mockito.mock(EntityManager.class);
+        meterRegistry = new SimpleMeterRegistry();
 
-        // Передаем все четыре зависимости в конструктор
-        userService = new UserServiceImpl(userRepository, userChecks, userMapper, userEventPublisher);
+        userService = new UserServiceImpl(userRepository, userChecks, userMapper, userEventOutbox, entityManager,
+                new UserCache(new UserCacheProperties()), new UserAuditLog(),
+                new SingleFlight<>("users", meterRegistry), new SingleFlight<>("user-versions", meterRegistry),
+                Mockito.mock(WriteLsnTracker.class),
+                new Shards(new ShardingProperties(), Mockito.mock(PlatformTransactionManager.class)),
+                Mockito.mock(UserEmailDirectory.class));
 
         Mockito.doNothing().when(userChecks).validateUserNotNull(Mockito.any());
-        Mockito.doNothing().when(userChecks).validateEmail(Mockito.anyString());
-        Mockito.doNothing().when(userChecks).validateAge(Mockito.any());
+        Mockito.doNothing().when(userChecks).validateCreateRequest(Mockito.any());
+        Mockito.doNothing().when(userChecks).validateUpdateRequest(Mockito.any());
         Mockito.doNothing().when(userChecks).validateId(Mockito.anyLong());
         Mockito.doNothing().when(userChecks).ensureEmailUniqueForCreate(Mockito.anyString());
         Mockito.doNothing().when(userChecks).ensureEmailUniqueForUpdate(Mockito.any(UserEntity.class));
@@ -63,13 +101,51 @@ class UserServiceImplTest {
 
         userService.createUser(request);
 
-        Mockito.verify(userChecks).validateUserNotNull(request);
-        Mockito.verify(userChecks).validateEmail("user1@example.com");
-        Mockito.verify(userChecks).validateAge(25);
+        Mockito.verify(userChecks).validateCreateRequest(request);
         Mockito.verify(userChecks).ensureEmailUniqueForCreate("user1@example.com");
 
         Mockito.verify(userMapper).fromCreateRequest(request);
-        Mockito.verify(userRepository).save(mapped);
+        Mockito.verify(userRepository).saveAndFlush(mapped);
+    }
+
+    @Test
+    void createUser_uniqueViolationOnInsert_shouldThrowDuplicate() {
+        UserCreateRequest request = new UserCreateRequest();
+        request.setName("User1");
+        request.setEmail("user1@example.com");
+        request.setAge(25);
+
+        UserEntity mapped = new UserEntity();
+        mapped.setEmail("user1@example.com");
+
+        Mockito.when(userMapper.fromCreateRequest(request)).thenReturn(mapped);
+        Mockito.when(userRepository.saveAndFlush(mapped)).thenThrow(new DataIntegrityViolationException("duplicate",
+                new SQLException("duplicate key value violates unique constraint \"users_email_key\"", "23505")));
+
+        assertThatThrownBy(() -> userService.createUser(request))
+                .isInstanceOf(DuplicateResourceException.class)
+                .hasMessageContaining("уже существует");
+        Mockito.verify(userEventOutbox, Mockito.never()).append(Mockito.any());
+    }
+
+    @Test
+    void updateUser_sameEmail_shouldSkipUniquenessCheck() {
+        Long userId = 1L;
+        UserUpdateRequest request = new UserUpdateRequest();
+        request.setId(userId);
+        request.setName("User1");
+        request.setEmail("user1@example.com");
+
+        UserEntity existing = new UserEntity();
+        existing.setId(userId);
+        existing.setEmail("user1@example.com");
+
+        Mockito.when(userRepository.findById(userId)).thenReturn(Optional.of(existing));
+
+        userService.updateUser(request);
+
+        Mockito.verify(userChecks, Mockito.never()).ensureEmailUniqueForUpdate(Mockito.any());
+        Mockito.verify(userRepository).saveAndFlush(existing);
     }
 
     @Test
@@ -93,12 +169,11 @@ class UserServiceImplTest {
 
         Mockito.verify(userChecks).validateId(userId);
         Mockito.verify(userChecks).validateUserNotNull(request);
-        Mockito.verify(userChecks).validateEmail("user2@example.com");
-        Mockito.verify(userChecks).validateAge(30);
+        Mockito.verify(userChecks).validateUpdateRequest(request);
 
         Mockito.verify(userMapper).updateEntityFromDto(request, existing);
         Mockito.verify(userChecks).ensureEmailUniqueForUpdate(existing);
-        Mockito.verify(userRepository).save(existing);
+        Mockito.verify(userRepository).saveAndFlush(existing);
     }
 
     @Test
@@ -152,6 +227,102 @@ class UserServiceImplTest {
         Mockito.verify(userRepository).findById(userId);
     }
 
+    @Test
+    void getUserById_repeatedLookup_shouldHitCache() {
+        Long userId = 1L;
+        UserEntity entity = new UserEntity();
+        entity.setId(userId);
+
+        Mockito.when(userRepository.findById(userId)).thenReturn(Optional.of(entity));
+        Mockito.when(userMapper.toResponse(entity)).thenReturn(new UserResponse());
+
+        userService.getUserById(userId);
+        userService.getUserById(userId);
+
+        Mockito.verify(userRepository, Mockito.times(1)).findById(userId);
+    }
+
+    @Test
+    void getUserById_concurrentMisses_shouldLoadOnceAndCountCoalescedCalls() throws Exception {
+        Long userId = 1L;
+        UserEntity entity = new UserEntity();
+        entity.setId(userId);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Mockito.when(userRepository.findById(userId)).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return Optional.of(entity);
+        });
+        Mockito.when(userMapper.toResponse(entity)).thenReturn(new UserResponse());
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Optional<UserResponse>>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(executor.submit(() -> userService.getUserById(userId)));
+            }
+            Counter coalesced = meterRegistry.get("singleflight.calls")
+                    .tag("name", "users").tag("role", "coalesced").counter();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (coalesced.count() < 3 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            release.countDown();
+
+            for (Future<Optional<UserResponse>> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).isPresent();
+            }
+            assertThat(coalesced.count()).isEqualTo(3);
+        } finally {
+            executor.shutdownNow();
+        }
+        Mockito.verify(userRepository, Mockito.times(1)).findById(userId);
+    }
+
+    @Test
+    void updateUser_shouldEvictCachedUser() {
+        Long userId = 1L;
+        UserEntity entity = new UserEntity();
+        entity.setId(userId);
+        entity.setEmail("user1@example.com");
+
+        Mockito.when(userRepository.findById(userId)).thenReturn(Optional.of(entity));
+        Mockito.when(userMapper.toResponse(entity)).thenReturn(new UserResponse());
+
+        userService.getUserById(userId);
+
+        UserUpdateRequest request = new UserUpdateRequest();
+        request.setId(userId);
+        request.setName("User1");
+        request.setEmail("user1@example.com");
+        userService.updateUser(request);
+
+        userService.getUserById(userId);
+
+        // findById: чтение в кэш, загрузка для обновления, повторное чтение после сброса
+        Mockito.verify(userRepository, Mockito.times(3)).findById(userId);
+    }
+
+    @Test
+    void getUserById_afterDelete_shouldNotCacheStaleRowFromLaggingReplica() {
+        Long userId = 1L;
+        UserEntity entity = new UserEntity();
+        entity.setId(userId);
+        entity.setVersion(3L);
+
+        Mockito.when(userRepository.findById(userId)).thenReturn(Optional.of(entity));
+        Mockito.when(userMapper.toResponse(entity)).thenReturn(new UserResponse());
+
+        userService.deleteUser(userId);
+
+        // Реплика ещё не проиграла удаление и возвращает строку: её видит вызывающий, но не кэш
+        assertThat(userService.getUserById(userId)).isPresent();
+        userService.getUserById(userId);
+
+        // findById: загрузка для удаления и два чтения мимо кэша
+        Mockito.verify(userRepository, Mockito.times(3)).findById(userId);
+    }
+
     @Test
     void getAllUsers_shouldReturnMappedList() {
         UserEntity e1 = new UserEntity();
@@ -170,7 +341,7 @@ class UserServiceImplTest {
         r2.setId(2L);
         r2.setName("User2");
 
-        Mockito.when(userRepository.findAll()).thenReturn(Arrays.asList(e1, e2));
+        Mockito.when(userRepository.findAll(Mockito.any(Sort.class))).thenReturn(Arrays.asList(e1, e2));
         Mockito.when(userMapper.toResponse(e1)).thenReturn(r1);
         Mockito.when(userMapper.toResponse(e2)).thenReturn(r2);
 
@@ -181,6 +352,120 @@ class UserServiceImplTest {
         assertThat(result.get(1).getName()).isEqualTo("User2");
     }
 
+    @Test
+    void getUsersPage_shouldQueryAfterCursorWithLimit() {
+        UserEntity e3 = new UserEntity();
+        e3.setId(3L);
+        UserResponse r3 = new UserResponse();
+        r3.setId(3L);
+
+        Mockito.when(userRepository.findByIdGreaterThanOrderByIdAsc(2L, Limit.of(10))).thenReturn(List.of(e3));
+        Mockito.when(userMapper.toResponse(e3)).thenReturn(r3);
+
+        List<UserResponse> result = userService.getUsersPage(2L, 10);
+
+        assertThat(result).containsExactly(r3);
+        Mockito.verify(userChecks).validatePageLimit(10);
+    }
+
+    @Test
+    void getUsersPage_withoutCursor_shouldStartFromBeginning() {
+        userService.getUsersPage(null, 5);
+
+        Mockito.verify(userRepository).findByIdGreaterThanOrderByIdAsc(0L, Limit.of(5));
+    }
+
+    @Test
+    void searchUsers_shortFirstPage_shouldNotCount() {
+        UserEntity e1 = new UserEntity();
+        e1.setId(1L);
+        UserSearchFilter filter = new UserSearchFilter("ann", UserSearchFilter.NameMatch.PREFIX, 18, 30, null, null);
+
+        Mockito.when(userRepository.findAllOrderedById(Mockito.any(), Mockito.eq(10))).thenReturn(List.of(e1));
+
+        UserSearchResponse result = userService.searchUsers(filter, null, 10);
+
+        assertThat(result.getUsers()).hasSize(1);
+        assertThat(result.getTotal()).isEqualTo(1L);
+        assertThat(result.getTotalCapped()).isFalse();
+        Mockito.verify(userChecks).validateSearch(filter);
+        Mockito.verify(userRepository, Mockito.never()).countUpTo(Mockito.any(), Mockito.anyInt());
+    }
+
+    @Test
+    void searchUsers_fullFirstPage_shouldReportCappedTotal() {
+        UserEntity e5 = new UserEntity();
+        e5.setId(5L);
+        UserSearchFilter filter = new UserSearchFilter(null, UserSearchFilter.NameMatch.PREFIX, 18, null, null, null);
+
+        Mockito.when(userRepository.findAllOrderedById(Mockito.any(), Mockito.eq(1))).thenReturn(List.of(e5));
+        Mockito.when(userRepository.countUpTo(Mockito.any(), Mockito.eq(UserChecks.SEARCH_COUNT_CAP)))
+                .thenReturn(UserChecks.SEARCH_COUNT_CAP + 1L);
+
+        UserSearchResponse result = userService.searchUsers(filter, null, 1);
+
+        assertThat(result.getTotal()).isEqualTo((long) UserChecks.SEARCH_COUNT_CAP);
+        assertThat(result.getTotalCapped()).isTrue();
+    }
+
+    @Test
+    void searchUsers_afterCursor_shouldNotCount() {
+        UserEntity e5 = new UserEntity();
+        e5.setId(5L);
+        UserSearchFilter filter = new UserSearchFilter(null, UserSearchFilter.NameMatch.PREFIX, 18, null, null, null);
+
+        Mockito.when(userRepository.findAllOrderedById(Mockito.any(), Mockito.eq(1))).thenReturn(List.of(e5));
+
+        UserSearchResponse result = userService.searchUsers(filter, 4L, 1);
+
+        assertThat(result.getUsers()).hasSize(1);
+        assertThat(result.getTotal()).isNull();
+        assertThat(result.getTotalCapped()).isNull();
+        Mockito.verify(userRepository, Mockito.never()).countUpTo(Mockito.any(), Mockito.anyInt());
+    }
+
+    @Test
+    void streamAllUsers_shouldMapAndDetachEachRow() {
+        UserEntity e1 = new UserEntity();
+        e1.setId(1L);
+        UserEntity e2 = new UserEntity();
+        e2.setId(2L);
+        UserResponse r1 = new UserResponse();
+        UserResponse r2 = new UserResponse();
+
+        Mockito.when(userRepository.streamAllOrderById()).thenReturn(Stream.of(e1, e2));
+        Mockito.when(userMapper.toResponse(e1)).thenReturn(r1);
+        Mockito.when(userMapper.toResponse(e2)).thenReturn(r2);
+
+        List<UserResponse> received = new ArrayList<>();
+        userService.streamAllUsers(received::add);
+
+        assertThat(received).containsExactly(r1, r2);
+        Mockito.verify(entityManager).detach(e1);
+        Mockito.verify(entityManager).detach(e2);
+    }
+
+    @Test
+    void getUsersByIds_shouldKeepRequestOrderAndReportMissing() {
+        UserEntity e1 = new UserEntity();
+        e1.setId(1L);
+        UserEntity e3 = new UserEntity();
+        e3.setId(3L);
+        UserResponse r1 = new UserResponse().id(1L);
+        UserResponse r3 = new UserResponse().id(3L);
+
+        Mockito.when(userRepository.findAllByIdArray(Mockito.any())).thenReturn(List.of(e1, e3));
+        Mockito.when(userMapper.toResponse(e1)).thenReturn(r1);
+        Mockito.when(userMapper.toResponse(e3)).thenReturn(r3);
+
+        UserBatchResponse result = userService.getUsersByIds(List.of(3L, 2L, 1L, 3L));
+
+        assertThat(result.getUsers()).containsExactly(r3, r1);
+        assertThat(result.getMissing()).containsExactly(2L);
+        Mockito.verify(userRepository).findAllByIdArray(new Long[]{3L, 2L, 1L});
+        Mockito.verify(userRepository, Mockito.never()).findById(Mockito.any());
+    }
+
     @Test
     void deleteUser_existingUser_shouldDeleteById() {
         Long userId = 1L;
@@ -194,6 +479,47 @@ class UserServiceImplTest {
         Mockito.verify(userRepository).deleteById(userId);
     }
 
+    @Test
+    void updateUser_staleVersion_shouldFailPreconditionWithoutSaving() {
+        Long userId = 1L;
+        UserUpdateRequest request = new UserUpdateRequest();
+        request.setId(userId);
+        request.setName("User1");
+        request.setEmail("user1@example.com");
+
+        UserEntity existing = new UserEntity();
+        existing.setId(userId);
+        existing.setVersion(3L);
+        Mockito.when(userRepository.findById(userId)).thenReturn(Optional.of(existing));
+
+        assertThatThrownBy(() -> userService.updateUser(request, 2L))
+                .isInstanceOf(PreconditionFailedException.class);
+        Mockito.verify(userRepository, Mockito.never()).saveAndFlush(Mockito.any());
+    }
+
+    @Test
+    void deleteUser_concurrentChangeWithIfMatch_shouldFailPrecondition() {
+        Long userId = 1L;
+        UserEntity entity = new UserEntity();
+        entity.setId(userId);
+        entity.setVersion(5L);
+        Mockito.when(userRepository.findById(userId)).thenReturn(Optional.of(entity));
+        Mockito.doThrow(new ObjectOptimisticLockingFailureException(UserEntity.class, userId))
+                .when(userRepository).flush();
+
+        assertThatThrownBy(() -> userService.deleteUser(userId, 5L))
+                .isInstanceOf(PreconditionFailedException.class);
+    }
+
+    @Test
+    void getUserVersion_shouldUseVersionQueryInsteadOfLoadingRow() {
+        Long userId = 1L;
+        Mockito.when(userRepository.findVersionById(userId)).thenReturn(Optional.of(7L));
+
+        assertThat(userService.getUserVersion(userId)).contains(7L);
+        Mockito.verify(userRepository, Mockito.never()).findById(Mockito.any());
+    }
+
     @Test
     void deleteUser_nonExistingUser_shouldThrow() {
         Long userId = 77L;
@@ -207,10 +533,8 @@ class UserServiceImplTest {
     @Test
     void isEmailExists_shouldReturnTrueIfFound() {
         String email = "user1@example.com";
-        UserEntity entity = new UserEntity();
-        entity.setEmail(email);
 
-        Mockito.when(userRepository.findByEmail(email)).thenReturn(Optional.of(entity));
+        Mockito.when(userChecks.isEmailTaken(email)).thenReturn(true);
 
         boolean result = userService.isEmailExists(email);
 
@@ -219,7 +543,7 @@ class UserServiceImplTest {
 
     @Test
     void isEmailExists_shouldReturnFalseIfNotFound() {
-        Mockito.when(userRepository.findByEmail("no@example.com")).thenReturn(Optional.empty());
+        Mockito.when(userChecks.isEmailTaken("no@example.com")).thenReturn(false);
 
         boolean result = userService.isEmailExists("no@example.com");
 
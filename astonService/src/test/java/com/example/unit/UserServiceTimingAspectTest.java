@@ -0,0 +1,60 @@
+package com.example.unit;
+
+import com.example.exception.NotFoundException;
+import com.example.metrics.UserServiceTimingAspect;
+import com.example.service.UserService;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UserServiceTimingAspectTest {
+
+    private SimpleMeterRegistry registry;
+    private UserService target;
+    private UserService proxy;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        target = Mockito.mock(UserService.class);
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.addAspect(new UserServiceTimingAspect(registry));
+        proxy = factory.getProxy();
+    }
+
+    @Test
+    void time_shouldRecordSuccessfulCallsInOneTimerPerMethod() {
+        Mockito.when(target.getUserById(1L)).thenReturn(Optional.empty());
+
+        proxy.getUserById(1L);
+        proxy.getUserById(1L);
+
+        Timer timer = registry.get(UserServiceTimingAspect.METRIC)
+                .tag("method", "getUserById")
+                .tag("exception", "none")
+                .timer();
+        assertThat(timer.count()).isEqualTo(2);
+        assertThat(registry.find(UserServiceTimingAspect.METRIC).timers()).hasSize(1);
+    }
+
+    @Test
+    void time_shouldTagFailedCallsWithExceptionAndRethrow() {
+        Mockito.when(target.deleteUser(7L)).thenThrow(new NotFoundException("нет"));
+
+        assertThatThrownBy(() -> proxy.deleteUser(7L)).isInstanceOf(NotFoundException.class);
+
+        assertThat(registry.get(UserServiceTimingAspect.METRIC)
+                .tag("method", "deleteUser")
+                .tag("exception", "NotFoundException")
+                .timer()
+                .count()).isEqualTo(1);
+    }
+}
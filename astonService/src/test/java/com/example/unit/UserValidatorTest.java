@@ -0,0 +1,57 @@
+package com.example.unit;
+
+import com.example.dto.UserCreateRequest;
+import com.example.util.UserValidator;
+import com.example.util.UserValidator.Violation;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserValidatorTest {
+
+    private static final Pattern EMAIL_REGEX = Pattern.compile("^[\\w.-]+@[\\w.-]+\\.[a-zA-Z]{2,}$");
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "user@example.com", "u.s-e_r@sub.example.org", "a@b.cd", "a@..com", "a@b-.c1.io",
+            "", "@example.com", "user@", "user@example", "user@example.c", "user@.com",
+            "user@@example.com", "us er@example.com", "user@example.c0m", "user@exa mple.com",
+            "user@example.com.", "юзер@example.com", "user@example.рф", "user.example.com", "a@b.c.de"
+    })
+    void isValidEmail_shouldMatchRegexSemantics(String email) {
+        assertThat(UserValidator.isValidEmail(email)).isEqualTo(EMAIL_REGEX.matcher(email).matches());
+    }
+
+    @Test
+    void validate_shouldCollectAllViolationsInOnePass() {
+        int violations = UserValidator.validate("A", "not-an-email", 0);
+
+        assertThat(Violation.NAME_LENGTH.in(violations)).isTrue();
+        assertThat(Violation.EMAIL_FORMAT.in(violations)).isTrue();
+        assertThat(Violation.AGE_RANGE.in(violations)).isTrue();
+        assertThat(UserValidator.describe(violations)).isEqualTo(
+                "Имя должно быть от 2 до 50 символов; Некорректный email; Возраст должен быть от 1 до 150");
+    }
+
+    @Test
+    void validateAll_shouldFillMaskPerRequest() {
+        List<UserCreateRequest> requests = Arrays.asList(
+                new UserCreateRequest("Иван", "ivan@example.com", 30),
+                null,
+                new UserCreateRequest("Пётр", "petr@example.com", null));
+        int[] violations = new int[requests.size()];
+
+        int invalid = UserValidator.validateAll(requests, violations);
+
+        assertThat(invalid).isEqualTo(2);
+        assertThat(violations[0]).isZero();
+        assertThat(violations[1]).isEqualTo(Violation.REQUEST_NULL.bit());
+        assertThat(violations[2]).isEqualTo(Violation.AGE_REQUIRED.bit());
+    }
+}
@@ -0,0 +1,349 @@
+package integrationTest;
+
+import com.example.UserCommandService;
+import com.example.config.ReplicaRoutingProperties;
+import com.example.datasource.ConsistencyToken;
+import com.example.datasource.ReplicaRouter;
+import com.example.dto.UserCreateRequest;
+import com.example.dto.UserResponse;
+import com.example.service.UserService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.Network;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.containers.wait.strategy.Wait;
+import org.testcontainers.images.builder.Transferable;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Чтения с потоковой реплики: транзакции readOnly идут на реплику, клиент с токеном согласованности
+ * видит свою запись (PIN и WAIT), а при негодной реплике чтения возвращаются на primary.
+ * Отставание реплики воспроизводится паузой проигрывания WAL.
+ */
+@SpringBootTest(classes = UserCommandService.class)
+@Testcontainers
+class ReplicatedUserServiceIntegrationTest {
+
+    private static final Network network = Network.newNetwork();
+
+    @Container
+    static final PostgreSQLContainer<?> primary = new PostgreSQLContainer<>("postgres:15")
+            .withNetwork(network)
+            .withNetworkAliases("primary")
+            .withDatabaseName("aston")
+            .withUsername("user")
+            .withPassword("password")
+            .withCopyToContainer(Transferable.of(
+                            "echo 'host replication all all scram-sha-256' >> \"$PGDATA/pg_hba.conf\""),
+                    "/docker-entrypoint-initdb.d/replication.sh");
+
+    /**
+     * Копия primary через pg_basebackup -R: стартует в режиме восстановления и принимает только чтения.
+     */
+    @Container
+    static final GenericContainer<?> replica = new GenericContainer<>("postgres:15")
+            .withNetwork(network)
+            .dependsOn(primary)
+            .withEnv("PGPASSWORD", "password")
+            .withExposedPorts(PostgreSQLContainer.POSTGRESQL_PORT)
+            .withCommand("bash", "-c", "gosu postgres pg_basebackup -h primary -U user -D /tmp/replica -R -X stream"
+                    + " && chmod 700 /tmp/replica && exec gosu postgres postgres -D /tmp/replica")
+            .waitingFor(Wait.forLogMessage(".*ready to accept read-only connections.*", 1));
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @DynamicPropertySource
+    static void registerDatabases(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", primary::getJdbcUrl);
+        registry.add("spring.datasource.username", primary::getUsername);
+        registry.add("spring.datasource.password", primary::getPassword);
+        registry.add("app.datasource.routing.enabled", () -> "true");
+        registry.add("app.datasource.routing.replicas[0].name", () -> "r1");
+        registry.add("app.datasource.routing.replicas[0].url", ReplicatedUserServiceIntegrationTest::replicaUrl);
+        registry.add("app.datasource.routing.health-check-interval-ms", () -> "100");
+        registry.add("app.outbox.relay-enabled", () -> "false");
+    }
+
+    @BeforeEach
+    void cleanBefore() {
+        execute(primaryUrl(), statement -> statement.execute("TRUNCATE users, user_emails, outbox"));
+        awaitReplicaCaughtUp();
+    }
+
+    @AfterEach
+    void resumeReplay() {
+        execute(replicaUrl(), statement -> statement.execute("SELECT pg_wal_replay_resume()"));
+    }
+
+    @Test
+    @DisplayName("Транзакции readOnly читают с реплики")
+    void getUsersPage_shouldReadFromReplica() {
+        long replicated = create("replicated");
+        awaitReplicaCaughtUp();
+        pauseReplay();
+        create("not-replicated");
+        double replicaReads = reads("r1", "balanced");
+
+        assertThat(userService.getUsersPage(null, 10))
+                .extracting(UserResponse::getId)
+                .containsExactly(replicated);
+        assertThat(reads("r1", "balanced")).isGreaterThan(replicaReads);
+    }
+
+    @Test
+    @DisplayName("PIN: клиент с токеном читает с primary, пока реплика не проиграла его запись")
+    void getUsersPage_withToken_shouldReadOwnWriteInPinMode() throws InterruptedException {
+        pauseReplay();
+        AtomicLong token = new AtomicLong();
+        long id;
+        try (ConsistencyToken.Scope ignored = ConsistencyToken.open(ConsistencyToken.NONE, token::set)) {
+            id = create("own-write");
+        }
+        assertThat(token.get()).isNotEqualTo(ConsistencyToken.NONE);
+
+        assertThat(userService.getUsersPage(null, 10)).isEmpty();
+        double pinned = reads("primary", "read-your-writes");
+        assertThat(pageWithToken(token.get())).extracting(UserResponse::getId).containsExactly(id);
+        assertThat(reads("primary", "read-your-writes")).isGreaterThan(pinned);
+
+        resumeReplay();
+        double replicaReads = reads("r1", "balanced");
+        await(() -> {
+            pageWithToken(token.get());
+            return reads("r1", "balanced") > replicaReads;
+        });
+        assertThat(pageWithToken(token.get())).extracting(UserResponse::getId).containsExactly(id);
+    }
+
+    @Test
+    @DisplayName("WAIT: чтение с токеном ждёт реплику, по таймауту уходит на primary")
+    void readOnlyDataSource_withToken_shouldWaitForReplicaInWaitMode() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        try (ReplicaRouter router = router(ReplicaRoutingProperties.ReadYourWrites.WAIT, Duration.ofSeconds(10),
+                replicaUrl(), registry)) {
+            router.checkHealth();
+            pauseReplay();
+            long token = insertOnPrimary(router, "waited@example.com");
+
+            CompletableFuture<Void> resume = CompletableFuture.runAsync(this::resumeReplay,
+                    CompletableFuture.delayedExecutor(300, TimeUnit.MILLISECONDS));
+            try (ConsistencyToken.Scope ignored = ConsistencyToken.open(token, lsn -> {
+            });
+                 Connection connection = router.readOnlyDataSource().getConnection()) {
+                assertThat(inRecovery(connection)).isTrue();
+                assertThat(countEmail(connection, "waited@example.com")).isEqualTo(1);
+            }
+            resume.join();
+            assertThat(registry.get("user.db.reads").tag("reason", "caught-up").counter().count()).isEqualTo(1);
+        }
+
+        try (ReplicaRouter router = router(ReplicaRoutingProperties.ReadYourWrites.WAIT, Duration.ofMillis(100),
+                replicaUrl(), registry)) {
+            router.checkHealth();
+            pauseReplay();
+            long token = insertOnPrimary(router, "timed-out@example.com");
+
+            try (ConsistencyToken.Scope ignored = ConsistencyToken.open(token, lsn -> {
+            });
+                 Connection connection = router.readOnlyDataSource().getConnection()) {
+                assertThat(inRecovery(connection)).isFalse();
+                assertThat(countEmail(connection, "timed-out@example.com")).isEqualTo(1);
+            }
+            assertThat(registry.get("user.db.reads").tag("reason", "wait-timeout").counter().count()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    @DisplayName("Недоступная или отстающая реплика исключается, чтения идут на primary")
+    void readOnlyDataSource_shouldFallBackToPrimaryWhenReplicaIsUnhealthy() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        String url = replicaUrl() + "?loginTimeout=2&socketTimeout=2";
+        try (ReplicaRouter router = router(ReplicaRoutingProperties.ReadYourWrites.PIN, Duration.ofMillis(100),
+                url, registry)) {
+            router.checkHealth();
+            try (Connection connection = router.readOnlyDataSource().getConnection()) {
+                assertThat(inRecovery(connection)).isTrue();
+            }
+
+            DockerClientFactory.instance().client().pauseContainerCmd(replica.getContainerId()).exec();
+            try {
+                router.checkHealth();
+                try (Connection connection = router.readOnlyDataSource().getConnection()) {
+                    assertThat(inRecovery(connection)).isFalse();
+                }
+            } finally {
+                DockerClientFactory.instance().client().unpauseContainerCmd(replica.getContainerId()).exec();
+            }
+
+            awaitReplicaCaughtUp();
+            router.checkHealth();
+            try (Connection connection = router.readOnlyDataSource().getConnection()) {
+                assertThat(inRecovery(connection)).isTrue();
+            }
+
+            // Отставание больше max-lag-bytes (1 КБ в этом роутере)
+            pauseReplay();
+            execute(primaryUrl(), statement -> statement.execute("CREATE TABLE IF NOT EXISTS lag_filler AS "
+                    + "SELECT g, repeat('x', 100) AS filler FROM generate_series(1, 1000) g"));
+            try {
+                router.checkHealth();
+                try (Connection connection = router.readOnlyDataSource().getConnection()) {
+                    assertThat(inRecovery(connection)).isFalse();
+                }
+            } finally {
+                execute(primaryUrl(), statement -> statement.execute("DROP TABLE lag_filler"));
+            }
+            assertThat(registry.get("user.db.reads").tag("reason", "no-replica").counter().count()).isEqualTo(2);
+        }
+    }
+
+    private long create(String name) {
+        UserCreateRequest r = new UserCreateRequest();
+        r.setName(name);
+        r.setEmail(name + "@example.com");
+        r.setAge(30);
+        return userService.createUser(r).getId();
+    }
+
+    private List<UserResponse> pageWithToken(long token) {
+        try (ConsistencyToken.Scope ignored = ConsistencyToken.open(token, lsn -> {
+        })) {
+            return userService.getUsersPage(null, 10);
+        }
+    }
+
+    private double reads(String target, String reason) {
+        return meterRegistry.get("user.db.reads").tag("target", target).tag("reason", reason).counter().count();
+    }
+
+    private static ReplicaRouter router(ReplicaRoutingProperties.ReadYourWrites mode, Duration lsnWaitTimeout,
+                                        String replicaUrl, MeterRegistry registry) {
+        ReplicaRoutingProperties properties = new ReplicaRoutingProperties();
+        properties.setReadYourWrites(mode);
+        properties.setLsnWaitTimeout(lsnWaitTimeout);
+        properties.setMaxLagBytes(1024);
+        DataSource replicaDataSource = new DriverManagerDataSource(replicaUrl, "user", "password");
+        return new ReplicaRouter(new DriverManagerDataSource(primaryUrl(), "user", "password"),
+                Map.of("r1", replicaDataSource), properties, registry);
+    }
+
+    /**
+     * Вставляет пользователя прямо на primary и возвращает LSN после коммита — токен этой записи.
+     */
+    private static long insertOnPrimary(ReplicaRouter router, String email) throws SQLException {
+        execute(primaryUrl(), statement -> statement.execute(
+                "INSERT INTO users (name, email, age) VALUES ('wait', '" + email + "', 30)"));
+        return router.primaryLsn();
+    }
+
+    private static boolean inRecovery(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT pg_is_in_recovery()")) {
+            rs.next();
+            return rs.getBoolean(1);
+        }
+    }
+
+    private static long countEmail(Connection connection, String email) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT count(*) FROM users WHERE email = '" + email + "'")) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private void pauseReplay() {
+        execute(replicaUrl(), statement -> statement.execute("SELECT pg_wal_replay_pause()"));
+    }
+
+    /**
+     * Ждёт, пока реплика проиграет WAL до текущего LSN primary.
+     */
+    private static void awaitReplicaCaughtUp() {
+        String[] lsn = new String[1];
+        execute(primaryUrl(), statement -> {
+            try (ResultSet rs = statement.executeQuery("SELECT pg_current_wal_lsn()::text")) {
+                rs.next();
+                lsn[0] = rs.getString(1);
+            }
+        });
+        try {
+            await(() -> {
+                boolean[] caughtUp = new boolean[1];
+                execute(replicaUrl(), statement -> {
+                    try (ResultSet rs = statement.executeQuery(
+                            "SELECT pg_last_wal_replay_lsn() >= '" + lsn[0] + "'::pg_lsn")) {
+                        rs.next();
+                        caughtUp[0] = rs.getBoolean(1);
+                    }
+                });
+                return caughtUp[0];
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("условие не выполнено за 10 с").isLessThan(deadline);
+            Thread.sleep(20);
+        }
+    }
+
+    private static String primaryUrl() {
+        return primary.getJdbcUrl();
+    }
+
+    private static String replicaUrl() {
+        return "jdbc:postgresql://" + replica.getHost() + ":"
+                + replica.getMappedPort(PostgreSQLContainer.POSTGRESQL_PORT) + "/aston";
+    }
+
+    private interface SqlAction {
+        void accept(Statement statement) throws SQLException;
+    }
+
+    private static void execute(String url, SqlAction action) {
+        try (Connection connection = DriverManager.getConnection(url, "user", "password");
+             Statement statement = connection.createStatement()) {
+            action.accept(statement);
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
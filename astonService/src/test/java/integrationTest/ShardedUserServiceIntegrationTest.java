@@ -0,0 +1,193 @@
+package integrationTest;
+
+import com.example.UserCommandService;
+import com.example.dto.UserCreateRequest;
+import com.example.dto.UserEvent;
+import com.example.dto.UserResponse;
+import com.example.dto.UserUpdateRequest;
+import com.example.exception.DuplicateResourceException;
+import com.example.service.UserService;
+import com.example.shard.Shards;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Шардирование на двух базах: пользователи распределяются по шардам, выборки сливаются по ID,
+ * email уникален между шардами.
+ */
+@SpringBootTest(classes = UserCommandService.class)
+@Testcontainers
+class ShardedUserServiceIntegrationTest {
+
+    @Container
+    static final PostgreSQLContainer<?> shard0 = new PostgreSQLContainer<>("postgres:15")
+            .withDatabaseName("shard0")
+            .withUsername("user")
+            .withPassword("password");
+
+    @Container
+    static final PostgreSQLContainer<?> shard1 = new PostgreSQLContainer<>("postgres:15")
+            .withDatabaseName("shard1")
+            .withUsername("user")
+            .withPassword("password");
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private Shards shards;
+
+    @DynamicPropertySource
+    static void registerShards(DynamicPropertyRegistry registry) {
+        registry.add("app.sharding.enabled", () -> "true");
+        registry.add("app.sharding.shards[0].name", () -> "shard0");
+        registry.add("app.sharding.shards[0].url", shard0::getJdbcUrl);
+        registry.add("app.sharding.shards[1].name", () -> "shard1");
+        registry.add("app.sharding.shards[1].url", shard1::getJdbcUrl);
+        registry.add("spring.datasource.username", shard0::getUsername);
+        registry.add("spring.datasource.password", shard0::getPassword);
+        registry.add("spring.liquibase.change-log", () -> "classpath:db/db.changelog-master.yaml");
+        registry.add("app.outbox.relay-enabled", () -> "false");
+    }
+
+    @BeforeEach
+    void cleanBefore() {
+        for (PostgreSQLContainer<?> shard : List.of(shard0, shard1)) {
+            execute(shard, statement -> {
+                try {
+                    statement.execute("TRUNCATE users, user_emails, outbox");
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+        }
+    }
+
+    @Test
+    @DisplayName("Пользователи распределяются по обоим шардам, ID указывает на шард")
+    void createUser_shouldSpreadUsersAcrossShards() {
+        List<Long> ids = create(40);
+
+        assertThat(count(shard0, "users") + count(shard1, "users")).isEqualTo(40);
+        assertThat(count(shard0, "users")).isPositive();
+        assertThat(count(shard1, "users")).isPositive();
+        for (Long id : ids) {
+            PostgreSQLContainer<?> shard = shards.forId(id) == 0 ? shard0 : shard1;
+            assertThat(count(shard, "users where id = " + id)).isEqualTo(1);
+            assertThat(userService.getUserById(id)).isPresent();
+        }
+    }
+
+    @Test
+    @DisplayName("Список и страницы собираются со всех шардов по возрастанию ID")
+    void getUsersPage_shouldMergeShardsById() {
+        List<Long> ids = create(30);
+        List<Long> sorted = ids.stream().sorted().toList();
+
+        assertThat(userService.getAllUsers()).extracting(UserResponse::getId).containsExactlyElementsOf(sorted);
+
+        List<Long> paged = new ArrayList<>();
+        Long after = null;
+        List<UserResponse> page;
+        while (!(page = userService.getUsersPage(after, 7)).isEmpty()) {
+            page.forEach(user -> paged.add(user.getId()));
+            after = page.get(page.size() - 1).getId();
+        }
+        assertThat(paged).containsExactlyElementsOf(sorted);
+
+        List<Long> streamed = new ArrayList<>();
+        userService.streamAllUsers(user -> streamed.add(user.getId()));
+        assertThat(streamed).containsExactlyElementsOf(sorted);
+    }
+
+    @Test
+    @DisplayName("Email уникален между шардами и после смены email")
+    void updateUser_shouldKeepEmailUniqueAcrossShards() {
+        UserEvent first = userService.createUser(createRequest("first", "first@example.com"));
+        UserEvent second = userService.createUser(createRequest("second", "second@example.com"));
+
+        assertThatThrownBy(() -> userService.createUser(createRequest("again", "first@example.com")))
+                .isInstanceOf(DuplicateResourceException.class);
+
+        userService.updateUser(updateRequest(first.getId(), "moved@example.com"));
+        assertThat(userService.isEmailExists("moved@example.com")).isTrue();
+        assertThat(userService.isEmailExists("first@example.com")).isFalse();
+
+        assertThatThrownBy(() -> userService.updateUser(updateRequest(second.getId(), "moved@example.com")))
+                .isInstanceOf(DuplicateResourceException.class);
+        assertThatThrownBy(() -> userService.createUser(createRequest("copy", "moved@example.com")))
+                .isInstanceOf(DuplicateResourceException.class);
+
+        userService.createUser(createRequest("reused", "first@example.com"));
+        userService.deleteUser(second.getId());
+        userService.createUser(createRequest("reused", "second@example.com"));
+    }
+
+    private List<Long> create(int count) {
+        List<Long> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(userService.createUser(createRequest("user" + i, "user" + i + "@example.com")).getId());
+        }
+        return ids;
+    }
+
+    private static UserCreateRequest createRequest(String name, String email) {
+        UserCreateRequest r = new UserCreateRequest();
+        r.setName(name);
+        r.setEmail(email);
+        r.setAge(30);
+        return r;
+    }
+
+    private static UserUpdateRequest updateRequest(Long id, String email) {
+        UserUpdateRequest r = new UserUpdateRequest();
+        r.setId(id);
+        r.setName("updated");
+        r.setEmail(email);
+        r.setAge(31);
+        return r;
+    }
+
+    private static long count(PostgreSQLContainer<?> shard, String from) {
+        long[] count = {0};
+        execute(shard, statement -> {
+            try (ResultSet rs = statement.executeQuery("select count(*) from " + from)) {
+                rs.next();
+                count[0] = rs.getLong(1);
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        return count[0];
+    }
+
+    private static void execute(PostgreSQLContainer<?> shard, Consumer<Statement> action) {
+        try (Connection connection = DriverManager.getConnection(shard.getJdbcUrl(), shard.getUsername(),
+                shard.getPassword());
+             Statement statement = connection.createStatement()) {
+            action.accept(statement);
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
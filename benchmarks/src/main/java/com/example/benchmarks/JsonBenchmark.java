@@ -0,0 +1,80 @@
+package com.example.benchmarks;
+
+import com.example.dto.UserEvent;
+import com.example.dto.UserResponse;
+import com.example.hateoas.UserEventLinksBuilder;
+import com.example.hateoas.UserLinksBuilder;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON-сериализация ответа REST и события Kafka со ссылками, как их отдаёт сервис.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonBenchmark {
+
+    private ObjectMapper objectMapper;
+    private UserResponse response;
+    private UserEvent event;
+    private String responseJson;
+    private String eventJson;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        // Те же модули и настройки, что у ObjectMapper из автоконфигурации Spring Boot
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        response = new UserResponse();
+        response.setId(42L);
+        response.setName("Иван");
+        response.setEmail("ivan@example.com");
+        response.setAge(30);
+        response.setCreatedAt(LocalDateTime.of(2025, 1, 1, 12, 0));
+        UserLinksBuilder.attachTo(response);
+
+        event = new UserEvent("ivan@example.com", UserEvent.EventTypeEnum.CREATED).id(42L);
+        UserEventLinksBuilder.attachTo(event);
+
+        responseJson = objectMapper.writeValueAsString(response);
+        eventJson = objectMapper.writeValueAsString(event);
+    }
+
+    @Benchmark
+    public byte[] writeUserResponse() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] writeUserEvent() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(event);
+    }
+
+    @Benchmark
+    public UserResponse readUserResponse() throws JsonProcessingException {
+        return objectMapper.readValue(responseJson, UserResponse.class);
+    }
+
+    @Benchmark
+    public UserEvent readUserEvent() throws JsonProcessingException {
+        return objectMapper.readValue(eventJson, UserEvent.class);
+    }
+}
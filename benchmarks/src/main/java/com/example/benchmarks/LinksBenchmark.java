@@ -0,0 +1,43 @@
+package com.example.benchmarks;
+
+import com.example.dto.UserEventLinksValue;
+import com.example.dto.UserResponseLinksValue;
+import com.example.hateoas.UserEventLinksBuilder;
+import com.example.hateoas.UserLinksBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Построение HATEOAS-ссылок, которые добавляются к каждому ответу и событию.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LinksBenchmark {
+
+    private long id = 42L;
+    private String email = "ivan@example.com";
+
+    @Benchmark
+    public Map<String, UserResponseLinksValue> userLinks() {
+        return UserLinksBuilder.buildForUser(id);
+    }
+
+    @Benchmark
+    public Map<String, UserEventLinksValue> userEventLinks() {
+        return UserEventLinksBuilder.buildFor(email);
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.benchmarks;
+
+import com.example.util.UserChecks;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Валидация входных данных пользователя. Проверки формата к БД не обращаются,
+ * поэтому репозиторий и фильтр email не нужны.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserChecksBenchmark {
+
+    private final UserChecks userChecks = new UserChecks(null, null);
+
+    private final String validEmail = "ivan.petrov@example.com";
+    private final String invalidEmail = "ivan.petrov@example";
+
+    @Benchmark
+    public void validateEmailValid() {
+        userChecks.validateEmail(validEmail);
+    }
+
+    @Benchmark
+    public void validateEmailInvalid(Blackhole blackhole) {
+        try {
+            userChecks.validateEmail(invalidEmail);
+        } catch (RuntimeException e) {
+            blackhole.consume(e);
+        }
+    }
+
+    @Benchmark
+    public void validateAge() {
+        userChecks.validateAge(30);
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.benchmarks;
+
+import com.example.dto.UserEvent;
+import com.example.kafka.UserEventDeserializer;
+import com.example.kafka.UserEventSerializer;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сериализация события user-events: прежний JSON с заголовками типа Spring против Avro
+ * с заголовком event-type. Размеры сообщений выводятся вторичными результатами сериализации
+ * (:bodyBytes и :headerBytes).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserEventSerdeBenchmark {
+
+    private static final String TOPIC = "user-events";
+
+    private UserEvent event;
+
+    private JsonSerializer<UserEvent> jsonSerializer;
+    private JsonDeserializer<UserEvent> jsonDeserializer;
+    private byte[] json;
+    private RecordHeaders jsonHeaders;
+    private int jsonHeadersSize;
+
+    private UserEventSerializer avroSerializer;
+    private UserEventDeserializer avroDeserializer;
+    private UserEventDeserializer skippingDeserializer;
+    private byte[] avro;
+    private RecordHeaders avroHeaders;
+    private int avroHeadersSize;
+
+    /**
+     * Размер сообщения в байтах. Значения присваиваются, а не накапливаются, поэтому в отчёте
+     * это размер одного сообщения, а не сумма за итерацию.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class MessageSize {
+        public long bodyBytes;
+        public long headerBytes;
+    }
+
+    @Setup
+    public void setUp() {
+        event = new UserEvent("ivan@example.com", UserEvent.EventTypeEnum.UPDATED)
+                .id(42L).name("Иван").age(30).version(3L);
+
+        jsonSerializer = new JsonSerializer<>();
+        jsonDeserializer = new JsonDeserializer<>(UserEvent.class, false);
+        jsonHeaders = new RecordHeaders();
+        json = jsonSerializer.serialize(TOPIC, jsonHeaders, event);
+        jsonHeadersSize = headersSize(jsonHeaders);
+
+        avroSerializer = new UserEventSerializer();
+        avroDeserializer = new UserEventDeserializer();
+        skippingDeserializer = new UserEventDeserializer(EnumSet.of(UserEvent.EventTypeEnum.DELETED));
+        avroHeaders = new RecordHeaders();
+        avro = avroSerializer.serialize(TOPIC, avroHeaders, event);
+        avroHeadersSize = headersSize(avroHeaders);
+    }
+
+    private static int headersSize(RecordHeaders headers) {
+        int size = 0;
+        for (var header : headers) {
+            size += header.key().length() + header.value().length;
+        }
+        return size;
+    }
+
+    @Benchmark
+    public byte[] jsonSerialize(MessageSize size) {
+        size.bodyBytes = json.length;
+        size.headerBytes = jsonHeadersSize;
+        return jsonSerializer.serialize(TOPIC, new RecordHeaders(), event);
+    }
+
+    @Benchmark
+    public UserEvent jsonDeserialize() {
+        return jsonDeserializer.deserialize(TOPIC, jsonHeaders, json);
+    }
+
+    @Benchmark
+    public byte[] avroSerialize(MessageSize size) {
+        size.bodyBytes = avro.length;
+        size.headerBytes = avroHeadersSize;
+        return avroSerializer.serialize(TOPIC, new RecordHeaders(), event);
+    }
+
+    @Benchmark
+    public UserEvent avroDeserialize() {
+        return avroDeserializer.deserialize(TOPIC, avroHeaders, avro);
+    }
+
+    /**
+     * Запись ненужного типа: решение принимается по заголовку, тело не разбирается.
+     */
+    @Benchmark
+    public UserEvent avroSkipByHeader() {
+        return skippingDeserializer.deserialize(TOPIC, avroHeaders, avro);
+    }
+}
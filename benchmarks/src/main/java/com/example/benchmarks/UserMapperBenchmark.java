@@ -0,0 +1,73 @@
+package com.example.benchmarks;
+
+import com.example.dto.UserCreateRequest;
+import com.example.dto.UserResponse;
+import com.example.dto.UserUpdateRequest;
+import com.example.entity.UserEntity;
+import com.example.mapper.UserMapper;
+import com.example.mapper.UserMapperImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Преобразования MapStruct между сущностью и DTO.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class UserMapperBenchmark {
+
+    private final UserMapper userMapper = new UserMapperImpl();
+
+    private UserEntity entity;
+    private UserCreateRequest createRequest;
+    private UserUpdateRequest updateRequest;
+
+    @Setup
+    public void setUp() {
+        entity = new UserEntity();
+        entity.setId(42L);
+        entity.setName("Иван");
+        entity.setEmail("ivan@example.com");
+        entity.setAge(30);
+        entity.setCreatedAt(LocalDateTime.of(2025, 1, 1, 12, 0));
+
+        createRequest = new UserCreateRequest("Иван", "ivan@example.com", 30);
+
+        updateRequest = new UserUpdateRequest();
+        updateRequest.setId(42L);
+        updateRequest.setName("Пётр");
+        updateRequest.setEmail("petr@example.com");
+        updateRequest.setAge(31);
+    }
+
+    @Benchmark
+    public UserResponse toResponse() {
+        return userMapper.toResponse(entity);
+    }
+
+    @Benchmark
+    public UserEntity fromCreateRequest() {
+        return userMapper.fromCreateRequest(createRequest);
+    }
+
+    @Benchmark
+    public UserEntity updateEntityFromDto() {
+        userMapper.updateEntityFromDto(updateRequest, entity);
+        return entity;
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.benchmarks;
+
+import com.example.UserCommandService;
+import com.example.dto.UserBatchResponse;
+import com.example.dto.UserCreateRequest;
+import com.example.dto.UserEvent;
+import com.example.dto.UserResponse;
+import com.example.service.UserService;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Сквозной путь сервиса: валидация, проверка уникальности, вставка с записью в outbox
+ * и чтение по id через кэш. Поднимается полный контекст приложения на встроенном PostgreSQL;
+ * Kafka, Eureka и config server отключены.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserServiceBenchmark {
+
+    private static final int BATCH_SIZE = 50;
+
+    private final AtomicLong emailSequence = new AtomicLong();
+
+    private EmbeddedPostgres postgres;
+    private ConfigurableApplicationContext context;
+    private UserService userService;
+    private Long existingId;
+    private List<Long> batchIds;
+
+    @Setup(Level.Trial)
+    public void start() throws IOException {
+        postgres = EmbeddedPostgres.start();
+        context = new SpringApplicationBuilder(UserCommandService.class)
+                .web(WebApplicationType.NONE)
+                // Аргументами, а не properties(): они должны перекрыть значения из application.yml
+                .run("--spring.cloud.config.enabled=false",
+                        "--eureka.client.enabled=false",
+                        "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                        "--spring.datasource.username=postgres",
+                        "--spring.datasource.password=",
+                        "--spring.liquibase.change-log=classpath:db/db.changelog-master.yaml",
+                        "--app.kafka.bootstrap-servers=localhost:9092",
+                        "--app.outbox.relay-enabled=false",
+                        "--logging.level.root=WARN");
+        userService = context.getBean(UserService.class);
+        existingId = userService.createUser(nextRequest()).getId();
+        batchIds = new ArrayList<>();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batchIds.add(userService.createUser(nextRequest()).getId());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() throws IOException {
+        context.close();
+        postgres.close();
+    }
+
+    private UserCreateRequest nextRequest() {
+        return new UserCreateRequest("Бенчмарк", "bench-" + emailSequence.incrementAndGet() + "@example.com", 30);
+    }
+
+    @Benchmark
+    public UserEvent createUser() {
+        return userService.createUser(nextRequest());
+    }
+
+    @Benchmark
+    public Optional<UserResponse> getUserById() {
+        return userService.getUserById(existingId);
+    }
+
+    /**
+     * Сравнивается с BATCH_SIZE вызовами getUserById: один запрос = ANY вместо запроса на каждый ID.
+     */
+    @Benchmark
+    public UserBatchResponse getUsersByIds() {
+        return userService.getUsersByIds(batchIds);
+    }
+}
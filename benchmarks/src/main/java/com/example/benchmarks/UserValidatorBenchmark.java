@@ -0,0 +1,95 @@
+package com.example.benchmarks;
+
+import com.example.dto.UserCreateRequest;
+import com.example.util.UserValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Однопроходная проверка UserValidator против прежней проверки email регулярным выражением,
+ * которое компилировалось при каждом вызове, и против заранее скомпилированного Pattern.
+ * Запускать с -prof gc, чтобы увидеть выделение памяти на операцию.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class UserValidatorBenchmark {
+
+    private static final String EMAIL_REGEX = "^[\\w.-]+@[\\w.-]+\\.[a-zA-Z]{2,}$";
+    private static final Pattern EMAIL_PATTERN = Pattern.compile(EMAIL_REGEX);
+    private static final int BATCH_SIZE = 1000;
+
+    private final String email = "ivan.petrov@example.com";
+
+    private List<UserCreateRequest> batch;
+    private int[] violations;
+
+    @Setup
+    public void setUp() {
+        batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            // Каждая десятая строка с ошибкой, как в типичном импорте
+            String rowEmail = i % 10 == 0 ? "broken" + i : "user" + i + "@example.com";
+            batch.add(new UserCreateRequest("Пользователь " + i, rowEmail, 18 + i % 60));
+        }
+        violations = new int[BATCH_SIZE];
+    }
+
+    @Benchmark
+    public boolean emailRegexCompiledPerCall() {
+        return Pattern.compile(EMAIL_REGEX).matcher(email).matches();
+    }
+
+    @Benchmark
+    public boolean emailRegexPrecompiled() {
+        return EMAIL_PATTERN.matcher(email).matches();
+    }
+
+    @Benchmark
+    public boolean emailScanner() {
+        return UserValidator.isValidEmail(email);
+    }
+
+    @Benchmark
+    public int validateRequest() {
+        return UserValidator.validate("Иван Петров", email, 30);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int validateBatchLegacy() {
+        int invalid = 0;
+        for (UserCreateRequest request : batch) {
+            String name = request.getName();
+            boolean valid = name != null && name.length() >= 2 && name.length() <= 50
+                    && Pattern.compile(EMAIL_REGEX).matcher(request.getEmail()).matches()
+                    && request.getAge() != null && request.getAge() >= 1 && request.getAge() <= 150;
+            if (!valid) {
+                invalid++;
+            }
+        }
+        return invalid;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int validateBatch() {
+        return UserValidator.validateAll(batch, violations);
+    }
+}